@@ -31,7 +31,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
@@ -47,6 +47,7 @@ import net.roboconf.core.model.helpers.ComponentHelpers;
 import net.roboconf.core.runtime.IReconfigurable;
 import net.roboconf.core.utils.ProcessStore;
 import net.roboconf.core.utils.Utils;
+import net.roboconf.messaging.api.AbstractMessageProcessor;
 import net.roboconf.messaging.api.messages.Message;
 import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifMachineDown;
 import net.roboconf.messaging.api.reconfigurables.ReconfigurableClientAgent;
@@ -63,6 +64,9 @@ public class Agent implements AgentMessagingInterface, IReconfigurable {
 	String domain = Constants.DEFAULT_DOMAIN;
 	String networkInterface = AgentConstants.DEFAULT_NETWORK_INTERFACE;
 	boolean overrideProperties = false, simulatePlugins = true;
+	int messageQueueCapacity = 0;
+	boolean messagePriorities = false;
+	int lifeCycleWorkers = 1;
 
 	// Fields that should be injected (ipojo)
 	final List<PluginInterface> plugins = new ArrayList<> ();
@@ -110,6 +114,9 @@ public class Agent implements AgentMessagingInterface, IReconfigurable {
 		this.messagingClient = newReconfigurableClientAgent();
 		this.messagingClient.setDomain( this.domain );
 		AgentMessageProcessor messageProcessor = newMessageProcessor();
+		messageProcessor.getMessageQueue().setCapacity( this.messageQueueCapacity );
+		messageProcessor.setPrioritiesEnabled( this.messagePriorities );
+		messageProcessor.setLifeCycleWorkers( this.lifeCycleWorkers );
 		this.messagingClient.associateMessageProcessor( messageProcessor );
 
 		// Deal with dynamic parameters
@@ -159,8 +166,12 @@ public class Agent implements AgentMessagingInterface, IReconfigurable {
 
 		// Close the connection
 		try {
-			this.messagingClient.getMessageProcessor().stopProcessor();
-			this.messagingClient.getMessageProcessor().interrupt();
+			AbstractMessageProcessor<?> messageProcessor = this.messagingClient.getMessageProcessor();
+			messageProcessor.stopProcessor();
+			messageProcessor.interrupt();
+			if( messageProcessor instanceof AgentMessageProcessor )
+				((AgentMessageProcessor) messageProcessor).shutdownLifeCycleWorkers();
+
 			this.messagingClient.closeConnection();
 
 		} catch( IOException e ) {
@@ -519,6 +530,50 @@ public class Agent implements AgentMessagingInterface, IReconfigurable {
 	}
 
 
+	/**
+	 * Sets the capacity of the queue that stores received messages.
+	 * @param messageQueueCapacity the maximum number of pending messages (0 or less for no limit)
+	 * @see net.roboconf.messaging.api.jmx.RoboconfMessageQueue#setCapacity(int)
+	 */
+	public void setMessageQueueCapacity( int messageQueueCapacity ) {
+		this.messageQueueCapacity = messageQueueCapacity;
+
+		// The agent may already be running
+		ReconfigurableClientAgent client = this.messagingClient;
+		AbstractMessageProcessor<?> messageProcessor = client == null ? null : client.getMessageProcessor();
+		if( messageProcessor != null )
+			messageProcessor.getMessageQueue().setCapacity( messageQueueCapacity );
+	}
+
+
+	/**
+	 * Enables or disables priorities when processing messages.
+	 * <p>
+	 * This value is only read when the agent starts.
+	 * </p>
+	 *
+	 * @param messagePriorities true to process control messages (e.g. echo) before the others
+	 * @see AbstractMessageProcessor#setPrioritiesEnabled(boolean)
+	 */
+	public void setMessagePriorities( boolean messagePriorities ) {
+		this.messagePriorities = messagePriorities;
+	}
+
+
+	/**
+	 * Sets the number of threads that run life cycle operations (deploy, start, etc).
+	 * <p>
+	 * This value is only read when the agent starts.
+	 * </p>
+	 *
+	 * @param lifeCycleWorkers the number of threads (1 or less to run these operations one after the other)
+	 * @see AgentMessageProcessor#setLifeCycleWorkers(int)
+	 */
+	public void setLifeCycleWorkers( int lifeCycleWorkers ) {
+		this.lifeCycleWorkers = lifeCycleWorkers;
+	}
+
+
 	/**
 	 * @param networkInterface the networkInterface to set
 	 */
@@ -600,7 +655,7 @@ public class Agent implements AgentMessagingInterface, IReconfigurable {
 		StringBuilder sb = new StringBuilder();
 
 		// Messages
-		LinkedBlockingQueue<Message> agentQueue = this.messagingClient.getMessageProcessor().getMessageQueue();
+		BlockingQueue<Message> agentQueue = this.messagingClient.getMessageProcessor().getMessageQueue();
 		if( agentQueue.isEmpty() ) {
 			sb.append( "There is no message being processed in agent queue\n" );
 
@@ -33,6 +33,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -42,7 +43,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
 import net.roboconf.agent.internal.lifecycle.AbstractLifeCycleManager;
+import net.roboconf.agent.internal.lifecycle.LifeCycleExecutor;
+import net.roboconf.agent.internal.lifecycle.LifeCycleExecutor.LifeCycleOperation;
 import net.roboconf.agent.internal.misc.AgentUtils;
+import net.roboconf.agent.internal.misc.InstancePrefixIndex;
 import net.roboconf.core.Constants;
 import net.roboconf.core.model.beans.ApplicationTemplate;
 import net.roboconf.core.model.beans.Component;
@@ -52,7 +56,7 @@ import net.roboconf.core.model.beans.Instance.InstanceStatus;
 import net.roboconf.core.model.helpers.ComponentHelpers;
 import net.roboconf.core.model.helpers.ImportHelpers;
 import net.roboconf.core.model.helpers.InstanceHelpers;
-import net.roboconf.core.model.helpers.VariableHelpers;
+import net.roboconf.core.model.helpers.ResolvedTypes;
 import net.roboconf.core.utils.Utils;
 import net.roboconf.messaging.api.AbstractMessageProcessor;
 import net.roboconf.messaging.api.MessagingConstants;
@@ -93,6 +97,12 @@ import net.roboconf.plugin.api.PluginInterface;
  * Instead, it will wait the current processing to complete. And only then, it will
  * replace the messaging client and the processor.
  * </p>
+ * <p>
+ * Life cycle operations (state changes, updates after import changes) can also be run
+ * by worker threads (see {@link #setLifeCycleWorkers(int)}). Instances that do not share
+ * an ancestor (other than the scoped instance) nor an import dependency are then handled in parallel.
+ * Messages that may modify the local model wait for these operations to complete.
+ * </p>
  *
  * @author Vincent Zurczak - Linagora
  * @author Amadou Diarra - UGA
@@ -129,6 +139,30 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 	 */
 	final Map<String,Collection<Import>> applicationNameToExternalExports = new HashMap<> ();
 
+	/**
+	 * The executor for life cycle operations.
+	 * <p>
+	 * Null means these operations are run by this thread, one after the other.
+	 * </p>
+	 */
+	LifeCycleExecutor lifeCycleExecutor;
+
+	/**
+	 * The execution keys of the local instances (null when they must be computed again).
+	 * @see LifeCycleExecutor#findExecutionKeys(Instance)
+	 */
+	private Map<Instance,String> executionKeys;
+
+	/**
+	 * The local instances, indexed by import and export prefixes (null when it must be built again).
+	 */
+	private InstancePrefixIndex prefixIndex;
+
+	/**
+	 * The external exports of the application (key: internal variable name, value: alias).
+	 */
+	private final Map<String,String> externalExports = new HashMap<> ();
+
 
 
 	/**
@@ -141,6 +175,44 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 	}
 
 
+	/**
+	 * Sets the number of threads that run life cycle operations.
+	 * <p>
+	 * This method must be invoked before {@link #start()}.
+	 * A value lower or equal to 1 means life cycle operations are run by this thread.
+	 * Plug-ins and the messaging client must then support concurrent invocations.
+	 * </p>
+	 *
+	 * @param lifeCycleWorkers the number of threads that run life cycle operations
+	 */
+	public void setLifeCycleWorkers( int lifeCycleWorkers ) {
+
+		if( isAlive()) {
+			this.logger.warning( "The number of life cycle workers cannot be changed once the message processor has started." );
+
+		} else {
+			shutdownLifeCycleWorkers();
+			if( lifeCycleWorkers > 1 )
+				this.lifeCycleExecutor = new LifeCycleExecutor( lifeCycleWorkers );
+		}
+	}
+
+
+	/**
+	 * Stops the threads that run life cycle operations, if any.
+	 * <p>
+	 * Operations that were not started are dropped.
+	 * </p>
+	 */
+	public void shutdownLifeCycleWorkers() {
+
+		LifeCycleExecutor executor = this.lifeCycleExecutor;
+		this.lifeCycleExecutor = null;
+		if( executor != null )
+			executor.shutdown();
+	}
+
+
 	/*
 	 * @see net.roboconf.messaging.api.business.AbstractMessageProcessor
 	 * #processMessage(net.roboconf.messaging.api.messages.Message)
@@ -170,6 +242,10 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 		this.logger.fine( "A message of type " + message.getClass().getSimpleName() + " was received and is about to be processed." );
 		this.messageUnderProcessing.set( true );
 		try {
+			// Messages that modify the model wait for life cycle operations to complete
+			if( this.lifeCycleExecutor != null && ! canRunAlongsideLifeCycleOperations( message ))
+				this.lifeCycleExecutor.awaitCompletion();
+
 			if( message instanceof MsgCmdSetScopedInstance )
 				processMsgSetScopedInstance((MsgCmdSetScopedInstance) message );
 
@@ -232,6 +308,23 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 	}
 
 
+	/**
+	 * Determines whether a message can be processed while life cycle operations are running.
+	 * @param message a message
+	 * @return true if the message does not modify the model nor depends on stable states
+	 */
+	static boolean canRunAlongsideLifeCycleOperations( Message message ) {
+
+		return message instanceof MsgCmdChangeInstanceState
+				|| message instanceof MsgCmdAddImport
+				|| message instanceof MsgCmdRemoveImport
+				|| message instanceof MsgCmdRequestImport
+				|| message instanceof MsgEcho
+				|| message instanceof MsgCmdChangeLogLevel
+				|| message instanceof MsgCmdGatherLogs;
+	}
+
+
 	/**
 	 * Requests a full reset of the agent.
 	 */
@@ -258,7 +351,7 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 		boolean resetDone = false;
 		if( this.reset && ! this.messageUnderProcessing.get()) {
 			resetDone = true;
-			reset();
+			resetAgent();
 		}
 
 		return resetDone;
@@ -268,7 +361,7 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 	/**
 	 * Resets the agent while no message is being processed.
 	 */
-	private void reset() {
+	private void resetAgent() {
 
 		// Log something
 		this.logger.info( "Resetting the agent..." );
@@ -278,6 +371,13 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 		// (best-effort mode: do what is easy first)
 		getMessageQueue().clear();
 
+		// Life cycle operations that were not started are dropped too
+		LifeCycleExecutor executor = this.lifeCycleExecutor;
+		if( executor != null ) {
+			executor.cancelPending();
+			executor.awaitCompletion();
+		}
+
 		// Uninstall all the programs this agent was managing
 		if( this.scopedInstance != null ) {
 
@@ -299,6 +399,9 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 					Utils.logException( this.logger, e );
 				}
 			}
+
+			if( executor != null )
+				executor.awaitCompletion();
 		}
 
 		// Prepare a message indicating the machine is down
@@ -315,6 +418,9 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 		this.agent.setDomain( Constants.DEFAULT_DOMAIN );
 
 		this.scopedInstance = null;
+		this.executionKeys = null;
+		this.prefixIndex = null;
+		this.externalExports.clear();
 		this.applicationBindings.clear();
 		this.applicationNameToExternalExports.clear();
 		this.reset = false;
@@ -567,13 +673,22 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 		} else if( this.scopedInstance == null ) {
 			this.logger.fine( "Setting the scoped instance." );
 			this.scopedInstance = newScopedInstance;
+			this.executionKeys = null;
+			this.prefixIndex = null;
 			InstanceHelpers.removeOffScopeInstances( newScopedInstance );
 
+			// The components will not change: resolve their inheritance closures once for all
+			if( newScopedInstance.getComponent() != null )
+				ResolvedTypes.compile( newScopedInstance.getComponent());
+
 			this.agent.setScopedInstance( newScopedInstance );
 			instancesToProcess.addAll( InstanceHelpers.buildHierarchicalList( this.scopedInstance ));
 
 			// Propagate the external mapping into the messaging
 			this.messagingClient.setExternalMapping( msg.getExternalExports());
+			this.externalExports.clear();
+			if( msg.getExternalExports() != null )
+				this.externalExports.putAll( msg.getExternalExports());
 
 			// Initialize the application bindings
 			this.applicationBindings.putAll( msg.getApplicationBindings());
@@ -622,6 +737,8 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 		} else if( instance.getParent() != null ) {
 			removed = true;
 			instance.getParent().getChildren().remove( instance );
+			this.executionKeys = null;
+			this.prefixIndex = null;
 			this.logger.fine( "Child instance " + msg.getInstancePath() + " was removed from the model." );
 
 		} else {
@@ -668,6 +785,8 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 				this.logger.severe( "The new '" + msg.getInstanceName() + "' instance could not be inserted into the local model." );
 
 			} else {
+				this.executionKeys = null;
+				this.prefixIndex = null;
 				this.messagingClient.listenToExportsFromOtherAgents( ListenerCommand.START, newInstance );
 				this.messagingClient.requestExportsFromOtherAgents( newInstance );
 			}
@@ -681,24 +800,31 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 	 * @throws IOException if an error occurred with the messaging or while manipulating the file system
 	 * @throws PluginException if something went wrong with the plug-in
 	 */
-	void processMsgChangeInstanceState( MsgCmdChangeInstanceState msg )
+	void processMsgChangeInstanceState( final MsgCmdChangeInstanceState msg )
 	throws IOException, PluginException {
 
-		PluginInterface plugin;
-		Instance instance = InstanceHelpers.findInstanceByPath( this.scopedInstance, msg.getInstancePath());
+		final Instance instance = InstanceHelpers.findInstanceByPath( this.scopedInstance, msg.getInstancePath());
 		if( instance == null )
 			this.logger.severe( "No instance matched " + msg.getInstancePath() + " on the agent. Request to deploy it is dropped." );
 
 		else if( instance.getParent() == null )
 			this.logger.severe( "No action on the root instance is permitted." );
 
-		else if(( plugin = this.agent.findPlugin( instance )) == null )
-			this.logger.severe( "No plug-in was found to deploy " + msg.getInstancePath() + "." );
-
 		else
-			AbstractLifeCycleManager
-			.build( instance, this.agent.getApplicationName(), this.messagingClient)
-			.changeInstanceState( instance, plugin, msg.getNewState(), msg.getFileNameToFileContent());
+			runLifeCycleOperation( instance, "change the state of " + msg.getInstancePath(), new LifeCycleOperation() {
+				@Override
+				public void execute() throws IOException, PluginException {
+
+					// The life cycle manager depends on the current state: find it when the operation starts
+					PluginInterface plugin = AgentMessageProcessor.this.agent.findPlugin( instance );
+					if( plugin == null )
+						AgentMessageProcessor.this.logger.severe( "No plug-in was found to deploy " + msg.getInstancePath() + "." );
+					else
+						AbstractLifeCycleManager
+						.build( instance, AgentMessageProcessor.this.agent.getApplicationName(), AgentMessageProcessor.this.messagingClient )
+						.changeInstanceState( instance, plugin, msg.getNewState(), msg.getFileNameToFileContent());
+				}
+			});
 	}
 
 
@@ -709,7 +835,7 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 	 */
 	void processMsgRequestImport( MsgCmdRequestImport msg ) throws IOException {
 
-		for( Instance instance : InstanceHelpers.buildHierarchicalList( this.scopedInstance )) {
+		for( Instance instance : findPrefixIndex().findExportingInstances( msg.getComponentOrFacetName())) {
 			if( instance.getStatus() == InstanceStatus.DEPLOYED_STARTED )
 				this.messagingClient.publishExports( instance, msg.getComponentOrFacetName());
 		}
@@ -723,7 +849,7 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 	 * @throws IOException if an error occurred with the messaging
 	 * @throws PluginException if an error occurred with a plug-in
 	 */
-	void processMsgRemoveImport( MsgCmdRemoveImport msg, boolean realMessage ) throws IOException, PluginException {
+	void processMsgRemoveImport( final MsgCmdRemoveImport msg, boolean realMessage ) throws IOException, PluginException {
 
 		// Track ALL external exports - only for real messages
 		String appName = this.agent.getApplicationName();
@@ -731,42 +857,58 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 			removeCachedExternalImport( msg );
 		}
 
-		// Go through all the instances to see which ones are impacted.
+		// Only go through the instances that import variables with this prefix.
 		// If it is an external exports that is removed, it will not be found in this instance.
-		for( Instance instance : InstanceHelpers.buildHierarchicalList( this.scopedInstance )) {
+		for( final Instance instance : findPrefixIndex().findImportingInstances( msg.getComponentOrFacetName())) {
+
+			// Imports are read by plug-ins: only modify them in the life cycle operation
+			String description = "remove an import from " + InstanceHelpers.computeInstancePath( instance );
+			runLifeCycleOperation( instance, description, new LifeCycleOperation() {
+				@Override
+				public void execute() throws IOException, PluginException {
+					removeImport( instance, msg );
+				}
+			});
+		}
 
-			Set<String> importPrefixes = VariableHelpers.findPrefixesForImportedVariables( instance );
-			if( ! importPrefixes.contains( msg.getComponentOrFacetName()))
-				continue;
+		// Import changed => check all the waiting for ancestors...
+		startChildrenInstancesWaitingForAncestors();
+	}
 
-			// Is there an import to remove?
-			Collection<Import> imports = instance.getImports().get( msg.getComponentOrFacetName());
-			Import toRemove = ImportHelpers.findImportByExportingInstance( imports, msg.getRemovedInstancePath());
-			if( toRemove == null )
-				continue;
 
-			// Remove the import and publish an update to the DM
-			imports.remove( toRemove );
-			if( imports.isEmpty())
-				instance.getImports().remove( msg.getComponentOrFacetName());
+	/**
+	 * Removes (if necessary) an import from an instance and updates its life cycle.
+	 * @param instance an instance that imports variables prefixed by the message's component or facet
+	 * @param msg the message process
+	 * @throws IOException if an error occurred with the messaging
+	 * @throws PluginException if an error occurred with a plug-in
+	 */
+	private void removeImport( Instance instance, MsgCmdRemoveImport msg ) throws IOException, PluginException {
 
-			this.logger.fine( "Removing import from " + InstanceHelpers.computeInstancePath( instance )
-					+ ". Removed exporting instance: " + msg.getRemovedInstancePath());
+		// Is there an import to remove?
+		Collection<Import> imports = instance.getImports().get( msg.getComponentOrFacetName());
+		Import toRemove = ImportHelpers.findImportByExportingInstance( imports, msg.getRemovedInstancePath());
+		if( toRemove == null )
+			return;
 
-			this.messagingClient.sendMessageToTheDm( new MsgNotifInstanceChanged( appName, instance ));
+		// Remove the import and publish an update to the DM
+		imports.remove( toRemove );
+		if( imports.isEmpty())
+			instance.getImports().remove( msg.getComponentOrFacetName());
 
-			// Update the life cycle if necessary
-			PluginInterface plugin = this.agent.findPlugin( instance );
-			if( plugin == null )
-				throw new PluginException( "No plugin was found for " + InstanceHelpers.computeInstancePath( instance ));
+		this.logger.fine( "Removing import from " + InstanceHelpers.computeInstancePath( instance )
+				+ ". Removed exporting instance: " + msg.getRemovedInstancePath());
 
-			AbstractLifeCycleManager
-			.build( instance, this.agent.getApplicationName(), this.messagingClient)
-			.updateStateFromImports( instance, plugin, toRemove, InstanceStatus.DEPLOYED_STOPPED );
-		}
+		this.messagingClient.sendMessageToTheDm( new MsgNotifInstanceChanged( this.agent.getApplicationName(), instance ));
 
-		// Import changed => check all the waiting for ancestors...
-		startChildrenInstancesWaitingForAncestors();
+		// Update the life cycle if necessary
+		PluginInterface plugin = this.agent.findPlugin( instance );
+		if( plugin == null )
+			throw new PluginException( "No plugin was found for " + InstanceHelpers.computeInstancePath( instance ));
+
+		AbstractLifeCycleManager
+		.build( instance, this.agent.getApplicationName(), this.messagingClient)
+		.updateStateFromImports( instance, plugin, toRemove, InstanceStatus.DEPLOYED_STOPPED );
 	}
 
 
@@ -776,7 +918,7 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 	 * @throws IOException if an error occurred with the messaging
 	 * @throws PluginException if an error occurred with a plug-in
 	 */
-	void processMsgAddImport( MsgCmdAddImport msg ) throws IOException, PluginException {
+	void processMsgAddImport( final MsgCmdAddImport msg ) throws IOException, PluginException {
 
 		// We must filter the new import.
 		// It must either come from THIS application, or be referenced in the
@@ -802,14 +944,8 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 			}
 		}
 
-		// Go through all the instances to see which ones need an update
-		String appName = this.agent.getApplicationName();
-		for( Instance instance : InstanceHelpers.buildHierarchicalList( this.scopedInstance )) {
-
-			// This instance does not depends on it
-			Set<String> importPrefixes = VariableHelpers.findPrefixesForImportedVariables( instance );
-			if( ! importPrefixes.contains( msg.getComponentOrFacetName()))
-				continue;
+		// Only go through the instances that import variables with this prefix
+		for( final Instance instance : findPrefixIndex().findImportingInstances( msg.getComponentOrFacetName())) {
 
 			// If an instance depends on its component, make sure it does not add itself to the imports.
 			// Example: MongoDB may depend on other MongoDB instances.
@@ -819,25 +955,20 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 				continue;
 
 			// Create the right import
-			Import imp = ImportHelpers.buildTailoredImport(
+			final Import imp = ImportHelpers.buildTailoredImport(
 					instance,
 					msg.getAddedInstancePath(),
 					msg.getComponentOrFacetName(),
 					msg.getExportedVariables());
 
-			// Add the import and publish an update to the DM
-			this.logger.fine( "Adding import to " + InstanceHelpers.computeInstancePath( instance ) + ". New import: " + imp );
-			ImportHelpers.addImport( instance, msg.getComponentOrFacetName(), imp );
-			this.messagingClient.sendMessageToTheDm( new MsgNotifInstanceChanged( appName, instance ));
-
-			// Update the life cycle if necessary
-			PluginInterface plugin = this.agent.findPlugin( instance );
-			if( plugin == null )
-				throw new PluginException( "No plugin was found for " + InstanceHelpers.computeInstancePath( instance ));
-
-			AbstractLifeCycleManager
-			.build( instance, this.agent.getApplicationName(), this.messagingClient)
-			.updateStateFromImports( instance, plugin, imp, InstanceStatus.DEPLOYED_STARTED );
+			// Imports are read by plug-ins: only modify them in the life cycle operation
+			String description = "add an import to " + InstanceHelpers.computeInstancePath( instance );
+			runLifeCycleOperation( instance, description, new LifeCycleOperation() {
+				@Override
+				public void execute() throws IOException, PluginException {
+					addImport( instance, msg.getComponentOrFacetName(), imp );
+				}
+			});
 		}
 
 		// Import changed => check all the waiting for ancestors...
@@ -845,6 +976,46 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 	}
 
 
+	/**
+	 * Adds an import to an instance and updates its life cycle.
+	 * @param instance the instance to update
+	 * @param componentOrFacetName the prefix of the imported variables
+	 * @param imp the import to add
+	 * @throws IOException if an error occurred with the messaging
+	 * @throws PluginException if an error occurred with a plug-in
+	 */
+	private void addImport( Instance instance, String componentOrFacetName, Import imp ) throws IOException, PluginException {
+
+		// Exports are published again after resynchronizations or requests from other agents.
+		// Identical imports change nothing, unless the instance still waits to be resolved.
+		Import existing = ImportHelpers.findImportByExportingInstance(
+				instance.getImports().get( componentOrFacetName ),
+				imp.getInstancePath());
+
+		if( existing != null
+				&& existing.getExportedVars().equals( imp.getExportedVars())
+				&& instance.getStatus() != InstanceStatus.UNRESOLVED ) {
+
+			this.logger.finer( "Ignoring an identical import for " + InstanceHelpers.computeInstancePath( instance ) + ": " + imp );
+			return;
+		}
+
+		// Add the import and publish an update to the DM
+		this.logger.fine( "Adding import to " + InstanceHelpers.computeInstancePath( instance ) + ". New import: " + imp );
+		ImportHelpers.addImport( instance, componentOrFacetName, imp );
+		this.messagingClient.sendMessageToTheDm( new MsgNotifInstanceChanged( this.agent.getApplicationName(), instance ));
+
+		// Update the life cycle if necessary
+		PluginInterface plugin = this.agent.findPlugin( instance );
+		if( plugin == null )
+			throw new PluginException( "No plugin was found for " + InstanceHelpers.computeInstancePath( instance ));
+
+		AbstractLifeCycleManager
+		.build( instance, this.agent.getApplicationName(), this.messagingClient)
+		.updateStateFromImports( instance, plugin, imp, InstanceStatus.DEPLOYED_STARTED );
+	}
+
+
 	private void removeCachedExternalImport( MsgCmdRemoveImport msg ) {
 
 		Collection<Import> imports = this.applicationNameToExternalExports.get( msg.getApplicationOrContextName());
@@ -878,6 +1049,45 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 		List<Instance> childrenInstances = InstanceHelpers.buildHierarchicalList( this.scopedInstance );
 		childrenInstances.remove( this.scopedInstance );
 
+		if( this.lifeCycleExecutor == null ) {
+			startChildrenInstancesWaitingForAncestors( childrenInstances );
+
+		} else {
+			// Check every group of instances after its pending operations
+			Map<String,List<Instance>> keyToInstances = new LinkedHashMap<> ();
+			for( Instance childInstance : childrenInstances ) {
+				String key = findExecutionKey( childInstance );
+				List<Instance> instances = keyToInstances.get( key );
+				if( instances == null ) {
+					instances = new ArrayList<> ();
+					keyToInstances.put( key, instances );
+				}
+
+				instances.add( childInstance );
+			}
+
+			for( Map.Entry<String,List<Instance>> entry : keyToInstances.entrySet()) {
+				final List<Instance> instances = entry.getValue();
+				this.lifeCycleExecutor.submit( entry.getKey(), "start instances waiting for their ancestors", new LifeCycleOperation() {
+					@Override
+					public void execute() throws IOException, PluginException {
+						startChildrenInstancesWaitingForAncestors( instances );
+					}
+				});
+			}
+		}
+	}
+
+
+	/**
+	 * Starts instances when they are waiting for their ancestors to start.
+	 * @param childrenInstances the instances to check (in hierarchical order)
+	 * @throws IOException if something went wrong
+	 * @throws PluginException if something went wrong
+	 */
+	private void startChildrenInstancesWaitingForAncestors( List<Instance> childrenInstances )
+	throws IOException, PluginException {
+
 		for( Instance childInstance : childrenInstances ) {
 			if( childInstance.getStatus() != InstanceStatus.WAITING_FOR_ANCESTOR )
 				continue;
@@ -894,4 +1104,59 @@ public class AgentMessageProcessor extends AbstractMessageProcessor<IAgentClient
 				.changeInstanceState( childInstance, plugin, InstanceStatus.DEPLOYED_STARTED, null );
 		}
 	}
+
+
+	/**
+	 * Runs a life cycle operation.
+	 * <p>
+	 * Without life cycle workers, the operation is run immediately by the current thread.
+	 * Otherwise, it is submitted to the workers and will run after the pending operations
+	 * of the instances that depend on the same ones.
+	 * </p>
+	 *
+	 * @param instance the instance the operation deals with
+	 * @param description a description of the operation (for logs)
+	 * @param operation the operation
+	 * @throws IOException if something went wrong (when run immediately)
+	 * @throws PluginException if something went wrong (when run immediately)
+	 */
+	private void runLifeCycleOperation( Instance instance, String description, LifeCycleOperation operation )
+	throws IOException, PluginException {
+
+		LifeCycleExecutor executor = this.lifeCycleExecutor;
+		if( executor == null )
+			operation.execute();
+		else
+			executor.submit( findExecutionKey( instance ), description, operation );
+	}
+
+
+	/**
+	 * Finds the execution key of an instance.
+	 * @param instance an instance
+	 * @return a non-null key
+	 * @see LifeCycleExecutor#findExecutionKeys(Instance)
+	 */
+	private String findExecutionKey( Instance instance ) {
+
+		if( this.executionKeys == null )
+			this.executionKeys = LifeCycleExecutor.findExecutionKeys( this.scopedInstance );
+
+		String result = this.executionKeys.get( instance );
+		return result != null ? result : InstanceHelpers.computeInstancePath( instance );
+	}
+
+
+	/**
+	 * Finds the index of the local instances by prefixes, and builds it if necessary.
+	 * @return a non-null index
+	 */
+	private InstancePrefixIndex findPrefixIndex() {
+
+		// The scoped instance may also have been set directly (e.g. in tests)
+		if( this.prefixIndex == null || ! this.prefixIndex.isFor( this.scopedInstance ))
+			this.prefixIndex = new InstancePrefixIndex( this.scopedInstance, this.externalExports );
+
+		return this.prefixIndex;
+	}
 }
@@ -0,0 +1,380 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.agent.internal.lifecycle;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import net.roboconf.core.model.beans.Instance;
+import net.roboconf.core.model.helpers.InstanceHelpers;
+import net.roboconf.core.model.helpers.VariableHelpers;
+import net.roboconf.core.utils.Utils;
+import net.roboconf.plugin.api.PluginException;
+
+/**
+ * An executor that runs life cycle operations of an agent on several worker threads.
+ * <p>
+ * Operations are submitted with an execution key. Operations that share the same key
+ * are executed one after the other, in the order they were submitted. Operations with
+ * different keys may be executed in parallel. {@link #findExecutionKeys(Instance)} computes
+ * keys such that instances with a common ancestor (other than the scoped instance) or an import
+ * dependency always share the same key.
+ * </p>
+ * <p>
+ * Since an instance is only modified by operations of its own key, the life cycle
+ * managers keep their guarantees: no instance can be found in a transitive state
+ * (deploying, starting, etc) by another operation of the same key.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public class LifeCycleExecutor {
+
+	private final Logger logger = Logger.getLogger( getClass().getName());
+	private final ExecutorService workers;
+	private final Map<String,Queue<Task>> keyToPendingTasks = new HashMap<> ();
+
+	private int activeTasksCount = 0;
+	private boolean shutdown = false;
+
+
+	/**
+	 * Constructor.
+	 * @param workersCount the number of worker threads (at least 1)
+	 */
+	public LifeCycleExecutor( int workersCount ) {
+
+		final AtomicInteger threadsCount = new AtomicInteger();
+		this.workers = Executors.newFixedThreadPool( Math.max( 1, workersCount ), new ThreadFactory() {
+			@Override
+			public Thread newThread( Runnable r ) {
+
+				Thread result = new Thread( r, "Roboconf Agent - Life Cycle Worker " + threadsCount.incrementAndGet());
+				result.setDaemon( true );
+				return result;
+			}
+		});
+	}
+
+
+	/**
+	 * Submits a life cycle operation.
+	 * @param key the execution key (not null)
+	 * @param description a description of the operation (for logs)
+	 * @param operation the operation to execute
+	 */
+	public synchronized void submit( String key, String description, LifeCycleOperation operation ) {
+
+		if( this.shutdown ) {
+			this.logger.warning( "The life cycle executor was shut down. Operation '" + description + "' is dropped." );
+
+		} else {
+			// One runner per key, that stops when there is nothing left for this key
+			Queue<Task> pendingTasks = this.keyToPendingTasks.get( key );
+			if( pendingTasks == null ) {
+				pendingTasks = new ArrayDeque<> ();
+				this.keyToPendingTasks.put( key, pendingTasks );
+				this.workers.execute( new KeyRunner( key ));
+			}
+
+			pendingTasks.add( new Task( description, operation ));
+			this.activeTasksCount ++;
+		}
+	}
+
+
+	/**
+	 * Drops the operations that were submitted but not yet started.
+	 * <p>
+	 * Operations that are being executed are not interrupted.
+	 * </p>
+	 */
+	public synchronized void cancelPending() {
+
+		int count = 0;
+		for( Queue<Task> pendingTasks : this.keyToPendingTasks.values()) {
+			count += pendingTasks.size();
+			pendingTasks.clear();
+		}
+
+		this.activeTasksCount -= count;
+		if( count > 0 )
+			this.logger.fine( count + " pending life cycle operation(s) were dropped." );
+
+		notifyAll();
+	}
+
+
+	/**
+	 * Waits for all the submitted operations to complete.
+	 * <p>
+	 * If the current thread is interrupted, this method returns immediately
+	 * and the interrupted status of the thread is preserved.
+	 * </p>
+	 */
+	public synchronized void awaitCompletion() {
+
+		try {
+			while( this.activeTasksCount > 0 )
+				wait();
+
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/**
+	 * Drops pending operations and stops the worker threads.
+	 * <p>
+	 * Operations submitted after this call are dropped.
+	 * </p>
+	 */
+	public synchronized void shutdown() {
+
+		this.shutdown = true;
+		cancelPending();
+		this.workers.shutdown();
+	}
+
+
+	/**
+	 * @return the number of operations that were submitted and did not complete yet
+	 */
+	public synchronized int getActiveTasksCount() {
+		return this.activeTasksCount;
+	}
+
+
+	/**
+	 * Finds the execution keys of the instances managed by an agent.
+	 * <p>
+	 * Every child of the scoped instance is the root of a sub-tree.
+	 * Two sub-trees are merged when one of them imports variables exported by the
+	 * other one. All the instances of a (merged) sub-tree are associated with the path of
+	 * its first root instance. The scoped instance is associated with its own path.
+	 * </p>
+	 * <p>
+	 * Instances are compared by identity.
+	 * </p>
+	 *
+	 * @param scopedInstance the scoped instance (can be null)
+	 * @return a non-null map (key = instance, value = execution key)
+	 */
+	public static Map<Instance,String> findExecutionKeys( Instance scopedInstance ) {
+
+		Map<Instance,String> result = new IdentityHashMap<> ();
+		if( scopedInstance == null )
+			return result;
+
+		// Find the sub-trees and the variables they import and export
+		List<Instance> roots = new ArrayList<>( scopedInstance.getChildren());
+		List<List<Instance>> subTrees = new ArrayList<> ();
+		List<Set<String>> importPrefixes = new ArrayList<> ();
+		List<Set<String>> exportPrefixes = new ArrayList<> ();
+		for( Instance root : roots ) {
+			List<Instance> subTree = InstanceHelpers.buildHierarchicalList( root );
+			Set<String> imports = new HashSet<> ();
+			Set<String> exports = new HashSet<> ();
+			for( Instance instance : subTree ) {
+				imports.addAll( VariableHelpers.findPrefixesForImportedVariables( instance ));
+				exports.addAll( VariableHelpers.findPrefixesForExportedVariables( instance ));
+			}
+
+			subTrees.add( subTree );
+			importPrefixes.add( imports );
+			exportPrefixes.add( exports );
+		}
+
+		// Merge the dependent sub-trees (union-find)
+		int[] parents = new int[ roots.size()];
+		for( int i = 0; i < parents.length; i ++ )
+			parents[ i ] = i;
+
+		for( int i = 0; i < parents.length; i ++ ) {
+			for( int j = i + 1; j < parents.length; j ++ ) {
+				if( ! intersect( importPrefixes.get( i ), exportPrefixes.get( j ))
+						&& ! intersect( importPrefixes.get( j ), exportPrefixes.get( i )))
+					continue;
+
+				int rootI = findRoot( parents, i );
+				int rootJ = findRoot( parents, j );
+				parents[ Math.max( rootI, rootJ )] = Math.min( rootI, rootJ );
+			}
+		}
+
+		// Associate every instance with the path of its representative
+		result.put( scopedInstance, InstanceHelpers.computeInstancePath( scopedInstance ));
+		for( int i = 0; i < parents.length; i ++ ) {
+			String key = InstanceHelpers.computeInstancePath( roots.get( findRoot( parents, i )));
+			for( Instance instance : subTrees.get( i ))
+				result.put( instance, key );
+		}
+
+		return result;
+	}
+
+
+	private static int findRoot( int[] parents, int index ) {
+
+		int result = index;
+		while( parents[ result ] != result )
+			result = parents[ result ];
+
+		return result;
+	}
+
+
+	private static boolean intersect( Set<String> set1, Set<String> set2 ) {
+
+		for( String s : set1 ) {
+			if( set2.contains( s ))
+				return true;
+		}
+
+		return false;
+	}
+
+
+	/**
+	 * Invoked by a worker when a task completed.
+	 */
+	private synchronized void taskCompleted() {
+		this.activeTasksCount --;
+		notifyAll();
+	}
+
+
+	/**
+	 * Polls the next task for a given key.
+	 * @param key an execution key
+	 * @return the next task, or null if there is none (the key is then released)
+	 */
+	private synchronized Task pollTask( String key ) {
+
+		Queue<Task> pendingTasks = this.keyToPendingTasks.get( key );
+		Task result = pendingTasks == null ? null : pendingTasks.poll();
+		if( result == null )
+			this.keyToPendingTasks.remove( key );
+
+		return result;
+	}
+
+
+	/**
+	 * A life cycle operation.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	public interface LifeCycleOperation {
+
+		/**
+		 * Executes the operation.
+		 * @throws IOException if something went wrong with the messaging
+		 * @throws PluginException if something went wrong with a plug-in
+		 */
+		void execute() throws IOException, PluginException;
+	}
+
+
+	/**
+	 * An operation and its description.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	private static class Task {
+		final String description;
+		final LifeCycleOperation operation;
+
+
+		/**
+		 * Constructor.
+		 * @param description
+		 * @param operation
+		 */
+		Task( String description, LifeCycleOperation operation ) {
+			this.description = description;
+			this.operation = operation;
+		}
+	}
+
+
+	/**
+	 * Executes all the pending tasks of a given key.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	private class KeyRunner implements Runnable {
+		private final String key;
+
+
+		/**
+		 * Constructor.
+		 * @param key
+		 */
+		KeyRunner( String key ) {
+			this.key = key;
+		}
+
+
+		@Override
+		public void run() {
+
+			Task task;
+			while(( task = pollTask( this.key )) != null ) {
+				LifeCycleExecutor.this.logger.finer( "Executing life cycle operation: " + task.description );
+				try {
+					task.operation.execute();
+
+				} catch( IOException e ) {
+					LifeCycleExecutor.this.logger.severe( "A problem occurred with the messaging. " + e.getMessage());
+					Utils.logException( LifeCycleExecutor.this.logger, e );
+
+				} catch( PluginException e ) {
+					LifeCycleExecutor.this.logger.severe( "A problem occurred with a plug-in. " + e.getMessage());
+					Utils.logException( LifeCycleExecutor.this.logger, e );
+
+				} catch( RuntimeException e ) {
+					LifeCycleExecutor.this.logger.severe( "An error occurred during a life cycle operation. " + e.getMessage());
+					Utils.logException( LifeCycleExecutor.this.logger, e );
+
+				} finally {
+					taskCompleted();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.agent.internal.misc;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.roboconf.core.model.beans.Instance;
+import net.roboconf.core.model.helpers.InstanceHelpers;
+import net.roboconf.core.model.helpers.VariableHelpers;
+
+/**
+ * An index of the local instances by import and export prefixes.
+ * <p>
+ * Prefixes are the component and facet names that prefix imported and exported variables.
+ * Exported variables may also have an alias for other applications (external exports): their
+ * prefix is indexed too. Messages about imports and exports can then be processed only by the
+ * instances they concern, instead of going through all the local instances.
+ * </p>
+ * <p>
+ * Instances are listed in the same order than {@link InstanceHelpers#buildHierarchicalList(Instance)}.
+ * The index must be built again every time instances are added or removed (it is immutable).
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public final class InstancePrefixIndex {
+
+	private final Instance scopedInstance;
+	private final Map<String,List<Instance>> importPrefixToInstances = new HashMap<> ();
+	private final Map<String,List<Instance>> exportPrefixToInstances = new HashMap<> ();
+
+
+	/**
+	 * Constructor.
+	 * @param scopedInstance the scoped instance (can be null)
+	 * @param externalExports the external exports (key: internal variable name, value: alias, not null)
+	 */
+	public InstancePrefixIndex( Instance scopedInstance, Map<String,String> externalExports ) {
+		this.scopedInstance = scopedInstance;
+
+		for( Instance instance : InstanceHelpers.buildHierarchicalList( scopedInstance )) {
+			for( String prefix : VariableHelpers.findPrefixesForImportedVariables( instance ))
+				index( this.importPrefixToInstances, prefix, instance );
+
+			for( String varName : InstanceHelpers.findAllExportedVariables( instance ).keySet()) {
+				index( this.exportPrefixToInstances, VariableHelpers.parseVariableName( varName ).getKey(), instance );
+				String alias = externalExports.get( varName );
+				if( alias != null )
+					index( this.exportPrefixToInstances, VariableHelpers.parseVariableName( alias ).getKey(), instance );
+			}
+		}
+	}
+
+
+	/**
+	 * @param scopedInstance a scoped instance (can be null)
+	 * @return true if this index was built for this scoped instance
+	 */
+	public boolean isFor( Instance scopedInstance ) {
+		return this.scopedInstance == scopedInstance;
+	}
+
+
+	/**
+	 * Finds the instances that import variables with a given prefix.
+	 * @param prefix a component or facet name
+	 * @return a non-null list of instances
+	 */
+	public List<Instance> findImportingInstances( String prefix ) {
+		return find( this.importPrefixToInstances, prefix );
+	}
+
+
+	/**
+	 * Finds the instances that export variables with a given prefix.
+	 * @param prefix a component or facet name, or the prefix of an external export
+	 * @return a non-null list of instances
+	 */
+	public List<Instance> findExportingInstances( String prefix ) {
+		return find( this.exportPrefixToInstances, prefix );
+	}
+
+
+	private static void index( Map<String,List<Instance>> prefixToInstances, String prefix, Instance instance ) {
+
+		List<Instance> instances = prefixToInstances.get( prefix );
+		if( instances == null ) {
+			instances = new ArrayList<> ();
+			prefixToInstances.put( prefix, instances );
+		}
+
+		// Variables with the same prefix are listed one after the other
+		if( instances.isEmpty() || instances.get( instances.size() - 1 ) != instance )
+			instances.add( instance );
+	}
+
+
+	private static List<Instance> find( Map<String,List<Instance>> prefixToInstances, String prefix ) {
+
+		List<Instance> result = prefixToInstances.get( prefix );
+		return result == null ? Collections.<Instance>emptyList() : Collections.unmodifiableList( result );
+	}
+}
@@ -356,6 +356,11 @@ public class AgentMessageProcessorBasicTest {
 		processor.processMessage( new MsgCmdResynchronize());
 		Assert.assertEquals( 0, this.client.messagesForTheDm.size());
 		Assert.assertEquals( 1, this.client.messagesForAgents.size());
+
+		// Resynchronizing always publishes the exports again, even if they did not change.
+		processor.processMessage( new MsgCmdResynchronize());
+		Assert.assertEquals( 0, this.client.messagesForTheDm.size());
+		Assert.assertEquals( 2, this.client.messagesForAgents.size());
 	}
 
 
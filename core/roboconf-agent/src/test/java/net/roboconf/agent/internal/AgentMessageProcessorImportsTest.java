@@ -292,6 +292,40 @@ public class AgentMessageProcessorImportsTest {
 	}
 
 
+	@Test
+	public void testAddImport_identicalImportsAreIgnored() throws Exception {
+
+		TestClient client = AgentTestUtils.getInternalClient( this.agent.getMessagingClient());
+		AgentMessageProcessor processor = (AgentMessageProcessor) this.agent.getMessagingClient().getMessageProcessor();
+		TestApplicationTemplate app = new TestApplicationTemplate();
+		processor.scopedInstance = app.getTomcatVm();
+
+		app.getTomcatVm().setStatus( InstanceStatus.DEPLOYED_STARTED );
+		app.getTomcat().setStatus( InstanceStatus.DEPLOYED_STARTED );
+		app.getWar().setStatus( InstanceStatus.DEPLOYED_STARTED );
+
+		// A new import => the DM is notified
+		Map<String,String> variables = new HashMap<> ();
+		variables.put( "mysql.ip", "192.168.0.15" );
+		variables.put( "mysql.port", "3306" );
+		processor.processMessage( new MsgCmdAddImport( APP, "mysql", "mysql-vm-1/mysql", variables ));
+
+		Assert.assertEquals( 1, app.getWar().getImports().get( "mysql" ).size());
+		Assert.assertEquals( 1, client.messagesForTheDm.size());
+
+		// The same import, published again => nothing happens
+		processor.processMessage( new MsgCmdAddImport( APP, "mysql", "mysql-vm-1/mysql", new HashMap<>( variables )));
+		Assert.assertEquals( 1, app.getWar().getImports().get( "mysql" ).size());
+		Assert.assertEquals( 1, client.messagesForTheDm.size());
+
+		// Different values => it is processed
+		variables.put( "mysql.port", "3307" );
+		processor.processMessage( new MsgCmdAddImport( APP, "mysql", "mysql-vm-1/mysql", variables ));
+		Assert.assertEquals( 1, app.getWar().getImports().get( "mysql" ).size());
+		Assert.assertEquals( 2, client.messagesForTheDm.size());
+	}
+
+
 	@Test
 	public void testAddImport_noPlugin() throws Exception {
 
@@ -0,0 +1,185 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.agent.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.roboconf.agent.internal.misc.PluginMock;
+import net.roboconf.agent.internal.test.AgentTestUtils;
+import net.roboconf.core.Constants;
+import net.roboconf.core.model.beans.Component;
+import net.roboconf.core.model.beans.Instance;
+import net.roboconf.core.model.beans.Instance.InstanceStatus;
+import net.roboconf.core.model.helpers.InstanceHelpers;
+import net.roboconf.messaging.api.MessagingConstants;
+import net.roboconf.messaging.api.factory.MessagingClientFactoryRegistry;
+import net.roboconf.messaging.api.internal.client.test.TestClientFactory;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdChangeInstanceState;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdSendInstances;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdSetScopedInstance;
+import net.roboconf.messaging.api.messages.from_dm_to_dm.MsgEcho;
+import net.roboconf.plugin.api.PluginException;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class AgentMessageProcessorLifeCycleWorkersTest {
+
+	private Agent agent;
+	private AgentMessageProcessor processor;
+	private SlowPlugin plugin;
+
+
+	@Before
+	public void initializeAgent() throws Exception {
+
+		final MessagingClientFactoryRegistry registry = new MessagingClientFactoryRegistry();
+		registry.addMessagingClientFactory( new TestClientFactory());
+
+		this.plugin = new SlowPlugin();
+		this.agent = new Agent();
+		this.agent.setSimulatePlugins( false );
+		this.agent.plugins.add( this.plugin );
+		this.agent.setLifeCycleWorkers( 4 );
+
+		this.agent.setMessagingType( MessagingConstants.FACTORY_TEST );
+		this.agent.start();
+
+		this.agent.getMessagingClient().setRegistry( registry );
+		this.agent.reconfigure();
+
+		Thread.sleep( 200 );
+		AgentTestUtils.getInternalClient( this.agent.getMessagingClient()).clearMessages();
+		this.processor = (AgentMessageProcessor) this.agent.getMessagingClient().getMessageProcessor();
+	}
+
+
+	@After
+	public void stopAgent() {
+		this.agent.stop();
+	}
+
+
+	@Test
+	public void testWorkersAreConfigured() {
+
+		Assert.assertNotNull( this.processor.lifeCycleExecutor );
+		this.agent.stop();
+		Assert.assertNull( this.processor.lifeCycleExecutor );
+	}
+
+
+	@Test( timeout = 20000 )
+	public void testIndependentInstancesAreDeployedInParallel() throws Exception {
+
+		// A VM with three servers, and an application in the first one
+		Component vmComponent = new Component( "vm" ).installerName( Constants.TARGET_INSTALLER );
+		Component serverComponent = new Component( "server" ).installerName( PluginMock.PLUGIN_NAME );
+		Component appComponent = new Component( "app" ).installerName( PluginMock.PLUGIN_NAME );
+		vmComponent.addChild( serverComponent );
+		serverComponent.addChild( appComponent );
+
+		Instance vm = new Instance( "vm" ).component( vmComponent );
+		Instance server1 = new Instance( "server1" ).component( serverComponent );
+		Instance server2 = new Instance( "server2" ).component( serverComponent );
+		Instance server3 = new Instance( "server3" ).component( serverComponent );
+		Instance app = new Instance( "app" ).component( appComponent );
+
+		InstanceHelpers.insertChild( vm, server1 );
+		InstanceHelpers.insertChild( vm, server2 );
+		InstanceHelpers.insertChild( vm, server3 );
+		InstanceHelpers.insertChild( server1, app );
+		this.processor.processMessage( new MsgCmdSetScopedInstance( vm ));
+
+		// Deployments are run by workers
+		this.processor.processMessage( new MsgCmdChangeInstanceState( server1, InstanceStatus.DEPLOYED_STOPPED ));
+		this.processor.processMessage( new MsgCmdChangeInstanceState( server2, InstanceStatus.DEPLOYED_STOPPED ));
+		this.processor.processMessage( new MsgCmdChangeInstanceState( server3, InstanceStatus.DEPLOYED_STOPPED ));
+		this.processor.processMessage( new MsgCmdChangeInstanceState( app, InstanceStatus.DEPLOYED_STOPPED ));
+
+		// Echo messages do not wait for them
+		this.processor.processMessage( new MsgEcho( "PING:TEST" ));
+		Assert.assertTrue( this.processor.lifeCycleExecutor.getActiveTasksCount() > 0 );
+
+		// Other messages wait for them
+		this.processor.processMessage( new MsgCmdSendInstances());
+		Assert.assertEquals( 0, this.processor.lifeCycleExecutor.getActiveTasksCount());
+
+		Assert.assertEquals( InstanceStatus.DEPLOYED_STARTED, vm.getStatus());
+		Assert.assertEquals( InstanceStatus.DEPLOYED_STOPPED, server1.getStatus());
+		Assert.assertEquals( InstanceStatus.DEPLOYED_STOPPED, server2.getStatus());
+		Assert.assertEquals( InstanceStatus.DEPLOYED_STOPPED, server3.getStatus());
+		Assert.assertEquals( InstanceStatus.DEPLOYED_STOPPED, app.getStatus());
+
+		// Servers were deployed in parallel, but the application was deployed after its parent
+		Assert.assertTrue( this.plugin.maxConcurrentDeployments.get() > 1 );
+		Assert.assertEquals( 4, this.plugin.deployedInstances.size());
+		Assert.assertTrue(
+				this.plugin.deployedInstances.indexOf( "server1" )
+				< this.plugin.deployedInstances.indexOf( "app" ));
+	}
+
+
+	/**
+	 * A plug-in whose deployments take time.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	private static class SlowPlugin extends PluginMock {
+
+		final List<String> deployedInstances = Collections.synchronizedList( new ArrayList<String> ());
+		final AtomicInteger concurrentDeployments = new AtomicInteger();
+		final AtomicInteger maxConcurrentDeployments = new AtomicInteger();
+
+
+		@Override
+		public void deploy( Instance instance ) throws PluginException {
+
+			int count = this.concurrentDeployments.incrementAndGet();
+			synchronized( this.maxConcurrentDeployments ) {
+				this.maxConcurrentDeployments.set( Math.max( count, this.maxConcurrentDeployments.get()));
+			}
+
+			try {
+				Thread.sleep( 300 );
+
+			} catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+
+			this.deployedInstances.add( instance.getName());
+			this.concurrentDeployments.decrementAndGet();
+			super.deploy( instance );
+		}
+	}
+}
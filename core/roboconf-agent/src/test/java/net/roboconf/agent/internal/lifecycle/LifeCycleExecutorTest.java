@@ -0,0 +1,275 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.agent.internal.lifecycle;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.roboconf.agent.internal.lifecycle.LifeCycleExecutor.LifeCycleOperation;
+import net.roboconf.core.model.beans.Component;
+import net.roboconf.core.model.beans.ExportedVariable;
+import net.roboconf.core.model.beans.ImportedVariable;
+import net.roboconf.core.model.beans.Instance;
+import net.roboconf.core.model.helpers.InstanceHelpers;
+import net.roboconf.plugin.api.PluginException;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class LifeCycleExecutorTest {
+
+	private LifeCycleExecutor executor;
+
+
+	@After
+	public void shutdownExecutor() {
+		if( this.executor != null )
+			this.executor.shutdown();
+	}
+
+
+	@Test
+	public void testFindExecutionKeys_nullScopedInstance() {
+		Assert.assertEquals( 0, LifeCycleExecutor.findExecutionKeys( null ).size());
+	}
+
+
+	@Test
+	public void testFindExecutionKeys() {
+
+		// A VM with Tomcat (+ a WAR that imports MySQL), MySQL and an independent Redis
+		Component vmComponent = new Component( "vm" );
+		Component tomcatComponent = new Component( "tomcat" );
+		Component warComponent = new Component( "war" );
+		warComponent.addImportedVariable( new ImportedVariable( "mysql.port", false, false ));
+
+		Component mySqlComponent = new Component( "mysql" );
+		mySqlComponent.addExportedVariable( new ExportedVariable( "port", "3306" ));
+		Component redisComponent = new Component( "redis" );
+
+		Instance vm = new Instance( "vm" ).component( vmComponent );
+		Instance tomcat = new Instance( "tomcat" ).component( tomcatComponent );
+		Instance war = new Instance( "war" ).component( warComponent );
+		Instance mySql = new Instance( "mysql" ).component( mySqlComponent );
+		Instance redis = new Instance( "redis" ).component( redisComponent );
+
+		InstanceHelpers.insertChild( vm, tomcat );
+		InstanceHelpers.insertChild( tomcat, war );
+		InstanceHelpers.insertChild( vm, mySql );
+		InstanceHelpers.insertChild( vm, redis );
+
+		Map<Instance,String> keys = LifeCycleExecutor.findExecutionKeys( vm );
+		Assert.assertEquals( 5, keys.size());
+		Assert.assertEquals( "/vm", keys.get( vm ));
+
+		// Tomcat and MySQL are dependent through the WAR
+		Assert.assertEquals( "/vm/tomcat", keys.get( tomcat ));
+		Assert.assertEquals( "/vm/tomcat", keys.get( war ));
+		Assert.assertEquals( "/vm/tomcat", keys.get( mySql ));
+
+		// Redis is independent
+		Assert.assertEquals( "/vm/redis", keys.get( redis ));
+
+		// Without the import, MySQL is independent too
+		warComponent.importedVariables.clear();
+		keys = LifeCycleExecutor.findExecutionKeys( vm );
+		Assert.assertEquals( "/vm/tomcat", keys.get( war ));
+		Assert.assertEquals( "/vm/mysql", keys.get( mySql ));
+	}
+
+
+	@Test( timeout = 10000 )
+	public void testSameKeyIsSerialized() throws Exception {
+
+		this.executor = new LifeCycleExecutor( 4 );
+		final List<Integer> executionOrder = Collections.synchronizedList( new ArrayList<Integer> ());
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+
+		for( int i = 0; i < 10; i ++ ) {
+			final int index = i;
+			this.executor.submit( "key", "task " + i, new LifeCycleOperation() {
+				@Override
+				public void execute() throws IOException, PluginException {
+
+					maxRunning.set( Math.max( maxRunning.get(), running.incrementAndGet()));
+					sleep( 10 );
+					executionOrder.add( index );
+					running.decrementAndGet();
+				}
+			});
+		}
+
+		this.executor.awaitCompletion();
+		Assert.assertEquals( 0, this.executor.getActiveTasksCount());
+		Assert.assertEquals( 1, maxRunning.get());
+		Assert.assertEquals( 10, executionOrder.size());
+		for( int i = 0; i < 10; i ++ )
+			Assert.assertEquals( i, executionOrder.get( i ).intValue());
+	}
+
+
+	@Test( timeout = 10000 )
+	public void testDifferentKeysRunInParallel() throws Exception {
+
+		this.executor = new LifeCycleExecutor( 3 );
+		final CountDownLatch allStarted = new CountDownLatch( 3 );
+		final CountDownLatch release = new CountDownLatch( 1 );
+
+		for( int i = 0; i < 3; i ++ ) {
+			this.executor.submit( "key " + i, "task " + i, new LifeCycleOperation() {
+				@Override
+				public void execute() throws IOException, PluginException {
+
+					allStarted.countDown();
+					try {
+						release.await();
+
+					} catch( InterruptedException e ) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			});
+		}
+
+		// The three tasks are running at the same time
+		Assert.assertTrue( allStarted.await( 5, TimeUnit.SECONDS ));
+		Assert.assertEquals( 3, this.executor.getActiveTasksCount());
+
+		release.countDown();
+		this.executor.awaitCompletion();
+		Assert.assertEquals( 0, this.executor.getActiveTasksCount());
+	}
+
+
+	@Test( timeout = 10000 )
+	public void testErrorsDoNotStopTheKey() throws Exception {
+
+		this.executor = new LifeCycleExecutor( 2 );
+		final AtomicInteger executed = new AtomicInteger();
+		this.executor.submit( "key", "failing task", new LifeCycleOperation() {
+			@Override
+			public void execute() throws IOException, PluginException {
+				executed.incrementAndGet();
+				throw new PluginException( "for test" );
+			}
+		});
+
+		this.executor.submit( "key", "another failing task", new LifeCycleOperation() {
+			@Override
+			public void execute() throws IOException, PluginException {
+				executed.incrementAndGet();
+				throw new IllegalStateException( "for test" );
+			}
+		});
+
+		this.executor.submit( "key", "task", new LifeCycleOperation() {
+			@Override
+			public void execute() throws IOException, PluginException {
+				executed.incrementAndGet();
+			}
+		});
+
+		this.executor.awaitCompletion();
+		Assert.assertEquals( 3, executed.get());
+	}
+
+
+	@Test( timeout = 10000 )
+	public void testCancelPendingAndShutdown() throws Exception {
+
+		this.executor = new LifeCycleExecutor( 2 );
+		final CountDownLatch started = new CountDownLatch( 1 );
+		final CountDownLatch release = new CountDownLatch( 1 );
+		final AtomicInteger executed = new AtomicInteger();
+
+		this.executor.submit( "key", "blocking task", new LifeCycleOperation() {
+			@Override
+			public void execute() throws IOException, PluginException {
+
+				started.countDown();
+				try {
+					release.await();
+
+				} catch( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+
+		LifeCycleOperation counting = new LifeCycleOperation() {
+			@Override
+			public void execute() throws IOException, PluginException {
+				executed.incrementAndGet();
+			}
+		};
+
+		Assert.assertTrue( started.await( 5, TimeUnit.SECONDS ));
+		this.executor.submit( "key", "pending task 1", counting );
+		this.executor.submit( "key", "pending task 2", counting );
+		Assert.assertEquals( 3, this.executor.getActiveTasksCount());
+
+		// Pending tasks are dropped, the running one is not interrupted
+		this.executor.cancelPending();
+		Assert.assertEquals( 1, this.executor.getActiveTasksCount());
+
+		release.countDown();
+		this.executor.awaitCompletion();
+		Assert.assertEquals( 0, executed.get());
+
+		// The key can be used again
+		this.executor.submit( "key", "task", counting );
+		this.executor.awaitCompletion();
+		Assert.assertEquals( 1, executed.get());
+
+		// After a shutdown, tasks are dropped
+		this.executor.shutdown();
+		this.executor.submit( "key", "dropped task", counting );
+		Assert.assertEquals( 0, this.executor.getActiveTasksCount());
+		Assert.assertEquals( 1, executed.get());
+	}
+
+
+	private static void sleep( long delay ) {
+
+		try {
+			Thread.sleep( delay );
+
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
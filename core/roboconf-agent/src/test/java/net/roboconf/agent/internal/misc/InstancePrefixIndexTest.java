@@ -0,0 +1,89 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.agent.internal.misc;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.roboconf.core.internal.tests.TestApplicationTemplate;
+import net.roboconf.core.model.beans.Instance;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class InstancePrefixIndexTest {
+
+	@Test
+	public void testIndex() {
+
+		TestApplicationTemplate app = new TestApplicationTemplate();
+		InstancePrefixIndex index = new InstancePrefixIndex( app.getTomcatVm(), new HashMap<String,String>( 0 ));
+
+		Assert.assertTrue( index.isFor( app.getTomcatVm()));
+		Assert.assertFalse( index.isFor( app.getMySqlVm()));
+		Assert.assertFalse( index.isFor( null ));
+
+		// Only the WAR imports variables
+		Assert.assertEquals( Arrays.asList( app.getWar()), index.findImportingInstances( "mysql" ));
+		Assert.assertEquals( 0, index.findImportingInstances( "war" ).size());
+		Assert.assertEquals( 0, index.findImportingInstances( "unknown" ).size());
+
+		// Only the WAR exports variables.
+		// MySQL is not under this scoped instance.
+		Assert.assertEquals( Arrays.asList( app.getWar()), index.findExportingInstances( "war" ));
+		Assert.assertEquals( 0, index.findExportingInstances( "mysql" ).size());
+		Assert.assertEquals( 0, index.findExportingInstances( "unknown" ).size());
+	}
+
+
+	@Test
+	public void testIndex_externalExports() {
+
+		TestApplicationTemplate app = new TestApplicationTemplate();
+		Map<String,String> externalExports = new HashMap<> ();
+		externalExports.put( "war.ip", "tpl.ip" );
+		externalExports.put( "war.port", "tpl.port" );
+
+		InstancePrefixIndex index = new InstancePrefixIndex( app.getTomcatVm(), externalExports );
+		Assert.assertEquals( Arrays.asList( app.getWar()), index.findExportingInstances( "war" ));
+		Assert.assertEquals( Arrays.asList( app.getWar()), index.findExportingInstances( "tpl" ));
+	}
+
+
+	@Test
+	public void testIndex_noScopedInstance() {
+
+		InstancePrefixIndex index = new InstancePrefixIndex( null, new HashMap<String,String>( 0 ));
+		Assert.assertTrue( index.isFor( null ));
+		Assert.assertFalse( index.isFor( new Instance( "inst" )));
+		Assert.assertEquals( 0, index.findImportingInstances( "mysql" ).size());
+		Assert.assertEquals( 0, index.findExportingInstances( "mysql" ).size());
+	}
+}
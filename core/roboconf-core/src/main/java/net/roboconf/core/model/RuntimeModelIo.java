@@ -55,6 +55,7 @@ import net.roboconf.core.errors.RoboconfErrorHelpers;
 import net.roboconf.core.model.beans.ApplicationTemplate;
 import net.roboconf.core.model.beans.Graphs;
 import net.roboconf.core.model.beans.Instance;
+import net.roboconf.core.model.helpers.ResolvedTypes;
 import net.roboconf.core.utils.Utils;
 
 /**
@@ -212,6 +213,10 @@ public final class RuntimeModelIo {
 
 			Graphs graphs = loadGraph( mainGraphFile, graphDirectory, result );
 			app.setGraphs( graphs );
+
+			// Resolve inheritance closures once for all
+			if( graphs != null )
+				ResolvedTypes.compile( graphs );
 		}
 
 
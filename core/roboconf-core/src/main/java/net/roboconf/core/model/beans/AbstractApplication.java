@@ -36,7 +36,8 @@ import net.roboconf.core.utils.Utils;
  */
 public abstract class AbstractApplication {
 
-	protected final Collection<Instance> rootInstances = new CopyOnWriteArraySet<> ();
+	protected final Collection<Instance> rootInstances = new InstanceSet( new CopyOnWriteArraySet<Instance> ());
+	private final InstancePathIndex instancePathIndex = new InstancePathIndex();
 	protected String name, displayName, description;
 	protected File directory;
 
@@ -48,6 +49,13 @@ public abstract class AbstractApplication {
 		return this.rootInstances;
 	}
 
+	/**
+	 * @return the index to find instances by path (never null)
+	 */
+	public InstancePathIndex getInstancePathIndex() {
+		return this.instancePathIndex;
+	}
+
 	/**
 	 * @return the name
 	 */
@@ -32,6 +32,9 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.roboconf.core.model.helpers.ResolvedTypes;
 
 /**
  * @author Vincent Zurczak - Linagora
@@ -40,6 +43,10 @@ public abstract class AbstractType implements Serializable {
 
 	private static final long serialVersionUID = 6426303830149882558L;
 
+	// Incremented every time a type is modified through its methods.
+	// Cached resolutions of exported variables rely on it (see ResolvedExports).
+	private static final AtomicLong MODIFICATIONS_COUNT = new AtomicLong();
+
 	/**
 	 * Variables, accessible by their names and sorted alphabetically in this map.
 	 */
@@ -49,6 +56,9 @@ public abstract class AbstractType implements Serializable {
 	protected final Collection<AbstractType> children = new HashSet<>( 0 );
 	protected final Collection<AbstractType> ancestors = new HashSet<>( 0 );
 
+	// Set when the graph this type belongs to is compiled (see ResolvedTypes).
+	private transient volatile ResolvedTypes resolvedTypes;
+
 
 	/**
 	 * @return the name
@@ -62,6 +72,7 @@ public abstract class AbstractType implements Serializable {
 	 */
 	public void setName( String name ) {
 		this.name = name;
+		markAsModified();
 	}
 
 	@Override
@@ -89,6 +100,8 @@ public abstract class AbstractType implements Serializable {
 	public void addChild( AbstractType type ) {
 		this.children.add( type );
 		type.ancestors.add( this );
+		markAsModified();
+		type.markAsModified();
 	}
 
 	/**
@@ -111,5 +124,46 @@ public abstract class AbstractType implements Serializable {
 	 */
 	public void addExportedVariable( ExportedVariable var ) {
 		this.exportedVariables.put( var.getName(), var );
+		markAsModified();
+	}
+
+	/**
+	 * @return the resolved types of the graph this type belongs to (null if it was not compiled)
+	 */
+	public ResolvedTypes getResolvedTypes() {
+		return this.resolvedTypes;
+	}
+
+	/**
+	 * @param resolvedTypes the resolved types of the graph this type belongs to
+	 */
+	public void setResolvedTypes( ResolvedTypes resolvedTypes ) {
+		this.resolvedTypes = resolvedTypes;
+	}
+
+	/**
+	 * Indicates this type was modified.
+	 * <p>
+	 * This method is invoked by the methods that modify types. It must also be
+	 * invoked when {@link #exportedVariables} is directly modified after the graph
+	 * was compiled or after instances were created for this type.
+	 * </p>
+	 * <p>
+	 * The resolved types of its graph, if any, are invalidated.
+	 * </p>
+	 */
+	public void markAsModified() {
+
+		MODIFICATIONS_COUNT.incrementAndGet();
+		ResolvedTypes rt = this.resolvedTypes;
+		if( rt != null )
+			rt.invalidate();
+	}
+
+	/**
+	 * @return the number of modifications of all the types so far
+	 */
+	public static long getModificationsCount() {
+		return MODIFICATIONS_COUNT.get();
 	}
 }
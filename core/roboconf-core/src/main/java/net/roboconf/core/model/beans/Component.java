@@ -103,6 +103,7 @@ public class Component extends AbstractType implements Serializable {
 	 */
 	public Component name( String name ) {
 		this.name = name;
+		markAsModified();
 		return this;
 	}
 
@@ -125,6 +126,8 @@ public class Component extends AbstractType implements Serializable {
 
 		component.extendingComponents.add( this );
 		this.extendedComponent = component;
+		markAsModified();
+		component.markAsModified();
 	}
 
 	/**
@@ -134,6 +137,8 @@ public class Component extends AbstractType implements Serializable {
 	public void associateFacet( Facet facet ) {
 		this.facets.add( facet );
 		facet.associatedComponents.add( this );
+		markAsModified();
+		facet.markAsModified();
 	}
 
 	/**
@@ -143,6 +148,8 @@ public class Component extends AbstractType implements Serializable {
 	public void disassociateFacet( Facet facet ) {
 		this.facets.remove( facet );
 		facet.associatedComponents.remove( this );
+		markAsModified();
+		facet.markAsModified();
 	}
 
 	/**
@@ -151,5 +158,6 @@ public class Component extends AbstractType implements Serializable {
 	 */
 	public void addImportedVariable( ImportedVariable var ) {
 		this.importedVariables.put( var.getName(), var );
+		markAsModified();
 	}
 }
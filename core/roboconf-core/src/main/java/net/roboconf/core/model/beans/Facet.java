@@ -86,5 +86,7 @@ public class Facet extends AbstractType implements Serializable {
 	public void extendFacet( Facet facet ) {
 		this.extendedFacets.add( facet );
 		facet.extendingFacets.add( this );
+		markAsModified();
+		facet.markAsModified();
 	}
 }
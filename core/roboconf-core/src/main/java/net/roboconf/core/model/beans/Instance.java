@@ -25,6 +25,8 @@
 
 package net.roboconf.core.model.beans;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Collection;
 import java.util.HashMap;
@@ -34,7 +36,9 @@ import java.util.TreeMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 import net.roboconf.core.model.helpers.InstanceHelpers;
+import net.roboconf.core.model.helpers.ResolvedExports;
 import net.roboconf.core.utils.RoboconfFlexMap;
+import net.roboconf.core.utils.Utils;
 
 /**
  * An instance object represents a running component instance.
@@ -125,6 +129,19 @@ public class Instance implements Serializable {
 	private final Collection<Instance> children = new CopyOnWriteArraySet<> ();
 	private InstanceStatus status = InstanceStatus.NOT_DEPLOYED;
 
+	// Set when the instance is removed from its parent or from its application (see InstancePathIndex).
+	// Children are modified through a view that sets this flag. It is rebuilt after deserialization.
+	transient volatile boolean detached = false;
+	private transient Collection<Instance> childrenView = new InstanceSet( this.children );
+
+	// The path is used by "hashCode" and "equals", and instances are often used in sets and maps.
+	// It is reset when the name or the parent of this instance, or of one of its ancestors, changes.
+	private transient volatile String path;
+
+	// Exported variables are resolved on demand and kept until something they depend on changes.
+	// See InstanceHelpers#findAllExportedVariables(Instance).
+	private transient volatile ResolvedExports resolvedExports;
+
 	public final Collection<String> channels = new HashSet<> ();
 	public final Map<String,String> overriddenExports = new HashMap<> ();
 
@@ -164,6 +181,7 @@ public class Instance implements Serializable {
 	 */
 	public void setName( String name ) {
 		this.name = name;
+		resetPath();
 	}
 
 	/**
@@ -206,24 +224,42 @@ public class Instance implements Serializable {
 	 */
 	public void setParent( Instance parent ) {
 		this.parent = parent;
+		resetPath();
 	}
 
 	/**
 	 * @return the children
 	 */
 	public Collection<Instance> getChildren() {
-		return this.children;
+		return this.childrenView;
+	}
+
+	/**
+	 * @return the instance path (never null)
+	 * @see InstanceHelpers#computeInstancePath(Instance)
+	 */
+	public String getPath() {
+
+		String result = this.path;
+		if( result == null ) {
+			String parentPath = this.parent == null ? "" : this.parent.getPath();
+			result = Utils.isEmptyOrWhitespaces( this.name ) ? parentPath + "/" : parentPath + "/" + this.name;
+			this.path = result;
+		}
+
+		return result;
 	}
 
 	@Override
 	public int hashCode() {
-		return InstanceHelpers.computeInstancePath( this ).hashCode();
+		// Strings cache their hash code
+		return getPath().hashCode();
 	}
 
 	@Override
 	public boolean equals( Object obj ) {
 		return obj instanceof Instance
-				&& InstanceHelpers.haveSamePath( this, (Instance) obj);
+				&& ( obj == this || getPath().equals(((Instance) obj).getPath()));
 	}
 
 	@Override
@@ -237,6 +273,7 @@ public class Instance implements Serializable {
 	 */
 	public Instance name( String name ) {
 		this.name = name;
+		resetPath();
 		return this;
 	}
 
@@ -255,6 +292,7 @@ public class Instance implements Serializable {
 	 */
 	public Instance parent( Instance parent ) {
 		this.parent = parent;
+		resetPath();
 		return this;
 	}
 
@@ -277,6 +315,49 @@ public class Instance implements Serializable {
 	}
 
 
+	/**
+	 * Resets the cached path of this instance and of its descendants.
+	 * <p>
+	 * Descendants are found through {@link #getChildren()}.
+	 * </p>
+	 */
+	private void resetPath() {
+
+		this.path = null;
+		for( Instance child : this.children )
+			child.resetPath();
+	}
+
+
+	/**
+	 * Rebuilds the transient fields after deserialization.
+	 * @param in an object input stream
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private void readObject( ObjectInputStream in ) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.childrenView = new InstanceSet( this.children );
+	}
+
+
+	/**
+	 * @return the last resolved exports (can be null)
+	 * @see InstanceHelpers#findAllExportedVariables(Instance)
+	 */
+	public ResolvedExports getResolvedExports() {
+		return this.resolvedExports;
+	}
+
+
+	/**
+	 * @param resolvedExports the resolved exports to keep (null to force a new resolution)
+	 */
+	public void setResolvedExports( ResolvedExports resolvedExports ) {
+		this.resolvedExports = resolvedExports;
+	}
+
+
 	/**
 	 * @return the imports (not null, key: component or facet name, value: the associated imports)
 	 */
@@ -0,0 +1,165 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.core.model.beans;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An index to find the instances of an application by path.
+ * <p>
+ * Entries are added when instances are inserted or found, and they are checked
+ * on every look-up: an entry is only returned if the instance's names still match
+ * the path and if none of the instances in its hierarchy was removed from the model.
+ * Checking an entry does not depend on the size of the application.
+ * </p>
+ * <p>
+ * For tests, a consistency check can be enabled so that every look-up
+ * that hits the index is compared with a full search.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public final class InstancePathIndex {
+
+	private static volatile boolean consistencyCheck = false;
+	private final Map<String,Instance> pathToInstance = new ConcurrentHashMap<> ();
+
+
+	/**
+	 * Finds an instance by path.
+	 * @param instancePath an instance path (can be null)
+	 * @return the indexed instance, or null if there is no valid entry for this path
+	 */
+	public Instance get( String instancePath ) {
+
+		Instance result = instancePath == null ? null : this.pathToInstance.get( instancePath );
+		if( result != null && ! matches( result, instancePath )) {
+			this.pathToInstance.remove( instancePath );
+			result = null;
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Indexes an instance.
+	 * <p>
+	 * Nothing is done if the path is not exactly the instance's path.
+	 * </p>
+	 *
+	 * @param instancePath the instance path
+	 * @param instance the instance
+	 */
+	public void put( String instancePath, Instance instance ) {
+		if( instancePath != null && instance != null && matches( instance, instancePath ))
+			this.pathToInstance.put( instancePath, instance );
+	}
+
+
+	/**
+	 * Removes an instance and its children from the index.
+	 * <p>
+	 * Entries are removed by path, so this does not depend on the size of the index.
+	 * Entries whose path changed since they were indexed are not valid anymore, they
+	 * are removed on the next look-up.
+	 * </p>
+	 *
+	 * @param instance an instance
+	 */
+	public void remove( Instance instance ) {
+
+		this.pathToInstance.remove( instance.getPath(), instance );
+		for( Instance child : instance.getChildren())
+			remove( child );
+	}
+
+
+	/**
+	 * Clears the index.
+	 */
+	public void clear() {
+		this.pathToInstance.clear();
+	}
+
+
+	/**
+	 * @return the number of indexed paths
+	 */
+	public int size() {
+		return this.pathToInstance.size();
+	}
+
+
+	/**
+	 * @return true if look-ups must be compared with a full search
+	 */
+	public static boolean isConsistencyCheck() {
+		return consistencyCheck;
+	}
+
+
+	/**
+	 * @param consistencyCheck true to compare look-ups with a full search (for tests)
+	 */
+	public static void setConsistencyCheck( boolean consistencyCheck ) {
+		InstancePathIndex.consistencyCheck = consistencyCheck;
+	}
+
+
+	/**
+	 * Determines whether an instance is still located at a given path.
+	 * <p>
+	 * The path is compared with the instance names, from the instance to its root,
+	 * without building any string.
+	 * </p>
+	 *
+	 * @param instance an instance
+	 * @param instancePath an instance path
+	 * @return true if the instance is in the model and at this path, false otherwise
+	 */
+	static boolean matches( Instance instance, String instancePath ) {
+
+		int end = instancePath.length();
+		for( Instance current = instance; current != null; current = current.getParent()) {
+
+			String name = current.getName();
+			if( current.detached || name == null )
+				return false;
+
+			int start = end - name.length();
+			if( start < 1
+					|| instancePath.charAt( start - 1 ) != '/'
+					|| ! instancePath.regionMatches( start, name, 0, name.length()))
+				return false;
+
+			end = start - 1;
+		}
+
+		return end == 0;
+	}
+}
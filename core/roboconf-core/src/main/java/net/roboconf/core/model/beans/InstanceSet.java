@@ -0,0 +1,156 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.core.model.beans;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A view on the collection used for root instances and child instances.
+ * <p>
+ * It flags the instances that are removed from it, so that an
+ * {@link InstancePathIndex} can determine whether a cached instance
+ * is still part of the model.
+ * </p>
+ * <p>
+ * This view is not serializable. Only the underlying collection is serialized,
+ * so that the serialized form of instances does not depend on this class.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+final class InstanceSet extends AbstractSet<Instance> {
+
+	private final Collection<Instance> instances;
+
+
+	/**
+	 * Constructor.
+	 * @param instances the underlying collection (not null, with a set semantic)
+	 */
+	InstanceSet( Collection<Instance> instances ) {
+		this.instances = instances;
+	}
+
+
+	@Override
+	public Iterator<Instance> iterator() {
+		return this.instances.iterator();
+	}
+
+
+	@Override
+	public int size() {
+		return this.instances.size();
+	}
+
+
+	@Override
+	public boolean contains( Object o ) {
+		return this.instances.contains( o );
+	}
+
+
+	@Override
+	public boolean add( Instance instance ) {
+
+		boolean result = this.instances.add( instance );
+		if( result )
+			instance.detached = false;
+
+		return result;
+	}
+
+
+	@Override
+	public boolean addAll( Collection<? extends Instance> instances ) {
+
+		boolean result = false;
+		for( Instance instance : instances )
+			result |= add( instance );
+
+		return result;
+	}
+
+
+	@Override
+	public boolean remove( Object o ) {
+
+		// Instances are compared by path, we need the real element
+		Instance found = null;
+		for( Instance instance : this.instances ) {
+			if( instance.equals( o )) {
+				found = instance;
+				break;
+			}
+		}
+
+		boolean result = this.instances.remove( o );
+		if( result && found != null )
+			found.detached = true;
+
+		return result;
+	}
+
+
+	@Override
+	public boolean removeAll( Collection<?> c ) {
+
+		boolean result = false;
+		for( Instance instance : new ArrayList<>( this.instances )) {
+			if( c.contains( instance ))
+				result |= remove( instance );
+		}
+
+		return result;
+	}
+
+
+	@Override
+	public boolean retainAll( Collection<?> c ) {
+
+		boolean result = false;
+		for( Instance instance : new ArrayList<>( this.instances )) {
+			if( ! c.contains( instance ))
+				result |= remove( instance );
+		}
+
+		return result;
+	}
+
+
+	@Override
+	public void clear() {
+
+		List<Instance> removed = new ArrayList<>( this.instances );
+		this.instances.clear();
+		for( Instance instance : removed )
+			instance.detached = true;
+	}
+}
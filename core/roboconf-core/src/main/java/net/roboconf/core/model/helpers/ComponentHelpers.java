@@ -139,7 +139,9 @@ public final class ComponentHelpers {
 	 * @return a non-null list of components
 	 */
 	public static Collection<Component> findAllChildren( Component component ) {
-		return findAncestorsOrChildren( component, true );
+
+		ResolvedTypes.ResolvedComponent resolved = ResolvedTypes.findResolvedComponent( component );
+		return resolved != null ? copy( resolved.children ) : findAncestorsOrChildren( component, true );
 	}
 
 
@@ -149,7 +151,9 @@ public final class ComponentHelpers {
 	 * @return a non-null list of components
 	 */
 	public static Collection<Component> findAllAncestors( Component component ) {
-		return findAncestorsOrChildren( component, false );
+
+		ResolvedTypes.ResolvedComponent resolved = ResolvedTypes.findResolvedComponent( component );
+		return resolved != null ? copy( resolved.ancestors ) : findAncestorsOrChildren( component, false );
 	}
 
 
@@ -190,7 +194,11 @@ public final class ComponentHelpers {
 	 * @return a non-null map of exported variables (key = variable name, value = variable value).
 	 */
 	public static Map<String,String> findAllExportedVariables( Component component ) {
-		return findAllExportedVariables( component, new HashSet<Component>( 0 ));
+
+		ResolvedTypes.ResolvedComponent resolved = ResolvedTypes.findResolvedComponent( component );
+		return resolved != null
+				? new HashMap<>( resolved.exportedVariables )
+				: findAllExportedVariables( component, new HashSet<Component>( 0 ));
 	}
 
 
@@ -244,6 +252,66 @@ public final class ComponentHelpers {
 	 */
 	public static Map<String,String> findAllExportedVariables( Facet facet ) {
 
+		Map<String,String> cached = ResolvedTypes.findResolvedExports( facet );
+		return cached != null ? new HashMap<>( cached ) : resolveExportedVariables( facet );
+	}
+
+
+	/**
+	 * Finds all the imported variables for a given component.
+	 * @param component a non-null component
+	 * @return a non-null map of imported variables (key = variable name, value = imported variable bean)
+	 */
+	public static Map<String,ImportedVariable> findAllImportedVariables( Component component ) {
+
+		ResolvedTypes.ResolvedComponent resolved = ResolvedTypes.findResolvedComponent( component );
+		return resolved != null ? new HashMap<>( resolved.importedVariables ) : resolveImportedVariables( component );
+	}
+
+
+	/**
+	 * Finds all the facets of a component.
+	 * <p>
+	 * Inheritance cycles are ignored.
+	 * </p>
+	 *
+	 * @param component a non-null component
+	 * @return a non-null list of facets
+	 */
+	public static Collection<Facet> findAllFacets( Component component ) {
+
+		ResolvedTypes.ResolvedComponent resolved = ResolvedTypes.findResolvedComponent( component );
+		return resolved != null ? new HashSet<>( resolved.facets ) : resolveFacets( component );
+	}
+
+
+	/**
+	 * Finds all the components that this component inherits from.
+	 * <p>
+	 * For commodity reasons, the result always contains the current component.
+	 * </p>
+	 * <p>
+	 * Inheritance cycles are ignored.
+	 * </p>
+	 *
+	 * @param component a non-null component
+	 * @return a non-null list (it always contains the <code>component</code> parameter)
+	 */
+	public static List<Component> findAllExtendedComponents( Component component ) {
+
+		ResolvedTypes.ResolvedComponent resolved = ResolvedTypes.findResolvedComponent( component );
+		return resolved != null ? new ArrayList<>( resolved.extendedComponents ) : resolveExtendedComponents( component );
+	}
+
+
+	/**
+	 * Resolves all the exported variables of a facet, without using the resolved types.
+	 * @param facet a facet
+	 * @return a non-null map (key = variable name, value = variable value).
+	 * @see #findAllExportedVariables(Facet)
+	 */
+	static Map<String,String> resolveExportedVariables( Facet facet ) {
+
 		Map<Facet,Boolean> facetToResolved = new HashMap<> ();
 		Map<Facet,Map<String,String>> facetToResolvedExports = new HashMap<> ();
 
@@ -298,11 +366,12 @@ public final class ComponentHelpers {
 
 
 	/**
-	 * Finds all the imported variables for a given component.
+	 * Resolves all the imported variables of a component, without using the resolved types.
 	 * @param component a non-null component
 	 * @return a non-null map of imported variables (key = variable name, value = imported variable bean)
+	 * @see #findAllImportedVariables(Component)
 	 */
-	public static Map<String,ImportedVariable> findAllImportedVariables( Component component ) {
+	static Map<String,ImportedVariable> resolveImportedVariables( Component component ) {
 
 		// Process components from the ancestors to the children... => override
 		Map<String,ImportedVariable> result = new HashMap<> ();
@@ -317,15 +386,12 @@ public final class ComponentHelpers {
 
 
 	/**
-	 * Finds all the facets of a component.
-	 * <p>
-	 * Inheritance cycles are ignored.
-	 * </p>
-	 *
+	 * Resolves all the facets of a component, without using the resolved types.
 	 * @param component a non-null component
 	 * @return a non-null list of facets
+	 * @see #findAllFacets(Component)
 	 */
-	public static Collection<Facet> findAllFacets( Component component ) {
+	static Collection<Facet> resolveFacets( Component component ) {
 
 		Set<Facet> result = new HashSet<> ();
 		List<Facet> toProcess = new ArrayList<> ();
@@ -346,18 +412,12 @@ public final class ComponentHelpers {
 
 
 	/**
-	 * Finds all the components that this component inherits from.
-	 * <p>
-	 * For commodity reasons, the result always contains the current component.
-	 * </p>
-	 * <p>
-	 * Inheritance cycles are ignored.
-	 * </p>
-	 *
+	 * Resolves all the components that this component inherits from, without using the resolved types.
 	 * @param component a non-null component
 	 * @return a non-null list (it always contains the <code>component</code> parameter)
+	 * @see #findAllExtendedComponents(Component)
 	 */
-	public static List<Component> findAllExtendedComponents( Component component ) {
+	static List<Component> resolveExtendedComponents( Component component ) {
 
 		List<Component> result = new ArrayList<> ();
 		for( Component c = component; c != null; c = c.getExtendedComponent()) {
@@ -679,6 +739,19 @@ public final class ComponentHelpers {
 	}
 
 
+	/**
+	 * Copies a sorted collection of components.
+	 * @param components a non-null collection
+	 * @return a new collection, sorted like the ones returned by {@link #findAncestorsOrChildren(Component, boolean)}
+	 */
+	private static Collection<Component> copy( Collection<Component> components ) {
+
+		Set<Component> result = new TreeSet<>( new AbstractTypeComparator());
+		result.addAll( components );
+		return result;
+	}
+
+
 	/**
 	 * Fixes the name of an exported variable name.
 	 * <p>
@@ -712,7 +785,7 @@ public final class ComponentHelpers {
 	 * @param children true to search children, false for ancestors
 	 * @return a non-null list
 	 */
-	private static Collection<Component> findAncestorsOrChildren( final Component component, final boolean children ) {
+	static Collection<Component> findAncestorsOrChildren( final Component component, final boolean children ) {
 
 		// The algorithm of death...
 		Set<Component> result = new TreeSet<>( new AbstractTypeComparator());
@@ -778,7 +851,7 @@ public final class ComponentHelpers {
 	 * @param alreadyChecked a non-null list of already checked components (prevents cycles)
 	 * @return a non-null map of exported variables (key = variable name, value = variable value).
 	 */
-	private static Map<String,String> findAllExportedVariables( Component component, Set<Component> alreadyChecked ) {
+	static Map<String,String> findAllExportedVariables( Component component, Set<Component> alreadyChecked ) {
 		Map<String,String> result = new HashMap<> ();
 
 		// Get all the inherited variables from facets
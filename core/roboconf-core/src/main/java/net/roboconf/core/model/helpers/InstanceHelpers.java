@@ -45,9 +45,8 @@ import net.roboconf.core.errors.RoboconfErrorHelpers;
 import net.roboconf.core.model.ModelError;
 import net.roboconf.core.model.RuntimeModelValidator;
 import net.roboconf.core.model.beans.AbstractApplication;
-import net.roboconf.core.model.beans.Application;
-import net.roboconf.core.model.beans.ApplicationTemplate;
 import net.roboconf.core.model.beans.Instance;
+import net.roboconf.core.model.beans.InstancePathIndex;
 import net.roboconf.core.utils.DockerAndScriptUtils;
 import net.roboconf.core.utils.Utils;
 
@@ -71,22 +70,15 @@ public final class InstanceHelpers {
 	 * This string can be considered as a computed ID (or signature) of the instance.
 	 * It only makes sense within a given application.
 	 * </p>
+	 * <p>
+	 * The path is cached by the instance until its name or its parent changes.
+	 * </p>
 	 *
-	 * @param inst an instance (not null)
-	 * @return a string (not null)
+	 * @param inst an instance (can be null)
+	 * @return a string (not null, empty if the instance is null)
 	 */
 	public static String computeInstancePath( Instance inst ) {
-
-		StringBuilder sb = new StringBuilder();
-		for( Instance current = inst; current != null; current = current.getParent()) {
-			StringBuilder currentSb = new StringBuilder( "/" );
-			if( ! Utils.isEmptyOrWhitespaces( current.getName()))
-				currentSb.append( current.getName());
-
-			sb.insert( 0, currentSb.toString());
-		}
-
-		return sb.toString();
+		return inst == null ? "" : inst.getPath();
 	}
 
 
@@ -175,12 +167,34 @@ public final class InstanceHelpers {
 	 * It includes the component variables, and the variables
 	 * overridden by the instance.
 	 * </p>
+	 * <p>
+	 * The result is cached by the instance, until its component, its overridden exports,
+	 * its path, the IP address of its root instance or a type is modified.
+	 * </p>
 	 *
 	 * @param instance an instance (not null)
 	 * @return a non-null map (key = variable name, value = default variable value - can be null).
 	 */
 	public static Map<String,String> findAllExportedVariables( Instance instance ) {
 
+		ResolvedExports resolvedExports = instance.getResolvedExports();
+		if( resolvedExports == null || ! resolvedExports.isValidFor( instance )) {
+			resolvedExports = new ResolvedExports( instance );
+			instance.setResolvedExports( resolvedExports );
+		}
+
+		// Callers may modify the result
+		return new LinkedHashMap<>( resolvedExports.getExports());
+	}
+
+
+	/**
+	 * Resolves the exported variables for an instance (without cache).
+	 * @param instance an instance (not null)
+	 * @return a non-null map (key = variable name, value = default variable value - can be null).
+	 */
+	static Map<String,String> resolveExportedVariables( Instance instance ) {
+
 		// Find the variables
 		Map<String,String> result = new HashMap<> ();
 		if( instance.getComponent() != null )
@@ -227,12 +241,17 @@ public final class InstanceHelpers {
 			VariableHelpers.updateNetworkVariables( result, ip );
 
 		// Replace Roboconf meta-variables
+		// (the reference map is built once, and only if necessary)
+		Map<String,String> referenceMap = null;
 		Map<String,String> updatedResult = new LinkedHashMap<>( result.size());
 		for( Map.Entry<String,String> entry : result.entrySet()) {
 
 			String value = entry.getValue();
-			if( value != null ) {
-				for( Map.Entry<String,String> rbcfMetaVar : DockerAndScriptUtils.buildReferenceMap( instance ).entrySet()) {
+			if( value != null && value.contains( "$(" )) {
+				if( referenceMap == null )
+					referenceMap = DockerAndScriptUtils.buildReferenceMap( instance );
+
+				for( Map.Entry<String,String> rbcfMetaVar : referenceMap.entrySet()) {
 					value = value.replace( "$(" + rbcfMetaVar.getKey() + ")", rbcfMetaVar.getValue());
 				}
 			}
@@ -246,16 +265,60 @@ public final class InstanceHelpers {
 
 	/**
 	 * Finds an instance by name.
+	 * <p>
+	 * The application's {@link InstancePathIndex} is used first.
+	 * </p>
+	 *
 	 * @param application the application
 	 * @param instancePath the instance path
 	 * @return an instance, or null if it was not found
 	 */
 	public static Instance findInstanceByPath( AbstractApplication application, String instancePath ) {
 
-		Collection<Instance> currentList = new ArrayList<> ();
-		if( application != null )
-			currentList.addAll( application.getRootInstances());
+		Instance result = null;
+		if( application != null ) {
+			InstancePathIndex index = application.getInstancePathIndex();
+			result = index.get( instancePath );
+			if( result == null ) {
+				result = searchInstanceByPath( application.getRootInstances(), instancePath );
+				index.put( instancePath, result );
+
+			} else if( InstancePathIndex.isConsistencyCheck()) {
+				Instance expected = searchInstanceByPath( application.getRootInstances(), instancePath );
+				if( expected != result )
+					throw new IllegalStateException( "The instance path index is not consistent for " + instancePath + " in " + application + "." );
+			}
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Finds an instance by name.
+	 * @param rootInstance a root instance
+	 * @param instancePath the instance path
+	 * @return an instance, or null if it was not found
+	 */
+	public static Instance findInstanceByPath( Instance rootInstance, String instancePath ) {
+
+		Collection<Instance> rootInstances = new ArrayList<> ( 1 );
+		if( rootInstance != null )
+			rootInstances.add( rootInstance );
+
+		return searchInstanceByPath( rootInstances, instancePath );
+	}
+
+
+	/**
+	 * Searches an instance by path, by walking through the instances.
+	 * @param rootInstances the root instances (not null)
+	 * @param instancePath the instance path
+	 * @return an instance, or null if it was not found
+	 */
+	private static Instance searchInstanceByPath( Collection<Instance> rootInstances, String instancePath ) {
 
+		Collection<Instance> currentList = rootInstances;
 		List<String> instanceNames = new ArrayList<> ();
 		if( instancePath != null )
 			instanceNames.addAll( Arrays.asList( instancePath.split( "/" )));
@@ -288,22 +351,6 @@ public final class InstanceHelpers {
 	}
 
 
-	/**
-	 * Finds an instance by name.
-	 * @param rootInstance a root instance
-	 * @param instancePath the instance path
-	 * @return an instance, or null if it was not found
-	 */
-	public static Instance findInstanceByPath( Instance rootInstance, String instancePath ) {
-
-		Application tempApplication = new Application( new ApplicationTemplate());
-		if( rootInstance != null )
-			tempApplication.getRootInstances().add( rootInstance );
-
-		return findInstanceByPath( tempApplication, instancePath );
-	}
-
-
 	/**
 	 * Finds instances by component name.
 	 * @param application an application (not null)
@@ -430,6 +477,7 @@ public final class InstanceHelpers {
 					&& ComponentHelpers.findAllAncestors( childInstance.getComponent()).isEmpty()) {
 
 				application.getRootInstances().add( childInstance );
+				application.getInstancePathIndex().put( computeInstancePath( childInstance ), childInstance );
 				success = true;
 				// No validation here, but maybe we should...
 			}
@@ -448,6 +496,7 @@ public final class InstanceHelpers {
 					childInstance.setParent( null );
 
 				} else {
+					application.getInstancePathIndex().put( computeInstancePath( childInstance ), childInstance );
 					success = true;
 				}
 			}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.core.model.helpers;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import net.roboconf.core.model.beans.AbstractType;
+import net.roboconf.core.model.beans.Component;
+import net.roboconf.core.model.beans.Instance;
+
+/**
+ * The exported variables of an instance, as resolved at a given moment.
+ * <p>
+ * Resolving exported variables implies walking through component and facet
+ * hierarchies, and replacing network and meta variables. The result is kept by the
+ * instance (see {@link InstanceHelpers#findAllExportedVariables(Instance)}) along with
+ * what it was built from: the component, the version of the types (see {@link AbstractType#getModificationsCount()}),
+ * the overridden exports, the IP address and the instance path. The result is valid as long as
+ * none of them changed.
+ * </p>
+ * <p>
+ * Instances of this class are immutable.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public final class ResolvedExports {
+
+	private final Component component;
+	private final long typesVersion;
+	private final Map<String,String> overriddenExports;
+	private final String ipAddress;
+	private final String instancePath;
+	private final Map<String,String> exports;
+
+
+	/**
+	 * Constructor.
+	 * @param instance the instance whose exports are resolved
+	 */
+	ResolvedExports( Instance instance ) {
+
+		// Read what the resolution depends on first:
+		// modifications during the resolution will invalidate the result
+		this.component = instance.getComponent();
+		this.typesVersion = AbstractType.getModificationsCount();
+		this.overriddenExports = new HashMap<>( instance.overriddenExports );
+		this.ipAddress = findIpAddress( instance );
+		this.instancePath = instance.getPath();
+		this.exports = InstanceHelpers.resolveExportedVariables( instance );
+	}
+
+
+	/**
+	 * Determines whether these exports are still valid for an instance.
+	 * @param instance an instance
+	 * @return true if nothing changed since these exports were resolved
+	 */
+	boolean isValidFor( Instance instance ) {
+
+		return this.component == instance.getComponent()
+				&& this.typesVersion == AbstractType.getModificationsCount()
+				&& Objects.equals( this.instancePath, instance.getPath())
+				&& Objects.equals( this.ipAddress, findIpAddress( instance ))
+				&& this.overriddenExports.equals( instance.overriddenExports );
+	}
+
+
+	/**
+	 * @return the resolved exports (not to be modified)
+	 */
+	Map<String,String> getExports() {
+		return this.exports;
+	}
+
+
+	private static String findIpAddress( Instance instance ) {
+		return InstanceHelpers.findRootInstance( instance ).data.get( Instance.IP_ADDRESS );
+	}
+}
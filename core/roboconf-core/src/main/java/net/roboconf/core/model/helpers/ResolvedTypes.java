@@ -0,0 +1,229 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.core.model.helpers;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.roboconf.core.model.beans.AbstractType;
+import net.roboconf.core.model.beans.Component;
+import net.roboconf.core.model.beans.Facet;
+import net.roboconf.core.model.beans.Graphs;
+import net.roboconf.core.model.beans.ImportedVariable;
+
+/**
+ * The resolved types of a graph.
+ * <p>
+ * Resolving inheritance closures (extended components, facets, variables, children
+ * and ancestors) implies walking through component and facet hierarchies. A graph
+ * that is not supposed to change, like the one of an application template, can be
+ * compiled once: {@link ComponentHelpers} then reads the resolved values from this table
+ * instead of computing them again.
+ * </p>
+ * <p>
+ * Every type of the compiled graph references this table (see {@link AbstractType#getResolvedTypes()}).
+ * Modifying one of them through its methods invalidates the whole table, and helpers go
+ * back to computing results on every call. Direct modifications of the {@code exportedVariables}
+ * and {@code importedVariables} fields must be followed by {@link AbstractType#markAsModified()}.
+ * </p>
+ * <p>
+ * Instances of this class are immutable, except for their validity.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public final class ResolvedTypes {
+
+	private final Map<Component,ResolvedComponent> components = new IdentityHashMap<> ();
+	private final Map<Facet,Map<String,String>> facetExports = new IdentityHashMap<> ();
+	private volatile boolean valid = true;
+
+
+	/**
+	 * Private constructor.
+	 */
+	private ResolvedTypes() {
+		// nothing
+	}
+
+
+	/**
+	 * Compiles the types of a graph.
+	 * @param graphs a non-null graph(s)
+	 * @return the resolved types, also associated with every type of the graph
+	 */
+	public static ResolvedTypes compile( Graphs graphs ) {
+
+		Set<Facet> facets = new HashSet<>( graphs.getFacetNameToFacet().values());
+		return compile( ComponentHelpers.findAllComponents( graphs ), facets );
+	}
+
+
+	/**
+	 * Compiles the types of the graph a component belongs to.
+	 * <p>
+	 * Agents only know the components of their scoped instance and its children.
+	 * This method compiles all the types that can be reached from the given component.
+	 * </p>
+	 *
+	 * @param component a non-null component
+	 * @return the resolved types, also associated with every type of the graph
+	 */
+	public static ResolvedTypes compile( Component component ) {
+
+		Graphs partialGraph = new Graphs();
+		partialGraph.getRootComponents().add( component );
+		return compile( ComponentHelpers.findAllComponents( partialGraph ), new HashSet<Facet> ());
+	}
+
+
+	/**
+	 * @return true if none of the compiled types was modified since the compilation
+	 */
+	public boolean isValid() {
+		return this.valid;
+	}
+
+
+	/**
+	 * Invalidates this table.
+	 * <p>
+	 * This method is invoked when a compiled type is modified.
+	 * </p>
+	 */
+	public void invalidate() {
+		this.valid = false;
+	}
+
+
+	/**
+	 * Finds the resolved values of a component.
+	 * @param component a component (can be null)
+	 * @return the resolved values, or null if the component is null, was not compiled or if its table is not valid anymore
+	 */
+	static ResolvedComponent findResolvedComponent( Component component ) {
+
+		ResolvedTypes rt = component == null ? null : component.getResolvedTypes();
+		return rt == null || ! rt.valid ? null : rt.components.get( component );
+	}
+
+
+	/**
+	 * Finds the resolved exports of a facet.
+	 * @param facet a facet (can be null)
+	 * @return the resolved exports, or null if the facet is null, was not compiled or if its table is not valid anymore
+	 */
+	static Map<String,String> findResolvedExports( Facet facet ) {
+
+		ResolvedTypes rt = facet == null ? null : facet.getResolvedTypes();
+		return rt == null || ! rt.valid ? null : rt.facetExports.get( facet );
+	}
+
+
+	/**
+	 * Compiles a set of types.
+	 * @param components all the components of the graph
+	 * @param facets facets that are not necessarily associated with these components
+	 * @return a non-null table
+	 */
+	private static ResolvedTypes compile( Collection<Component> components, Set<Facet> facets ) {
+
+		long typesVersion = AbstractType.getModificationsCount();
+		ResolvedTypes result = new ResolvedTypes();
+
+		// Resolve the components first
+		for( Component c : components ) {
+			ResolvedComponent rc = new ResolvedComponent( c );
+			result.components.put( c, rc );
+			facets.addAll( rc.facets );
+		}
+
+		// Then, the facets (including the ones they extend)
+		for( Facet f : new HashSet<>( facets ))
+			facets.addAll( ComponentHelpers.findAllExtendedFacets( f ));
+
+		for( Facet f : facets ) {
+			Map<String,String> exports = ComponentHelpers.resolveExportedVariables( f );
+			result.facetExports.put( f, Collections.unmodifiableMap( exports ));
+		}
+
+		// Associate the table with the types.
+		// Previous tables are invalidated, as they may share types with this one.
+		Collection<AbstractType> types = new HashSet<> ();
+		types.addAll( components );
+		types.addAll( facets );
+		for( AbstractType type : types ) {
+			ResolvedTypes previous = type.getResolvedTypes();
+			if( previous != null )
+				previous.invalidate();
+
+			type.setResolvedTypes( result );
+		}
+
+		// A type may have been modified while we were compiling
+		if( typesVersion != AbstractType.getModificationsCount())
+			result.invalidate();
+
+		return result;
+	}
+
+
+	/**
+	 * The resolved values of a component.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	static final class ResolvedComponent {
+
+		final List<Component> extendedComponents;
+		final Collection<Facet> facets;
+		final Map<String,ImportedVariable> importedVariables;
+		final Map<String,String> exportedVariables;
+		final Collection<Component> children;
+		final Collection<Component> ancestors;
+
+
+		/**
+		 * Constructor.
+		 * @param component the component to resolve
+		 */
+		ResolvedComponent( Component component ) {
+
+			this.extendedComponents = Collections.unmodifiableList( ComponentHelpers.resolveExtendedComponents( component ));
+			this.facets = Collections.unmodifiableCollection( ComponentHelpers.resolveFacets( component ));
+			this.importedVariables = Collections.unmodifiableMap( ComponentHelpers.resolveImportedVariables( component ));
+			this.exportedVariables = Collections.unmodifiableMap(
+					ComponentHelpers.findAllExportedVariables( component, new HashSet<Component>( 0 )));
+
+			this.children = Collections.unmodifiableCollection( ComponentHelpers.findAncestorsOrChildren( component, true ));
+			this.ancestors = Collections.unmodifiableCollection( ComponentHelpers.findAncestorsOrChildren( component, false ));
+		}
+	}
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.core.model.beans;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.roboconf.core.model.helpers.InstanceHelpers;
+
+/**
+ * A light benchmark for {@link Instance#hashCode()} and {@link Instance#equals(Object)} on deep trees.
+ * <p>
+ * The cached path is compared with the way it was computed before (by walking up the parents
+ * every time). Durations are only logged, assertions are about results.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public class InstancePathBenchmarkTest {
+
+	private static final int ITERATIONS = 200;
+	private final Logger logger = Logger.getLogger( getClass().getName());
+
+
+	@Test
+	public void testDepth5() {
+		runBenchmark( 5 );
+	}
+
+
+	@Test
+	public void testDepth20() {
+		runBenchmark( 20 );
+	}
+
+
+	@Test
+	public void testDepth50() {
+		runBenchmark( 50 );
+	}
+
+
+	private void runBenchmark( int depth ) {
+
+		// Build a tree with 10 children at every level
+		List<Instance> instances = new ArrayList<> ();
+		Instance current = new Instance( "root" );
+		instances.add( current );
+		for( int i=1; i<depth; i++ ) {
+
+			Instance next = null;
+			for( int j=0; j<10; j++ ) {
+				Instance child = new Instance( "instance-" + i + "-" + j );
+				InstanceHelpers.insertChild( current, child );
+				instances.add( child );
+				next = child;
+			}
+
+			current = next;
+		}
+
+		// Uncached computation
+		long start = System.nanoTime();
+		Set<String> paths = new HashSet<> ();
+		for( int i=0; i<ITERATIONS; i++ ) {
+			paths.clear();
+			for( Instance inst : instances )
+				paths.add( computePathWithoutCache( inst ));
+		}
+
+		long uncached = Math.max( 1, System.nanoTime() - start );
+
+		// Cached computation (as done in hash sets and maps)
+		start = System.nanoTime();
+		Set<Instance> set = new HashSet<> ();
+		for( int i=0; i<ITERATIONS; i++ ) {
+			set.clear();
+			for( Instance inst : instances )
+				set.add( inst );
+		}
+
+		long cached = Math.max( 1, System.nanoTime() - start );
+		this.logger.info(
+				"Depth " + depth + ": " + TimeUnit.NANOSECONDS.toMicros( uncached ) + " microseconds without cache, "
+				+ TimeUnit.NANOSECONDS.toMicros( cached ) + " microseconds with cache." );
+
+		Assert.assertEquals( instances.size(), paths.size());
+		Assert.assertEquals( instances.size(), set.size());
+		for( Instance inst : instances )
+			Assert.assertTrue( paths.contains( inst.getPath()));
+	}
+
+
+	/**
+	 * The way instance paths were computed before they were cached.
+	 * @param inst an instance
+	 * @return the instance path
+	 */
+	private static String computePathWithoutCache( Instance inst ) {
+
+		StringBuilder sb = new StringBuilder();
+		for( Instance current = inst; current != null; current = current.getParent()) {
+			StringBuilder currentSb = new StringBuilder( "/" );
+			if( current.getName() != null && ! current.getName().trim().isEmpty())
+				currentSb.append( current.getName());
+
+			sb.insert( 0, currentSb.toString());
+		}
+
+		return sb.toString();
+	}
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.core.model.beans;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.roboconf.core.model.helpers.InstanceHelpers;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class InstancePathIndexTest {
+
+	@Test
+	public void testMatches() {
+
+		Instance root = new Instance( "root" );
+		Instance child = new Instance( "child" );
+		InstanceHelpers.insertChild( root, child );
+
+		Assert.assertTrue( InstancePathIndex.matches( root, "/root" ));
+		Assert.assertTrue( InstancePathIndex.matches( child, "/root/child" ));
+
+		Assert.assertFalse( InstancePathIndex.matches( root, "root" ));
+		Assert.assertFalse( InstancePathIndex.matches( root, "/root/" ));
+		Assert.assertFalse( InstancePathIndex.matches( root, "//root" ));
+		Assert.assertFalse( InstancePathIndex.matches( root, "/other" ));
+		Assert.assertFalse( InstancePathIndex.matches( root, "" ));
+		Assert.assertFalse( InstancePathIndex.matches( child, "/child" ));
+		Assert.assertFalse( InstancePathIndex.matches( child, "/roo/child" ));
+		Assert.assertFalse( InstancePathIndex.matches( child, "/x/root/child" ));
+		Assert.assertFalse( InstancePathIndex.matches( new Instance(), "/" ));
+	}
+
+
+	@Test
+	public void testPutGetAndRemove() {
+
+		Instance root = new Instance( "root" );
+		Instance child = new Instance( "child" );
+		InstanceHelpers.insertChild( root, child );
+
+		InstancePathIndex index = new InstancePathIndex();
+		index.put( "/root", root );
+		index.put( "/root/child", child );
+		index.put( "/root/invalid", child );
+		index.put( null, child );
+		index.put( "/root/child", null );
+		Assert.assertEquals( 2, index.size());
+
+		Assert.assertSame( root, index.get( "/root" ));
+		Assert.assertSame( child, index.get( "/root/child" ));
+		Assert.assertNull( index.get( "/root/invalid" ));
+		Assert.assertNull( index.get( null ));
+
+		// Removing an instance also removes its children
+		index.remove( root );
+		Assert.assertEquals( 0, index.size());
+
+		index.put( "/root", root );
+		index.put( "/root/child", child );
+		index.remove( child );
+		Assert.assertEquals( 1, index.size());
+
+		index.clear();
+		Assert.assertEquals( 0, index.size());
+	}
+
+
+	@Test
+	public void testDetachedInstances() {
+
+		Application app = new Application( "app", new ApplicationTemplate());
+		Instance root = new Instance( "root" );
+		Instance child1 = new Instance( "child1" );
+		Instance child2 = new Instance( "child2" );
+		InstanceHelpers.insertChild( root, child1 );
+		InstanceHelpers.insertChild( root, child2 );
+		app.getRootInstances().add( root );
+
+		InstancePathIndex index = app.getInstancePathIndex();
+		index.put( "/root/child1", child1 );
+		index.put( "/root/child2", child2 );
+
+		// Removing an equivalent instance (same path) detaches the real one
+		Instance copy = new Instance( "child1" );
+		copy.setParent( new Instance( "root" ));
+		Assert.assertTrue( root.getChildren().remove( copy ));
+		Assert.assertNull( index.get( "/root/child1" ));
+		Assert.assertSame( child2, index.get( "/root/child2" ));
+
+		// Collection-based removals
+		root.getChildren().removeAll( Arrays.asList( child2 ));
+		Assert.assertNull( index.get( "/root/child2" ));
+
+		root.getChildren().addAll( Arrays.asList( child1, child2 ));
+		index.put( "/root/child1", child1 );
+		index.put( "/root/child2", child2 );
+		root.getChildren().retainAll( Arrays.asList( child2 ));
+		Assert.assertNull( index.get( "/root/child1" ));
+		Assert.assertSame( child2, index.get( "/root/child2" ));
+
+		// Removing the root detaches the whole tree
+		app.getRootInstances().remove( root );
+		Assert.assertNull( index.get( "/root/child2" ));
+		Assert.assertEquals( 0, index.size());
+	}
+}
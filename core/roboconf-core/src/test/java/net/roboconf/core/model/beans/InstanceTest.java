@@ -25,8 +25,15 @@
 
 package net.roboconf.core.model.beans;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.CopyOnWriteArraySet;
+
 import org.junit.Assert;
 import net.roboconf.core.model.beans.Instance.InstanceStatus;
+import net.roboconf.core.model.helpers.InstanceHelpers;
 
 import org.junit.Test;
 
@@ -77,4 +84,87 @@ public class InstanceTest {
 		Assert.assertEquals( hop, hop );
 		Assert.assertEquals( hop, new Instance ("hop" ));
 	}
+
+
+	@Test
+	public void testCachedPath() {
+
+		Instance root = new Instance( "root" );
+		Instance child = new Instance( "child" );
+		Instance grandChild = new Instance( "grand-child" );
+		InstanceHelpers.insertChild( root, child );
+		InstanceHelpers.insertChild( child, grandChild );
+
+		Assert.assertEquals( "/root/child/grand-child", grandChild.getPath());
+		Assert.assertSame( grandChild.getPath(), grandChild.getPath());
+		int hashCode = grandChild.hashCode();
+
+		// Renaming an ancestor updates the descendants
+		root.setName( "root2" );
+		Assert.assertEquals( "/root2/child/grand-child", grandChild.getPath());
+		Assert.assertFalse( hashCode == grandChild.hashCode());
+
+		root.name( "root" );
+		Assert.assertEquals( "/root/child/grand-child", grandChild.getPath());
+		Assert.assertEquals( hashCode, grandChild.hashCode());
+
+		// Moving an ancestor too
+		Instance otherRoot = new Instance( "other" );
+		InstanceHelpers.insertChild( otherRoot, root );
+		Assert.assertEquals( "/other/root/child/grand-child", grandChild.getPath());
+
+		root.parent( null );
+		Assert.assertEquals( "/root/child/grand-child", grandChild.getPath());
+
+		child.setParent( null );
+		Assert.assertEquals( "/child/grand-child", grandChild.getPath());
+		Assert.assertEquals( "/child", child.getPath());
+
+		// Empty names
+		grandChild.setName( null );
+		Assert.assertEquals( "/child/", grandChild.getPath());
+		Assert.assertEquals( "/", new Instance( " " ).getPath());
+	}
+
+
+	@Test
+	public void testCachedPath_nullInstance() {
+		Assert.assertEquals( "", InstanceHelpers.computeInstancePath( null ));
+	}
+
+
+	@Test
+	public void testSerialization() throws Exception {
+
+		Instance root = new Instance( "root" );
+		Instance child = new Instance( "child" );
+		InstanceHelpers.insertChild( root, child );
+
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream( os );
+		out.writeObject( root );
+		out.close();
+
+		// Children are serialized as a standard collection, so that
+		// the serialized form does not depend on internal classes
+		String serialized = new String( os.toByteArray(), "ISO-8859-1" );
+		Assert.assertTrue( serialized.contains( CopyOnWriteArraySet.class.getName()));
+		Assert.assertFalse( serialized.contains( "InstanceSet" ));
+
+		ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( os.toByteArray()));
+		Instance readRoot = (Instance) in.readObject();
+		in.close();
+
+		Assert.assertEquals( "/root", readRoot.getPath());
+		Assert.assertEquals( 1, readRoot.getChildren().size());
+
+		Instance readChild = readRoot.getChildren().iterator().next();
+		Assert.assertEquals( "/root/child", readChild.getPath());
+		Assert.assertSame( readRoot, readChild.getParent());
+
+		// Removed children are still flagged after deserialization
+		Assert.assertFalse( readChild.detached );
+		Assert.assertTrue( readRoot.getChildren().remove( readChild ));
+		Assert.assertTrue( readChild.detached );
+	}
 }
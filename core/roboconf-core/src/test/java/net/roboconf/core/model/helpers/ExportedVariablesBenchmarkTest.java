@@ -0,0 +1,135 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.core.model.helpers;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.roboconf.core.model.beans.Component;
+import net.roboconf.core.model.beans.ExportedVariable;
+import net.roboconf.core.model.beans.Facet;
+import net.roboconf.core.model.beans.Instance;
+
+/**
+ * A light benchmark for {@link InstanceHelpers#findAllExportedVariables(Instance)} with deep facet hierarchies.
+ * <p>
+ * Exports are read as when an agent publishes them: once per exported prefix.
+ * The cached resolution is compared with a resolution from scratch every time.
+ * Durations are only logged, assertions are about results.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public class ExportedVariablesBenchmarkTest {
+
+	private static final int ITERATIONS = 50;
+	private final Logger logger = Logger.getLogger( getClass().getName());
+
+
+	@Test
+	public void testDepth5() {
+		runBenchmark( 5 );
+	}
+
+
+	@Test
+	public void testDepth20() {
+		runBenchmark( 20 );
+	}
+
+
+	@Test
+	public void testDepth50() {
+		runBenchmark( 50 );
+	}
+
+
+	private void runBenchmark( int depth ) {
+
+		// A component associated with a facet, that extends another one, etc.
+		Component component = new Component( "comp" );
+		component.addExportedVariable( new ExportedVariable( "ip", null ));
+		component.addExportedVariable( new ExportedVariable( "path", "$(ROBOCONF_CLEAN_INSTANCE_PATH)" ));
+
+		Facet previous = null;
+		for( int i=0; i<depth; i++ ) {
+			Facet facet = new Facet( "facet-" + i );
+			facet.addExportedVariable( new ExportedVariable( "port", String.valueOf( 8000 + i )));
+			facet.addExportedVariable( new ExportedVariable( "user", "user-" + i ));
+			facet.addExportedVariable( new ExportedVariable( "ip", null ));
+
+			if( previous == null )
+				component.associateFacet( facet );
+			else
+				previous.extendFacet( facet );
+
+			previous = facet;
+		}
+
+		Instance root = new Instance( "root" );
+		root.data.put( Instance.IP_ADDRESS, "192.168.1.2" );
+		Instance instance = new Instance( "inst" ).component( component );
+		InstanceHelpers.insertChild( root, instance );
+
+		Set<String> prefixes = VariableHelpers.findPrefixesForExportedVariables( instance );
+		Assert.assertEquals( depth + 1, prefixes.size());
+
+		// Resolution every time
+		long start = System.nanoTime();
+		Map<String,String> uncachedResult = null;
+		for( int i=0; i<ITERATIONS; i++ ) {
+			for( int j=0; j<prefixes.size(); j++ )
+				uncachedResult = InstanceHelpers.resolveExportedVariables( instance );
+		}
+
+		long uncached = Math.max( 1, System.nanoTime() - start );
+
+		// Cached resolution
+		start = System.nanoTime();
+		Map<String,String> cachedResult = null;
+		for( int i=0; i<ITERATIONS; i++ ) {
+			for( int j=0; j<prefixes.size(); j++ )
+				cachedResult = InstanceHelpers.findAllExportedVariables( instance );
+		}
+
+		long cached = Math.max( 1, System.nanoTime() - start );
+		this.logger.info(
+				"Depth " + depth + ": " + TimeUnit.NANOSECONDS.toMicros( uncached ) + " microseconds without cache, "
+				+ TimeUnit.NANOSECONDS.toMicros( cached ) + " microseconds with cache." );
+
+		Assert.assertEquals( uncachedResult, cachedResult );
+		// The component also exports the inherited variables with its own prefix (comp.port and comp.user)
+		Assert.assertEquals( 3 * depth + 4, cachedResult.size());
+		Assert.assertEquals( "192.168.1.2", cachedResult.get( "comp.ip" ));
+		Assert.assertEquals( "192.168.1.2", cachedResult.get( "facet-0.ip" ));
+		Assert.assertEquals( "root_inst", cachedResult.get( "comp.path" ));
+	}
+}
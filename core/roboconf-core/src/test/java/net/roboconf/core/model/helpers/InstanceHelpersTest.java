@@ -28,8 +28,10 @@ package net.roboconf.core.model.helpers;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -48,6 +50,7 @@ import net.roboconf.core.model.beans.Graphs;
 import net.roboconf.core.model.beans.Import;
 import net.roboconf.core.model.beans.Instance;
 import net.roboconf.core.model.beans.Instance.InstanceStatus;
+import net.roboconf.core.model.beans.InstancePathIndex;
 
 /**
  * @author Vincent Zurczak - Linagora
@@ -190,6 +193,110 @@ public class InstanceHelpersTest {
 	}
 
 
+	@Test
+	public void testFindAllExportedVariables_cacheWithFacetHierarchy() {
+
+		// A component associated with a facet, that extends another one, etc.
+		Component component = new Component( "comp" );
+		component.addExportedVariable( new ExportedVariable( "ip", null ));
+		component.addExportedVariable( new ExportedVariable( "path", "$(ROBOCONF_CLEAN_INSTANCE_PATH)" ));
+
+		final int depth = 5;
+		Facet previous = null;
+		for( int i=0; i<depth; i++ ) {
+			Facet facet = new Facet( "facet-" + i );
+			facet.addExportedVariable( new ExportedVariable( "port", String.valueOf( 8000 + i )));
+			facet.addExportedVariable( new ExportedVariable( "ip", null ));
+
+			if( previous == null )
+				component.associateFacet( facet );
+			else
+				previous.extendFacet( facet );
+
+			previous = facet;
+		}
+
+		Instance root = new Instance( "root" );
+		root.data.put( Instance.IP_ADDRESS, "192.168.1.2" );
+		Instance instance = new Instance( "inst" ).component( component );
+		InstanceHelpers.insertChild( root, instance );
+
+		// The cache gives the same result than a full resolution, twice
+		Map<String,String> map = InstanceHelpers.findAllExportedVariables( instance );
+		Assert.assertEquals( InstanceHelpers.resolveExportedVariables( instance ), map );
+		Assert.assertEquals( map, InstanceHelpers.findAllExportedVariables( instance ));
+
+		// The component also exports the inherited variables with its own prefix
+		Set<String> expectedNames = new HashSet<>( Arrays.asList( "comp.ip", "comp.path", "comp.port" ));
+		for( int i=0; i<depth; i++ ) {
+			expectedNames.add( "facet-" + i + ".ip" );
+			expectedNames.add( "facet-" + i + ".port" );
+		}
+
+		Assert.assertEquals( expectedNames, map.keySet());
+		Assert.assertEquals( "192.168.1.2", map.get( "comp.ip" ));
+		Assert.assertEquals( "192.168.1.2", map.get( "facet-" + (depth - 1) + ".ip" ));
+		Assert.assertEquals( "8004", map.get( "facet-4.port" ));
+		Assert.assertEquals( "root_inst", map.get( "comp.path" ));
+	}
+
+
+	@Test
+	public void testFindAllExportedVariables_cache() {
+
+		Component component = new Component( "comp" );
+		component.addExportedVariable( new ExportedVariable( "ip", null ));
+		component.addExportedVariable( new ExportedVariable( "path", "$(ROBOCONF_INSTANCE_PATH)" ));
+
+		Instance root = new Instance( "root" );
+		Instance instance = new Instance( "inst" ).component( component );
+		InstanceHelpers.insertChild( root, instance );
+
+		Map<String,String> map = InstanceHelpers.findAllExportedVariables( instance );
+		Assert.assertEquals( 2, map.size());
+		Assert.assertNull( map.get( "comp.ip" ));
+		Assert.assertEquals( "/root/inst", map.get( "comp.path" ));
+
+		// Same resolution while nothing changes
+		ResolvedExports resolvedExports = instance.getResolvedExports();
+		Assert.assertNotNull( resolvedExports );
+		Assert.assertEquals( map, InstanceHelpers.findAllExportedVariables( instance ));
+		Assert.assertSame( resolvedExports, instance.getResolvedExports());
+
+		// Modifying the result does not impact the cache
+		map.clear();
+		Assert.assertEquals( 2, InstanceHelpers.findAllExportedVariables( instance ).size());
+
+		// IP changes
+		root.data.put( Instance.IP_ADDRESS, "192.168.1.5" );
+		Assert.assertEquals( "192.168.1.5", InstanceHelpers.findAllExportedVariables( instance ).get( "comp.ip" ));
+
+		// Overridden exports
+		instance.overriddenExports.put( "path", "custom" );
+		Assert.assertEquals( "custom", InstanceHelpers.findAllExportedVariables( instance ).get( "comp.path" ));
+		instance.overriddenExports.clear();
+		Assert.assertEquals( "/root/inst", InstanceHelpers.findAllExportedVariables( instance ).get( "comp.path" ));
+
+		// Path changes
+		root.setName( "new-root" );
+		Assert.assertEquals( "/new-root/inst", InstanceHelpers.findAllExportedVariables( instance ).get( "comp.path" ));
+
+		// Types changes
+		Facet facet = new Facet( "facet" );
+		facet.addExportedVariable( new ExportedVariable( "port", "8080" ));
+		component.associateFacet( facet );
+		Assert.assertEquals( "8080", InstanceHelpers.findAllExportedVariables( instance ).get( "facet.port" ));
+
+		facet.addExportedVariable( new ExportedVariable( "user", "me" ));
+		Assert.assertEquals( "me", InstanceHelpers.findAllExportedVariables( instance ).get( "facet.user" ));
+
+		// Component changes (e.g. after a graph was reloaded)
+		Component newComponent = new Component( "comp" );
+		instance.setComponent( newComponent );
+		Assert.assertEquals( 0, InstanceHelpers.findAllExportedVariables( instance ).size());
+	}
+
+
 	@Test
 	public void testFindAllExportedVariables_withFacets() {
 
@@ -379,6 +486,60 @@ public class InstanceHelpersTest {
 	}
 
 
+	@Test
+	public void testFindInstanceByPath_withIndex() {
+
+		InstancePathIndex.setConsistencyCheck( true );
+		try {
+			Application app = new Application( "app", new ApplicationTemplate());
+			Instance rootInstance = new Instance( "root" );
+			app.getRootInstances().add( rootInstance );
+
+			Instance current = rootInstance;
+			for( int i=1; i<8; i++ ) {
+				Instance tempInstance = new Instance( "i-" + i );
+				InstanceHelpers.insertChild( current, tempInstance );
+				current = tempInstance;
+			}
+
+			// First look-ups fill the index
+			Assert.assertEquals( 0, app.getInstancePathIndex().size());
+			Assert.assertEquals( "i-4", InstanceHelpers.findInstanceByPath( app, "/root/i-1/i-2/i-3/i-4" ).getName());
+			Assert.assertEquals( "i-4", InstanceHelpers.findInstanceByPath( app, "/root/i-1/i-2/i-3/i-4" ).getName());
+			Assert.assertEquals( 1, app.getInstancePathIndex().size());
+
+			// Non-canonical paths and unknown instances are not indexed
+			Assert.assertEquals( "root", InstanceHelpers.findInstanceByPath( app, "root" ).getName());
+			Assert.assertNull( InstanceHelpers.findInstanceByPath( app, "/root/whatever" ));
+			Assert.assertEquals( 1, app.getInstancePathIndex().size());
+
+			// Renaming is detected
+			Instance i2 = InstanceHelpers.findInstanceByPath( app, "/root/i-1/i-2" );
+			i2.setName( "renamed" );
+			Assert.assertNull( InstanceHelpers.findInstanceByPath( app, "/root/i-1/i-2/i-3/i-4" ));
+			Assert.assertEquals( "i-4", InstanceHelpers.findInstanceByPath( app, "/root/i-1/renamed/i-3/i-4" ).getName());
+
+			// Removals are detected
+			Instance i1 = InstanceHelpers.findInstanceByPath( app, "/root/i-1" );
+			rootInstance.getChildren().remove( i1 );
+			Assert.assertNull( InstanceHelpers.findInstanceByPath( app, "/root/i-1" ));
+			Assert.assertNull( InstanceHelpers.findInstanceByPath( app, "/root/i-1/renamed/i-3/i-4" ));
+
+			// Insertions are also detected
+			rootInstance.getChildren().add( i1 );
+			Assert.assertSame( i1, InstanceHelpers.findInstanceByPath( app, "/root/i-1" ));
+			Assert.assertEquals( "i-4", InstanceHelpers.findInstanceByPath( app, "/root/i-1/renamed/i-3/i-4" ).getName());
+
+			app.getRootInstances().clear();
+			Assert.assertNull( InstanceHelpers.findInstanceByPath( app, "/root/i-1" ));
+			Assert.assertNull( InstanceHelpers.findInstanceByPath( app, "/root" ));
+
+		} finally {
+			InstancePathIndex.setConsistencyCheck( false );
+		}
+	}
+
+
 	@Test
 	public void testTryToInsertChildInstance() throws Exception {
 
@@ -425,6 +586,11 @@ public class InstanceHelpersTest {
 		instWithInvalidName.setName( "whatever" );
 		Assert.assertTrue( InstanceHelpers.tryToInsertChildInstance( app, vmInstance, instWithInvalidName ));
 		Assert.assertEquals( 4, InstanceHelpers.getAllInstances( app ).size());
+
+		// Inserted instances are indexed
+		Assert.assertEquals( 4, app.getInstancePathIndex().size());
+		Assert.assertSame( instWithInvalidName, app.getInstancePathIndex().get( "/vm-1/whatever" ));
+		Assert.assertNull( app.getInstancePathIndex().get( "/vm-1/MySQL-2" ));
 	}
 
 
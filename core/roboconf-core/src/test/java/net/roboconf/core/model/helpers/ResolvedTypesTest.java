@@ -0,0 +1,221 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.core.model.helpers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.roboconf.core.internal.tests.ComplexApplicationFactory1;
+import net.roboconf.core.internal.tests.TestApplicationTemplate;
+import net.roboconf.core.model.beans.ApplicationTemplate;
+import net.roboconf.core.model.beans.Component;
+import net.roboconf.core.model.beans.ExportedVariable;
+import net.roboconf.core.model.beans.Facet;
+import net.roboconf.core.model.beans.ImportedVariable;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class ResolvedTypesTest {
+
+	@Test
+	public void testCompile_sameResults() {
+
+		ApplicationTemplate app = ComplexApplicationFactory1.newApplication();
+		List<Component> components = ComponentHelpers.findAllComponents( app );
+		Assert.assertFalse( components.isEmpty());
+
+		// Compute everything without the table
+		Map<Component,List<Object>> expected = new HashMap<> ();
+		Map<Facet,Map<String,String>> expectedFacetExports = new HashMap<> ();
+		for( Component c : components ) {
+			expected.put( c, resolve( c ));
+			for( Facet f : ComponentHelpers.findAllFacets( c ))
+				expectedFacetExports.put( f, ComponentHelpers.findAllExportedVariables( f ));
+		}
+
+		// Compile and compare
+		ResolvedTypes rt = ResolvedTypes.compile( app.getGraphs());
+		Assert.assertTrue( rt.isValid());
+
+		for( Component c : components ) {
+			Assert.assertSame( rt, c.getResolvedTypes());
+			Assert.assertNotNull( ResolvedTypes.findResolvedComponent( c ));
+			Assert.assertEquals( c.getName(), expected.get( c ), resolve( c ));
+		}
+
+		for( Map.Entry<Facet,Map<String,String>> entry : expectedFacetExports.entrySet()) {
+			Assert.assertSame( rt, entry.getKey().getResolvedTypes());
+			Assert.assertNotNull( ResolvedTypes.findResolvedExports( entry.getKey()));
+			Assert.assertEquals( entry.getValue(), ComponentHelpers.findAllExportedVariables( entry.getKey()));
+		}
+	}
+
+
+	@Test
+	public void testCompile_resultsAreCopies() {
+
+		TestApplicationTemplate app = new TestApplicationTemplate();
+		Component tomcat = app.getTomcat().getComponent();
+		ResolvedTypes.compile( app.getGraphs());
+
+		Component war = app.getWar().getComponent();
+		Map<String,String> exports = ComponentHelpers.findAllExportedVariables( war );
+		exports.clear();
+		Assert.assertFalse( ComponentHelpers.findAllExportedVariables( war ).isEmpty());
+
+		Map<String,ImportedVariable> imports = ComponentHelpers.findAllImportedVariables( war );
+		imports.clear();
+		Assert.assertFalse( ComponentHelpers.findAllImportedVariables( war ).isEmpty());
+
+		Collection<Component> children = ComponentHelpers.findAllChildren( tomcat );
+		children.clear();
+		Assert.assertFalse( ComponentHelpers.findAllChildren( tomcat ).isEmpty());
+
+		List<Component> extended = ComponentHelpers.findAllExtendedComponents( tomcat );
+		extended.clear();
+		Assert.assertEquals( 1, ComponentHelpers.findAllExtendedComponents( tomcat ).size());
+	}
+
+
+	@Test
+	public void testInvalidation() {
+
+		TestApplicationTemplate app = new TestApplicationTemplate();
+		Component tomcat = app.getTomcat().getComponent();
+
+		ResolvedTypes rt = ResolvedTypes.compile( app.getGraphs());
+		Assert.assertTrue( rt.isValid());
+		Assert.assertFalse( ComponentHelpers.findAllImportedVariables( tomcat ).containsKey( "other.ip" ));
+
+		// Modifying a type invalidates the table
+		tomcat.addImportedVariable( new ImportedVariable( "other.ip", true, false ));
+		Assert.assertFalse( rt.isValid());
+		Assert.assertNull( ResolvedTypes.findResolvedComponent( tomcat ));
+		Assert.assertTrue( ComponentHelpers.findAllImportedVariables( tomcat ).containsKey( "other.ip" ));
+
+		// Compile again
+		rt = ResolvedTypes.compile( app.getGraphs());
+		Assert.assertTrue( rt.isValid());
+		Assert.assertTrue( ComponentHelpers.findAllImportedVariables( tomcat ).containsKey( "other.ip" ));
+
+		// Direct modifications must be notified
+		Component mysql = app.getMySql().getComponent();
+		mysql.exportedVariables.put( "mysql.user", new ExportedVariable( "mysql.user", "root" ));
+		Assert.assertFalse( ComponentHelpers.findAllExportedVariables( mysql ).containsKey( "mysql.user" ));
+
+		mysql.markAsModified();
+		Assert.assertFalse( rt.isValid());
+		Assert.assertEquals( "root", ComponentHelpers.findAllExportedVariables( mysql ).get( "mysql.user" ));
+	}
+
+
+	@Test
+	public void testInvalidation_facets() {
+
+		Component c = new Component( "c" );
+		Facet f1 = new Facet( "f1" );
+		f1.addExportedVariable( new ExportedVariable( "port", "80" ));
+		c.associateFacet( f1 );
+
+		ResolvedTypes rt = ResolvedTypes.compile( c );
+		Assert.assertTrue( rt.isValid());
+		Assert.assertSame( rt, f1.getResolvedTypes());
+		Assert.assertEquals( "80", ComponentHelpers.findAllExportedVariables( c ).get( "f1.port" ));
+
+		Facet f2 = new Facet( "f2" );
+		f2.addExportedVariable( new ExportedVariable( "ip", null ));
+		f1.extendFacet( f2 );
+
+		Assert.assertFalse( rt.isValid());
+		Assert.assertTrue( ComponentHelpers.findAllFacets( c ).contains( f2 ));
+		Assert.assertTrue( ComponentHelpers.findAllExportedVariables( f1 ).containsKey( "f2.ip" ));
+	}
+
+
+	@Test
+	public void testNullTypes() {
+
+		Assert.assertNull( ResolvedTypes.findResolvedComponent( null ));
+		Assert.assertNull( ResolvedTypes.findResolvedExports( null ));
+
+		// Helpers that accepted null components before resolved types still do
+		Assert.assertEquals( 0, ComponentHelpers.findAllExtendedComponents( null ).size());
+		Assert.assertNull( ComponentHelpers.findComponentInstaller( null ));
+		Assert.assertEquals( 0, ComponentHelpers.findAllChildren( null ).size());
+		Assert.assertEquals( 0, ComponentHelpers.findAllAncestors( null ).size());
+		Assert.assertEquals( 0, ComponentHelpers.findAllImportedVariables( null ).size());
+		Assert.assertEquals( 0, ComponentHelpers.findAllFacets( null ).size());
+	}
+
+
+	@Test
+	public void testCompile_previousTablesAreInvalidated() {
+
+		Facet f = new Facet( "f" );
+		Component c1 = new Component( "c1" );
+		c1.associateFacet( f );
+		Component c2 = new Component( "c2" );
+		c2.associateFacet( f );
+
+		ResolvedTypes rt1 = ResolvedTypes.compile( c1 );
+		ResolvedTypes rt2 = ResolvedTypes.compile( c2 );
+
+		// The facet now belongs to the second table.
+		// Modifying it must not leave the first one valid.
+		Assert.assertFalse( rt1.isValid());
+		Assert.assertTrue( rt2.isValid());
+		Assert.assertSame( rt2, f.getResolvedTypes());
+		Assert.assertSame( rt1, c1.getResolvedTypes());
+		Assert.assertNull( ResolvedTypes.findResolvedComponent( c1 ));
+	}
+
+
+	/**
+	 * Resolves everything about a component.
+	 * @param c a component
+	 * @return a non-null list
+	 */
+	private static List<Object> resolve( Component c ) {
+
+		List<Object> result = new ArrayList<> ();
+		result.add( ComponentHelpers.findAllExtendedComponents( c ));
+		result.add( new HashSet<>( ComponentHelpers.findAllFacets( c )));
+		result.add( ComponentHelpers.findAllImportedVariables( c ));
+		result.add( ComponentHelpers.findAllExportedVariables( c ));
+		result.add( new ArrayList<>( ComponentHelpers.findAllChildren( c )));
+		result.add( new ArrayList<>( ComponentHelpers.findAllAncestors( c )));
+
+		return result;
+	}
+}
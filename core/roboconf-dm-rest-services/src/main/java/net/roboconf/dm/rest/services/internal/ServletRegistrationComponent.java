@@ -27,6 +27,7 @@ package net.roboconf.dm.rest.services.internal;
 
 import java.util.Dictionary;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
@@ -364,6 +365,31 @@ public class ServletRegistrationComponent implements RestServicesMBean {
 	}
 
 
+	@Override
+	public int getWebSocketPendingMessagesCount() {
+		return WebSocketHandler.getPendingMessagesCount();
+	}
+
+
+	@Override
+	public long getWebSocketSkippedMessagesCount() {
+		return WebSocketHandler.getSkippedMessagesCount();
+	}
+
+
+	@Override
+	public long getWebSocketDisconnectedClientsCount() {
+		return WebSocketHandler.getDisconnectedSessionsCount();
+	}
+
+
+	@Override
+	public String[] getWebSocketClientQueues() {
+		List<String> queues = WebSocketHandler.getSessionQueues();
+		return queues.toArray( new String[ queues.size()]);
+	}
+
+
 	@Override
 	public long getRestRequestsWithAuthFailureCount() {
 		return this.restRequestsWithAuthFailureCount.get();
@@ -393,5 +419,6 @@ public class ServletRegistrationComponent implements RestServicesMBean {
 		this.restRequestsCount.set( 0 );
 		this.restRequestsWithAuthFailureCount.set( 0 );
 		WS_CONNECTION_ERRORS_COUNT.set( 0 );
+		WebSocketHandler.resetMetrics();
 	}
 }
@@ -26,6 +26,7 @@
 package net.roboconf.dm.rest.services.internal.resources;
 
 import java.util.List;
+import java.util.Map;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
@@ -149,4 +150,39 @@ public interface IDebugResource {
 	@Produces( MediaType.APPLICATION_JSON )
 	@Path("/diagnose-application")
 	List<Diagnostic> diagnoseApplication( @QueryParam("application-name") String applicationName );
+
+
+	/**
+	 * Gets the latencies of the messages received by the DM.
+	 * <p>
+	 * Keys are message types. Values contain the count, the mean, some percentiles (50, 90, 99 and 99.9)
+	 * and the maximum of the time messages waited before being processed ("wait.*") and of the time
+	 * their processing took ("processing.*"). Durations are in microseconds.
+	 * </p>
+	 *
+	 * @return a non-null map (empty if the messaging is not ready)
+	 *
+	 * @HTTP 200 Everything went fine.
+	 */
+	@GET
+	@Produces( MediaType.APPLICATION_JSON )
+	@Path("/message-latencies")
+	Map<String,Map<String,Long>> getMessageLatencies();
+
+
+	/**
+	 * Gets the metrics of the DM's messaging client, in the Prometheus text format.
+	 * <p>
+	 * They include global counters and, for sent messages, counts, bytes and publish
+	 * latencies per message type and per recipient kind. This resource can be scraped directly.
+	 * </p>
+	 *
+	 * @return a response with the metrics
+	 *
+	 * @HTTP 200 Everything went fine.
+	 */
+	@GET
+	@Produces( MediaType.TEXT_PLAIN )
+	@Path("/messaging-metrics")
+	Response getMessagingMetrics();
 }
@@ -176,6 +176,33 @@ public class DebugResource implements IDebugResource {
 	}
 
 
+	/*
+	 * (non-Javadoc)
+	 * @see net.roboconf.dm.rest.services.internal.resources.IDebugResource
+	 * #getMessageLatencies()
+	 */
+	@Override
+	public Map<String,Map<String,Long>> getMessageLatencies() {
+
+		this.logger.fine( "Request: get the latencies of received messages." );
+		return this.manager.debugMngr().getMessageLatencies();
+	}
+
+
+	/*
+	 * (non-Javadoc)
+	 * @see net.roboconf.dm.rest.services.internal.resources.IDebugResource
+	 * #getMessagingMetrics()
+	 */
+	@Override
+	public Response getMessagingMetrics() {
+
+		this.logger.fine( "Request: get the metrics of the messaging." );
+		String metrics = this.manager.debugMngr().getMessagingMetrics();
+		return Response.ok( metrics ).type( "text/plain; version=0.0.4" ).build();
+	}
+
+
 	/**
 	 * Creates a diagnostic for an instance.
 	 * @param instance a non-null instance
@@ -27,8 +27,11 @@ package net.roboconf.dm.rest.services.internal.websocket;
 
 import java.io.IOException;
 import java.io.StringWriter;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
@@ -51,7 +54,19 @@ import net.roboconf.dm.rest.commons.json.JSonBindingUtils;
  */
 public class WebSocketHandler implements IDmListener {
 
-	private final static Set<Session> SESSIONS = new HashSet<> ();
+	/**
+	 * The maximum number of messages that can wait for a given session.
+	 */
+	static final int SESSION_QUEUE_CAPACITY = 256;
+
+	/**
+	 * The number of messages that can be skipped in a row before a session gets disconnected.
+	 */
+	static final int MAX_SKIPPED_MESSAGES = 1024;
+
+	private final static Map<Session,WebSocketSessionQueue> SESSIONS = new LinkedHashMap<> ();
+	private final static ObjectMapper MAPPER = JSonBindingUtils.createObjectMapper();
+	private static long disconnectedSessionsCount = 0;
 
 	private final AtomicBoolean enabled = new AtomicBoolean( false );
 	private final Logger logger = Logger.getLogger( getClass().getName());
@@ -61,30 +76,95 @@ public class WebSocketHandler implements IDmListener {
 
 	public static void addSession( Session session ) {
 		synchronized( SESSIONS ) {
-			SESSIONS.add( session );
+			if( ! SESSIONS.containsKey( session ))
+				SESSIONS.put( session, new WebSocketSessionQueue( session, SESSION_QUEUE_CAPACITY, MAX_SKIPPED_MESSAGES ));
 		}
 	}
 
 
 	public static void removeSession( Session session ) {
+
+		WebSocketSessionQueue queue;
 		synchronized( SESSIONS ) {
-			SESSIONS.remove( session );
+			queue = SESSIONS.remove( session );
 		}
+
+		if( queue != null )
+			queue.close();
 	}
 
 	static Set<Session> getSessions() {
+		synchronized( SESSIONS ) {
+			return new HashSet<>( SESSIONS.keySet());
+		}
+	}
 
-		Set<Session> result;
+	public static int getSessionsCount() {
 		synchronized( SESSIONS ) {
-			result = Collections.unmodifiableSet( SESSIONS );
+			return SESSIONS.size();
 		}
+	}
+
+
+	// Metrics
+
+	/**
+	 * @return a description of the send queue of every session (never null)
+	 */
+	public static List<String> getSessionQueues() {
+
+		List<String> result = new ArrayList<> ();
+		for( WebSocketSessionQueue queue : getQueues())
+			result.add( queue.describe());
 
 		return result;
 	}
 
-	public static int getSessionsCount() {
+	/**
+	 * @return the total number of messages waiting to be sent to web socket clients
+	 */
+	public static int getPendingMessagesCount() {
+
+		int result = 0;
+		for( WebSocketSessionQueue queue : getQueues())
+			result += queue.getPendingCount();
+
+		return result;
+	}
+
+	/**
+	 * @return the total number of messages that were skipped for the current sessions
+	 */
+	public static long getSkippedMessagesCount() {
+
+		long result = 0;
+		for( WebSocketSessionQueue queue : getQueues())
+			result += queue.getDroppedCount();
+
+		return result;
+	}
+
+	/**
+	 * @return the number of sessions that were disconnected because they could not keep up
+	 */
+	public static long getDisconnectedSessionsCount() {
 		synchronized( SESSIONS ) {
-			return SESSIONS.size();
+			return disconnectedSessionsCount;
+		}
+	}
+
+	/**
+	 * Resets the metrics that are not related to a given session.
+	 */
+	public static void resetMetrics() {
+		synchronized( SESSIONS ) {
+			disconnectedSessionsCount = 0;
+		}
+	}
+
+	private static List<WebSocketSessionQueue> getQueues() {
+		synchronized( SESSIONS ) {
+			return new ArrayList<>( SESSIONS.values());
 		}
 	}
 
@@ -147,6 +227,10 @@ public class WebSocketHandler implements IDmListener {
 
 	/**
 	 * Creates a JSon/string representation from an object.
+	 * <p>
+	 * The object mapper is shared: it is thread-safe once configured.
+	 * </p>
+	 *
 	 * @param message a web socket message
 	 * @return a non-null string
 	 */
@@ -154,9 +238,8 @@ public class WebSocketHandler implements IDmListener {
 
 		String result = null;
 		try {
-			ObjectMapper mapper = JSonBindingUtils.createObjectMapper();
 			StringWriter writer = new StringWriter();
-			mapper.writeValue( writer, message );
+			MAPPER.writeValue( writer, message );
 			result = writer.toString();
 
 		} catch( IOException e ) {
@@ -170,6 +253,12 @@ public class WebSocketHandler implements IDmListener {
 
 	/**
 	 * Sends a message to all the connected sessions.
+	 * <p>
+	 * The message is serialized once and pushed into the send queue of every session.
+	 * Sending is asynchronous, so that a slow client cannot block the DM's notifications.
+	 * Sessions that are too far behind are disconnected.
+	 * </p>
+	 *
 	 * @param message the message to send
 	 */
 	private void send( String message ) {
@@ -180,23 +269,33 @@ public class WebSocketHandler implements IDmListener {
 		} else if( message == null ) {
 			this.logger.finest( "No message to send to web socket clients." );
 
-		} else synchronized( SESSIONS ) {
-			for( Session session : SESSIONS ) {
-				try {
-					this.logger.finest( "Sending a message to a web socket client..." );
-					session.getRemote().sendString( message );
-
-				} catch( IOException e ) {
-					StringBuilder sb = new StringBuilder( "A notification could not be propagated for session " );
-					sb.append( session.getRemoteAddress());
-					sb.append( "." );
-					if( ! Utils.isEmptyOrWhitespaces( e.getMessage()))
-						sb.append( " " + e.getMessage());
-
-					this.logger.severe( sb.toString());
-					Utils.logException( this.logger, e );
-				}
+		} else {
+			for( WebSocketSessionQueue queue : getQueues()) {
+				if( ! queue.offer( message ))
+					disconnect( queue.getSession());
 			}
 		}
 	}
+
+
+	/**
+	 * Disconnects a session that cannot keep up with the notifications.
+	 * @param session a session
+	 */
+	private void disconnect( Session session ) {
+
+		this.logger.warning( "Web socket client " + session.getRemoteAddress() + " is too slow. It is being disconnected." );
+		synchronized( SESSIONS ) {
+			if( SESSIONS.containsKey( session ))
+				disconnectedSessionsCount ++;
+		}
+
+		removeSession( session );
+		try {
+			session.close();
+
+		} catch( Exception e ) {
+			Utils.logException( this.logger, e );
+		}
+	}
 }
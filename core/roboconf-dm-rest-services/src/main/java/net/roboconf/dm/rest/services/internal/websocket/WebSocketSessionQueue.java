@@ -0,0 +1,107 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.dm.rest.services.internal.websocket;
+
+import java.util.List;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import net.roboconf.messaging.api.utils.AbstractOutboundQueue;
+
+/**
+ * A bounded queue of messages to send to a web socket session.
+ * <p>
+ * Messages are sent with Jetty's non-blocking API, one at a time.
+ * When the queue is full, new messages are skipped for this session.
+ * If too many messages are skipped in a row, the session is considered as
+ * being too far behind and it is disconnected.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+class WebSocketSessionQueue extends AbstractOutboundQueue<String> implements WriteCallback {
+
+	private final Session session;
+	private final int maxSkippedMessages;
+
+
+	/**
+	 * Constructor.
+	 * @param session the session
+	 * @param capacity the maximum number of pending messages
+	 * @param maxSkippedMessages the number of messages that can be skipped in a row before disconnecting the session
+	 */
+	WebSocketSessionQueue( Session session, int capacity, int maxSkippedMessages ) {
+		super( capacity, OverflowPolicy.DROP_NEWEST );
+		this.session = session;
+		this.maxSkippedMessages = maxSkippedMessages;
+	}
+
+
+	/**
+	 * Enqueues a message and starts sending it if nothing else is being sent.
+	 * @param message a non-null message
+	 * @return false if the session is too far behind and must be disconnected, true otherwise
+	 */
+	boolean offer( String message ) {
+		enqueue( message );
+		return getConsecutiveDropsCount() <= this.maxSkippedMessages;
+	}
+
+
+	/**
+	 * @return the session
+	 */
+	Session getSession() {
+		return this.session;
+	}
+
+
+	@Override
+	public void writeSuccess() {
+		sendSucceeded();
+	}
+
+
+	@Override
+	public void writeFailed( Throwable cause ) {
+		sendFailed( cause );
+	}
+
+
+	@Override
+	protected void send( List<String> messages ) throws Exception {
+		this.logger.finest( "Sending a message to a web socket client..." );
+		this.session.getRemote().sendString( messages.get( 0 ), this );
+	}
+
+
+	@Override
+	protected String describeTarget() {
+		return "web socket client " + this.session.getRemoteAddress();
+	}
+}
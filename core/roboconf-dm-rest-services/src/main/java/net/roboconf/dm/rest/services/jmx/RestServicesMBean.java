@@ -63,6 +63,29 @@ public interface RestServicesMBean {
 	 */
 	long getWebSocketConnectionErrorsCount();
 
+	/**
+	 * @return the total number of messages waiting to be sent to web socket clients
+	 */
+	int getWebSocketPendingMessagesCount();
+
+	/**
+	 * @return the number of messages that were skipped because web socket clients were too slow
+	 * <p>
+	 * Only the sessions that are still connected are considered.
+	 * </p>
+	 */
+	long getWebSocketSkippedMessagesCount();
+
+	/**
+	 * @return the number of web socket clients that were disconnected because they were too slow
+	 */
+	long getWebSocketDisconnectedClientsCount();
+
+	/**
+	 * @return a description of the send queue of every web socket client
+	 */
+	String[] getWebSocketClientQueues();
+
 	/**
 	 * Resets the value of the counters.
 	 */
@@ -26,6 +26,7 @@
 package net.roboconf.dm.rest.services.internal.resources.impl;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import javax.ws.rs.core.Response;
@@ -150,6 +151,42 @@ public class DebugResourceTest {
 	}
 
 
+	@Test
+	public void testGetMessageLatencies() throws Exception {
+
+		Assert.assertFalse( this.resource.getMessageLatencies().containsKey( "MsgEcho" ));
+
+		// Let the DM process a message
+		this.managerWrapper.getMessagingClient().getMessageProcessor().getMessageQueue().add( new MsgEcho( "hello" ));
+		Map<String,Map<String,Long>> latencies = null;
+		for( int i = 0; i < 50; i ++ ) {
+			latencies = this.resource.getMessageLatencies();
+			if( latencies.containsKey( "MsgEcho" )
+					&& latencies.get( "MsgEcho" ).get( "processing.count" ) > 0 )
+				break;
+
+			Thread.sleep( 100 );
+		}
+
+		Assert.assertNotNull( latencies );
+		Assert.assertTrue( latencies.containsKey( "MsgEcho" ));
+		Assert.assertEquals( 1, latencies.get( "MsgEcho" ).get( "processing.count" ).longValue());
+		Assert.assertEquals( 1, latencies.get( "MsgEcho" ).get( "wait.count" ).longValue());
+	}
+
+
+	@Test
+	public void testGetMessagingMetrics() throws Exception {
+
+		Response resp = this.resource.getMessagingMetrics();
+		Assert.assertEquals( Status.OK.getStatusCode(), resp.getStatus());
+
+		String text = (String) resp.getEntity();
+		Assert.assertTrue( text, text.contains( "# TYPE roboconf_messaging_sent_messages_total counter" ));
+		Assert.assertTrue( text, text.contains( "roboconf_messaging_published_messages_by_recipient_total{recipient=\"AGENTS\"}" ));
+	}
+
+
 	@Test
 	public void testCheckMessagingConnectionForTheDm_success() {
 
@@ -25,10 +25,9 @@
 
 package net.roboconf.dm.rest.services.internal.websocket;
 
-import java.io.IOException;
-
 import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -92,7 +91,7 @@ public class WebSocketHandlerTest {
 		handler.enableNotifications();
 		handler.application( app, EventType.CREATED );
 		Mockito.verify( this.remoteEndpoint )
-				.sendString( "{\"event\":\"CREATED\",\"app\":{\"name\":\"test\",\"displayName\":\"test\",\"tplName\":\"test-tpl\"}}" );
+				.sendString( Mockito.eq( "{\"event\":\"CREATED\",\"app\":{\"name\":\"test\",\"displayName\":\"test\",\"tplName\":\"test-tpl\"}}" ), Mockito.any( WriteCallback.class ));
 	}
 
 
@@ -105,7 +104,7 @@ public class WebSocketHandlerTest {
 		handler.enableNotifications();
 		handler.applicationTemplate( template, EventType.DELETED );
 		Mockito.verify( this.remoteEndpoint )
-				.sendString( "{\"event\":\"DELETED\",\"tpl\":{\"name\":\"test-tpl\",\"displayName\":\"test-tpl\",\"apps\":[]}}" );
+				.sendString( Mockito.eq( "{\"event\":\"DELETED\",\"tpl\":{\"name\":\"test-tpl\",\"displayName\":\"test-tpl\",\"apps\":[]}}" ), Mockito.any( WriteCallback.class ));
 	}
 
 
@@ -126,7 +125,7 @@ public class WebSocketHandlerTest {
 				"{\"event\":\"CHANGED\",\"app\":{\"name\":\"test\",\"displayName\":\"test\",\"tplName\":\"test-tpl\"},\"inst\":"
 				+ "{\"name\":\"inst\",\"path\":\"/inst\",\"status\":\"NOT_DEPLOYED\",\"component\":{\"name\":\"comp\"}}}";
 
-		Mockito.verify( this.remoteEndpoint ).sendString( expected );
+		Mockito.verify( this.remoteEndpoint ).sendString( Mockito.eq( expected ), Mockito.any( WriteCallback.class ));
 	}
 
 
@@ -136,7 +135,7 @@ public class WebSocketHandlerTest {
 		WebSocketHandler handler = configuredHandler();
 		handler.enableNotifications();
 		handler.raw( "this is a raw notification" );
-		Mockito.verify( this.remoteEndpoint ).sendString( "{\"msg\":\"this is a raw notification\"}" );
+		Mockito.verify( this.remoteEndpoint ).sendString( Mockito.eq( "{\"msg\":\"this is a raw notification\"}" ), Mockito.any( WriteCallback.class ));
 	}
 
 
@@ -146,7 +145,7 @@ public class WebSocketHandlerTest {
 		WebSocketHandler handler = configuredHandler();
 		handler.enableNotifications();
 		handler.raw( null );
-		Mockito.verify( this.remoteEndpoint, Mockito.never()).sendString( Mockito.anyString());
+		Mockito.verify( this.remoteEndpoint, Mockito.never()).sendString( Mockito.anyString(), Mockito.any( WriteCallback.class ));
 	}
 
 
@@ -156,7 +155,7 @@ public class WebSocketHandlerTest {
 		WebSocketHandler handler = configuredHandler();
 		handler.disableNotifications();
 		handler.raw( "this is a raw notification" );
-		Mockito.verify( this.remoteEndpoint, Mockito.never()).sendString( Mockito.anyString());
+		Mockito.verify( this.remoteEndpoint, Mockito.never()).sendString( Mockito.anyString(), Mockito.any( WriteCallback.class ));
 	}
 
 
@@ -166,9 +165,9 @@ public class WebSocketHandlerTest {
 		WebSocketHandler handler = configuredHandler();
 		handler.enableNotifications();
 
-		Mockito.doThrow( new IOException()).when( this.remoteEndpoint ).sendString( Mockito.anyString());
+		Mockito.doThrow( new RuntimeException()).when( this.remoteEndpoint ).sendString( Mockito.anyString(), Mockito.any( WriteCallback.class ));
 		handler.raw( "this is another raw notification" );
-		Mockito.verify( this.remoteEndpoint ).sendString( "{\"msg\":\"this is another raw notification\"}" );
+		Mockito.verify( this.remoteEndpoint ).sendString( Mockito.eq( "{\"msg\":\"this is another raw notification\"}" ), Mockito.any( WriteCallback.class ));
 	}
 
 
@@ -178,9 +177,40 @@ public class WebSocketHandlerTest {
 		WebSocketHandler handler = configuredHandler();
 		handler.enableNotifications();
 
-		Mockito.doThrow( new IOException( "some reason" )).when( this.remoteEndpoint ).sendString( Mockito.anyString());
+		Mockito.doThrow( new RuntimeException( "some reason" )).when( this.remoteEndpoint ).sendString( Mockito.anyString(), Mockito.any( WriteCallback.class ));
 		handler.raw( "this is another raw notification" );
-		Mockito.verify( this.remoteEndpoint ).sendString( "{\"msg\":\"this is another raw notification\"}" );
+		Mockito.verify( this.remoteEndpoint ).sendString( Mockito.eq( "{\"msg\":\"this is another raw notification\"}" ), Mockito.any( WriteCallback.class ));
+	}
+
+
+	@Test
+	public void testNotifications_slowSessionIsDisconnected() throws Exception {
+
+		WebSocketHandler.resetMetrics();
+		WebSocketHandler handler = configuredHandler();
+		handler.enableNotifications();
+
+		// The mocked end-point never acknowledges the first message.
+		// So, all the other ones are queued, and then skipped.
+		int total = 1 + WebSocketHandler.SESSION_QUEUE_CAPACITY + WebSocketHandler.MAX_SKIPPED_MESSAGES;
+		for( int i=0; i<total; i++ )
+			handler.raw( "message " + i );
+
+		Assert.assertEquals( 1, WebSocketHandler.getSessions().size());
+		Assert.assertEquals( WebSocketHandler.SESSION_QUEUE_CAPACITY, WebSocketHandler.getPendingMessagesCount());
+		Assert.assertEquals( WebSocketHandler.MAX_SKIPPED_MESSAGES, WebSocketHandler.getSkippedMessagesCount());
+		Assert.assertEquals( 1, WebSocketHandler.getSessionQueues().size());
+		Assert.assertEquals( 0, WebSocketHandler.getDisconnectedSessionsCount());
+
+		// One more and the session is disconnected
+		handler.raw( "the last one" );
+		Assert.assertEquals( 0, WebSocketHandler.getSessions().size());
+		Assert.assertEquals( 1, WebSocketHandler.getDisconnectedSessionsCount());
+		Mockito.verify( this.session ).close();
+		Mockito.verify( this.remoteEndpoint, Mockito.times( 1 )).sendString( Mockito.anyString(), Mockito.any( WriteCallback.class ));
+
+		WebSocketHandler.resetMetrics();
+		Assert.assertEquals( 0, WebSocketHandler.getDisconnectedSessionsCount());
 	}
 
 
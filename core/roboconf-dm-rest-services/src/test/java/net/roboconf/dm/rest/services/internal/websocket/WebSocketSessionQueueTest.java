@@ -0,0 +1,91 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.dm.rest.services.internal.websocket;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class WebSocketSessionQueueTest {
+
+	private Session session;
+	private RemoteEndpoint remoteEndpoint;
+
+
+	@Before
+	public void prepareSession() {
+
+		this.session = Mockito.mock( Session.class );
+		this.remoteEndpoint = Mockito.mock( RemoteEndpoint.class );
+		Mockito.when( this.session.getRemote()).thenReturn( this.remoteEndpoint );
+	}
+
+
+	@Test
+	public void testOneMessageInFlight() {
+
+		WebSocketSessionQueue queue = new WebSocketSessionQueue( this.session, 2, 1 );
+		Assert.assertEquals( this.session, queue.getSession());
+
+		// The first message is sent, the next ones are queued
+		Assert.assertTrue( queue.offer( "m1" ));
+		Assert.assertTrue( queue.offer( "m2" ));
+		Assert.assertTrue( queue.offer( "m3" ));
+		Assert.assertEquals( 2, queue.getPendingCount());
+
+		ArgumentCaptor<WriteCallback> callback = ArgumentCaptor.forClass( WriteCallback.class );
+		Mockito.verify( this.remoteEndpoint ).sendString( Mockito.eq( "m1" ), callback.capture());
+		Mockito.verify( this.remoteEndpoint, Mockito.times( 1 )).sendString( Mockito.anyString(), Mockito.any( WriteCallback.class ));
+
+		// The queue is full: messages are skipped
+		Assert.assertTrue( queue.offer( "m4" ));
+		Assert.assertEquals( 1, queue.getDroppedCount());
+		Assert.assertFalse( queue.offer( "m5" ));
+		Assert.assertEquals( 2, queue.getDroppedCount());
+
+		// Acknowledging the first message sends the next one
+		callback.getValue().writeSuccess();
+		Mockito.verify( this.remoteEndpoint ).sendString( Mockito.eq( "m2" ), Mockito.any( WriteCallback.class ));
+		Assert.assertEquals( 1, queue.getPendingCount());
+
+		// A failure does not prevent the next messages from being sent
+		callback.getValue().writeFailed( new Exception( "for test" ));
+		Mockito.verify( this.remoteEndpoint ).sendString( Mockito.eq( "m3" ), Mockito.any( WriteCallback.class ));
+		Assert.assertEquals( 0, queue.getPendingCount());
+
+		String desc = queue.describe();
+		Assert.assertTrue( desc, desc.startsWith( "web socket client " ));
+		Assert.assertTrue( desc, desc.contains( "pending=0, sent=1, dropped=2, failed=1" ));
+	}
+}
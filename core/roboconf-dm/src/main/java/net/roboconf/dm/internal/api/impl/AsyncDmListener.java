@@ -0,0 +1,446 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.dm.internal.api.impl;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import net.roboconf.core.model.beans.Application;
+import net.roboconf.core.model.beans.ApplicationTemplate;
+import net.roboconf.core.model.beans.Instance;
+import net.roboconf.core.model.runtime.EventType;
+import net.roboconf.core.utils.Utils;
+import net.roboconf.dm.management.events.IDmListener;
+
+/**
+ * A DM listener that forwards events to another listener, in its own thread.
+ * <p>
+ * Events are stored in a bounded queue. What happens when this queue is full
+ * depends on the {@link OverflowPolicy}. Enabling and disabling notifications
+ * are never dropped, and they are delivered in order with the other events.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+final class AsyncDmListener implements IDmListener {
+
+	private final Logger logger = Logger.getLogger( getClass().getName());
+	private final IDmListener delegate;
+	private final int capacity;
+	private final OverflowPolicy policy;
+	private final Thread worker;
+
+	// Guarded by "queue"
+	private final LinkedList<DmEvent> queue = new LinkedList<> ();
+	private int droppableEvents = 0;
+	private boolean stopped = false;
+	private boolean draining = false;
+
+	final AtomicLong dispatchedCount = new AtomicLong();
+	final AtomicLong droppedCount = new AtomicLong();
+	final AtomicLong delayedCount = new AtomicLong();
+
+
+	/**
+	 * Constructor.
+	 * <p>
+	 * The worker thread is started right away.
+	 * </p>
+	 *
+	 * @param delegate the listener to notify (not null)
+	 * @param capacity the maximum number of pending events (at least 1)
+	 * @param policy the policy to apply when there are too many pending events (not null)
+	 */
+	AsyncDmListener( IDmListener delegate, int capacity, OverflowPolicy policy ) {
+		this.delegate = delegate;
+		this.capacity = Math.max( 1, capacity );
+		this.policy = policy;
+
+		this.worker = new Thread( "Roboconf - DM listener - " + delegate.getId()) {
+			@Override
+			public void run() {
+				processEvents();
+			}
+		};
+
+		this.worker.setDaemon( true );
+		this.worker.start();
+	}
+
+
+	/**
+	 * Stops the worker thread.
+	 * @param drain true to deliver pending events before stopping, false to drop them
+	 */
+	void stop( boolean drain ) {
+
+		synchronized( this.queue ) {
+			if( drain ) {
+				this.draining = true;
+
+			} else {
+				this.stopped = true;
+				this.droppedCount.addAndGet( this.droppableEvents );
+				this.queue.clear();
+				this.droppableEvents = 0;
+			}
+
+			this.queue.notifyAll();
+		}
+	}
+
+
+	/**
+	 * @return the listener events are forwarded to
+	 */
+	IDmListener getDelegate() {
+		return this.delegate;
+	}
+
+
+	/**
+	 * @return the policy
+	 */
+	OverflowPolicy getPolicy() {
+		return this.policy;
+	}
+
+
+	/**
+	 * @return the capacity
+	 */
+	int getCapacity() {
+		return this.capacity;
+	}
+
+
+	/**
+	 * @return the number of events that are not yet delivered
+	 */
+	int getQueueSize() {
+		synchronized( this.queue ) {
+			return this.queue.size();
+		}
+	}
+
+
+	@Override
+	public String getId() {
+		return this.delegate.getId();
+	}
+
+
+	@Override
+	public void enableNotifications() {
+		submit( new DmEvent( EventKind.ENABLE ));
+	}
+
+
+	@Override
+	public void disableNotifications() {
+		submit( new DmEvent( EventKind.DISABLE ));
+	}
+
+
+	@Override
+	public void application( Application application, EventType eventType ) {
+
+		DmEvent event = new DmEvent( EventKind.APPLICATION );
+		event.application = application;
+		event.eventType = eventType;
+		submit( event );
+	}
+
+
+	@Override
+	public void applicationTemplate( ApplicationTemplate tpl, EventType eventType ) {
+
+		DmEvent event = new DmEvent( EventKind.TEMPLATE );
+		event.tpl = tpl;
+		event.eventType = eventType;
+		submit( event );
+	}
+
+
+	@Override
+	public void instance( Instance instance, Application application, EventType eventType ) {
+
+		DmEvent event = new DmEvent( EventKind.INSTANCE );
+		event.instance = instance;
+		event.application = application;
+		event.eventType = eventType;
+		submit( event );
+	}
+
+
+	@Override
+	public void raw( String message, Object... data ) {
+
+		DmEvent event = new DmEvent( EventKind.RAW );
+		event.message = message;
+		event.data = data;
+		submit( event );
+	}
+
+
+	/**
+	 * Stores an event so that it is delivered by the worker thread.
+	 * @param event a non-null event
+	 */
+	private void submit( DmEvent event ) {
+
+		synchronized( this.queue ) {
+			if( this.stopped || this.draining ) {
+				if( event.kind.droppable )
+					this.droppedCount.incrementAndGet();
+
+				return;
+			}
+
+			// Control events are never dropped
+			if( ! event.kind.droppable ) {
+				this.queue.add( event );
+				this.queue.notifyAll();
+				return;
+			}
+
+			// Deal with overflows
+			if( this.droppableEvents >= this.capacity ) {
+				if( this.policy == OverflowPolicy.BLOCK ) {
+					this.delayedCount.incrementAndGet();
+					while( this.droppableEvents >= this.capacity && ! this.stopped && ! this.draining ) {
+						try {
+							this.queue.wait();
+
+						} catch( InterruptedException e ) {
+							Thread.currentThread().interrupt();
+							break;
+						}
+					}
+
+					if( this.droppableEvents >= this.capacity || this.stopped || this.draining ) {
+						this.droppedCount.incrementAndGet();
+						return;
+					}
+
+				} else {
+					dropOldestEvent();
+				}
+			}
+
+			this.queue.add( event );
+			this.droppableEvents ++;
+			this.queue.notifyAll();
+		}
+	}
+
+
+	/**
+	 * Processes events until the listener is stopped.
+	 */
+	void processEvents() {
+
+		for( ;; ) {
+			DmEvent event;
+			synchronized( this.queue ) {
+				while( this.queue.isEmpty() && ! this.stopped && ! this.draining ) {
+					try {
+						this.queue.wait();
+
+					} catch( InterruptedException e ) {
+						Thread.currentThread().interrupt();
+						this.stopped = true;
+					}
+				}
+
+				if( this.stopped || this.queue.isEmpty())
+					break;
+
+				event = this.queue.removeFirst();
+				if( event.kind.droppable )
+					this.droppableEvents --;
+
+				// Notify blocked producers
+				this.queue.notifyAll();
+			}
+
+			deliver( event );
+		}
+
+		this.logger.fine( "The asynchronous dispatch to DM listener '" + this.delegate.getId() + "' stopped." );
+	}
+
+
+	/**
+	 * Drops the oldest event that can be dropped.
+	 * <p>
+	 * To invoke while holding the lock on the queue.
+	 * </p>
+	 */
+	private void dropOldestEvent() {
+
+		for( Iterator<DmEvent> it = this.queue.iterator(); it.hasNext(); ) {
+			DmEvent oldest = it.next();
+			if( oldest.kind.droppable ) {
+				it.remove();
+				this.droppableEvents --;
+				this.droppedCount.incrementAndGet();
+				break;
+			}
+		}
+	}
+
+
+	/**
+	 * Delivers an event to the delegate.
+	 * @param event a non-null event
+	 */
+	private void deliver( DmEvent event ) {
+
+		try {
+			switch( event.kind ) {
+			case ENABLE:
+				this.delegate.enableNotifications();
+				break;
+
+			case DISABLE:
+				this.delegate.disableNotifications();
+				break;
+
+			case APPLICATION:
+				this.delegate.application( event.application, event.eventType );
+				break;
+
+			case TEMPLATE:
+				this.delegate.applicationTemplate( event.tpl, event.eventType );
+				break;
+
+			case INSTANCE:
+				this.delegate.instance( event.instance, event.application, event.eventType );
+				break;
+
+			case RAW:
+				this.delegate.raw( event.message, event.data );
+				break;
+			}
+
+			if( event.kind.droppable )
+				this.dispatchedCount.incrementAndGet();
+
+		} catch( Exception e ) {
+			this.logger.severe( "An event could not be delivered to DM listener '" + this.delegate.getId() + "'. " + e.getMessage());
+			Utils.logException( this.logger, e );
+		}
+	}
+
+
+	/**
+	 * What to do when a listener's queue is full.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	enum OverflowPolicy {
+
+		/**
+		 * The oldest pending event is dropped.
+		 */
+		DROP_OLDEST,
+
+		/**
+		 * The notifier waits until there is room in the queue.
+		 */
+		BLOCK;
+
+
+		/**
+		 * A secured alternative to {@link OverflowPolicy#valueOf(String)}.
+		 * @param s a string (can be null, case and dashes do not matter)
+		 * @return the associated policy, or null otherwise
+		 */
+		static OverflowPolicy whichPolicy( String s ) {
+
+			OverflowPolicy result = null;
+			String normalized = s == null ? "" : s.trim().replace( '-', '_' );
+			for( OverflowPolicy policy : OverflowPolicy.values()) {
+				if( policy.toString().equalsIgnoreCase( normalized )) {
+					result = policy;
+					break;
+				}
+			}
+
+			return result;
+		}
+	}
+
+
+	/**
+	 * The kinds of events.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	private enum EventKind {
+		ENABLE( false ),
+		DISABLE( false ),
+		APPLICATION( true ),
+		TEMPLATE( true ),
+		INSTANCE( true ),
+		RAW( true );
+
+		final boolean droppable;
+
+		/**
+		 * Constructor.
+		 * @param droppable true if this event can be dropped or delayed
+		 */
+		EventKind( boolean droppable ) {
+			this.droppable = droppable;
+		}
+	}
+
+
+	/**
+	 * A pending event.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	private static class DmEvent {
+		final EventKind kind;
+		Application application;
+		ApplicationTemplate tpl;
+		Instance instance;
+		EventType eventType;
+		String message;
+		Object[] data;
+
+
+		/**
+		 * Constructor.
+		 * @param kind
+		 */
+		DmEvent( EventKind kind ) {
+			this.kind = kind;
+		}
+	}
+}
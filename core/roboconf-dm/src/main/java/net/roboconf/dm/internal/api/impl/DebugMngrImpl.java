@@ -26,6 +26,8 @@
 package net.roboconf.dm.internal.api.impl;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import net.roboconf.core.model.beans.Instance;
@@ -35,7 +37,12 @@ import net.roboconf.dm.management.ManagedApplication;
 import net.roboconf.dm.management.api.IDebugMngr;
 import net.roboconf.dm.management.api.IMessagingMngr;
 import net.roboconf.dm.management.api.INotificationMngr;
+import net.roboconf.messaging.api.AbstractMessageProcessor;
+import net.roboconf.messaging.api.business.IDmClient;
+import net.roboconf.messaging.api.extensions.IMessagingClient;
+import net.roboconf.messaging.api.jmx.MessagingApiMBean;
 import net.roboconf.messaging.api.messages.from_dm_to_dm.MsgEcho;
+import net.roboconf.messaging.api.reconfigurables.ReconfigurableClient;
 
 /**
  * @author Noël - LIG
@@ -110,4 +117,34 @@ public class DebugMngrImpl implements IDebugMngr {
 	public void notifyMsgEchoReceived( MsgEcho message ) {
 		this.notificationMngr.raw( message.getContent());
 	}
+
+
+	@Override
+	public Map<String,Map<String,Long>> getMessageLatencies() {
+
+		Map<String,Map<String,Long>> result = new HashMap<> ();
+		IDmClient client = this.messagingMngr.getMessagingClient();
+		if( client instanceof ReconfigurableClient<?> ) {
+			AbstractMessageProcessor<?> processor = ((ReconfigurableClient<?>) client).getMessageProcessor();
+			if( processor != null )
+				result = processor.getMessageQueue().getLatencies();
+		}
+
+		return result;
+	}
+
+
+	@Override
+	public String getMessagingMetrics() {
+
+		String result = "";
+		IDmClient client = this.messagingMngr.getMessagingClient();
+		if( client instanceof ReconfigurableClient<?> ) {
+			IMessagingClient internalClient = ((ReconfigurableClient<?>) client).getMessagingClient();
+			if( internalClient instanceof MessagingApiMBean )
+				result = ((MessagingApiMBean) internalClient).getMetricsAsText();
+		}
+
+		return result;
+	}
 }
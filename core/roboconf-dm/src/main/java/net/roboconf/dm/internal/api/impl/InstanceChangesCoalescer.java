@@ -0,0 +1,277 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.dm.internal.api.impl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import net.roboconf.core.model.beans.Application;
+import net.roboconf.core.model.beans.Instance;
+import net.roboconf.core.model.helpers.InstanceHelpers;
+import net.roboconf.core.utils.Utils;
+
+/**
+ * Merges the changes of a same instance that occur within a time window.
+ * <p>
+ * The first change of an instance schedules a delivery at the end of the window.
+ * Other changes of this instance, until the delivery, are merged with the pending one.
+ * Since listeners read the instance's state when they are notified, they get the latest one.
+ * </p>
+ * <p>
+ * Merged changes are delivered while holding {@link #deliveryLock}. The notification
+ * manager holds it too when it delivers instance events directly. This way, a merged
+ * change cannot be delivered after a more recent event of the same instance.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+final class InstanceChangesCoalescer {
+
+	private final Logger logger = Logger.getLogger( getClass().getName());
+	private final NotificationMngrImpl notificationMngr;
+	final AtomicLong coalescedCount = new AtomicLong();
+	final Object deliveryLock = new Object();
+
+	// Guarded by "pendingChanges"
+	private final Map<String,PendingChange> pendingChanges = new LinkedHashMap<> ();
+	private ScheduledExecutorService executor;
+	private boolean flushScheduled = false;
+	private long window = 0;
+
+
+	/**
+	 * Constructor.
+	 * @param notificationMngr the notification manager that delivers merged changes
+	 */
+	InstanceChangesCoalescer( NotificationMngrImpl notificationMngr ) {
+		this.notificationMngr = notificationMngr;
+	}
+
+
+	/**
+	 * Sets the time window.
+	 * <p>
+	 * A window of 0 (or less) disables the merging. Pending changes are then delivered.
+	 * </p>
+	 *
+	 * @param window the window, in milliseconds
+	 */
+	void setWindow( long window ) {
+
+		ScheduledExecutorService toShutdown = null;
+		synchronized( this.pendingChanges ) {
+			this.window = Math.max( 0, window );
+			if( this.window > 0 && this.executor == null ) {
+				this.executor = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+					@Override
+					public Thread newThread( Runnable r ) {
+						Thread thread = new Thread( r, "Roboconf - DM notifications coalescer" );
+						thread.setDaemon( true );
+						return thread;
+					}
+				});
+
+			} else if( this.window == 0 && this.executor != null ) {
+				toShutdown = this.executor;
+				this.executor = null;
+			}
+		}
+
+		if( toShutdown != null ) {
+			toShutdown.shutdownNow();
+			flush();
+		}
+	}
+
+
+	/**
+	 * Registers an instance change, if changes are merged.
+	 * <p>
+	 * Checking the window and registering the change are done atomically,
+	 * so that a change cannot be registered after the merging was disabled.
+	 * </p>
+	 *
+	 * @param instance an instance
+	 * @param application its application
+	 * @return true if the change was registered, false if it must be delivered right away
+	 */
+	boolean add( Instance instance, Application application ) {
+
+		String key = key( instance, application );
+		synchronized( this.pendingChanges ) {
+			if( this.executor == null )
+				return false;
+
+			PendingChange pending = this.pendingChanges.get( key );
+			if( pending != null ) {
+				pending.instance = instance;
+				pending.application = application;
+				this.coalescedCount.incrementAndGet();
+
+			} else {
+				this.pendingChanges.put( key, new PendingChange( instance, application ));
+			}
+
+			if( ! this.flushScheduled ) {
+				this.flushScheduled = true;
+				this.executor.schedule( new Runnable() {
+					@Override
+					public void run() {
+						flush();
+					}
+
+				}, this.window, TimeUnit.MILLISECONDS );
+			}
+		}
+
+		return true;
+	}
+
+
+	/**
+	 * Discards the pending changes of an instance and of its children.
+	 * <p>
+	 * This is invoked when an instance is created or deleted.
+	 * </p>
+	 *
+	 * @param instance an instance
+	 * @param application its application
+	 */
+	void discard( Instance instance, Application application ) {
+		String key = key( instance, application );
+		synchronized( this.pendingChanges ) {
+			this.pendingChanges.remove( key );
+			discardByPrefix( key + "/" );
+		}
+	}
+
+
+	/**
+	 * Discards the pending changes of all the instances of an application.
+	 * <p>
+	 * This is invoked when an application is deleted.
+	 * </p>
+	 *
+	 * @param application an application
+	 */
+	void discard( Application application ) {
+		synchronized( this.pendingChanges ) {
+			discardByPrefix( appName( application ) + "|" );
+		}
+	}
+
+
+	/**
+	 * Delivers all the pending changes.
+	 */
+	void flush() {
+
+		synchronized( this.deliveryLock ) {
+			List<PendingChange> changes;
+			synchronized( this.pendingChanges ) {
+				changes = new ArrayList<>( this.pendingChanges.values());
+				this.pendingChanges.clear();
+				this.flushScheduled = false;
+			}
+
+			for( PendingChange change : changes ) {
+				try {
+					this.notificationMngr.deliverMergedChange( change.instance, change.application );
+
+				} catch( Exception e ) {
+					this.logger.severe( "A merged instance change could not be delivered. " + e.getMessage());
+					Utils.logException( this.logger, e );
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * @return the number of pending changes
+	 */
+	int getPendingChangesCount() {
+		synchronized( this.pendingChanges ) {
+			return this.pendingChanges.size();
+		}
+	}
+
+
+	/**
+	 * Removes the pending changes whose key starts with a given prefix.
+	 * <p>
+	 * Must be invoked while holding the lock on "pendingChanges".
+	 * </p>
+	 *
+	 * @param prefix a key prefix
+	 */
+	private void discardByPrefix( String prefix ) {
+		for( Iterator<String> it = this.pendingChanges.keySet().iterator(); it.hasNext(); ) {
+			if( it.next().startsWith( prefix ))
+				it.remove();
+		}
+	}
+
+
+	private static String key( Instance instance, Application application ) {
+		return appName( application ) + "|" + InstanceHelpers.computeInstancePath( instance );
+	}
+
+
+	private static String appName( Application application ) {
+		return application == null ? "" : application.getName();
+	}
+
+
+	/**
+	 * A pending change.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	private static class PendingChange {
+		Instance instance;
+		Application application;
+
+
+		/**
+		 * Constructor.
+		 * @param instance
+		 * @param application
+		 */
+		PendingChange( Instance instance, Application application ) {
+			this.instance = instance;
+			this.application = application;
+		}
+	}
+}
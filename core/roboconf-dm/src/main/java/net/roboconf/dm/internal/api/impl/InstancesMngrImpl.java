@@ -31,9 +31,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import net.roboconf.core.model.beans.Application;
@@ -78,7 +81,13 @@ import net.roboconf.target.api.TargetHandlerParameters;
 public class InstancesMngrImpl implements IInstancesMngr {
 
 	private static final Object LOCK = new Object();
+
+	// Above this size, the instances journal is compacted into the instances file
+	static final long JOURNAL_COMPACTION_THRESHOLD = 512 * 1024;
+
 	private final Logger logger = Logger.getLogger( getClass().getName());
+	private final Map<ManagedApplication,Set<Instance>> pendingUpdates = new LinkedHashMap<> ();
+	private boolean writeBehind = false;
 
 	private final IMessagingMngr messagingMngr;
 	private final INotificationMngr notificationMngr;
@@ -138,6 +147,87 @@ public class InstancesMngrImpl implements IInstancesMngr {
 	}
 
 
+	/**
+	 * Enables or disables the write-behind persistence of instance updates.
+	 * <p>
+	 * When it is enabled, {@link #instanceWasUpdated(Instance, ManagedApplication)} does
+	 * not rewrite the instances file. Updates are coalesced and appended to the instances
+	 * journal by {@link #flushInstanceUpdates()}, that must be invoked periodically.
+	 * Disabling it flushes pending updates.
+	 * </p>
+	 *
+	 * @param writeBehind true to enable the write-behind persistence, false to save updates immediately
+	 */
+	public void setWriteBehind( boolean writeBehind ) {
+
+		synchronized( this.pendingUpdates ) {
+			this.writeBehind = writeBehind;
+		}
+
+		if( ! writeBehind )
+			flushInstanceUpdates();
+	}
+
+
+	/**
+	 * Persists pending instance updates.
+	 * <p>
+	 * Every updated instance results in a single journal entry, whatever the number
+	 * of updates since the last flush. When the journal becomes too big, it is compacted,
+	 * i.e. the instances file is rewritten.
+	 * </p>
+	 * <p>
+	 * If the updates of an application cannot be persisted, they are kept
+	 * for the next flush.
+	 * </p>
+	 */
+	public void flushInstanceUpdates() {
+
+		Map<ManagedApplication,Set<Instance>> updates;
+		synchronized( this.pendingUpdates ) {
+			updates = new LinkedHashMap<>( this.pendingUpdates );
+			this.pendingUpdates.clear();
+		}
+
+		for( Map.Entry<ManagedApplication,Set<Instance>> entry : updates.entrySet()) {
+			ManagedApplication ma = entry.getKey();
+			try {
+				long journalSize = ConfigurationUtils.appendToInstancesJournal( ma.getApplication(), entry.getValue());
+				this.logger.finest( entry.getValue().size() + " instance updates were journaled for " + ma.getName() + "." );
+
+				if( journalSize > JOURNAL_COMPACTION_THRESHOLD ) {
+					this.logger.fine( "The instances journal of " + ma.getName() + " is being compacted." );
+					ConfigurationUtils.saveInstances( ma );
+				}
+
+			} catch( IOException | RuntimeException e ) {
+				this.logger.severe( "Instance updates could not be persisted for " + ma.getName() + ". They will be retried. " + e.getMessage());
+				Utils.logException( this.logger, e );
+				requeueInstanceUpdates( ma, entry.getValue());
+			}
+		}
+	}
+
+
+	/**
+	 * Puts back instance updates that could not be persisted.
+	 * @param ma the application
+	 * @param instances the updated instances
+	 */
+	private void requeueInstanceUpdates( ManagedApplication ma, Set<Instance> instances ) {
+
+		synchronized( this.pendingUpdates ) {
+			Set<Instance> pendingInstances = this.pendingUpdates.get( ma );
+			if( pendingInstances == null ) {
+				pendingInstances = new LinkedHashSet<> ();
+				this.pendingUpdates.put( ma, pendingInstances );
+			}
+
+			pendingInstances.addAll( instances );
+		}
+	}
+
+
 	@Override
 	public void addInstance( ManagedApplication ma, Instance parentInstance, Instance instance )
 	throws ImpossibleInsertionException, IOException {
@@ -166,7 +256,23 @@ public class InstancesMngrImpl implements IInstancesMngr {
 	public void instanceWasUpdated( Instance instance, ManagedApplication ma ) {
 
 		this.notificationMngr.instance( instance, ma.getApplication(), EventType.CHANGED );
-		ConfigurationUtils.saveInstances( ma );
+
+		boolean saveNow;
+		synchronized( this.pendingUpdates ) {
+			saveNow = ! this.writeBehind;
+			if( ! saveNow ) {
+				Set<Instance> instances = this.pendingUpdates.get( ma );
+				if( instances == null ) {
+					instances = new LinkedHashSet<> ();
+					this.pendingUpdates.put( ma, instances );
+				}
+
+				instances.add( instance );
+			}
+		}
+
+		if( saveNow )
+			ConfigurationUtils.saveInstances( ma );
 	}
 
 
@@ -215,6 +321,8 @@ public class InstancesMngrImpl implements IInstancesMngr {
 			instance.getParent().getChildren().remove( instance );
 		}
 
+		ma.getApplication().getInstancePathIndex().remove( instance );
+
 		// Release random values, if any
 		this.randomMngr.releaseRandomValues( ma.getApplication(), instance );
 
@@ -27,8 +27,13 @@ package net.roboconf.dm.internal.api.impl;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
@@ -36,18 +41,47 @@ import net.roboconf.core.model.beans.Application;
 import net.roboconf.core.model.beans.ApplicationTemplate;
 import net.roboconf.core.model.beans.Instance;
 import net.roboconf.core.model.runtime.EventType;
+import net.roboconf.core.utils.Utils;
+import net.roboconf.dm.internal.api.impl.AsyncDmListener.OverflowPolicy;
 import net.roboconf.dm.management.api.INotificationMngr;
 import net.roboconf.dm.management.events.IDmListener;
 
 /**
+ * The notification manager forwards DM events to all the listeners.
+ * <p>
+ * By default, listeners are invoked in the caller's thread.
+ * When asynchronous dispatch is enabled, every listener has its own bounded queue
+ * and its own thread (see {@link AsyncDmListener}), so that a slow listener does not
+ * slow down the DM.
+ * </p>
+ * <p>
+ * Changes of a same instance can also be merged within a time window (see
+ * {@link InstanceChangesCoalescer}). Listeners that need every transition
+ * can opt out.
+ * </p>
+ *
  * @author Vincent Zurczak - Linagora
  */
 public class NotificationMngrImpl implements INotificationMngr {
 
+	/**
+	 * The key that designates the default policy in overflow policies.
+	 */
+	public static final String DEFAULT_POLICY_KEY = "*";
+
 	private final Logger logger = Logger.getLogger( getClass().getName());
 	private final List<IDmListener> dmListeners = new ArrayList<> ();
 	private final AtomicBoolean enableNotifications = new AtomicBoolean( false );
 
+	// Guarded by "dmListeners"
+	private final Map<IDmListener,AsyncDmListener> asyncListeners = new IdentityHashMap<> ();
+	private boolean asyncDispatch = false;
+	private int queueSize = 1000;
+	private final Map<String,OverflowPolicy> overflowPolicies = new HashMap<> ();
+	private final Set<String> coalescingOptOut = new HashSet<> ();
+
+	final InstanceChangesCoalescer coalescer = new InstanceChangesCoalescer( this );
+
 
 	@Override
 	public String getId() {
@@ -60,10 +94,8 @@ public class NotificationMngrImpl implements INotificationMngr {
 
 		this.logger.info( "Notifications are being enabled for DM listeners..." );
 		this.enableNotifications.set( true );
-		synchronized( this.dmListeners ) {
-			for( IDmListener listener : this.dmListeners )
-				listener.enableNotifications();
-		}
+		for( IDmListener target : findTargets())
+			target.enableNotifications();
 	}
 
 
@@ -71,11 +103,10 @@ public class NotificationMngrImpl implements INotificationMngr {
 	public void disableNotifications() {
 
 		this.logger.info( "Notifications are being disabled for DM listeners..." );
+		this.coalescer.flush();
 		this.enableNotifications.set( false );
-		synchronized( this.dmListeners ) {
-			for( IDmListener listener : this.dmListeners )
-				listener.disableNotifications();
-		}
+		for( IDmListener target : findTargets())
+			target.disableNotifications();
 	}
 
 
@@ -89,12 +120,17 @@ public class NotificationMngrImpl implements INotificationMngr {
 			this.logger.info( "An invalid DM listener failed to be added." );
 
 		} else {
+			IDmListener target;
 			synchronized( this.dmListeners ) {
 				this.dmListeners.add( listener );
+				if( this.asyncDispatch )
+					this.asyncListeners.put( listener, newAsyncListener( listener ));
+
+				target = target( listener );
 			}
 
 			if( this.enableNotifications.get())
-				listener.enableNotifications();
+				target.enableNotifications();
 
 			this.logger.info( "The listener '" + listener.getId() + "' is now available in Roboconf's DM." );
 		}
@@ -112,6 +148,9 @@ public class NotificationMngrImpl implements INotificationMngr {
 		if( listener != null ) {
 			synchronized( this.dmListeners ) {
 				this.dmListeners.remove( listener );
+				AsyncDmListener asyncListener = this.asyncListeners.remove( listener );
+				if( asyncListener != null )
+					asyncListener.stop( false );
 			}
 
 			this.logger.info( "The listener '" + listener.getId() + "' is not available anymore in Roboconf's DM." );
@@ -133,37 +172,311 @@ public class NotificationMngrImpl implements INotificationMngr {
 
 	@Override
 	public void application( Application application, EventType eventType ) {
-		synchronized( this.dmListeners ) {
-			for( IDmListener listener : this.dmListeners )
-				listener.application( application, eventType );
+
+		// Changes of a deleted application must not be delivered after its deletion
+		if( eventType == EventType.DELETED ) {
+			synchronized( this.coalescer.deliveryLock ) {
+				this.coalescer.discard( application );
+			}
 		}
+
+		for( IDmListener target : findTargets())
+			target.application( application, eventType );
 	}
 
 
 	@Override
 	public void applicationTemplate( ApplicationTemplate tpl, EventType eventType ) {
-		synchronized( this.dmListeners ) {
-			for( IDmListener listener : this.dmListeners )
-				listener.applicationTemplate( tpl, eventType );
-		}
+		for( IDmListener target : findTargets())
+			target.applicationTemplate( tpl, eventType );
 	}
 
 
 	@Override
 	public void instance( Instance instance, Application application, EventType eventType ) {
-		synchronized( this.dmListeners ) {
-			for( IDmListener listener : this.dmListeners )
-				listener.instance( instance, application, eventType );
+
+		// Merged changes are delivered by another thread: both deliveries are serialized
+		synchronized( this.coalescer.deliveryLock ) {
+
+			// Changes can be merged, except for listeners that opted out
+			if( eventType == EventType.CHANGED && this.coalescer.add( instance, application )) {
+				for( IDmListener target : findTargets( true ))
+					target.instance( instance, application, eventType );
+
+			} else {
+				// A pending change would be delivered after a creation or a deletion
+				if( eventType != EventType.CHANGED )
+					this.coalescer.discard( instance, application );
+
+				for( IDmListener target : findTargets())
+					target.instance( instance, application, eventType );
+			}
 		}
 	}
 
 
+	/**
+	 * Delivers a merged instance change to the listeners that did not opt out.
+	 * @param instance an instance
+	 * @param application its application
+	 */
+	void deliverMergedChange( Instance instance, Application application ) {
+		for( IDmListener target : findTargets( false ))
+			target.instance( instance, application, EventType.CHANGED );
+	}
+
+
 	@Override
 	public void raw( String message, Object... data ) {
+		for( IDmListener target : findTargets())
+			target.raw( message, data );
+	}
+
+
+	/**
+	 * Stops the asynchronous dispatch and the merging of instance changes.
+	 * <p>
+	 * Pending events are delivered, and then threads terminate.
+	 * They are created again the next time notifications are configured.
+	 * </p>
+	 */
+	public void stop() {
+
+		this.coalescer.setWindow( 0 );
+		List<AsyncDmListener> toStop;
+		synchronized( this.dmListeners ) {
+			toStop = new ArrayList<>( this.asyncListeners.values());
+			this.asyncListeners.clear();
+		}
+
+		for( AsyncDmListener asyncListener : toStop )
+			asyncListener.stop( true );
+	}
+
+
+	/**
+	 * Configures the asynchronous dispatch of events.
+	 * <p>
+	 * Overflow policies are given as a comma-separated list of <code>listener-id = policy</code>
+	 * entries, where policies are <code>drop-oldest</code> or <code>block</code>.
+	 * The listener ID {@value #DEFAULT_POLICY_KEY} designates the default policy. When it
+	 * is not specified, the default policy is <code>drop-oldest</code>, so that a listener
+	 * that is stuck never blocks the DM.
+	 * </p>
+	 * <p>
+	 * Listeners whose settings change are given new queues, once their pending
+	 * events were delivered.
+	 * </p>
+	 *
+	 * @param asyncDispatch true to notify listeners asynchronously
+	 * @param queueSize the maximum number of pending events per listener
+	 * @param overflowPolicies the overflow policies (can be null)
+	 */
+	public void configureAsyncDispatch( boolean asyncDispatch, int queueSize, String overflowPolicies ) {
+
+		Map<String,OverflowPolicy> policies = new HashMap<> ();
+		for( String entry : Utils.splitNicely( overflowPolicies == null ? "" : overflowPolicies, "," )) {
+			if( Utils.isEmptyOrWhitespaces( entry ))
+				continue;
+
+			int index = entry.indexOf( '=' );
+			OverflowPolicy policy = index < 0 ? null : OverflowPolicy.whichPolicy( entry.substring( index + 1 ));
+			if( policy == null )
+				this.logger.warning( "Invalid overflow policy for DM listeners: " + entry );
+			else
+				policies.put( entry.substring( 0, index ).trim(), policy );
+		}
+
+		synchronized( this.dmListeners ) {
+			this.asyncDispatch = asyncDispatch;
+			this.queueSize = queueSize;
+			this.overflowPolicies.clear();
+			this.overflowPolicies.putAll( policies );
+
+			for( IDmListener listener : this.dmListeners ) {
+				AsyncDmListener asyncListener = this.asyncListeners.get( listener );
+				if( asyncListener != null
+						&& asyncDispatch
+						&& asyncListener.getCapacity() == queueSize
+						&& asyncListener.getPolicy() == findPolicy( listener ))
+					continue;
+
+				if( asyncListener != null ) {
+					this.asyncListeners.remove( listener );
+					asyncListener.stop( true );
+				}
+
+				// Listeners keep their current state (enabled or not)
+				if( asyncDispatch )
+					this.asyncListeners.put( listener, newAsyncListener( listener ));
+			}
+		}
+
+		this.logger.fine( "Asynchronous dispatch of DM events: " + asyncDispatch );
+	}
+
+
+	/**
+	 * Configures the merging of instance changes.
+	 * @param window the time window, in milliseconds (0 or less to deliver every change immediately)
+	 * @param optOut a comma-separated list of listener IDs that need every change (can be null)
+	 */
+	public void configureCoalescing( long window, String optOut ) {
+
+		synchronized( this.dmListeners ) {
+			this.coalescingOptOut.clear();
+			this.coalescingOptOut.addAll( Utils.filterEmptyValues( Utils.splitNicely( optOut == null ? "" : optOut, "," )));
+		}
+
+		this.coalescer.setWindow( window );
+		this.logger.fine( "Instance changes are merged within " + window + " ms." );
+	}
+
+
+	/**
+	 * @return the number of instance changes that were merged with another one
+	 */
+	public long getCoalescedEventsCount() {
+		return this.coalescer.coalescedCount.get();
+	}
+
+
+	/**
+	 * @return the total number of events that were not delivered to listeners
+	 */
+	public long getDroppedEventsCount() {
+
+		long result = 0;
+		synchronized( this.dmListeners ) {
+			for( AsyncDmListener asyncListener : this.asyncListeners.values())
+				result += asyncListener.droppedCount.get();
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * @return the total number of events for which notifiers had to wait
+	 */
+	public long getDelayedEventsCount() {
+
+		long result = 0;
+		synchronized( this.dmListeners ) {
+			for( AsyncDmListener asyncListener : this.asyncListeners.values())
+				result += asyncListener.delayedCount.get();
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * @return a description of the queue of every asynchronous listener (never null)
+	 */
+	public String[] getListenerQueues() {
+
+		List<String> result = new ArrayList<> ();
+		synchronized( this.dmListeners ) {
+			for( AsyncDmListener asyncListener : this.asyncListeners.values()) {
+				result.add( asyncListener.getId()
+						+ ": policy=" + asyncListener.getPolicy()
+						+ ", pending=" + asyncListener.getQueueSize()
+						+ ", dispatched=" + asyncListener.dispatchedCount.get()
+						+ ", dropped=" + asyncListener.droppedCount.get()
+						+ ", delayed=" + asyncListener.delayedCount.get());
+			}
+		}
+
+		return result.toArray( new String[ result.size()]);
+	}
+
+
+	/**
+	 * Finds the listeners to invoke.
+	 * <p>
+	 * Listeners are invoked outside the lock, so that a listener that blocks
+	 * does not prevent listeners from being added or removed.
+	 * </p>
+	 *
+	 * @return a non-null list
+	 */
+	private List<IDmListener> findTargets() {
+
+		List<IDmListener> result = new ArrayList<> ();
 		synchronized( this.dmListeners ) {
 			for( IDmListener listener : this.dmListeners )
-				listener.raw( message, data );
+				result.add( target( listener ));
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Finds the listeners to invoke, depending on whether they opted out of merged changes.
+	 * @param optedOut true to get the listeners that need every change, false to get the others
+	 * @return a non-null list
+	 */
+	private List<IDmListener> findTargets( boolean optedOut ) {
+
+		List<IDmListener> result = new ArrayList<> ();
+		synchronized( this.dmListeners ) {
+			for( IDmListener listener : this.dmListeners ) {
+				if( this.coalescingOptOut.contains( listener.getId()) == optedOut )
+					result.add( target( listener ));
+			}
 		}
+
+		return result;
+	}
+
+
+	/**
+	 * Finds the listener to invoke.
+	 * <p>
+	 * To invoke while holding the lock on {@link #dmListeners}.
+	 * </p>
+	 *
+	 * @param listener a registered listener
+	 * @return the listener itself, or the associated asynchronous listener
+	 */
+	private IDmListener target( IDmListener listener ) {
+		IDmListener result = this.asyncListeners.get( listener );
+		return result != null ? result : listener;
+	}
+
+
+	/**
+	 * Creates an asynchronous listener.
+	 * <p>
+	 * To invoke while holding the lock on {@link #dmListeners}.
+	 * </p>
+	 *
+	 * @param listener a listener
+	 * @return a new asynchronous listener
+	 */
+	private AsyncDmListener newAsyncListener( IDmListener listener ) {
+		return new AsyncDmListener( listener, this.queueSize, findPolicy( listener ));
+	}
+
+
+	/**
+	 * Finds the overflow policy of a listener.
+	 * <p>
+	 * To invoke while holding the lock on {@link #dmListeners}.
+	 * </p>
+	 *
+	 * @param listener a listener
+	 * @return a non-null policy
+	 */
+	private OverflowPolicy findPolicy( IDmListener listener ) {
+
+		OverflowPolicy result = this.overflowPolicies.get( listener.getId());
+		if( result == null )
+			result = this.overflowPolicies.get( DEFAULT_POLICY_KEY );
+
+		return result != null ? result : OverflowPolicy.DROP_OLDEST;
 	}
 
 
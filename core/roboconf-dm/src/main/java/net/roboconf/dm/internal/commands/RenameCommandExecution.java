@@ -28,6 +28,7 @@ package net.roboconf.dm.internal.commands;
 import net.roboconf.core.commands.RenameCommandInstruction;
 import net.roboconf.core.model.beans.Instance;
 import net.roboconf.core.model.beans.Instance.InstanceStatus;
+import net.roboconf.core.model.beans.InstancePathIndex;
 import net.roboconf.core.model.helpers.InstanceHelpers;
 import net.roboconf.dm.management.exceptions.CommandException;
 
@@ -56,6 +57,10 @@ class RenameCommandExecution extends AbstractCommandExecution {
 		if( scopedInstance.getStatus() != InstanceStatus.NOT_DEPLOYED )
 			throw new CommandException( "Only instances that are not yet managed by an agent can be renamed." );
 
+		// Keep the path index up-to-date
+		InstancePathIndex index = this.instr.getApplication().getInstancePathIndex();
+		index.remove( instance );
 		instance.setName( this.instr.getNewInstanceName());
+		index.put( InstanceHelpers.computeInstancePath( instance ), instance );
 	}
 }
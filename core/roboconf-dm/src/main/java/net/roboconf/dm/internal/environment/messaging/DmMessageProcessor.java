@@ -38,6 +38,7 @@ import net.roboconf.core.model.helpers.ImportHelpers;
 import net.roboconf.core.model.helpers.InstanceHelpers;
 import net.roboconf.core.utils.DockerAndScriptUtils;
 import net.roboconf.core.utils.Utils;
+import net.roboconf.dm.internal.environment.messaging.HeartbeatRegistry.HeartbeatEntry;
 import net.roboconf.dm.internal.utils.DmUtils;
 import net.roboconf.dm.management.ManagedApplication;
 import net.roboconf.dm.management.Manager;
@@ -67,6 +68,7 @@ public class DmMessageProcessor extends AbstractMessageProcessor<IDmClient> {
 
 	private final Logger logger = Logger.getLogger( DmMessageProcessor.class.getName());
 	private final Manager manager;
+	final HeartbeatRegistry heartbeatRegistry = new HeartbeatRegistry();
 
 	// Set as a class attribute so that it can be replaced for unit tests.
 	String tmpDir = System.getProperty( "java.io.tmpdir" );
@@ -116,6 +118,20 @@ public class DmMessageProcessor extends AbstractMessageProcessor<IDmClient> {
 	}
 
 
+	/*
+	 * (non-Javadoc)
+	 * @see net.roboconf.messaging.api.AbstractMessageProcessor
+	 * #canProcessInParallel(net.roboconf.messaging.api.messages.Message)
+	 */
+	@Override
+	protected boolean canProcessInParallel( Message message ) {
+
+		// The model, the notifications and the instances' persistence are not thread-safe.
+		// Logs are only written in a directory that is specific to their agent.
+		return message instanceof MsgNotifLogs;
+	}
+
+
 	private void processMsgNotifLogs( MsgNotifLogs message ) {
 
 		StringBuilder path = new StringBuilder();
@@ -179,7 +195,10 @@ public class DmMessageProcessor extends AbstractMessageProcessor<IDmClient> {
 		String scopedInstancePath = message.getScopedInstancePath();
 		ManagedApplication ma = this.manager.applicationMngr().findManagedApplicationByName( message.getApplicationName());
 		Application app = ma == null ? null : ma.getApplication();
-		Instance scopedInstance = InstanceHelpers.findInstanceByPath( app, scopedInstancePath );
+
+		// Fast path: the scoped instance was already resolved for a previous heart beat
+		HeartbeatEntry entry = this.heartbeatRegistry.find( ma, message.getApplicationName(), scopedInstancePath );
+		Instance scopedInstance = entry != null ? entry.scopedInstance : InstanceHelpers.findInstanceByPath( app, scopedInstancePath );
 
 		if( scopedInstance == null ) {
 			// If 'app' is null, then 'instance' is also null.
@@ -193,7 +212,7 @@ public class DmMessageProcessor extends AbstractMessageProcessor<IDmClient> {
 			sb.append( "). The heart beat is dropped." );
 			this.logger.warning( sb.toString());
 
-		} else if( ! InstanceHelpers.isTarget( scopedInstance )) {
+		} else if( entry == null && ! InstanceHelpers.isTarget( scopedInstance )) {
 			StringBuilder sb = new StringBuilder();
 			sb.append( "A 'HEART BEAT' was received for a non-scoped instance: " );
 			sb.append( scopedInstancePath );
@@ -205,6 +224,11 @@ public class DmMessageProcessor extends AbstractMessageProcessor<IDmClient> {
 			this.logger.warning( sb.toString());
 
 		} else {
+			// Remember the scoped instance for the next heart beats.
+			// The registry drops the entry once the instance is not deployed anymore.
+			if( entry == null )
+				this.heartbeatRegistry.register( ma, scopedInstancePath, scopedInstance );
+
 			// Update the data
 			String ipAddress = message.getIpAddress();
 			boolean ipWasSet = false;
@@ -312,10 +336,13 @@ public class DmMessageProcessor extends AbstractMessageProcessor<IDmClient> {
 			this.logger.warning( sb.toString());
 
 		} else {
-			if( InstanceHelpers.isTarget( instance ))
+			if( InstanceHelpers.isTarget( instance )) {
 				this.logger.warning( "Anormal behavior. A 'REMOVE' notification was received for a scoped instance: " + instancePath + "." );
-			else
+
+			} else {
 				instance.getParent().getChildren().remove( instance );
+				app.getInstancePathIndex().remove( instance );
+			}
 
 			this.logger.info( "Instance " + instancePath + " was removed from the model." );
 		}
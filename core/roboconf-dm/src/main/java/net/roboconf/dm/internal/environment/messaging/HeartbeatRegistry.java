@@ -0,0 +1,143 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.dm.internal.environment.messaging;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.roboconf.core.model.beans.Instance;
+import net.roboconf.core.model.beans.Instance.InstanceStatus;
+import net.roboconf.dm.management.ManagedApplication;
+
+/**
+ * A registry that remembers the scoped instances that sent heart beats.
+ * <p>
+ * Heart beats are the most frequent messages the DM receives. Resolving
+ * the scoped instance from its path every time is expensive, so this registry
+ * caches it, by application name and scoped instance path.
+ * </p>
+ * <p>
+ * A cached entry remains valid as long as the application was not replaced
+ * and the scoped instance is not in the NOT_DEPLOYED state. Indeed, instances can
+ * only be removed or renamed when their scoped instance is not deployed.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+class HeartbeatRegistry {
+
+	private final ConcurrentHashMap<String,Map<String,HeartbeatEntry>> appNameToEntries = new ConcurrentHashMap<> ();
+
+
+	/**
+	 * Finds a valid entry.
+	 * <p>
+	 * Invalid entries are removed.
+	 * </p>
+	 *
+	 * @param ma the managed application (can be null)
+	 * @param applicationName the application name
+	 * @param scopedInstancePath the scoped instance path
+	 * @return an entry, or null if none was found or if it was not valid anymore
+	 */
+	HeartbeatEntry find( ManagedApplication ma, String applicationName, String scopedInstancePath ) {
+
+		HeartbeatEntry result = null;
+		Map<String,HeartbeatEntry> entries = applicationName == null ? null : this.appNameToEntries.get( applicationName );
+		if( entries != null && ma == null ) {
+			this.appNameToEntries.remove( applicationName );
+
+		} else if( entries != null && scopedInstancePath != null ) {
+			result = entries.get( scopedInstancePath );
+			if( result != null
+					&& ( result.ma != ma || result.scopedInstance.getStatus() == InstanceStatus.NOT_DEPLOYED )) {
+				entries.remove( scopedInstancePath );
+				result = null;
+			}
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Registers an entry.
+	 * @param ma the managed application (not null)
+	 * @param scopedInstancePath the scoped instance path (not null)
+	 * @param scopedInstance the scoped instance (not null)
+	 * @return the new entry
+	 */
+	HeartbeatEntry register( ManagedApplication ma, String scopedInstancePath, Instance scopedInstance ) {
+
+		// Heart beats from a same application may be processed concurrently
+		Map<String,HeartbeatEntry> entries = this.appNameToEntries.get( ma.getName());
+		if( entries == null ) {
+			Map<String,HeartbeatEntry> newEntries = new ConcurrentHashMap<> ();
+			entries = this.appNameToEntries.putIfAbsent( ma.getName(), newEntries );
+			if( entries == null )
+				entries = newEntries;
+		}
+
+		HeartbeatEntry result = new HeartbeatEntry( ma, scopedInstance );
+		entries.put( scopedInstancePath, result );
+
+		return result;
+	}
+
+
+	/**
+	 * @return the number of registered entries
+	 */
+	int size() {
+
+		int result = 0;
+		for( Map<String,HeartbeatEntry> entries : this.appNameToEntries.values())
+			result += entries.size();
+
+		return result;
+	}
+
+
+	/**
+	 * A cached association between a scoped instance and its application.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	static class HeartbeatEntry {
+		final ManagedApplication ma;
+		final Instance scopedInstance;
+
+
+		/**
+		 * Constructor.
+		 * @param ma
+		 * @param scopedInstance
+		 */
+		HeartbeatEntry( ManagedApplication ma, Instance scopedInstance ) {
+			this.ma = ma;
+			this.scopedInstance = scopedInstance;
+		}
+	}
+}
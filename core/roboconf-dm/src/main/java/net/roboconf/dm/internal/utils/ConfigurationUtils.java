@@ -26,8 +26,16 @@
 package net.roboconf.dm.internal.utils;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -39,6 +47,9 @@ import net.roboconf.core.model.RuntimeModelIo.InstancesLoadResult;
 import net.roboconf.core.model.beans.Application;
 import net.roboconf.core.model.beans.ApplicationTemplate;
 import net.roboconf.core.model.beans.Graphs;
+import net.roboconf.core.model.beans.Instance;
+import net.roboconf.core.model.beans.Instance.InstanceStatus;
+import net.roboconf.core.model.helpers.InstanceHelpers;
 import net.roboconf.core.utils.IconUtils;
 import net.roboconf.core.utils.Utils;
 import net.roboconf.dm.management.ManagedApplication;
@@ -53,12 +64,17 @@ public final class ConfigurationUtils {
 	public static final String TARGETS = "targets";
 
 	public static final String INSTANCES_FILE = "current.instances";
+	public static final String INSTANCES_JOURNAL_FILE = "current.instances.journal";
 	public static final String APP_BINDINGS_FILE = "application-bindings.properties";
 
 	public static final String TARGETS_ASSOC_FILE = "targets-associations.properties";
 	public static final String TARGETS_HINTS_SUFFIX = ".hints.properties";
 	public static final String TARGETS_USAGE_SUFFIX = ".usage.properties";
 
+	private static final Object INSTANCES_LOCK = new Object();
+	private static final String JOURNAL_ENTRY_END = ";";
+	private static final String UTF_8 = "UTF-8";
+
 
 	/**
 	 * Private constructor.
@@ -115,37 +131,182 @@ public final class ConfigurationUtils {
 	public static void saveInstances( Application app ) {
 
 		File targetFile = new File( app.getDirectory(), Constants.PROJECT_DIR_INSTANCES + "/" + INSTANCES_FILE );
-		try {
-			Utils.createDirectory( targetFile.getParentFile());
-			RuntimeModelIo.writeInstances( targetFile, app.getRootInstances());
+		File journalFile = new File( targetFile.getParentFile(), INSTANCES_JOURNAL_FILE );
+		synchronized( INSTANCES_LOCK ) {
+			try {
+				Utils.createDirectory( targetFile.getParentFile());
+				RuntimeModelIo.writeInstances( targetFile, app.getRootInstances());
+
+				// The journal is now part of the instances file
+				Utils.deleteFilesRecursively( journalFile );
+
+			} catch( IOException e ) {
+				Logger logger = Logger.getLogger( ConfigurationUtils.class.getName());
+				logger.severe( "Failed to save instances. " + e.getMessage());
+				Utils.logException( logger, e );
+			}
+		}
+	}
 
-		} catch( IOException e ) {
-			Logger logger = Logger.getLogger( ConfigurationUtils.class.getName());
-			logger.severe( "Failed to save instances. " + e.getMessage());
-			Utils.logException( logger, e );
+
+	/**
+	 * Appends the runtime state of instances to the instances journal.
+	 * <p>
+	 * The journal completes the instances file, which is only rewritten when
+	 * {@link #saveInstances(Application)} is invoked (compaction). Every entry
+	 * contains the state and the data of an instance when this method is invoked.
+	 * </p>
+	 *
+	 * @param app the application (not null)
+	 * @param instances the instances whose state changed (not null)
+	 * @return the size of the journal, in bytes (0 if the application directory does not exist)
+	 * @throws IOException if the journal could not be updated
+	 */
+	public static long appendToInstancesJournal( Application app, Collection<Instance> instances )
+	throws IOException {
+
+		// The application may have been deleted in the meantime
+		if( app.getDirectory() == null || ! app.getDirectory().exists())
+			return 0;
+
+		File journalFile = new File( app.getDirectory(), Constants.PROJECT_DIR_INSTANCES + "/" + INSTANCES_JOURNAL_FILE );
+		synchronized( INSTANCES_LOCK ) {
+
+			Writer writer = null;
+			try {
+				Utils.createDirectory( journalFile.getParentFile());
+				writer = new OutputStreamWriter( new FileOutputStream( journalFile, true ), StandardCharsets.UTF_8 );
+				for( Instance instance : instances )
+					writer.write( buildJournalEntry( instance ));
+
+			} finally {
+				Utils.closeQuietly( writer );
+			}
+
+			return journalFile.length();
 		}
 	}
 
 
 	/**
 	 * Restores instances and set them in the application.
+	 * <p>
+	 * The instances journal, if any, is replayed after the instances file was loaded.
+	 * </p>
+	 *
 	 * @param ma the application
 	 * @param configurationDirectory the configuration directory
 	 */
 	public static InstancesLoadResult restoreInstances( ManagedApplication ma ) {
 
 		File sourceFile = new File( ma.getDirectory(), Constants.PROJECT_DIR_INSTANCES + "/" + INSTANCES_FILE );
+		File journalFile = new File( sourceFile.getParentFile(), INSTANCES_JOURNAL_FILE );
 		Graphs graphs = ma.getApplication().getTemplate().getGraphs();
 		InstancesLoadResult result;
-		if( sourceFile.exists())
-			result = RuntimeModelIo.loadInstances( sourceFile, sourceFile.getParentFile(), graphs, ma.getApplication().getName());
-		else
-			result = new InstancesLoadResult();
+		synchronized( INSTANCES_LOCK ) {
+			if( sourceFile.exists())
+				result = RuntimeModelIo.loadInstances( sourceFile, sourceFile.getParentFile(), graphs, ma.getApplication().getName());
+			else
+				result = new InstancesLoadResult();
+
+			if( journalFile.exists())
+				replayInstancesJournal( journalFile, result.getRootInstances());
+		}
 
 		return result;
 	}
 
 
+	/**
+	 * Builds a journal entry.
+	 * <p>
+	 * An entry is a line made up of URL-encoded tokens: the instance path, the instance
+	 * state, then every data entry (key=value). It ends with {@value #JOURNAL_ENTRY_END},
+	 * which allows to ignore an entry that was not completely written.
+	 * </p>
+	 * <p>
+	 * Null values are written as "null", like in the instances file.
+	 * </p>
+	 *
+	 * @param instance an instance
+	 * @return a non-null string
+	 * @throws IOException
+	 */
+	static String buildJournalEntry( Instance instance ) throws IOException {
+
+		StringBuilder sb = new StringBuilder();
+		sb.append( URLEncoder.encode( InstanceHelpers.computeInstancePath( instance ), UTF_8 ));
+		sb.append( " " );
+		sb.append( instance.getStatus());
+
+		for( Map.Entry<String,String> entry : instance.data.entrySet()) {
+			sb.append( " " );
+			sb.append( URLEncoder.encode( entry.getKey(), UTF_8 ));
+			sb.append( "=" );
+			sb.append( URLEncoder.encode( String.valueOf( entry.getValue()), UTF_8 ));
+		}
+
+		sb.append( " " );
+		sb.append( JOURNAL_ENTRY_END );
+		sb.append( "\n" );
+
+		return sb.toString();
+	}
+
+
+	/**
+	 * Replays the instances journal.
+	 * <p>
+	 * Invalid entries (e.g. the last one if the DM was stopped abruptly) and
+	 * entries for instances that do not exist anymore are ignored.
+	 * </p>
+	 *
+	 * @param journalFile the journal file
+	 * @param rootInstances the root instances loaded from the instances file
+	 */
+	static void replayInstancesJournal( File journalFile, Collection<Instance> rootInstances ) {
+
+		Logger logger = Logger.getLogger( ConfigurationUtils.class.getName());
+		int replayed = 0;
+		try {
+			String content = Utils.readFileContent( journalFile );
+			for( String line : content.split( "\n" )) {
+
+				String[] parts = line.trim().split( " " );
+				if( parts.length < 3 || ! JOURNAL_ENTRY_END.equals( parts[ parts.length - 1 ]))
+					continue;
+
+				InstanceStatus status = InstanceStatus.exactStatus( parts[ 1 ]);
+				Instance instance = null;
+				String path = URLDecoder.decode( parts[ 0 ], UTF_8 );
+				for( Iterator<Instance> it = rootInstances.iterator(); it.hasNext() && instance == null; )
+					instance = InstanceHelpers.findInstanceByPath( it.next(), path );
+
+				if( instance == null || status == null )
+					continue;
+
+				Map<String,String> data = new HashMap<> ();
+				for( int i=2; i<parts.length - 1; i++ ) {
+					int index = parts[ i ].indexOf( '=' );
+					if( index > 0 )
+						data.put( URLDecoder.decode( parts[ i ].substring( 0, index ), UTF_8 ), URLDecoder.decode( parts[ i ].substring( index + 1 ), UTF_8 ));
+				}
+
+				instance.setStatus( status );
+				instance.data.clear();
+				instance.data.putAll( data );
+				replayed ++;
+			}
+
+		} catch( IOException | IllegalArgumentException e ) {
+			logger.severe( "Failed to replay the instances journal. " + e.getMessage());
+			Utils.logException( logger, e );
+		}
+
+		logger.fine( replayed + " entries were replayed from " + journalFile );
+	}
+
+
 	/**
 	 * Finds the icon associated with an application template.
 	 * @param name the application or template name
@@ -25,6 +25,8 @@
 
 package net.roboconf.dm.jmx;
 
+import java.util.List;
+
 /**
  * @author Vincent Zurczak - Linagora
  */
@@ -49,4 +51,24 @@ public interface ManagerMBean {
 	 * @return the total number of instances
 	 */
 	int getInstancesCount();
+
+	/**
+	 * @return the number of events that were not delivered to DM listeners (asynchronous notifications only)
+	 */
+	long getDroppedNotificationsCount();
+
+	/**
+	 * @return the number of events for which the DM had to wait because a listener's queue was full
+	 */
+	long getDelayedNotificationsCount();
+
+	/**
+	 * @return the number of instance changes that were merged with another one
+	 */
+	long getCoalescedNotificationsCount();
+
+	/**
+	 * @return a description of the queue of every DM listener (asynchronous notifications only)
+	 */
+	List<String> getNotificationQueues();
 }
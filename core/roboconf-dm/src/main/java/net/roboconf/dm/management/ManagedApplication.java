@@ -152,8 +152,11 @@ public class ManagedApplication {
 		List<Message> result = null;
 
 		// We reduce the spent time in the synchronized section.
+		// This method is invoked for every heart beat and, most of the time,
+		// there is no message to send (no need to compute the instance's hash).
 		synchronized( this.scopedInstanceToAwaitingMessages ) {
-			result = this.scopedInstanceToAwaitingMessages.remove( scopedInstance );
+			if( ! this.scopedInstanceToAwaitingMessages.isEmpty())
+				result = this.scopedInstanceToAwaitingMessages.remove( scopedInstance );
 		}
 
 		return result != null ? result : new ArrayList<Message>( 0 );
@@ -166,21 +169,27 @@ public class ManagedApplication {
 	 */
 	public void acknowledgeHeartBeat( Instance scopedInstance ) {
 
+		// Most heart beats do not change anything.
+		// So, only update the model on state transitions.
 		String count = scopedInstance.data.get( MISSED_HEARTBEATS );
-		if( count != null
-				&& Integer.parseInt( count ) > THRESHOLD )
-			this.logger.info( "Agent " + InstanceHelpers.computeInstancePath( scopedInstance ) + " is alive and reachable again." );
+		if( count != null ) {
+			if( Integer.parseInt( count ) > THRESHOLD )
+				this.logger.info( "Agent " + InstanceHelpers.computeInstancePath( scopedInstance ) + " is alive and reachable again." );
+
+			scopedInstance.data.remove( MISSED_HEARTBEATS );
+		}
 
 		// Store the moment the first ACK (without interruption) was received.
 		// If we were deploying, store it.
 		// If we were in problem, store it.
 		// If we were already deployed and started, do NOT override it.
-		if( scopedInstance.getStatus() != InstanceStatus.DEPLOYED_STARTED
-				|| ! scopedInstance.data.containsKey( Instance.RUNNING_FROM ))
+		if( scopedInstance.getStatus() != InstanceStatus.DEPLOYED_STARTED ) {
 			scopedInstance.data.put( Instance.RUNNING_FROM, String.valueOf( new Date().getTime()));
+			scopedInstance.setStatus( InstanceStatus.DEPLOYED_STARTED );
 
-		scopedInstance.setStatus( InstanceStatus.DEPLOYED_STARTED );
-		scopedInstance.data.remove( MISSED_HEARTBEATS );
+		} else if( ! scopedInstance.data.containsKey( Instance.RUNNING_FROM )) {
+			scopedInstance.data.put( Instance.RUNNING_FROM, String.valueOf( new Date().getTime()));
+		}
 	}
 
 
@@ -26,6 +26,7 @@
 package net.roboconf.dm.management;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Timer;
@@ -58,6 +59,7 @@ import net.roboconf.dm.internal.environment.messaging.RCDm;
 import net.roboconf.dm.internal.tasks.CheckerForHeartbeatsTask;
 import net.roboconf.dm.internal.tasks.CheckerForStoredMessagesTask;
 import net.roboconf.dm.internal.tasks.CheckerForTargetsConfigurationTask;
+import net.roboconf.dm.internal.tasks.FlusherForInstanceUpdatesTask;
 import net.roboconf.dm.internal.utils.ConfigurationUtils;
 import net.roboconf.dm.jmx.ManagerMBean;
 import net.roboconf.dm.management.api.IApplicationMngr;
@@ -105,10 +107,19 @@ public class Manager implements IReconfigurable, ManagerMBean {
 
 	// Constants
 	private static final long TIMER_PERIOD = 6000;
+	private static final long INSTANCES_FLUSH_PERIOD = 1000;
 
 	// Injected by iPojo or Admin Config
 	protected String messagingType;
 	protected String domain = Constants.DEFAULT_DOMAIN;
+	protected int messageProcessorLanes = 1;
+	protected int messageQueueCapacity = 0;
+	protected boolean messagePriorities = false;
+	protected boolean asyncNotifications = false;
+	protected int notificationsQueueSize = 1000;
+	protected String notificationsOverflowPolicies;
+	protected long notificationsCoalescingWindow = 0;
+	protected String notificationsCoalescingOptOut;
 	protected IPreferencesMngr preferencesMngr;
 	protected DataSource dataSource;
 
@@ -194,6 +205,9 @@ public class Manager implements IReconfigurable, ManagerMBean {
 
 		// Start the messaging
 		DmMessageProcessor messageProcessor = new DmMessageProcessor( this );
+		messageProcessor.setLanesCount( this.messageProcessorLanes );
+		messageProcessor.getMessageQueue().setCapacity( this.messageQueueCapacity );
+		messageProcessor.setPrioritiesEnabled( this.messagePriorities );
 		this.messagingClient = new RCDm( this.applicationMngr );
 		this.messagingClient.setDomain( this.domain );
 		this.messagingClient.associateMessageProcessor( messageProcessor );
@@ -210,6 +224,12 @@ public class Manager implements IReconfigurable, ManagerMBean {
 				new CheckerForHeartbeatsTask( this.applicationMngr, this.notificationMngr ),
 				0, Constants.HEARTBEAT_PERIOD );
 
+		// Instance updates are persisted in the background
+		this.instancesMngr.setWriteBehind( true );
+		this.timer.scheduleAtFixedRate(
+				new FlusherForInstanceUpdatesTask( this.instancesMngr ),
+				INSTANCES_FLUSH_PERIOD, INSTANCES_FLUSH_PERIOD );
+
 		// Configure the messaging
 		reconfigure();
 
@@ -221,6 +241,7 @@ public class Manager implements IReconfigurable, ManagerMBean {
 		restoreAllInstances();
 
 		// Enable notifications to listeners
+		configureNotifications();
 		this.notificationMngr.enableNotifications();
 
 		this.logger.info( "The DM was launched." );
@@ -242,7 +263,15 @@ public class Manager implements IReconfigurable, ManagerMBean {
 			this.timer =  null;
 		}
 
-		// Save the instances
+		// Stop processing messages before saving the instances.
+		// Processing lanes complete the messages they already received.
+		if( this.messagingClient != null ) {
+			this.messagingClient.getMessageProcessor().stopProcessor();
+			this.messagingClient.getMessageProcessor().interrupt();
+		}
+
+		// Save the instances (this compacts the instances journals)
+		this.instancesMngr.setWriteBehind( false );
 		for( ManagedApplication ma : this.applicationMngr.getManagedApplications())
 			ConfigurationUtils.saveInstances( ma );
 
@@ -261,8 +290,6 @@ public class Manager implements IReconfigurable, ManagerMBean {
 				this.logger.log( Level.WARNING, "Cannot stop to listen to the debug queue", e );
 			}
 
-			this.messagingClient.getMessageProcessor().stopProcessor();
-			this.messagingClient.getMessageProcessor().interrupt();
 			try {
 				this.messagingClient.closeConnection();
 
@@ -272,6 +299,9 @@ public class Manager implements IReconfigurable, ManagerMBean {
 			}
 		}
 
+		// Stop the threads that notify listeners
+		this.notificationMngr.stop();
+
 		this.logger.info( "The DM was stopped." );
 	}
 
@@ -408,6 +438,102 @@ public class Manager implements IReconfigurable, ManagerMBean {
 	}
 
 
+	/**
+	 * Sets the number of lanes used to process messages from agents.
+	 * <p>
+	 * This value is only read when the DM starts. Only messages that do not
+	 * modify the model (e.g. logs) are processed in parallel.
+	 * </p>
+	 *
+	 * @param messageProcessorLanes the number of processing lanes
+	 */
+	public void setMessageProcessorLanes( int messageProcessorLanes ) {
+		this.messageProcessorLanes = messageProcessorLanes;
+		this.logger.fine( "Message processor lanes set to " + messageProcessorLanes );
+	}
+
+
+	/**
+	 * Sets the capacity of the queue that stores messages from agents.
+	 * <p>
+	 * This value is only read when the DM starts.
+	 * </p>
+	 *
+	 * @param messageQueueCapacity the maximum number of pending messages (0 or less for no limit)
+	 * @see net.roboconf.messaging.api.jmx.RoboconfMessageQueue#setCapacity(int)
+	 */
+	public void setMessageQueueCapacity( int messageQueueCapacity ) {
+		this.messageQueueCapacity = messageQueueCapacity;
+		this.logger.fine( "Message queue capacity set to " + messageQueueCapacity );
+	}
+
+
+	/**
+	 * Enables or disables priorities when processing messages from agents.
+	 * <p>
+	 * This value is only read when the DM starts.
+	 * </p>
+	 *
+	 * @param messagePriorities true to process heart beats and echo messages before logs
+	 * @see net.roboconf.messaging.api.AbstractMessageProcessor#setPrioritiesEnabled(boolean)
+	 */
+	public void setMessagePriorities( boolean messagePriorities ) {
+		this.messagePriorities = messagePriorities;
+		this.logger.fine( "Message priorities set to " + messagePriorities );
+	}
+
+
+	/**
+	 * @param asyncNotifications true to notify DM listeners asynchronously
+	 */
+	public void setAsyncNotifications( boolean asyncNotifications ) {
+		this.asyncNotifications = asyncNotifications;
+		this.logger.fine( "Asynchronous notifications set to " + asyncNotifications );
+		configureNotifications();
+	}
+
+
+	/**
+	 * @param notificationsQueueSize the maximum number of pending events per DM listener
+	 */
+	public void setNotificationsQueueSize( int notificationsQueueSize ) {
+		this.notificationsQueueSize = notificationsQueueSize;
+		this.logger.fine( "Notifications queue size set to " + notificationsQueueSize );
+		configureNotifications();
+	}
+
+
+	/**
+	 * @param notificationsOverflowPolicies the overflow policies of DM listeners
+	 * @see NotificationMngrImpl#configureAsyncDispatch(boolean, int, String)
+	 */
+	public void setNotificationsOverflowPolicies( String notificationsOverflowPolicies ) {
+		this.notificationsOverflowPolicies = notificationsOverflowPolicies;
+		this.logger.fine( "Notifications overflow policies set to " + notificationsOverflowPolicies );
+		configureNotifications();
+	}
+
+
+	/**
+	 * @param notificationsCoalescingWindow the time window (in milliseconds) to merge changes of a same instance (0 to disable)
+	 */
+	public void setNotificationsCoalescingWindow( long notificationsCoalescingWindow ) {
+		this.notificationsCoalescingWindow = notificationsCoalescingWindow;
+		this.logger.fine( "Notifications coalescing window set to " + notificationsCoalescingWindow );
+		configureNotifications();
+	}
+
+
+	/**
+	 * @param notificationsCoalescingOptOut a comma-separated list of IDs of DM listeners that need every instance change
+	 */
+	public void setNotificationsCoalescingOptOut( String notificationsCoalescingOptOut ) {
+		this.notificationsCoalescingOptOut = notificationsCoalescingOptOut;
+		this.logger.fine( "Notifications coalescing opt-out set to " + notificationsCoalescingOptOut );
+		configureNotifications();
+	}
+
+
 	/**
 	 * @param preferencesMngr the preferencesMngr to set
 	 */
@@ -577,6 +703,30 @@ public class Manager implements IReconfigurable, ManagerMBean {
 	}
 
 
+	@Override
+	public long getDroppedNotificationsCount() {
+		return this.notificationMngr.getDroppedEventsCount();
+	}
+
+
+	@Override
+	public long getDelayedNotificationsCount() {
+		return this.notificationMngr.getDelayedEventsCount();
+	}
+
+
+	@Override
+	public long getCoalescedNotificationsCount() {
+		return this.notificationMngr.getCoalescedEventsCount();
+	}
+
+
+	@Override
+	public List<String> getNotificationQueues() {
+		return Arrays.asList( this.notificationMngr.getListenerQueues());
+	}
+
+
 	@Override
 	public int getApplicationTemplateCount() {
 		return this.applicationTemplateMngr.getApplicationTemplates().size();
@@ -635,4 +785,19 @@ public class Manager implements IReconfigurable, ManagerMBean {
 		for( ManagedApplication ma : this.applicationMngr.getManagedApplications())
 			instancesMngr().restoreInstanceStates( ma, targetHandler );
 	}
+
+
+	/**
+	 * Applies the notification settings.
+	 */
+	private void configureNotifications() {
+		this.notificationMngr.configureAsyncDispatch(
+				this.asyncNotifications,
+				this.notificationsQueueSize,
+				this.notificationsOverflowPolicies );
+
+		this.notificationMngr.configureCoalescing(
+				this.notificationsCoalescingWindow,
+				this.notificationsCoalescingOptOut );
+	}
 }
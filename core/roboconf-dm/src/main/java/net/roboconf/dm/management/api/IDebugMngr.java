@@ -25,8 +25,12 @@
 
 package net.roboconf.dm.management.api;
 
+import java.util.Map;
+
 import net.roboconf.core.model.beans.Instance;
 import net.roboconf.dm.management.ManagedApplication;
+import net.roboconf.messaging.api.jmx.MessagingApiMBean;
+import net.roboconf.messaging.api.jmx.RoboconfMessageQueue;
 import net.roboconf.messaging.api.messages.from_dm_to_dm.MsgEcho;
 
 /**
@@ -55,4 +59,24 @@ public interface IDebugMngr {
 	 * @param message an ECHO message
 	 */
 	void notifyMsgEchoReceived( MsgEcho message );
+
+	/**
+	 * Gets the latencies of the messages received by the DM.
+	 * <p>
+	 * See {@link RoboconfMessageQueue#getLatencies()}.
+	 * </p>
+	 *
+	 * @return a non-null map (empty if the messaging is not ready)
+	 */
+	Map<String,Map<String,Long>> getMessageLatencies();
+
+	/**
+	 * Gets the metrics of the DM's messaging client.
+	 * <p>
+	 * See {@link MessagingApiMBean#getMetricsAsText()}.
+	 * </p>
+	 *
+	 * @return metrics in the Prometheus text format (empty if the messaging is not ready)
+	 */
+	String getMessagingMetrics();
 }
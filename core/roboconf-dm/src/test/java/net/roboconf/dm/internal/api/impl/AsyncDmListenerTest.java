@@ -0,0 +1,301 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.dm.internal.api.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.roboconf.core.model.beans.Application;
+import net.roboconf.core.model.beans.ApplicationTemplate;
+import net.roboconf.core.model.beans.Instance;
+import net.roboconf.core.model.runtime.EventType;
+import net.roboconf.dm.internal.api.impl.AsyncDmListener.OverflowPolicy;
+import net.roboconf.dm.management.events.IDmListener;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class AsyncDmListenerTest {
+
+	private final Application app = new Application( "app", new ApplicationTemplate());
+	private final List<AsyncDmListener> toStop = new ArrayList<> ();
+
+
+	@After
+	public void stopListeners() {
+		for( AsyncDmListener listener : this.toStop )
+			listener.stop( false );
+	}
+
+
+	@Test
+	public void testWhichPolicy() {
+
+		Assert.assertEquals( OverflowPolicy.BLOCK, OverflowPolicy.whichPolicy( "block" ));
+		Assert.assertEquals( OverflowPolicy.DROP_OLDEST, OverflowPolicy.whichPolicy( " drop-oldest " ));
+		Assert.assertEquals( OverflowPolicy.DROP_OLDEST, OverflowPolicy.whichPolicy( "DROP_OLDEST" ));
+		Assert.assertNull( OverflowPolicy.whichPolicy( "coalesce" ));
+		Assert.assertNull( OverflowPolicy.whichPolicy( "whatever" ));
+		Assert.assertNull( OverflowPolicy.whichPolicy( null ));
+	}
+
+
+	@Test
+	public void testDeliveryInOrder() throws Exception {
+
+		RecordingListener delegate = new RecordingListener( null );
+		AsyncDmListener listener = newListener( delegate, 10, OverflowPolicy.BLOCK );
+		Assert.assertSame( delegate, listener.getDelegate());
+		Assert.assertEquals( "recording", listener.getId());
+
+		listener.enableNotifications();
+		listener.application( this.app, EventType.CREATED );
+		listener.applicationTemplate( this.app.getTemplate(), EventType.CHANGED );
+		listener.instance( new Instance( "inst" ), this.app, EventType.CHANGED );
+		listener.raw( "hello" );
+		listener.disableNotifications();
+
+		delegate.waitFor( 6 );
+		Assert.assertEquals(
+				"[enable, application app CREATED, template CHANGED, instance /inst CHANGED, raw hello, disable]",
+				delegate.events.toString());
+
+		Assert.assertEquals( 4, listener.dispatchedCount.get());
+		Assert.assertEquals( 0, listener.droppedCount.get());
+		Assert.assertEquals( 0, listener.delayedCount.get());
+	}
+
+
+	@Test
+	public void testDropOldest() throws Exception {
+
+		CountDownLatch gate = new CountDownLatch( 1 );
+		RecordingListener delegate = new RecordingListener( gate );
+		AsyncDmListener listener = newListener( delegate, 2, OverflowPolicy.DROP_OLDEST );
+
+		// The first event blocks the delegate
+		listener.raw( "0" );
+		Assert.assertTrue( delegate.blocked.await( 5, TimeUnit.SECONDS ));
+
+		for( int i=1; i<6; i++ )
+			listener.raw( String.valueOf( i ));
+
+		Assert.assertEquals( 2, listener.getQueueSize());
+		Assert.assertEquals( 3, listener.droppedCount.get());
+
+		gate.countDown();
+		delegate.waitFor( 3 );
+		Assert.assertEquals( "[raw 0, raw 4, raw 5]", delegate.events.toString());
+		Assert.assertEquals( 0, listener.delayedCount.get());
+	}
+
+
+	@Test
+	public void testBlock() throws Exception {
+
+		CountDownLatch gate = new CountDownLatch( 1 );
+		RecordingListener delegate = new RecordingListener( gate );
+		final AsyncDmListener listener = newListener( delegate, 1, OverflowPolicy.BLOCK );
+
+		listener.raw( "0" );
+		Assert.assertTrue( delegate.blocked.await( 5, TimeUnit.SECONDS ));
+		listener.raw( "1" );
+
+		// This one has to wait
+		Thread notifier = new Thread() {
+			@Override
+			public void run() {
+				listener.raw( "2" );
+			}
+		};
+
+		notifier.start();
+		for( int i=0; i<100 && listener.delayedCount.get() == 0; i++ )
+			Thread.sleep( 20 );
+
+		Assert.assertEquals( 1, listener.delayedCount.get());
+		Assert.assertTrue( notifier.isAlive());
+
+		gate.countDown();
+		notifier.join( 5000 );
+		Assert.assertFalse( notifier.isAlive());
+
+		delegate.waitFor( 3 );
+		Assert.assertEquals( "[raw 0, raw 1, raw 2]", delegate.events.toString());
+		Assert.assertEquals( 0, listener.droppedCount.get());
+	}
+
+
+	@Test
+	public void testStop() throws Exception {
+
+		// Drain
+		CountDownLatch gate = new CountDownLatch( 1 );
+		RecordingListener delegate = new RecordingListener( gate );
+		AsyncDmListener listener = newListener( delegate, 10, OverflowPolicy.BLOCK );
+
+		listener.raw( "0" );
+		Assert.assertTrue( delegate.blocked.await( 5, TimeUnit.SECONDS ));
+		listener.raw( "1" );
+		listener.stop( true );
+		listener.raw( "2" );
+
+		gate.countDown();
+		delegate.waitFor( 2 );
+		Assert.assertEquals( "[raw 0, raw 1]", delegate.events.toString());
+		Assert.assertEquals( 1, listener.droppedCount.get());
+
+		// Immediate stop
+		gate = new CountDownLatch( 1 );
+		delegate = new RecordingListener( gate );
+		listener = newListener( delegate, 10, OverflowPolicy.BLOCK );
+
+		listener.raw( "0" );
+		Assert.assertTrue( delegate.blocked.await( 5, TimeUnit.SECONDS ));
+		listener.raw( "1" );
+		listener.stop( false );
+
+		gate.countDown();
+		delegate.waitFor( 1 );
+		Thread.sleep( 100 );
+		Assert.assertEquals( "[raw 0]", delegate.events.toString());
+		Assert.assertEquals( 1, listener.droppedCount.get());
+	}
+
+
+	@Test
+	public void testListenerFailure() throws Exception {
+
+		RecordingListener delegate = new RecordingListener( null ) {
+			@Override
+			public void raw( String message, Object... data ) {
+				super.raw( message, data );
+				throw new RuntimeException( "for test" );
+			}
+		};
+
+		AsyncDmListener listener = newListener( delegate, 10, OverflowPolicy.BLOCK );
+		listener.raw( "0" );
+		listener.raw( "1" );
+		delegate.waitFor( 2 );
+		Assert.assertEquals( "[raw 0, raw 1]", delegate.events.toString());
+	}
+
+
+	private AsyncDmListener newListener( IDmListener delegate, int capacity, OverflowPolicy policy ) {
+		AsyncDmListener result = new AsyncDmListener( delegate, capacity, policy );
+		this.toStop.add( result );
+		return result;
+	}
+
+
+	/**
+	 * A listener that records events, and that can block on the first one.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	static class RecordingListener implements IDmListener {
+
+		final List<String> events = Collections.synchronizedList( new ArrayList<String> ());
+		final CountDownLatch blocked = new CountDownLatch( 1 );
+		private final CountDownLatch gate;
+		String id = "recording";
+
+
+		/**
+		 * Constructor.
+		 * @param gate a latch the first event waits for (can be null)
+		 */
+		RecordingListener( CountDownLatch gate ) {
+			this.gate = gate;
+		}
+
+
+		void waitFor( int count ) throws InterruptedException {
+			for( int i=0; i<250 && this.events.size() < count; i++ )
+				Thread.sleep( 20 );
+
+			Assert.assertEquals( count, this.events.size());
+		}
+
+
+		private void record( String event ) {
+
+			this.events.add( event );
+			this.blocked.countDown();
+			if( this.gate != null ) {
+				try {
+					this.gate.await( 10, TimeUnit.SECONDS );
+
+				} catch( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+
+		@Override
+		public String getId() {
+			return this.id;
+		}
+
+		@Override
+		public void enableNotifications() {
+			record( "enable" );
+		}
+
+		@Override
+		public void disableNotifications() {
+			record( "disable" );
+		}
+
+		@Override
+		public void application( Application application, EventType eventType ) {
+			record( "application " + application.getName() + " " + eventType );
+		}
+
+		@Override
+		public void applicationTemplate( ApplicationTemplate tpl, EventType eventType ) {
+			record( "template " + eventType );
+		}
+
+		@Override
+		public void instance( Instance instance, Application application, EventType eventType ) {
+			record( "instance " + instance.getPath() + " " + eventType );
+		}
+
+		@Override
+		public void raw( String message, Object... data ) {
+			record( "raw " + message );
+		}
+	}
+}
@@ -25,6 +25,7 @@
 
 package net.roboconf.dm.internal.api.impl;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -42,16 +43,19 @@ import org.mockito.Mockito;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import net.roboconf.core.Constants;
 import net.roboconf.core.internal.tests.TestApplication;
 import net.roboconf.core.model.beans.Application;
 import net.roboconf.core.model.beans.Instance;
 import net.roboconf.core.model.beans.Instance.InstanceStatus;
 import net.roboconf.core.model.helpers.InstanceHelpers;
 import net.roboconf.core.model.runtime.EventType;
+import net.roboconf.core.utils.Utils;
 import net.roboconf.dm.internal.api.IRandomMngr;
 import net.roboconf.dm.internal.api.ITargetConfigurator;
 import net.roboconf.dm.internal.api.impl.beans.TargetPropertiesImpl;
 import net.roboconf.dm.internal.test.TestTargetResolver;
+import net.roboconf.dm.internal.utils.ConfigurationUtils;
 import net.roboconf.dm.management.ManagedApplication;
 import net.roboconf.dm.management.api.IConfigurationMngr;
 import net.roboconf.dm.management.api.IInstancesMngr;
@@ -97,6 +101,92 @@ public class InstancesMngrImplTest {
 	}
 
 
+	@Test
+	public void testInstanceWasUpdated_writeBehind() throws Exception {
+
+		INotificationMngr notificationMngr = Mockito.mock( INotificationMngr.class );
+		InstancesMngrImpl mngr = new InstancesMngrImpl(
+				Mockito.mock( IMessagingMngr.class ), notificationMngr,
+				Mockito.mock( ITargetsMngr.class ), Mockito.mock( IRandomMngr.class ),
+				Mockito.mock( ITargetConfigurator.class ));
+
+		TestApplication app = new TestApplication();
+		app.setDirectory( this.folder.newFolder());
+		ManagedApplication ma = new ManagedApplication( app );
+
+		File instancesFile = new File( app.getDirectory(), Constants.PROJECT_DIR_INSTANCES + "/" + ConfigurationUtils.INSTANCES_FILE );
+		File journalFile = new File( app.getDirectory(), Constants.PROJECT_DIR_INSTANCES + "/" + ConfigurationUtils.INSTANCES_JOURNAL_FILE );
+
+		// By default, updates are saved immediately
+		mngr.instanceWasUpdated( app.getMySqlVm(), ma );
+		Assert.assertTrue( instancesFile.exists());
+		Assert.assertFalse( journalFile.exists());
+		Utils.deleteFilesRecursively( instancesFile );
+
+		// With write-behind, they are coalesced and journaled on flushes
+		mngr.setWriteBehind( true );
+		for( int i=0; i<10; i++ ) {
+			app.getMySqlVm().data.put( "count", String.valueOf( i ));
+			mngr.instanceWasUpdated( app.getMySqlVm(), ma );
+		}
+
+		Assert.assertFalse( instancesFile.exists());
+		Assert.assertFalse( journalFile.exists());
+		Mockito.verify( notificationMngr, Mockito.times( 11 )).instance( app.getMySqlVm(), app, EventType.CHANGED );
+
+		mngr.flushInstanceUpdates();
+		Assert.assertFalse( instancesFile.exists());
+		Assert.assertTrue( journalFile.exists());
+		Assert.assertEquals( 1, Utils.readFileContent( journalFile ).split( "\n" ).length );
+
+		// Nothing pending
+		long length = journalFile.length();
+		mngr.flushInstanceUpdates();
+		Assert.assertEquals( length, journalFile.length());
+
+		// Disabling write-behind flushes pending updates
+		mngr.instanceWasUpdated( app.getTomcatVm(), ma );
+		mngr.setWriteBehind( false );
+		Assert.assertEquals( 2, Utils.readFileContent( journalFile ).split( "\n" ).length );
+	}
+
+
+	@Test
+	public void testInstanceWasUpdated_writeBehind_failedFlush() throws Exception {
+
+		InstancesMngrImpl mngr = new InstancesMngrImpl(
+				Mockito.mock( IMessagingMngr.class ), Mockito.mock( INotificationMngr.class ),
+				Mockito.mock( ITargetsMngr.class ), Mockito.mock( IRandomMngr.class ),
+				Mockito.mock( ITargetConfigurator.class ));
+
+		TestApplication app = new TestApplication();
+		app.setDirectory( this.folder.newFolder());
+		ManagedApplication ma = new ManagedApplication( app );
+		File journalFile = new File( app.getDirectory(), Constants.PROJECT_DIR_INSTANCES + "/" + ConfigurationUtils.INSTANCES_JOURNAL_FILE );
+
+		// Null values are journaled
+		mngr.setWriteBehind( true );
+		app.getMySqlVm().data.put( Instance.IP_ADDRESS, null );
+		mngr.instanceWasUpdated( app.getMySqlVm(), ma );
+		mngr.flushInstanceUpdates();
+		Assert.assertTrue( journalFile.exists());
+		Assert.assertTrue( Utils.readFileContent( journalFile ).contains( Instance.IP_ADDRESS + "=null" ));
+		Utils.deleteFilesRecursively( journalFile );
+
+		// The journal cannot be written, updates are kept for the next flush
+		Utils.createDirectory( journalFile );
+		mngr.instanceWasUpdated( app.getTomcatVm(), ma );
+		mngr.flushInstanceUpdates();
+		Assert.assertTrue( journalFile.isDirectory());
+
+		Utils.deleteFilesRecursively( journalFile );
+		mngr.flushInstanceUpdates();
+		Assert.assertTrue( journalFile.isFile());
+		Assert.assertEquals( 1, Utils.readFileContent( journalFile ).split( "\n" ).length );
+		Assert.assertTrue( Utils.readFileContent( journalFile ).contains( "tomcat-vm" ));
+	}
+
+
 	@Test
 	public void testNotificationsWhenUndeployingScopedInstances_changeInstanceState() throws Exception {
 
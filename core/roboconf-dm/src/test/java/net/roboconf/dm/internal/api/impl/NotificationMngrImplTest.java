@@ -25,10 +25,18 @@
 
 package net.roboconf.dm.internal.api.impl;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import net.roboconf.core.model.beans.Application;
+import net.roboconf.core.model.beans.ApplicationTemplate;
+import net.roboconf.core.model.beans.Instance;
+import net.roboconf.core.model.helpers.InstanceHelpers;
+import net.roboconf.core.model.runtime.EventType;
 import net.roboconf.dm.management.events.IDmListener;
 
 /**
@@ -88,4 +96,224 @@ public class NotificationMngrImplTest {
 		Mockito.verify( listener1, Mockito.only()).disableNotifications();
 		Mockito.verify( listener2, Mockito.only()).disableNotifications();
 	}
+
+
+	@Test
+	public void testAsyncDispatch() throws Exception {
+
+		NotificationMngrImpl mngr = new NotificationMngrImpl();
+		AsyncDmListenerTest.RecordingListener listener = new AsyncDmListenerTest.RecordingListener( null );
+		Application app = new Application( "app", new ApplicationTemplate());
+
+		mngr.configureAsyncDispatch( true, 10, "recording = drop-oldest, other = block, invalid, * = whatever" );
+		try {
+			mngr.addListener( listener );
+			mngr.enableNotifications();
+			mngr.instance( new Instance( "inst" ), app, EventType.CREATED );
+			listener.waitFor( 2 );
+			Assert.assertEquals( "[enable, instance /inst CREATED]", listener.events.toString());
+
+			String[] queues = mngr.getListenerQueues();
+			Assert.assertEquals( 1, queues.length );
+			Assert.assertTrue( queues[ 0 ], queues[ 0 ].startsWith( "recording: policy=DROP_OLDEST, pending=0, dispatched=1, dropped=0" ));
+			Assert.assertEquals( 0, mngr.getDroppedEventsCount());
+			Assert.assertEquals( 0, mngr.getDelayedEventsCount());
+
+			// Same settings, same queue
+			mngr.configureAsyncDispatch( true, 10, "recording = drop-oldest" );
+			Assert.assertEquals( queues[ 0 ], mngr.getListenerQueues()[ 0 ]);
+
+			// Default policy
+			mngr.configureAsyncDispatch( true, 5, null );
+			queues = mngr.getListenerQueues();
+			Assert.assertEquals( 1, queues.length );
+			Assert.assertTrue( queues[ 0 ], queues[ 0 ].startsWith( "recording: policy=DROP_OLDEST, pending=0, dispatched=0" ));
+
+			// Back to synchronous notifications
+			mngr.configureAsyncDispatch( false, 5, null );
+			Assert.assertEquals( 0, mngr.getListenerQueues().length );
+
+			mngr.raw( "hello" );
+			Assert.assertEquals( "[enable, instance /inst CREATED, raw hello]", listener.events.toString());
+
+		} finally {
+			mngr.removeListener( listener );
+		}
+	}
+
+
+	@Test
+	public void testStop() throws Exception {
+
+		NotificationMngrImpl mngr = new NotificationMngrImpl();
+		AsyncDmListenerTest.RecordingListener listener = new AsyncDmListenerTest.RecordingListener( null );
+
+		mngr.configureAsyncDispatch( true, 10, null );
+		try {
+			mngr.addListener( listener );
+			mngr.enableNotifications();
+			mngr.disableNotifications();
+			Assert.assertEquals( 1, mngr.getListenerQueues().length );
+
+			// Pending events are delivered
+			mngr.stop();
+			Assert.assertEquals( 0, mngr.getListenerQueues().length );
+			listener.waitFor( 2 );
+			Assert.assertEquals( "[enable, disable]", listener.events.toString());
+
+			// Asynchronous listeners are created again on the next configuration
+			mngr.configureAsyncDispatch( true, 10, null );
+			Assert.assertEquals( 1, mngr.getListenerQueues().length );
+
+		} finally {
+			mngr.stop();
+			mngr.removeListener( listener );
+		}
+	}
+
+
+	@Test
+	public void testCoalescing() throws Exception {
+
+		NotificationMngrImpl mngr = new NotificationMngrImpl();
+		AsyncDmListenerTest.RecordingListener listener = new AsyncDmListenerTest.RecordingListener( null );
+		AsyncDmListenerTest.RecordingListener everyChangeListener = new AsyncDmListenerTest.RecordingListener( null );
+		everyChangeListener.id = "every-change";
+
+		Application app = new Application( "app", new ApplicationTemplate());
+		Instance inst1 = new Instance( "inst1" );
+		Instance inst2 = new Instance( "inst2" );
+
+		mngr.configureCoalescing( 60000, "every-change, other" );
+		try {
+			mngr.addListener( listener );
+			mngr.addListener( everyChangeListener );
+
+			for( int i=0; i<5; i++ ) {
+				mngr.instance( inst1, app, EventType.CHANGED );
+				mngr.instance( inst2, app, EventType.CHANGED );
+			}
+
+			// Listeners that opted out get every change
+			Assert.assertEquals( 10, everyChangeListener.events.size());
+			Assert.assertEquals( 0, listener.events.size());
+			Assert.assertEquals( 8, mngr.getCoalescedEventsCount());
+
+			// Creations and deletions are delivered right away, and discard pending changes
+			mngr.instance( inst2, app, EventType.DELETED );
+			Assert.assertEquals( "[instance /inst2 DELETED]", listener.events.toString());
+
+			// Pending changes are delivered when notifications are disabled
+			mngr.disableNotifications();
+			Assert.assertEquals( "[instance /inst2 DELETED, instance /inst1 CHANGED, disable]", listener.events.toString());
+
+			// Short window
+			listener.events.clear();
+			mngr.configureCoalescing( 50, null );
+			mngr.instance( inst1, app, EventType.CHANGED );
+			mngr.instance( inst1, app, EventType.CHANGED );
+			listener.waitFor( 1 );
+			Assert.assertEquals( "[instance /inst1 CHANGED]", listener.events.toString());
+
+			// Stopping the manager disables the merging
+			listener.events.clear();
+			mngr.stop();
+			mngr.instance( inst1, app, EventType.CHANGED );
+			Assert.assertEquals( 1, listener.events.size());
+
+			// No merging
+			listener.events.clear();
+			mngr.configureCoalescing( 0, null );
+			mngr.instance( inst1, app, EventType.CHANGED );
+			mngr.instance( inst1, app, EventType.CHANGED );
+			Assert.assertEquals( 2, listener.events.size());
+
+		} finally {
+			mngr.configureCoalescing( 0, null );
+			mngr.removeListener( listener );
+			mngr.removeListener( everyChangeListener );
+		}
+	}
+
+
+	@Test
+	public void testCoalescing_deletionsDiscardPendingChanges() throws Exception {
+
+		NotificationMngrImpl mngr = new NotificationMngrImpl();
+		AsyncDmListenerTest.RecordingListener listener = new AsyncDmListenerTest.RecordingListener( null );
+
+		Application app = new Application( "app", new ApplicationTemplate());
+		Application otherApp = new Application( "other", new ApplicationTemplate());
+		Instance parent = new Instance( "parent" );
+		Instance child = new Instance( "child" );
+		InstanceHelpers.insertChild( parent, child );
+		Instance other = new Instance( "other" );
+
+		mngr.configureCoalescing( 60000, null );
+		try {
+			mngr.addListener( listener );
+
+			// Deleting an instance discards the changes of its children
+			mngr.instance( child, app, EventType.CHANGED );
+			mngr.instance( other, app, EventType.CHANGED );
+			mngr.instance( parent, app, EventType.DELETED );
+			Assert.assertEquals( 1, mngr.coalescer.getPendingChangesCount());
+
+			// Deleting an application discards the changes of its instances
+			mngr.instance( other, otherApp, EventType.CHANGED );
+			Assert.assertEquals( 2, mngr.coalescer.getPendingChangesCount());
+			mngr.application( app, EventType.DELETED );
+			Assert.assertEquals( 1, mngr.coalescer.getPendingChangesCount());
+
+			listener.events.clear();
+			mngr.disableNotifications();
+			Assert.assertEquals( "[instance /other CHANGED, disable]", listener.events.toString());
+
+		} finally {
+			mngr.configureCoalescing( 0, null );
+			mngr.removeListener( listener );
+		}
+	}
+
+
+	@Test
+	public void testCoalescing_mergedChangesAreNotDeliveredAfterMoreRecentEvents() throws Exception {
+
+		final NotificationMngrImpl mngr = new NotificationMngrImpl();
+		CountDownLatch gate = new CountDownLatch( 1 );
+		AsyncDmListenerTest.RecordingListener listener = new AsyncDmListenerTest.RecordingListener( gate );
+
+		final Application app = new Application( "app", new ApplicationTemplate());
+		final Instance inst = new Instance( "inst" );
+
+		mngr.addListener( listener );
+		mngr.configureCoalescing( 50, null );
+		try {
+			// The merged change is being delivered by the coalescer's thread
+			mngr.instance( inst, app, EventType.CHANGED );
+			Assert.assertTrue( listener.blocked.await( 5, TimeUnit.SECONDS ));
+
+			// Meanwhile, the instance is deleted
+			Thread notifier = new Thread() {
+				@Override
+				public void run() {
+					mngr.instance( inst, app, EventType.DELETED );
+				}
+			};
+
+			notifier.start();
+			Thread.sleep( 100 );
+			Assert.assertEquals( "[instance /inst CHANGED]", listener.events.toString());
+
+			// The deletion is delivered once the merged change was
+			gate.countDown();
+			notifier.join( 5000 );
+			Assert.assertEquals( "[instance /inst CHANGED, instance /inst DELETED]", listener.events.toString());
+
+		} finally {
+			gate.countDown();
+			mngr.configureCoalescing( 0, null );
+			mngr.removeListener( listener );
+		}
+	}
 }
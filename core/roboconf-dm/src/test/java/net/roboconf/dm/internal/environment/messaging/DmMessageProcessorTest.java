@@ -346,6 +346,31 @@ public class DmMessageProcessorTest {
 	}
 
 
+	@Test
+	public void testMsgNotifHeartbeat_registry() {
+
+		this.app.getMySqlVm().setStatus( InstanceStatus.PROBLEM );
+		MsgNotifHeartbeat msg = new MsgNotifHeartbeat( this.app.getName(), this.app.getMySqlVm(), "192.168.1.45" );
+		Assert.assertEquals( 0, this.processor.heartbeatRegistry.size());
+
+		this.processor.processMessage( msg );
+		Assert.assertEquals( InstanceStatus.DEPLOYED_STARTED, this.app.getMySqlVm().getStatus());
+		Assert.assertEquals( 1, this.processor.heartbeatRegistry.size());
+
+		// The cached instance is used
+		this.app.getMySqlVm().setStatus( InstanceStatus.PROBLEM );
+		this.processor.processMessage( msg );
+		Assert.assertEquals( InstanceStatus.DEPLOYED_STARTED, this.app.getMySqlVm().getStatus());
+		Assert.assertEquals( 1, this.processor.heartbeatRegistry.size());
+
+		// Not deployed instances are resolved again
+		this.app.getMySqlVm().setStatus( InstanceStatus.NOT_DEPLOYED );
+		this.processor.processMessage( msg );
+		Assert.assertEquals( InstanceStatus.DEPLOYED_STARTED, this.app.getMySqlVm().getStatus());
+		Assert.assertEquals( 1, this.processor.heartbeatRegistry.size());
+	}
+
+
 	@Test
 	public void testMsgNotifHeartbeat_invalidApplication() {
 
@@ -368,6 +393,16 @@ public class DmMessageProcessorTest {
 	}
 
 
+	@Test
+	public void testCanProcessInParallel() {
+
+		Assert.assertTrue( this.processor.canProcessInParallel( new MsgNotifLogs( "app", "/vm", null )));
+		Assert.assertFalse( this.processor.canProcessInParallel( new MsgNotifHeartbeat( "app", "/vm", "192.168.1.45" )));
+		Assert.assertFalse( this.processor.canProcessInParallel( new MsgNotifMachineDown( "app", "/vm" )));
+		Assert.assertFalse( this.processor.canProcessInParallel( new MsgEcho( "echo" )));
+	}
+
+
 	@Test
 	public void testMsg_unknownMessage() {
 
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.dm.internal.environment.messaging;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.roboconf.core.internal.tests.TestApplication;
+import net.roboconf.core.model.beans.Instance.InstanceStatus;
+import net.roboconf.core.model.helpers.InstanceHelpers;
+import net.roboconf.dm.internal.environment.messaging.HeartbeatRegistry.HeartbeatEntry;
+import net.roboconf.dm.management.ManagedApplication;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class HeartbeatRegistryTest {
+
+	@Test
+	public void testFindAndRegister() {
+
+		TestApplication app = new TestApplication();
+		ManagedApplication ma = new ManagedApplication( app );
+		String path = InstanceHelpers.computeInstancePath( app.getMySqlVm());
+		HeartbeatRegistry registry = new HeartbeatRegistry();
+
+		Assert.assertNull( registry.find( ma, app.getName(), path ));
+		Assert.assertNull( registry.find( ma, null, path ));
+		Assert.assertNull( registry.find( null, app.getName(), path ));
+
+		app.getMySqlVm().setStatus( InstanceStatus.DEPLOYED_STARTED );
+		HeartbeatEntry entry = registry.register( ma, path, app.getMySqlVm());
+		Assert.assertEquals( 1, registry.size());
+		Assert.assertSame( entry, registry.find( ma, app.getName(), path ));
+		Assert.assertSame( app.getMySqlVm(), entry.scopedInstance );
+		Assert.assertNull( registry.find( ma, app.getName(), null ));
+		Assert.assertNull( registry.find( ma, app.getName(), "/whatever" ));
+	}
+
+
+	@Test
+	public void testInvalidation_notDeployed() {
+
+		TestApplication app = new TestApplication();
+		ManagedApplication ma = new ManagedApplication( app );
+		String path = InstanceHelpers.computeInstancePath( app.getMySqlVm());
+		HeartbeatRegistry registry = new HeartbeatRegistry();
+
+		app.getMySqlVm().setStatus( InstanceStatus.PROBLEM );
+		registry.register( ma, path, app.getMySqlVm());
+		Assert.assertNotNull( registry.find( ma, app.getName(), path ));
+
+		app.getMySqlVm().setStatus( InstanceStatus.NOT_DEPLOYED );
+		Assert.assertNull( registry.find( ma, app.getName(), path ));
+		Assert.assertEquals( 0, registry.size());
+	}
+
+
+	@Test
+	public void testInvalidation_applicationWasReplaced() {
+
+		TestApplication app = new TestApplication();
+		ManagedApplication ma = new ManagedApplication( app );
+		String path = InstanceHelpers.computeInstancePath( app.getMySqlVm());
+		HeartbeatRegistry registry = new HeartbeatRegistry();
+
+		app.getMySqlVm().setStatus( InstanceStatus.DEPLOYED_STARTED );
+		registry.register( ma, path, app.getMySqlVm());
+		registry.register( ma, InstanceHelpers.computeInstancePath( app.getTomcatVm()), app.getTomcatVm());
+		Assert.assertEquals( 2, registry.size());
+
+		// Another managed application with the same name
+		ManagedApplication newMa = new ManagedApplication( app );
+		Assert.assertNull( registry.find( newMa, app.getName(), path ));
+		Assert.assertEquals( 1, registry.size());
+
+		// The application was deleted
+		Assert.assertNull( registry.find( null, app.getName(), path ));
+		Assert.assertEquals( 0, registry.size());
+	}
+}
@@ -26,6 +26,7 @@
 package net.roboconf.dm.internal.utils;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Map;
 
 import org.junit.Assert;
@@ -42,6 +43,7 @@ import net.roboconf.core.model.beans.ApplicationTemplate;
 import net.roboconf.core.model.beans.Instance;
 import net.roboconf.core.model.beans.Instance.InstanceStatus;
 import net.roboconf.core.model.helpers.InstanceHelpers;
+import net.roboconf.core.utils.Utils;
 import net.roboconf.dm.management.ManagedApplication;
 
 /**
@@ -119,6 +121,88 @@ public class ConfigurationUtilsTest {
 	}
 
 
+	@Test
+	public void testInstancesJournal() throws Exception {
+
+		TestApplication app = new TestApplication();
+		app.setDirectory( ConfigurationUtils.findApplicationDirectory( app.getName(), this.dir ));
+		ManagedApplication ma = new ManagedApplication( app );
+		ConfigurationUtils.saveInstances( ma );
+
+		File instancesDir = new File( app.getDirectory(), Constants.PROJECT_DIR_INSTANCES );
+		File journalFile = new File( instancesDir, ConfigurationUtils.INSTANCES_JOURNAL_FILE );
+		Assert.assertFalse( journalFile.exists());
+
+		// Journal several updates
+		app.getMySqlVm().status( InstanceStatus.DEPLOYING );
+		app.getMySqlVm().data.put( Instance.MACHINE_ID, "machine 1" );
+		app.getMySqlVm().data.put( "special", "with spaces, = and \n" );
+		Assert.assertTrue( ConfigurationUtils.appendToInstancesJournal( app, Arrays.asList( app.getMySqlVm())) > 0 );
+
+		app.getMySqlVm().status( InstanceStatus.DEPLOYED_STARTED );
+		app.getMySql().status( InstanceStatus.DEPLOYED_STOPPED );
+		app.getMySql().data.put( "key", "value" );
+		ConfigurationUtils.appendToInstancesJournal( app, Arrays.asList( app.getMySqlVm(), app.getMySql()));
+		Assert.assertTrue( journalFile.exists());
+
+		// An instance that does not exist anymore, and an incomplete entry
+		String content = Utils.readFileContent( journalFile );
+		content += "%2Fwhatever DEPLOYED_STARTED ;\n";
+		content += "%2Fmysql-vm NOT_DEPLOYED ip=1";
+		Utils.writeStringInto( content, journalFile );
+
+		// The instances file was not updated, but the journal is replayed
+		InstancesLoadResult ilr = ConfigurationUtils.restoreInstances( ma );
+		Assert.assertEquals( 0, ilr.getLoadErrors().size());
+
+		Application restoredApp = new Application( "test", null );
+		restoredApp.getRootInstances().addAll( ilr.getRootInstances());
+
+		String mySqlVmPath = InstanceHelpers.computeInstancePath( app.getMySqlVm());
+		Instance restoredMySqlVm = InstanceHelpers.findInstanceByPath( restoredApp, mySqlVmPath );
+		Assert.assertNotNull( restoredMySqlVm );
+		Assert.assertEquals( InstanceStatus.DEPLOYED_STARTED, restoredMySqlVm.getStatus());
+		Assert.assertEquals( "machine 1", restoredMySqlVm.data.get( Instance.MACHINE_ID ));
+		Assert.assertEquals( "with spaces, = and \n", restoredMySqlVm.data.get( "special" ));
+
+		String mySqlPath = InstanceHelpers.computeInstancePath( app.getMySql());
+		Instance restoredMySql = InstanceHelpers.findInstanceByPath( restoredApp, mySqlPath );
+		Assert.assertNotNull( restoredMySql );
+		Assert.assertEquals( InstanceStatus.DEPLOYED_STOPPED, restoredMySql.getStatus());
+		Assert.assertEquals( "value", restoredMySql.data.get( "key" ));
+
+		String tomcatPath = InstanceHelpers.computeInstancePath( app.getTomcat());
+		Instance restoredTomcat = InstanceHelpers.findInstanceByPath( restoredApp, tomcatPath );
+		Assert.assertNotNull( restoredTomcat );
+		Assert.assertEquals( InstanceStatus.NOT_DEPLOYED, restoredTomcat.getStatus());
+
+		// Compaction (the instances file does not support all the characters in data)
+		app.getMySqlVm().data.remove( "special" );
+		ConfigurationUtils.saveInstances( ma );
+		Assert.assertFalse( journalFile.exists());
+
+		ilr = ConfigurationUtils.restoreInstances( ma );
+		restoredApp = new Application( "test", null );
+		restoredApp.getRootInstances().addAll( ilr.getRootInstances());
+
+		restoredMySqlVm = InstanceHelpers.findInstanceByPath( restoredApp, mySqlVmPath );
+		Assert.assertNotNull( restoredMySqlVm );
+		Assert.assertEquals( InstanceStatus.DEPLOYED_STARTED, restoredMySqlVm.getStatus());
+		Assert.assertEquals( "machine 1", restoredMySqlVm.data.get( Instance.MACHINE_ID ));
+	}
+
+
+	@Test
+	public void testInstancesJournal_deletedApplication() throws Exception {
+
+		TestApplication app = new TestApplication();
+		app.setDirectory( new File( this.dir, "inexisting" ));
+
+		Assert.assertEquals( 0, ConfigurationUtils.appendToInstancesJournal( app, Arrays.asList( app.getMySqlVm())));
+		Assert.assertFalse( app.getDirectory().exists());
+	}
+
+
 	@Test
 	public void testFindTemplateDirectory() {
 
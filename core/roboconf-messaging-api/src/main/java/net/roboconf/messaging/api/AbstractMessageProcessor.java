@@ -25,14 +25,36 @@
 
 package net.roboconf.messaging.api;
 
+import java.util.ArrayList;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
+import javax.management.ObjectName;
+
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+
+import net.roboconf.core.utils.Utils;
 import net.roboconf.messaging.api.business.IClient;
 import net.roboconf.messaging.api.extensions.IMessagingClient;
+import net.roboconf.messaging.api.jmx.MessageProcessorMBean;
 import net.roboconf.messaging.api.jmx.RoboconfMessageQueue;
+import net.roboconf.messaging.api.jmx.RoboconfMessageQueue.QueuedMessage;
 import net.roboconf.messaging.api.messages.Message;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.AbstractMsgNotif;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifHeartbeat;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifLogs;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdChangeLogLevel;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdGatherLogs;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdResynchronize;
+import net.roboconf.messaging.api.messages.from_dm_to_dm.MsgEcho;
 import net.roboconf.messaging.api.reconfigurables.ReconfigurableClient;
+import net.roboconf.messaging.api.utils.OsgiHelper;
 
 /**
  * A message processor is in charge of (guess what) processing messages.
@@ -45,16 +67,93 @@ import net.roboconf.messaging.api.reconfigurables.ReconfigurableClient;
  * processing messages after the current message is processed, or right after the next one is received.
  * For an immediate stop, use the {@link #interrupt()} method.
  * </p>
+ * <p>
+ * By default, messages are processed one after the other by this thread.
+ * When {@link #setLanesCount(int)} is given a value greater than 1, this thread
+ * only dispatches messages to processing lanes (one thread per lane). Only messages
+ * for which {@link #canProcessInParallel(Message)} returns true are spread over the lanes.
+ * Messages with the same partition key (see {@link #findPartitionKey(Message)}) always go
+ * into the same lane, which preserves their ordering. All the other messages go into the
+ * first lane, so that they are never processed concurrently with each other.
+ * </p>
+ * <p>
+ * Lanes are bounded (see {@link #LANE_CAPACITY}). When a lane is full, the overflow policy of
+ * the message applies (see {@link RoboconfMessageQueue#setOverflowPolicy(Class, RoboconfMessageQueue.OverflowPolicy)}).
+ * The message replaces a pending one in the lane, or it is dropped. Otherwise, this thread waits
+ * for room before dispatching other messages, which then remain in the message queue.
+ * When the processor stops, lanes process the messages they had already received before stopping.
+ * {@link #stopProcessor()} waits for them, at most {@value #LANES_STOP_TIMEOUT} milliseconds.
+ * </p>
+ * <p>
+ * Priorities can also be enabled (see {@link #setPrioritiesEnabled(boolean)}). Messages are then
+ * sorted by priority class (see {@link #findPriority(Message)}) and drained with weights, so that
+ * control messages (e.g. echo, heart beats) are not delayed by bulk transfers (e.g. logs).
+ * Messages with different priorities may then be processed out of order. Without lanes,
+ * priorities only apply to the next {@value #PRIORITY_WINDOW} waiting messages.
+ * </p>
  *
  * @param <T> a sub-class of {@link IMessagingClient}
  * @author Vincent Zurczak - Linagora
  */
-public abstract class AbstractMessageProcessor<T extends IClient> extends Thread {
+public abstract class AbstractMessageProcessor<T extends IClient> extends Thread implements MessageProcessorMBean {
+
+	// The default weights of priority classes (control, state, bulk)
+	private static final int[] DEFAULT_PRIORITY_WEIGHTS = { 8, 4, 1 };
+
+	/**
+	 * The maximum number of waiting messages that are sorted by priority (without lanes).
+	 */
+	public static final int PRIORITY_WINDOW = 100;
+
+	/**
+	 * The maximum number of messages waiting in a processing lane.
+	 */
+	public static final int LANE_CAPACITY = 100;
+
+	/**
+	 * The maximum time to wait for processing lanes to stop (in milliseconds).
+	 */
+	public static final long LANES_STOP_TIMEOUT = 5000;
+
+	/**
+	 * Priority classes for messages.
+	 */
+	public enum MessagePriority {
+
+		/**
+		 * Diagnostics and liveness messages, that should be processed quickly.
+		 */
+		CONTROL,
+
+		/**
+		 * Messages that change the model or the state of instances.
+		 */
+		STATE,
+
+		/**
+		 * Large or slow messages (e.g. logs).
+		 */
+		BULK;
+	}
+
+	private static final QueuedMessage STOP_LANE = new QueuedMessage( new StopLaneMessage(), 0 );
 
 	private final RoboconfMessageQueue messageQueue = new RoboconfMessageQueue();
 	private final AtomicBoolean running = new AtomicBoolean( false );
+	private final Logger logger = Logger.getLogger( getClass().getName());
 	protected T messagingClient;
 
+	private volatile int lanesCount = 1;
+	private volatile ProcessingLane[] lanes = new ProcessingLane[ 0 ];
+	private volatile LaneStatistics[] statistics = { new LaneStatistics()};
+
+	private volatile int[] priorityWeights;
+	private volatile PriorityMessageQueue priorityWindow;
+
+	// OSGi stuff
+	OsgiHelper osgiHelper = new OsgiHelper();
+	ServiceRegistration<MessageProcessorMBean> serviceReg;
+
 
 
 	/**
@@ -96,6 +195,80 @@ public abstract class AbstractMessageProcessor<T extends IClient> extends Thread
 	}
 
 
+	/**
+	 * Sets the number of processing lanes.
+	 * <p>
+	 * This method must be invoked before {@link #start()}.
+	 * A value lower or equal to 1 means messages are processed by this thread only.
+	 * </p>
+	 *
+	 * @param lanesCount the number of processing lanes
+	 */
+	public void setLanesCount( int lanesCount ) {
+
+		if( isAlive()) {
+			this.logger.warning( "The number of processing lanes cannot be changed once the message processor has started." );
+
+		} else {
+			this.lanesCount = Math.max( 1, lanesCount );
+			LaneStatistics[] newStatistics = new LaneStatistics[ this.lanesCount ];
+			for( int i = 0; i < newStatistics.length; i ++ )
+				newStatistics[ i ] = new LaneStatistics();
+
+			this.statistics = newStatistics;
+		}
+	}
+
+
+	/**
+	 * Enables or disables priorities, with the default weights.
+	 * <p>
+	 * This method must be invoked before {@link #start()}.
+	 * By default, up to 8 control messages, then 4 state messages and 1 bulk message are processed in turn.
+	 * </p>
+	 *
+	 * @param enabled true to enable priorities, false to process messages in the order they were received
+	 */
+	public void setPrioritiesEnabled( boolean enabled ) {
+
+		if( enabled )
+			setPriorityWeights( DEFAULT_PRIORITY_WEIGHTS[ 0 ], DEFAULT_PRIORITY_WEIGHTS[ 1 ], DEFAULT_PRIORITY_WEIGHTS[ 2 ]);
+		else
+			setPriorityWeights( 0, 0, 0 );
+	}
+
+
+	/**
+	 * Enables priorities with custom weights.
+	 * <p>
+	 * This method must be invoked before {@link #start()}.
+	 * A weight is the number of messages of a priority class that can be processed
+	 * before lower priorities get their turn. A control weight lower than 1 disables priorities.
+	 * </p>
+	 *
+	 * @param controlWeight the weight of {@link MessagePriority#CONTROL} messages
+	 * @param stateWeight the weight of {@link MessagePriority#STATE} messages
+	 * @param bulkWeight the weight of {@link MessagePriority#BULK} messages
+	 */
+	public void setPriorityWeights( int controlWeight, int stateWeight, int bulkWeight ) {
+
+		if( isAlive())
+			this.logger.warning( "Priorities cannot be changed once the message processor has started." );
+		else if( controlWeight < 1 )
+			this.priorityWeights = null;
+		else
+			this.priorityWeights = new int[] { controlWeight, stateWeight, bulkWeight };
+	}
+
+
+	/**
+	 * @return true if priorities are enabled
+	 */
+	public boolean isPrioritiesEnabled() {
+		return this.priorityWeights != null;
+	}
+
+
 	/*
 	 * (non-Javadoc)
 	 * @see java.lang.Thread#run()
@@ -104,19 +277,37 @@ public abstract class AbstractMessageProcessor<T extends IClient> extends Thread
 	public final void run() {
 
 		this.running.set( true );
-		while( this.running.get()) {
-			try {
-				Message message = this.messageQueue.take();
-				if( this.running.get())
-					processMessage( message );
+		ProcessingLane[] currentLanes = startLanes();
+		int[] weights = this.priorityWeights;
+		PriorityMessageQueue window = null;
+		if( currentLanes.length == 0 && weights != null )
+			window = new PriorityMessageQueue( weights );
 
-			} catch( InterruptedException e ) {
-				break;
+		this.priorityWindow = window;
+		List<QueuedMessage> buffer = new ArrayList<> ();
+		try {
+			while( this.running.get()) {
+				QueuedMessage entry = window == null ? this.messageQueue.takeEntry() : takeByPriority( window, buffer );
+				if( ! this.running.get())
+					break;
+
+				if( currentLanes.length == 0 )
+					processAndMeasure( entry, this.statistics[ 0 ]);
+				else
+					dispatch( entry, currentLanes );
 			}
+
+		} catch( InterruptedException e ) {
+			// nothing, we stop
+
+		} finally {
+			this.running.set( false );
+			stopLanes( currentLanes );
+			if( window != null )
+				dropMessages( window );
 		}
 
-		Logger.getLogger( getClass().getName()).fine( "Roboconf's message processing thread is stopping." );
-		this.running.set( false );
+		this.logger.fine( "Roboconf's message processing thread is stopping." );
 	}
 
 
@@ -130,9 +321,25 @@ public abstract class AbstractMessageProcessor<T extends IClient> extends Thread
 
 	/**
 	 * Stops the processor.
+	 * <p>
+	 * When lanes are used, this method returns once they have processed
+	 * the messages they had already received (or once the time out expired).
+	 * </p>
 	 */
 	public void stopProcessor() {
+
 		this.running.set( false );
+
+		// With lanes, this thread only dispatches messages: it can be woken up safely
+		if( this.lanes.length > 0 && Thread.currentThread() != this ) {
+			interrupt();
+			try {
+				join( LANES_STOP_TIMEOUT );
+
+			} catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+		}
 	}
 
 
@@ -141,4 +348,467 @@ public abstract class AbstractMessageProcessor<T extends IClient> extends Thread
 	 * @param message the message to process
 	 */
 	protected abstract void processMessage( Message message );
+
+
+	/**
+	 * Finds the partition key of a message.
+	 * <p>
+	 * Messages that share the same key are processed in the same lane, in the order
+	 * they were received. By default, notifications are partitioned by application
+	 * and scoped instance. Other messages all go into the first lane.
+	 * </p>
+	 *
+	 * @param message a message
+	 * @return a partition key, or null to use the first lane
+	 */
+	protected String findPartitionKey( Message message ) {
+
+		String result = null;
+		if( message instanceof AbstractMsgNotif ) {
+			AbstractMsgNotif notif = (AbstractMsgNotif) message;
+			result = notif.getApplicationName() + "|" + notif.getScopedInstancePath();
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Indicates whether a message can be processed in parallel with other messages.
+	 * <p>
+	 * Only used when there are several processing lanes. By default, no message can.
+	 * Sub-classes should only return true for messages whose processing is thread-safe,
+	 * both with messages of other partitions and with messages that are not parallelizable.
+	 * </p>
+	 *
+	 * @param message a message
+	 * @return true if it can be processed in any lane, false to process it in the first lane
+	 */
+	protected boolean canProcessInParallel( Message message ) {
+		return false;
+	}
+
+
+	/**
+	 * Finds the priority class of a message.
+	 * <p>
+	 * Only used when priorities are enabled. By default, echo messages, heart beats
+	 * and changes of the log level or resynchronization requests are control messages.
+	 * Logs and requests to gather them are bulk messages. All the other messages are
+	 * state messages, and thus keep their relative order.
+	 * </p>
+	 *
+	 * @param message a message
+	 * @return a non-null priority
+	 */
+	protected MessagePriority findPriority( Message message ) {
+
+		MessagePriority result = MessagePriority.STATE;
+		if( message instanceof MsgEcho
+				|| message instanceof MsgNotifHeartbeat
+				|| message instanceof MsgCmdChangeLogLevel
+				|| message instanceof MsgCmdResynchronize )
+			result = MessagePriority.CONTROL;
+
+		else if( message instanceof MsgNotifLogs
+				|| message instanceof MsgCmdGatherLogs )
+			result = MessagePriority.BULK;
+
+		return result;
+	}
+
+
+	// JMX metrics
+
+
+	@Override
+	public int getLanesCount() {
+		return this.statistics.length;
+	}
+
+
+	@Override
+	public long[] getLanesQueueDepth() {
+
+		ProcessingLane[] currentLanes = this.lanes;
+		long[] result;
+		if( currentLanes.length == 0 ) {
+			PriorityMessageQueue window = this.priorityWindow;
+			result = new long[] { this.messageQueue.size() + ( window == null ? 0 : window.size())};
+
+		} else {
+			result = new long[ currentLanes.length ];
+			for( int i = 0; i < currentLanes.length; i ++ )
+				result[ i ] = currentLanes[ i ].queue.size();
+		}
+
+		return result;
+	}
+
+
+	@Override
+	public long[] getLanesProcessedMessagesCount() {
+
+		LaneStatistics[] stats = this.statistics;
+		long[] result = new long[ stats.length ];
+		for( int i = 0; i < stats.length; i ++ )
+			result[ i ] = stats[ i ].processedMessagesCount.get();
+
+		return result;
+	}
+
+
+	@Override
+	public long[] getLanesAverageProcessingTime() {
+
+		LaneStatistics[] stats = this.statistics;
+		long[] result = new long[ stats.length ];
+		for( int i = 0; i < stats.length; i ++ ) {
+			long count = stats[ i ].processedMessagesCount.get();
+			long total = stats[ i ].totalProcessingTime.get();
+			result[ i ] = count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros( total / count );
+		}
+
+		return result;
+	}
+
+
+	@Override
+	public long[] getLanesMaxProcessingTime() {
+
+		LaneStatistics[] stats = this.statistics;
+		long[] result = new long[ stats.length ];
+		for( int i = 0; i < stats.length; i ++ )
+			result[ i ] = TimeUnit.NANOSECONDS.toMicros( stats[ i ].maxProcessingTime.get());
+
+		return result;
+	}
+
+
+	@Override
+	public void reset() {
+		for( LaneStatistics stats : this.statistics )
+			stats.reset();
+	}
+
+
+	/**
+	 * Finds the lane in which a message should be processed.
+	 * @param message a message
+	 * @param count the number of lanes (&gt; 0)
+	 * @return a lane index
+	 */
+	int findLaneIndex( Message message, int count ) {
+		String key = canProcessInParallel( message ) ? findPartitionKey( message ) : null;
+		return key == null ? 0 : (key.hashCode() & Integer.MAX_VALUE) % count;
+	}
+
+
+	/**
+	 * Finds the priority of a message, taking into account whether priorities are enabled.
+	 * @param message a message
+	 * @return a non-null priority
+	 */
+	MessagePriority findEffectivePriority( Message message ) {
+		return this.priorityWeights == null ? MessagePriority.STATE : findPriority( message );
+	}
+
+
+	/**
+	 * Takes the next message by priority.
+	 * <p>
+	 * The window is filled with the next waiting messages, so that urgent
+	 * messages can be processed before the ones that were received before.
+	 * </p>
+	 *
+	 * @param window the priority window
+	 * @param buffer a buffer to transfer messages
+	 * @return a non-null entry
+	 * @throws InterruptedException
+	 */
+	private QueuedMessage takeByPriority( PriorityMessageQueue window, List<QueuedMessage> buffer )
+	throws InterruptedException {
+
+		if( window.size() == 0 ) {
+			QueuedMessage entry = this.messageQueue.takeEntry();
+			window.add( entry, findPriority( entry.getMessage()));
+		}
+
+		int room = PRIORITY_WINDOW - window.size();
+		if( room > 0 ) {
+			this.messageQueue.drainEntriesTo( buffer, room );
+			for( QueuedMessage entry : buffer )
+				window.add( entry, findPriority( entry.getMessage()));
+
+			buffer.clear();
+		}
+
+		return window.poll();
+	}
+
+
+	/**
+	 * Dispatches a message to a processing lane.
+	 * <p>
+	 * When the lane is full, this method applies the overflow policy of the message.
+	 * </p>
+	 *
+	 * @param entry a message and its reception time
+	 * @param currentLanes the lanes (not empty)
+	 * @throws InterruptedException
+	 */
+	private void dispatch( QueuedMessage entry, ProcessingLane[] currentLanes ) throws InterruptedException {
+
+		Message message = entry.getMessage();
+		PriorityMessageQueue laneQueue = currentLanes[ findLaneIndex( message, currentLanes.length )].queue;
+		MessagePriority priority = findEffectivePriority( message );
+		try {
+			Message discardedMessage = laneQueue.put( entry, priority );
+			if( discardedMessage == message )
+				this.messageQueue.messageDropped( message );
+			else if( discardedMessage != null )
+				this.messageQueue.messageCollapsed( discardedMessage );
+
+		} catch( InterruptedException e ) {
+			// The processor stops: the lane will process this message before stopping
+			laneQueue.add( entry, priority );
+			throw e;
+		}
+	}
+
+
+	/**
+	 * Drops the messages that were not processed.
+	 * <p>
+	 * Their processing callbacks are invoked anyway (see {@link RoboconfMessageQueue}).
+	 * </p>
+	 *
+	 * @param queue the queue that contains the messages
+	 */
+	private void dropMessages( PriorityMessageQueue queue ) {
+
+		List<QueuedMessage> droppedEntries = new ArrayList<> ();
+		queue.drainTo( droppedEntries );
+		for( QueuedMessage entry : droppedEntries )
+			this.messageQueue.messageProcessed( entry.getMessage());
+	}
+
+
+	/**
+	 * Processes a message and records the processing time.
+	 * @param entry a message and its reception time
+	 * @param stats the statistics to update
+	 */
+	private void processAndMeasure( QueuedMessage entry, LaneStatistics stats ) {
+
+		long start = System.nanoTime();
+		try {
+			processMessage( entry.getMessage());
+
+		} finally {
+			long end = System.nanoTime();
+			stats.record( end - start );
+			this.messageQueue.recordLatencies( entry, start, end );
+			this.messageQueue.messageProcessed( entry.getMessage());
+		}
+	}
+
+
+	/**
+	 * Creates and starts the processing lanes, if necessary.
+	 * <p>
+	 * A MBean is also registered when lanes are used.
+	 * </p>
+	 *
+	 * @return a non-null array of lanes (empty if messages are processed by this thread)
+	 */
+	private ProcessingLane[] startLanes() {
+
+		LaneStatistics[] stats = this.statistics;
+		int[] weights = this.priorityWeights != null ? this.priorityWeights : DEFAULT_PRIORITY_WEIGHTS;
+		ProcessingLane[] result = new ProcessingLane[ this.lanesCount > 1 ? stats.length : 0 ];
+		for( int i = 0; i < result.length; i ++ ) {
+			result[ i ] = new ProcessingLane( this, getName() + " - Lane " + i, stats[ i ], weights, LANE_CAPACITY );
+			result[ i ].start();
+		}
+
+		this.lanes = result;
+		if( result.length > 0 ) {
+			this.logger.fine( "Messages will be processed by " + result.length + " lanes." );
+			registerService();
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Stops the processing lanes.
+	 * <p>
+	 * Lanes stop once they have processed the messages they already received.
+	 * This method waits for them, at most {@value #LANES_STOP_TIMEOUT} milliseconds.
+	 * </p>
+	 *
+	 * @param currentLanes the lanes to stop
+	 */
+	private void stopLanes( ProcessingLane[] currentLanes ) {
+
+		for( ProcessingLane lane : currentLanes )
+			lane.queue.add( STOP_LANE, MessagePriority.CONTROL );
+
+		if( currentLanes.length > 0 )
+			unregisterService();
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos( LANES_STOP_TIMEOUT );
+		try {
+			for( ProcessingLane lane : currentLanes ) {
+				long remaining = TimeUnit.NANOSECONDS.toMillis( deadline - System.nanoTime());
+				if( remaining > 0 )
+					lane.join( remaining );
+
+				if( lane.isAlive())
+					this.logger.warning( lane.getName() + " did not process its messages in time." );
+			}
+
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/**
+	 * Registers this processor as a MBean (through the OSGi registry).
+	 */
+	private void registerService() {
+
+		// Apache Aries should map the service to a MBean if the JMX management is available.
+		BundleContext bundleCtx = this.osgiHelper.findBundleContext();
+		if( bundleCtx != null ) {
+			Dictionary<String,String> properties = new Hashtable<> ();
+			// The DM and an agent may run in the same JVM
+			properties.put( "jmx.objectname", "net.roboconf:type=message-processor,name=" + ObjectName.quote( getName()));
+			try {
+				this.serviceReg = bundleCtx.registerService( MessageProcessorMBean.class, this, properties );
+				this.logger.fine( "A MBean was successfully registered for the message processor." );
+
+			} catch( Exception e ) {
+				this.logger.severe( "A MBean could not be registered for the message processor." );
+				Utils.logException( this.logger, e );
+			}
+		}
+	}
+
+
+	/**
+	 * Unregisters the MBean of this processor, if any.
+	 */
+	private void unregisterService() {
+
+		try {
+			if( this.serviceReg != null )
+				this.serviceReg.unregister();
+
+		} catch( Exception e ) {
+			this.logger.severe( "A MBean could not be unregistered for the message processor." );
+			Utils.logException( this.logger, e );
+
+		} finally {
+			this.serviceReg = null;
+		}
+	}
+
+
+	/**
+	 * A thread that processes the messages of a given partition.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	private static class ProcessingLane extends Thread {
+		final PriorityMessageQueue queue;
+		private final AbstractMessageProcessor<?> processor;
+		private final LaneStatistics stats;
+
+
+		/**
+		 * Constructor.
+		 * @param processor the processor this lane belongs to
+		 * @param name the thread name
+		 * @param stats the statistics of this lane
+		 * @param weights the weights of priority classes
+		 * @param capacity the maximum number of waiting messages
+		 */
+		ProcessingLane( AbstractMessageProcessor<?> processor, String name, LaneStatistics stats, int[] weights, int capacity ) {
+			super( name );
+			this.processor = processor;
+			this.stats = stats;
+			this.queue = new PriorityMessageQueue( weights, capacity, processor.messageQueue );
+		}
+
+
+		@Override
+		public void run() {
+
+			try {
+				for( QueuedMessage entry = this.queue.take(); entry != STOP_LANE; entry = this.queue.take())
+					process( entry );
+
+				// The stop message has a high priority, other messages may remain
+				for( QueuedMessage entry = this.queue.poll(); entry != null; entry = this.queue.poll())
+					process( entry );
+
+			} catch( InterruptedException e ) {
+				// nothing, we stop
+			}
+		}
+
+
+		private void process( QueuedMessage entry ) {
+
+			// A failing message must not stop the whole lane
+			try {
+				this.processor.processAndMeasure( entry, this.stats );
+
+			} catch( RuntimeException e ) {
+				this.processor.logger.severe( "An error occurred while processing a message in " + getName() + "." );
+				Utils.logException( this.processor.logger, e );
+			}
+		}
+	}
+
+
+	/**
+	 * Processing statistics for a lane.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	static class LaneStatistics {
+		final AtomicLong processedMessagesCount = new AtomicLong();
+		final AtomicLong totalProcessingTime = new AtomicLong();
+		final AtomicLong maxProcessingTime = new AtomicLong();
+
+
+		void record( long duration ) {
+
+			this.processedMessagesCount.incrementAndGet();
+			this.totalProcessingTime.addAndGet( duration );
+			for( long max = this.maxProcessingTime.get(); duration > max; max = this.maxProcessingTime.get()) {
+				if( this.maxProcessingTime.compareAndSet( max, duration ))
+					break;
+			}
+		}
+
+
+		void reset() {
+			this.processedMessagesCount.set( 0 );
+			this.totalProcessingTime.set( 0 );
+			this.maxProcessingTime.set( 0 );
+		}
+	}
+
+
+	/**
+	 * A message used to stop processing lanes.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	private static class StopLaneMessage extends Message {
+		private static final long serialVersionUID = 3391528451234658421L;
+	}
 }
@@ -0,0 +1,244 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.api;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.roboconf.messaging.api.AbstractMessageProcessor.MessagePriority;
+import net.roboconf.messaging.api.jmx.RoboconfMessageQueue;
+import net.roboconf.messaging.api.jmx.RoboconfMessageQueue.OverflowPolicy;
+import net.roboconf.messaging.api.jmx.RoboconfMessageQueue.QueuedMessage;
+import net.roboconf.messaging.api.messages.Message;
+
+/**
+ * A queue that stores messages by priority and delivers them with weighted draining.
+ * <p>
+ * Messages are stored with their reception time (see {@link QueuedMessage}).
+ * </p>
+ * <p>
+ * Every priority has its own FIFO queue and a weight. At most <i>weight</i> messages
+ * of a given priority are delivered before lower priorities get their turn. When no priority
+ * with pending messages has credits left, all the credits are restored. Priorities without
+ * pending messages do not consume their credits.
+ * </p>
+ * <p>
+ * Messages with the same priority are delivered in the order they were added.
+ * Messages with different priorities may be delivered out of order.
+ * </p>
+ * <p>
+ * A capacity can be set. When the queue is full, {@link #put(QueuedMessage, MessagePriority)}
+ * applies the overflow policy of the message (see {@link RoboconfMessageQueue#findOverflowPolicy(Message)}).
+ * The message replaces the pending one with the same collapse key, if any ({@link OverflowPolicy#COLLAPSE}),
+ * or it is dropped ({@link OverflowPolicy#DROP}). Otherwise, the method waits for room.
+ * {@link #add(QueuedMessage, MessagePriority)} never waits, nor drops anything.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+final class PriorityMessageQueue {
+
+	private final ArrayDeque<QueuedMessage>[] queues;
+	private final int[] weights;
+	private final int[] credits;
+	private final int capacity;
+	private final RoboconfMessageQueue policies;
+	private int size = 0;
+
+	// Collapse key => pending entry in the queue
+	private final Map<String,QueuedMessage> collapsibleEntries = new HashMap<> ();
+
+
+	/**
+	 * Constructor for an unbounded queue.
+	 * @param weights the weight of every priority, indexed by {@link MessagePriority#ordinal()}
+	 */
+	PriorityMessageQueue( int[] weights ) {
+		this( weights, 0, null );
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param weights the weight of every priority, indexed by {@link MessagePriority#ordinal()}
+	 * @param capacity the maximum number of pending messages (0 or less for an unbounded queue)
+	 * @param policies the queue that defines overflow policies (null to always wait for room)
+	 */
+	@SuppressWarnings( "unchecked" )
+	PriorityMessageQueue( int[] weights, int capacity, RoboconfMessageQueue policies ) {
+
+		this.queues = new ArrayDeque[ MessagePriority.values().length ];
+		this.weights = new int[ this.queues.length ];
+		for( int i = 0; i < this.queues.length; i ++ ) {
+			this.queues[ i ] = new ArrayDeque<> ();
+			this.weights[ i ] = Math.max( 1, weights[ i ]);
+		}
+
+		this.credits = this.weights.clone();
+		this.capacity = Math.max( 0, capacity );
+		this.policies = policies;
+	}
+
+
+	/**
+	 * Adds a message.
+	 * @param entry a message and its reception time
+	 * @param priority its priority
+	 */
+	synchronized void add( QueuedMessage entry, MessagePriority priority ) {
+		this.queues[ priority.ordinal()].add( entry );
+		this.size ++;
+		notifyAll();
+	}
+
+
+	/**
+	 * Adds a message, applying its overflow policy when the queue is full.
+	 * @param entry a message and its reception time
+	 * @param priority its priority
+	 * @return the message that was discarded: the given one if it was dropped,
+	 * the pending one if it was replaced, or null if no message was discarded
+	 * @throws InterruptedException
+	 */
+	synchronized Message put( QueuedMessage entry, MessagePriority priority ) throws InterruptedException {
+
+		Message message = entry.getMessage();
+		OverflowPolicy policy = this.policies == null ? OverflowPolicy.KEEP : this.policies.findOverflowPolicy( message );
+		String collapseKey = policy == OverflowPolicy.COLLAPSE ? this.policies.findCollapseKey( message ) : null;
+
+		for( ;; ) {
+			if( this.capacity == 0 || this.size < this.capacity ) {
+				add( entry, priority );
+				if( collapseKey != null )
+					this.collapsibleEntries.put( collapseKey, entry );
+
+				return null;
+			}
+
+			QueuedMessage pendingEntry = collapseKey == null ? null : this.collapsibleEntries.get( collapseKey );
+			if( pendingEntry != null )
+				return pendingEntry.replaceMessage( message );
+
+			if( policy == OverflowPolicy.DROP )
+				return message;
+
+			wait();
+		}
+	}
+
+
+	/**
+	 * Removes the next message, waiting for one if necessary.
+	 * @return a non-null message
+	 * @throws InterruptedException
+	 */
+	synchronized QueuedMessage take() throws InterruptedException {
+
+		while( this.size == 0 )
+			wait();
+
+		return next();
+	}
+
+
+	/**
+	 * Removes the next message, if any.
+	 * @return a message, or null if there is none
+	 */
+	synchronized QueuedMessage poll() {
+		return this.size == 0 ? null : next();
+	}
+
+
+	/**
+	 * @return the number of pending messages
+	 */
+	synchronized int size() {
+		return this.size;
+	}
+
+
+	/**
+	 * @param priority a priority
+	 * @return the number of pending messages with this priority
+	 */
+	synchronized int size( MessagePriority priority ) {
+		return this.queues[ priority.ordinal()].size();
+	}
+
+
+	/**
+	 * Removes all the pending messages.
+	 * @param c the collection in which removed messages are added
+	 */
+	synchronized void drainTo( Collection<QueuedMessage> c ) {
+
+		for( ArrayDeque<QueuedMessage> queue : this.queues ) {
+			c.addAll( queue );
+			queue.clear();
+		}
+
+		this.size = 0;
+		this.collapsibleEntries.clear();
+		notifyAll();
+	}
+
+
+	/**
+	 * Picks the next message (the queue must not be empty).
+	 * @return a non-null message
+	 */
+	private QueuedMessage next() {
+
+		for( ;; ) {
+			for( int i = 0; i < this.queues.length; i ++ ) {
+				if( this.credits[ i ] > 0 && ! this.queues[ i ].isEmpty()) {
+					this.credits[ i ] --;
+					this.size --;
+					QueuedMessage entry = this.queues[ i ].poll();
+
+					// A message being processed cannot be replaced anymore
+					if( ! this.collapsibleEntries.isEmpty()) {
+						String collapseKey = this.policies.findCollapseKey( entry.getMessage());
+						if( collapseKey != null && this.collapsibleEntries.get( collapseKey ) == entry )
+							this.collapsibleEntries.remove( collapseKey );
+					}
+
+					// Wake up threads that wait for room
+					if( this.capacity > 0 )
+						notifyAll();
+
+					return entry;
+				}
+			}
+
+			// Non-empty priorities have consumed all their credits
+			System.arraycopy( this.weights, 0, this.credits, 0, this.credits.length );
+		}
+	}
+}
@@ -95,8 +95,8 @@ public class IdleClient implements IMessagingClient {
 	}
 
 	@Override
-	public void publish( MessagingContext ctx, Message msg ) throws IOException {
-		// nothing
+	public long publish( MessagingContext ctx, Message msg ) throws IOException {
+		return 0;
 	}
 
 	@Override
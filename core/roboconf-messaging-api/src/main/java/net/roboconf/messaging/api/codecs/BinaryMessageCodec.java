@@ -0,0 +1,884 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.api.codecs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+
+import net.roboconf.core.model.beans.Import;
+import net.roboconf.core.model.beans.Instance.InstanceStatus;
+import net.roboconf.messaging.api.extensions.MessagingContext;
+import net.roboconf.messaging.api.extensions.MessagingContext.RecipientKind;
+import net.roboconf.messaging.api.extensions.MessagingContext.ThoseThat;
+import net.roboconf.messaging.api.messages.Message;
+import net.roboconf.messaging.api.messages.from_agent_to_agent.MsgCmdAddImport;
+import net.roboconf.messaging.api.messages.from_agent_to_agent.MsgCmdRemoveImport;
+import net.roboconf.messaging.api.messages.from_agent_to_agent.MsgCmdRequestImport;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifAutonomic;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifHeartbeat;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifInstanceChanged;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifInstanceRemoved;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifLogs;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifMachineDown;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdChangeBinding;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdChangeInstanceState;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdChangeLogLevel;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdGatherLogs;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdRemoveInstance;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdResynchronize;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdSendInstances;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdUpdateProbeConfiguration;
+import net.roboconf.messaging.api.messages.from_dm_to_dm.MsgEcho;
+
+/**
+ * A compact and versioned binary codec for Roboconf messages.
+ * <p>
+ * Every supported message class is associated with a type tag and a schema that
+ * writes its fields in a fixed order. Encoded messages start with a header made up
+ * of two magic bytes, a format version and the type tag. Type tags must never be
+ * reused or changed once released. New message types get new tags.
+ * </p>
+ * <p>
+ * Messages whose class has no schema (e.g. messages that embed a whole model,
+ * or messages defined by messaging implementations) are encoded with Java
+ * serialization, behind the binary header (with the {@link #TAG_FALLBACK} tag).
+ * </p>
+ * <p>
+ * The magic bytes cannot be confused with Java serialization's stream header.
+ * So, receivers can decode messages whatever the codec used by the sender.
+ * See {@link #isBinaryMessage(byte[], int, int)}.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public class BinaryMessageCodec implements IMessageCodec {
+
+	/**
+	 * The codec's name.
+	 */
+	public static final String NAME = "binary";
+
+	static final byte MAGIC_1 = 'R';
+	static final byte MAGIC_2 = 'B';
+	static final byte VERSION = 1;
+	static final int HEADER_LENGTH = 4;
+
+	/**
+	 * The tag for messages encoded with Java serialization.
+	 */
+	static final byte TAG_FALLBACK = 0;
+
+	/**
+	 * The last tag reserved for the messages defined in this bundle.
+	 */
+	public static final int LAST_API_TAG = 99;
+
+	private static final Map<Class<?>,MessageSchema<?>> CLASS_TO_SCHEMA = new ConcurrentHashMap<> ();
+	private static final AtomicReferenceArray<MessageSchema<?>> TAG_TO_SCHEMA = new AtomicReferenceArray<>( Byte.MAX_VALUE + 1 );
+
+	private final JavaMessageCodec fallbackCodec;
+
+
+	/**
+	 * Constructor.
+	 */
+	public BinaryMessageCodec() {
+		this( null );
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param classLoader the class loader to use to resolve classes with Java serialization (can be null)
+	 */
+	public BinaryMessageCodec( ClassLoader classLoader ) {
+		this.fallbackCodec = new JavaMessageCodec( classLoader );
+	}
+
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+
+	@Override
+	public byte[] encode( Message message ) throws IOException {
+
+		ByteArrayOutputStream os = new ByteArrayOutputStream( 128 );
+		DataOutputStream out = new DataOutputStream( os );
+		out.writeByte( MAGIC_1 );
+		out.writeByte( MAGIC_2 );
+		out.writeByte( VERSION );
+
+		MessageSchema<?> schema = CLASS_TO_SCHEMA.get( message.getClass());
+		if( schema == null ) {
+			out.writeByte( TAG_FALLBACK );
+			out.write( this.fallbackCodec.encode( message ));
+
+		} else {
+			out.writeByte( schema.tag );
+			schema.writeMessage( message, out, this );
+		}
+
+		out.flush();
+		return os.toByteArray();
+	}
+
+
+	@Override
+	public Message decode( byte[] bytes, int offset, int length )
+	throws IOException, ClassNotFoundException {
+		return decode( bytes, offset, length, new SliceInput());
+	}
+
+
+	/**
+	 * Decodes a message with a reusable input.
+	 * <p>
+	 * The message is read directly from the array, without copying it.
+	 * The input does not retain the array once this method has returned.
+	 * </p>
+	 *
+	 * @param bytes a non-null array of bytes
+	 * @param offset the offset of the message in the array
+	 * @param length the number of bytes to read
+	 * @param input an input to reuse (not null, not used by another thread)
+	 * @return the decoded message (not null)
+	 * @throws IOException if the message could not be decoded
+	 * @throws ClassNotFoundException if a class could not be resolved during decoding
+	 */
+	public Message decode( byte[] bytes, int offset, int length, SliceInput input )
+	throws IOException, ClassNotFoundException {
+
+		try {
+			input.wrap( bytes, offset, length );
+			return decodeSlice( input, offset, length );
+
+		} finally {
+			input.release();
+		}
+	}
+
+
+	/**
+	 * Decodes a message located in the slice wrapped by an input.
+	 * @param input the input
+	 * @param offset the offset of the message in the input's array
+	 * @param length the number of bytes of the message
+	 * @return the decoded message (not null)
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	private Message decodeSlice( SliceInput input, int offset, int length )
+	throws IOException, ClassNotFoundException {
+
+		byte[] bytes = input.buffer();
+		if( ! isBinaryMessage( bytes, offset, length ))
+			throw new IOException( "Invalid binary message: the header is missing." );
+
+		int version = bytes[ offset + 2 ];
+		if( version > VERSION )
+			throw new IOException( "Unsupported binary message version: " + version + " (supported: " + VERSION + ")." );
+
+		int tag = bytes[ offset + 3 ];
+		Message result;
+		if( tag == TAG_FALLBACK ) {
+			result = this.fallbackCodec.decode( bytes, offset + HEADER_LENGTH, length - HEADER_LENGTH );
+
+		} else {
+			MessageSchema<?> schema = tag > 0 ? TAG_TO_SCHEMA.get( tag ) : null;
+			if( schema == null )
+				throw new IOException( "Unknown message type tag: " + tag + "." );
+
+			input.position( offset + HEADER_LENGTH );
+			result = schema.read( input, this );
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Determines whether an array of bytes contains a message encoded with this codec.
+	 * @param bytes an array of bytes (not null)
+	 * @param offset the offset of the message in the array
+	 * @param length the number of bytes of the message
+	 * @return true if the bytes start with the header of this codec, false otherwise
+	 */
+	public static boolean isBinaryMessage( byte[] bytes, int offset, int length ) {
+		return length >= HEADER_LENGTH
+				&& bytes[ offset ] == MAGIC_1
+				&& bytes[ offset + 1 ] == MAGIC_2;
+	}
+
+
+	/**
+	 * Finds the type tag associated with a message class.
+	 * @param clazz a message class
+	 * @return the tag, or {@link #TAG_FALLBACK} if this class has no schema
+	 */
+	static byte findTag( Class<? extends Message> clazz ) {
+		MessageSchema<?> schema = CLASS_TO_SCHEMA.get( clazz );
+		return schema == null ? TAG_FALLBACK : schema.tag;
+	}
+
+
+	/**
+	 * Registers a schema.
+	 * <p>
+	 * Tags 1 to {@value #LAST_API_TAG} are reserved for the messages of this bundle.
+	 * Messaging implementations that define their own messages must use higher tags.
+	 * Registering a schema for a class that was already registered (e.g. after a bundle update)
+	 * replaces the previous schema.
+	 * </p>
+	 *
+	 * @param schema a schema
+	 * @throws IllegalArgumentException if the tag is invalid or already used by another class
+	 */
+	public static synchronized void registerSchema( MessageSchema<?> schema ) {
+
+		MessageSchema<?> existing = schema.tag > TAG_FALLBACK ? TAG_TO_SCHEMA.get( schema.tag ) : null;
+		if( schema.tag <= TAG_FALLBACK
+				|| existing != null && ! existing.clazz.getName().equals( schema.clazz.getName()))
+			throw new IllegalArgumentException( "Invalid or duplicate tag: " + schema.tag );
+
+		if( existing != null )
+			CLASS_TO_SCHEMA.remove( existing.clazz );
+
+		TAG_TO_SCHEMA.set( schema.tag, schema );
+		CLASS_TO_SCHEMA.put( schema.clazz, schema );
+	}
+
+
+	/**
+	 * Writes a nested message.
+	 * @param message a message (can be null)
+	 * @param out the output
+	 * @throws IOException
+	 */
+	public void writeMessage( Message message, DataOutput out ) throws IOException {
+		writeBytes( message == null ? null : encode( message ), out );
+	}
+
+
+	/**
+	 * Reads a nested message.
+	 * @param in the input
+	 * @return a message (can be null)
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	public Message readMessage( DataInput in ) throws IOException, ClassNotFoundException {
+
+		if( ! ( in instanceof SliceInput )) {
+			byte[] bytes = readBytes( in );
+			return bytes == null ? null : decode( bytes, 0, bytes.length );
+		}
+
+		// Decode the nested message in place
+		SliceInput input = (SliceInput) in;
+		int length = input.readInt();
+		if( length < 0 )
+			return null;
+
+		int offset = input.position();
+		int limit = input.limit();
+		if( length > limit - offset )
+			throw new EOFException();
+
+		try {
+			input.limit( offset + length );
+			return decodeSlice( input, offset, length );
+
+		} finally {
+			input.limit( limit );
+			input.position( offset + length );
+		}
+	}
+
+
+	/**
+	 * A schema writes and reads the fields of a given message class.
+	 * <p>
+	 * Fields must always be written and read in the same order.
+	 * </p>
+	 *
+	 * @param <T> the message class
+	 * @author Vincent Zurczak - Linagora
+	 */
+	public abstract static class MessageSchema<T extends Message> {
+		final byte tag;
+		final Class<T> clazz;
+
+
+		/**
+		 * Constructor.
+		 * @param tag the type tag (strictly positive)
+		 * @param clazz the message class
+		 */
+		protected MessageSchema( int tag, Class<T> clazz ) {
+			this.tag = (byte) tag;
+			this.clazz = clazz;
+		}
+
+		final void writeMessage( Message message, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+			write( this.clazz.cast( message ), out, codec );
+		}
+
+		/**
+		 * Writes the fields of a message.
+		 * @param message the message
+		 * @param out the output
+		 * @param codec the codec (useful to encode nested messages)
+		 * @throws IOException
+		 */
+		public abstract void write( T message, DataOutput out, BinaryMessageCodec codec ) throws IOException;
+
+		/**
+		 * Reads a message.
+		 * @param in the input
+		 * @param codec the codec (useful to decode nested messages)
+		 * @return a non-null message
+		 * @throws IOException
+		 * @throws ClassNotFoundException
+		 */
+		public abstract T read( DataInput in, BinaryMessageCodec codec ) throws IOException, ClassNotFoundException;
+	}
+
+
+	// Writers and readers, also available for the schemas of other bundles
+
+
+	public static void writeString( String s, DataOutput out ) throws IOException {
+
+		if( s == null ) {
+			out.writeInt( -1 );
+
+		} else {
+			byte[] bytes = s.getBytes( StandardCharsets.UTF_8 );
+			out.writeInt( bytes.length );
+			out.write( bytes );
+		}
+	}
+
+
+	public static String readString( DataInput in ) throws IOException {
+
+		if( ! ( in instanceof SliceInput )) {
+			byte[] bytes = readBytes( in );
+			return bytes == null ? null : new String( bytes, StandardCharsets.UTF_8 );
+		}
+
+		int length = in.readInt();
+		return length < 0 ? null : ((SliceInput) in).readUtf8( length );
+	}
+
+
+	public static void writeBytes( byte[] bytes, DataOutput out ) throws IOException {
+
+		if( bytes == null ) {
+			out.writeInt( -1 );
+
+		} else {
+			out.writeInt( bytes.length );
+			out.write( bytes );
+		}
+	}
+
+
+	public static byte[] readBytes( DataInput in ) throws IOException {
+
+		int length = in.readInt();
+		byte[] result = null;
+		if( length >= 0 ) {
+			result = new byte[ length ];
+			in.readFully( result );
+		}
+
+		return result;
+	}
+
+
+	public static void writeStringMap( Map<String,String> map, DataOutput out ) throws IOException {
+
+		out.writeInt( map == null ? -1 : map.size());
+		if( map != null ) {
+			for( Map.Entry<String,String> entry : map.entrySet()) {
+				writeString( entry.getKey(), out );
+				writeString( entry.getValue(), out );
+			}
+		}
+	}
+
+
+	public static Map<String,String> readStringMap( DataInput in ) throws IOException {
+
+		int size = in.readInt();
+		Map<String,String> result = null;
+		if( size >= 0 ) {
+			result = new HashMap<>( Math.max( 16, size * 2 ));
+			for( int i=0; i<size; i++ )
+				result.put( readString( in ), readString( in ));
+		}
+
+		return result;
+	}
+
+
+	public static void writeBytesMap( Map<String,byte[]> map, DataOutput out ) throws IOException {
+
+		out.writeInt( map == null ? -1 : map.size());
+		if( map != null ) {
+			for( Map.Entry<String,byte[]> entry : map.entrySet()) {
+				writeString( entry.getKey(), out );
+				writeBytes( entry.getValue(), out );
+			}
+		}
+	}
+
+
+	public static Map<String,byte[]> readBytesMap( DataInput in ) throws IOException {
+
+		int size = in.readInt();
+		Map<String,byte[]> result = null;
+		if( size >= 0 ) {
+			result = new HashMap<>( Math.max( 16, size * 2 ));
+			for( int i=0; i<size; i++ )
+				result.put( readString( in ), readBytes( in ));
+		}
+
+		return result;
+	}
+
+
+	public static void writeStringCollection( Collection<String> collection, DataOutput out ) throws IOException {
+
+		out.writeInt( collection == null ? -1 : collection.size());
+		if( collection != null ) {
+			for( String s : collection )
+				writeString( s, out );
+		}
+	}
+
+
+	public static Set<String> readStringSet( DataInput in ) throws IOException {
+
+		int size = in.readInt();
+		Set<String> result = null;
+		if( size >= 0 ) {
+			result = new HashSet<>( Math.max( 16, size * 2 ));
+			for( int i=0; i<size; i++ )
+				result.add( readString( in ));
+		}
+
+		return result;
+	}
+
+
+	public static void writeStatus( InstanceStatus status, DataOutput out ) throws IOException {
+		// Statuses are written by name, so that reordering the enumeration does not break the format
+		writeString( status == null ? null : status.toString(), out );
+	}
+
+
+	public static InstanceStatus readStatus( DataInput in ) throws IOException {
+		return InstanceStatus.exactStatus( readString( in ));
+	}
+
+
+	public static void writeContext( MessagingContext ctx, DataOutput out ) throws IOException {
+
+		out.writeBoolean( ctx != null );
+		if( ctx != null ) {
+			writeString( ctx.getKind() == null ? null : ctx.getKind().name(), out );
+			writeString( ctx.getDomain(), out );
+			writeString( ctx.getComponentOrFacetName(), out );
+			writeString( ctx.getAgentDirection() == null ? null : ctx.getAgentDirection().name(), out );
+			writeString( ctx.getApplicationName(), out );
+		}
+	}
+
+
+	public static MessagingContext readContext( DataInput in ) throws IOException {
+
+		MessagingContext result = null;
+		if( in.readBoolean()) {
+			String kind = readString( in );
+			String domain = readString( in );
+			String componentOrFacetName = readString( in );
+			String thoseThat = readString( in );
+			String applicationName = readString( in );
+
+			try {
+				result = new MessagingContext(
+						kind == null ? null : RecipientKind.valueOf( kind ),
+						domain,
+						componentOrFacetName,
+						thoseThat == null ? null : ThoseThat.valueOf( thoseThat ),
+						applicationName );
+
+			} catch( IllegalArgumentException e ) {
+				throw new IOException( "Invalid messaging context.", e );
+			}
+		}
+
+		return result;
+	}
+
+
+	public static void writeImports( Map<String,Collection<Import>> imports, DataOutput out ) throws IOException {
+
+		out.writeInt( imports == null ? -1 : imports.size());
+		if( imports != null ) {
+			for( Map.Entry<String,Collection<Import>> entry : imports.entrySet()) {
+				writeString( entry.getKey(), out );
+				Collection<Import> values = entry.getValue();
+				out.writeInt( values == null ? -1 : values.size());
+				if( values == null )
+					continue;
+
+				for( Import imp : values ) {
+					writeString( imp.getInstancePath(), out );
+					writeString( imp.getComponentName(), out );
+					writeStringMap( imp.getExportedVars(), out );
+				}
+			}
+		}
+	}
+
+
+	public static Map<String,Collection<Import>> readImports( DataInput in ) throws IOException {
+
+		int size = in.readInt();
+		Map<String,Collection<Import>> result = null;
+		if( size >= 0 ) {
+			result = new TreeMap<> ();
+			for( int i=0; i<size; i++ ) {
+				String prefix = readString( in );
+				int count = in.readInt();
+				Collection<Import> values = null;
+				if( count >= 0 ) {
+					values = new LinkedHashSet<> ();
+					for( int j=0; j<count; j++ )
+						values.add( new Import( readString( in ), readString( in ), readStringMap( in )));
+				}
+
+				result.put( prefix, values );
+			}
+		}
+
+		return result;
+	}
+
+
+	// Schemas
+	// Tags are part of the format: NEVER change or reuse them.
+
+	static {
+
+		// From agents to the DM
+		registerSchema( new MessageSchema<MsgNotifHeartbeat>( 1, MsgNotifHeartbeat.class ) {
+			@Override
+			public void write( MsgNotifHeartbeat msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				writeString( msg.getApplicationName(), out );
+				writeString( msg.getScopedInstancePath(), out );
+				writeString( msg.getIpAddress(), out );
+				out.writeBoolean( msg.isModelRequired());
+			}
+
+			@Override
+			public MsgNotifHeartbeat read( DataInput in, BinaryMessageCodec codec ) throws IOException {
+				MsgNotifHeartbeat msg = new MsgNotifHeartbeat( readString( in ), readString( in ), readString( in ));
+				msg.setModelRequired( in.readBoolean());
+				return msg;
+			}
+		});
+
+		registerSchema( new MessageSchema<MsgNotifMachineDown>( 2, MsgNotifMachineDown.class ) {
+			@Override
+			public void write( MsgNotifMachineDown msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				writeString( msg.getApplicationName(), out );
+				writeString( msg.getScopedInstancePath(), out );
+			}
+
+			@Override
+			public MsgNotifMachineDown read( DataInput in, BinaryMessageCodec codec ) throws IOException {
+				return new MsgNotifMachineDown( readString( in ), readString( in ));
+			}
+		});
+
+		registerSchema( new MessageSchema<MsgNotifAutonomic>( 3, MsgNotifAutonomic.class ) {
+			@Override
+			public void write( MsgNotifAutonomic msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				writeString( msg.getApplicationName(), out );
+				writeString( msg.getScopedInstancePath(), out );
+				writeString( msg.getEventName(), out );
+				writeString( msg.getEventInfo(), out );
+			}
+
+			@Override
+			public MsgNotifAutonomic read( DataInput in, BinaryMessageCodec codec ) throws IOException {
+				return new MsgNotifAutonomic( readString( in ), readString( in ), readString( in ), readString( in ));
+			}
+		});
+
+		registerSchema( new MessageSchema<MsgNotifLogs>( 4, MsgNotifLogs.class ) {
+			@Override
+			public void write( MsgNotifLogs msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				writeString( msg.getApplicationName(), out );
+				writeString( msg.getScopedInstancePath(), out );
+				writeBytesMap( msg.getLogFiles(), out );
+			}
+
+			@Override
+			public MsgNotifLogs read( DataInput in, BinaryMessageCodec codec ) throws IOException {
+				return new MsgNotifLogs( readString( in ), readString( in ), readBytesMap( in ));
+			}
+		});
+
+		registerSchema( new MessageSchema<MsgNotifInstanceChanged>( 5, MsgNotifInstanceChanged.class ) {
+			@Override
+			public void write( MsgNotifInstanceChanged msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				writeString( msg.getApplicationName(), out );
+				writeString( msg.getInstancePath(), out );
+				writeStatus( msg.getNewStatus(), out );
+				writeImports( msg.getNewImports(), out );
+			}
+
+			@Override
+			public MsgNotifInstanceChanged read( DataInput in, BinaryMessageCodec codec ) throws IOException {
+				return new MsgNotifInstanceChanged( readString( in ), readString( in ), readStatus( in ), readImports( in ));
+			}
+		});
+
+		registerSchema( new MessageSchema<MsgNotifInstanceRemoved>( 6, MsgNotifInstanceRemoved.class ) {
+			@Override
+			public void write( MsgNotifInstanceRemoved msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				writeString( msg.getApplicationName(), out );
+				writeString( msg.getInstancePath(), out );
+			}
+
+			@Override
+			public MsgNotifInstanceRemoved read( DataInput in, BinaryMessageCodec codec ) throws IOException {
+				return new MsgNotifInstanceRemoved( readString( in ), readString( in ));
+			}
+		});
+
+		// From agents to agents
+		registerSchema( new MessageSchema<MsgCmdAddImport>( 20, MsgCmdAddImport.class ) {
+			@Override
+			public void write( MsgCmdAddImport msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				writeString( msg.getApplicationOrContextName(), out );
+				writeString( msg.getComponentOrFacetName(), out );
+				writeString( msg.getAddedInstancePath(), out );
+				writeStringMap( msg.getExportedVariables(), out );
+			}
+
+			@Override
+			public MsgCmdAddImport read( DataInput in, BinaryMessageCodec codec ) throws IOException {
+				return new MsgCmdAddImport( readString( in ), readString( in ), readString( in ), readStringMap( in ));
+			}
+		});
+
+		registerSchema( new MessageSchema<MsgCmdRemoveImport>( 21, MsgCmdRemoveImport.class ) {
+			@Override
+			public void write( MsgCmdRemoveImport msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				writeString( msg.getApplicationOrContextName(), out );
+				writeString( msg.getComponentOrFacetName(), out );
+				writeString( msg.getRemovedInstancePath(), out );
+			}
+
+			@Override
+			public MsgCmdRemoveImport read( DataInput in, BinaryMessageCodec codec ) throws IOException {
+				return new MsgCmdRemoveImport( readString( in ), readString( in ), readString( in ));
+			}
+		});
+
+		registerSchema( new MessageSchema<MsgCmdRequestImport>( 22, MsgCmdRequestImport.class ) {
+			@Override
+			public void write( MsgCmdRequestImport msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				writeString( msg.getApplicationOrContextName(), out );
+				writeString( msg.getComponentOrFacetName(), out );
+			}
+
+			@Override
+			public MsgCmdRequestImport read( DataInput in, BinaryMessageCodec codec ) throws IOException {
+				return new MsgCmdRequestImport( readString( in ), readString( in ));
+			}
+		});
+
+		// From the DM to agents.
+		// MsgCmdSetScopedInstance and MsgCmdAddInstance embed model objects,
+		// they are not listed here and rely on Java serialization.
+		registerSchema( new MessageSchema<MsgCmdChangeInstanceState>( 40, MsgCmdChangeInstanceState.class ) {
+			@Override
+			public void write( MsgCmdChangeInstanceState msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				writeString( msg.getInstancePath(), out );
+				writeStatus( msg.getNewState(), out );
+				writeBytesMap( msg.getFileNameToFileContent(), out );
+			}
+
+			@Override
+			public MsgCmdChangeInstanceState read( DataInput in, BinaryMessageCodec codec ) throws IOException {
+				return new MsgCmdChangeInstanceState( readString( in ), readStatus( in ), readBytesMap( in ));
+			}
+		});
+
+		registerSchema( new MessageSchema<MsgCmdRemoveInstance>( 41, MsgCmdRemoveInstance.class ) {
+			@Override
+			public void write( MsgCmdRemoveInstance msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				writeString( msg.getInstancePath(), out );
+			}
+
+			@Override
+			public MsgCmdRemoveInstance read( DataInput in, BinaryMessageCodec codec ) throws IOException {
+				return new MsgCmdRemoveInstance( readString( in ));
+			}
+		});
+
+		registerSchema( new MessageSchema<MsgCmdResynchronize>( 42, MsgCmdResynchronize.class ) {
+			@Override
+			public void write( MsgCmdResynchronize msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				// nothing
+			}
+
+			@Override
+			public MsgCmdResynchronize read( DataInput in, BinaryMessageCodec codec ) throws IOException {
+				return new MsgCmdResynchronize();
+			}
+		});
+
+		registerSchema( new MessageSchema<MsgCmdSendInstances>( 43, MsgCmdSendInstances.class ) {
+			@Override
+			public void write( MsgCmdSendInstances msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				// nothing
+			}
+
+			@Override
+			public MsgCmdSendInstances read( DataInput in, BinaryMessageCodec codec ) throws IOException {
+				return new MsgCmdSendInstances();
+			}
+		});
+
+		registerSchema( new MessageSchema<MsgCmdGatherLogs>( 44, MsgCmdGatherLogs.class ) {
+			@Override
+			public void write( MsgCmdGatherLogs msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				// nothing
+			}
+
+			@Override
+			public MsgCmdGatherLogs read( DataInput in, BinaryMessageCodec codec ) throws IOException {
+				return new MsgCmdGatherLogs();
+			}
+		});
+
+		registerSchema( new MessageSchema<MsgCmdChangeLogLevel>( 45, MsgCmdChangeLogLevel.class ) {
+			@Override
+			public void write( MsgCmdChangeLogLevel msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				writeString( msg.getLogLevel(), out );
+			}
+
+			@Override
+			public MsgCmdChangeLogLevel read( DataInput in, BinaryMessageCodec codec ) throws IOException {
+
+				String level = readString( in );
+				try {
+					return new MsgCmdChangeLogLevel( Level.parse( level ));
+
+				} catch( RuntimeException e ) {
+					throw new IOException( "Invalid log level: " + level, e );
+				}
+			}
+		});
+
+		registerSchema( new MessageSchema<MsgCmdChangeBinding>( 46, MsgCmdChangeBinding.class ) {
+			@Override
+			public void write( MsgCmdChangeBinding msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				writeString( msg.getExternalExportsPrefix(), out );
+				writeStringCollection( msg.getAppNames(), out );
+			}
+
+			@Override
+			public MsgCmdChangeBinding read( DataInput in, BinaryMessageCodec codec ) throws IOException {
+				return new MsgCmdChangeBinding( readString( in ), readStringSet( in ));
+			}
+		});
+
+		registerSchema( new MessageSchema<MsgCmdUpdateProbeConfiguration>( 47, MsgCmdUpdateProbeConfiguration.class ) {
+			@Override
+			public void write( MsgCmdUpdateProbeConfiguration msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				writeString( msg.getInstancePath(), out );
+				writeBytesMap( msg.getProbeResources(), out );
+			}
+
+			@Override
+			public MsgCmdUpdateProbeConfiguration read( DataInput in, BinaryMessageCodec codec ) throws IOException {
+				return new MsgCmdUpdateProbeConfiguration( readString( in ), readBytesMap( in ));
+			}
+		});
+
+		// From the DM to the DM
+		registerSchema( new MessageSchema<MsgEcho>( 60, MsgEcho.class ) {
+			@Override
+			public void write( MsgEcho msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				writeString( msg.getContent(), out );
+				out.writeLong( msg.getCreationTime());
+
+				UUID uuid = msg.getUuid();
+				out.writeBoolean( uuid != null );
+				if( uuid != null ) {
+					out.writeLong( uuid.getMostSignificantBits());
+					out.writeLong( uuid.getLeastSignificantBits());
+				}
+			}
+
+			@Override
+			public MsgEcho read( DataInput in, BinaryMessageCodec codec ) throws IOException {
+				String content = readString( in );
+				long creationTime = in.readLong();
+				UUID uuid = in.readBoolean() ? new UUID( in.readLong(), in.readLong()) : null;
+				return new MsgEcho( content, uuid, creationTime );
+			}
+		});
+	}
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.api.codecs;
+
+import java.io.IOException;
+
+import net.roboconf.messaging.api.messages.Message;
+
+/**
+ * A codec converts messages into bytes (and vice-versa).
+ * <p>
+ * Codecs are used by messaging implementations to transfer messages
+ * over the network. They must be thread-safe.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public interface IMessageCodec {
+
+	/**
+	 * @return the codec's name (not null)
+	 */
+	String getName();
+
+	/**
+	 * Encodes a message.
+	 * @param message a non-null message
+	 * @return a non-null array of bytes
+	 * @throws IOException if the message could not be encoded
+	 */
+	byte[] encode( Message message ) throws IOException;
+
+	/**
+	 * Decodes a message.
+	 * @param bytes a non-null array of bytes
+	 * @param offset the offset of the message in the array
+	 * @param length the number of bytes to read
+	 * @return the decoded message (not null)
+	 * @throws IOException if the message could not be decoded
+	 * @throws ClassNotFoundException if a class could not be resolved during decoding
+	 */
+	Message decode( byte[] bytes, int offset, int length ) throws IOException, ClassNotFoundException;
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.api.codecs;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+
+import net.roboconf.messaging.api.messages.Message;
+
+/**
+ * A codec based on Java serialization.
+ * <p>
+ * This codec supports any (serializable) message.
+ * It is the historical format used by Roboconf.
+ * </p>
+ * <p>
+ * In OSGi environments, a class loader can be specified to
+ * resolve classes that are not visible from this bundle.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public class JavaMessageCodec implements IMessageCodec {
+
+	/**
+	 * The codec's name.
+	 */
+	public static final String NAME = "java";
+
+	private final ClassLoader classLoader;
+
+
+	/**
+	 * Constructor.
+	 */
+	public JavaMessageCodec() {
+		this( null );
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param classLoader the class loader to use to resolve classes (null to use the default behavior)
+	 */
+	public JavaMessageCodec( ClassLoader classLoader ) {
+		this.classLoader = classLoader;
+	}
+
+
+	@Override
+	public String getName() {
+		return NAME;
+	}
+
+
+	@Override
+	public byte[] encode( Message message ) throws IOException {
+
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream( os );
+		out.writeObject( message );
+
+		return os.toByteArray();
+	}
+
+
+	@Override
+	public Message decode( byte[] bytes, int offset, int length )
+	throws IOException, ClassNotFoundException {
+
+		ByteArrayInputStream is = new ByteArrayInputStream( bytes, offset, length );
+		ObjectInputStream deserializer = newObjectInputStream( is );
+		return (Message) deserializer.readObject();
+	}
+
+
+	/**
+	 * Creates an object input stream that uses the right class loader.
+	 * @param is an input stream
+	 * @return a non-null object input stream
+	 * @throws IOException
+	 */
+	private ObjectInputStream newObjectInputStream( InputStream is ) throws IOException {
+
+		if( this.classLoader == null )
+			return new ObjectInputStream( is );
+
+		return new ObjectInputStream( is ) {
+			@Override
+			protected Class<?> resolveClass( ObjectStreamClass desc )
+			throws IOException, ClassNotFoundException {
+
+				try {
+					return Class.forName( desc.getName(), false, JavaMessageCodec.this.classLoader );
+
+				} catch( ClassNotFoundException e ) {
+					return super.resolveClass( desc );
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.api.codecs;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A data input that reads a slice of an array of bytes, without copying it.
+ * <p>
+ * Instances can be reused to read successive messages, which saves the allocation
+ * of input streams for every received message. They are not thread-safe: receivers
+ * should use one instance per connection (or per thread).
+ * </p>
+ * <p>
+ * Positions and limits are absolute indexes in the wrapped array.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public final class SliceInput extends DataInputStream {
+
+	private static final byte[] EMPTY = new byte[ 0 ];
+	private final Slice slice;
+
+
+	/**
+	 * Constructor.
+	 */
+	public SliceInput() {
+		super( new Slice());
+		this.slice = (Slice) this.in;
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param bytes a non-null array of bytes
+	 * @param offset the offset of the slice
+	 * @param length the length of the slice
+	 */
+	public SliceInput( byte[] bytes, int offset, int length ) {
+		this();
+		wrap( bytes, offset, length );
+	}
+
+
+	/**
+	 * Makes this input read another slice.
+	 * @param bytes a non-null array of bytes
+	 * @param offset the offset of the slice
+	 * @param length the length of the slice
+	 */
+	public void wrap( byte[] bytes, int offset, int length ) {
+		this.slice.wrap( bytes, offset, length );
+	}
+
+
+	/**
+	 * Releases the wrapped array, so that it can be garbage collected.
+	 */
+	public void release() {
+		this.slice.wrap( EMPTY, 0, 0 );
+	}
+
+
+	/**
+	 * @return the wrapped array
+	 */
+	public byte[] buffer() {
+		return this.slice.buffer();
+	}
+
+
+	/**
+	 * @return the index of the next byte to read
+	 */
+	public int position() {
+		return this.slice.position();
+	}
+
+
+	/**
+	 * @param position the index of the next byte to read (between the current position and the limit)
+	 */
+	public void position( int position ) {
+		this.slice.position( position );
+	}
+
+
+	/**
+	 * @return the index of the first byte that must not be read
+	 */
+	public int limit() {
+		return this.slice.limit();
+	}
+
+
+	/**
+	 * @param limit the index of the first byte that must not be read (at most the array's length)
+	 */
+	public void limit( int limit ) {
+		this.slice.limit( limit );
+	}
+
+
+	/**
+	 * Reads an UTF-8 string directly from the wrapped array.
+	 * @param length the number of bytes to read
+	 * @return a non-null string
+	 * @throws EOFException if there are not enough bytes
+	 */
+	public String readUtf8( int length ) throws EOFException {
+
+		int position = this.slice.position();
+		if( length > this.slice.limit() - position )
+			throw new EOFException();
+
+		String result = new String( this.slice.buffer(), position, length, StandardCharsets.UTF_8 );
+		this.slice.position( position + length );
+		return result;
+	}
+
+
+	/**
+	 * A byte array input stream whose array and position can be changed.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	private static final class Slice extends ByteArrayInputStream {
+
+		Slice() {
+			super( EMPTY );
+		}
+
+		void wrap( byte[] bytes, int offset, int length ) {
+			this.buf = bytes;
+			this.pos = offset;
+			this.mark = offset;
+			this.count = Math.min( offset + length, bytes.length );
+		}
+
+		byte[] buffer() {
+			return this.buf;
+		}
+
+		int position() {
+			return this.pos;
+		}
+
+		void position( int position ) {
+			this.pos = position;
+		}
+
+		int limit() {
+			return this.count;
+		}
+
+		void limit( int limit ) {
+			this.count = Math.min( limit, this.buf.length );
+		}
+	}
+}
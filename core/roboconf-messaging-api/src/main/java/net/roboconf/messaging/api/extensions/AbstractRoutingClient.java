@@ -27,10 +27,10 @@ package net.roboconf.messaging.api.extensions;
 
 import java.io.IOException;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Logger;
 
@@ -65,11 +65,18 @@ public abstract class AbstractRoutingClient<T> implements IMessagingClient {
 	 * arguments to the agents it creates. This way, messaging clients that
 	 * extends this class are isolated from other implementations.
 	 * </p>
+	 * <p>
+	 * Subscriptions are stored twice: by owner (client ID to contexts) and by
+	 * context (context to client IDs). The second map is an inverted index, so
+	 * that publishing a message only visits the clients that subscribed to its context.
+	 * Both maps must only be modified through {@link AbstractRoutingClient}.
+	 * </p>
 	 *
 	 * @author Vincent Zurczak - Linagora
 	 */
 	public static abstract class RoutingContext {
 		public final Map<String,Set<MessagingContext>> subscriptions = new ConcurrentHashMap<> ();
+		public final Map<MessagingContext,Set<String>> subscribers = new ConcurrentHashMap<> ();
 	}
 
 
@@ -118,7 +125,13 @@ public abstract class AbstractRoutingClient<T> implements IMessagingClient {
 
 		this.logger.fine( getOwnerId() + " is deleting server artifacts for " + application );
 		getStaticContextToObject().remove( this.ownerId );
-		this.routingContext.subscriptions.remove( this.ownerId );
+		synchronized( this.routingContext ) {
+			Set<MessagingContext> subscriptions = this.routingContext.subscriptions.remove( this.ownerId );
+			if( subscriptions != null ) {
+				for( MessagingContext ctx : subscriptions )
+					removeSubscriber( ctx, this.ownerId );
+			}
+		}
 	}
 
 
@@ -143,22 +156,27 @@ public abstract class AbstractRoutingClient<T> implements IMessagingClient {
 
 
 	@Override
-	public void publish( MessagingContext ctx, Message msg ) throws IOException {
+	public long publish( MessagingContext ctx, Message msg ) throws IOException {
 
 		this.logger.fine( getOwnerId() + " is publishing message (" + msg + ") to " + buildOwnerId( ctx ));
 		if( ! canProceed()) {
 			this.logger.fine( getOwnerId() + " is dropping message (" + msg + ") for " + buildOwnerId( ctx ));
-			return;
+			return 0;
 		}
 
-		for( Map.Entry<String,Set<MessagingContext>> entry : this.routingContext.subscriptions.entrySet()) {
-			if( ! entry.getValue().contains( ctx ))
-				continue;
+		// Only visit the clients that subscribed to this context
+		Set<String> ownerIds = ctx == null ? null : this.routingContext.subscribers.get( ctx );
+		if( ownerIds == null )
+			return 0;
 
-			T obj = getStaticContextToObject().get( entry.getKey());
+		long result = 0;
+		for( String id : ownerIds ) {
+			T obj = getStaticContextToObject().get( id );
 			if( obj != null )
-				process( obj, msg );
+				result += process( obj, msg );
 		}
+
+		return result;
 	}
 
 
@@ -190,9 +208,16 @@ public abstract class AbstractRoutingClient<T> implements IMessagingClient {
 			if( obj != null )
 				getStaticContextToObject().put( newOwnerId, obj );
 
-			Set<MessagingContext> subscriptions = this.routingContext.subscriptions.remove( oldOwnerId );
-			if( subscriptions != null )
-				this.routingContext.subscriptions.put( newOwnerId, subscriptions );
+			synchronized( this.routingContext ) {
+				Set<MessagingContext> subscriptions = this.routingContext.subscriptions.remove( oldOwnerId );
+				if( subscriptions != null ) {
+					this.routingContext.subscriptions.put( newOwnerId, subscriptions );
+					for( MessagingContext ctx : subscriptions ) {
+						removeSubscriber( ctx, oldOwnerId );
+						addSubscriber( ctx, newOwnerId );
+					}
+				}
+			}
 		}
 	}
 
@@ -267,13 +292,16 @@ public abstract class AbstractRoutingClient<T> implements IMessagingClient {
 		if( ! canProceed())
 			return;
 
-		Set<MessagingContext> sub = this.routingContext.subscriptions.get( id );
-		if( sub == null ) {
-			sub = new HashSet<> ();
-			this.routingContext.subscriptions.put( id, sub );
-		}
+		synchronized( this.routingContext ) {
+			Set<MessagingContext> sub = this.routingContext.subscriptions.get( id );
+			if( sub == null ) {
+				sub = new CopyOnWriteArraySet<> ();
+				this.routingContext.subscriptions.put( id, sub );
+			}
 
-		sub.add( ctx );
+			sub.add( ctx );
+			addSubscriber( ctx, id );
+		}
 	}
 
 
@@ -288,11 +316,59 @@ public abstract class AbstractRoutingClient<T> implements IMessagingClient {
 		if( ! canProceed())
 			return;
 
-		Set<MessagingContext> sub = this.routingContext.subscriptions.get( id );
-		if( sub != null ) {
-			sub.remove( ctx );
-			if( sub.isEmpty())
-				this.routingContext.subscriptions.remove( id );
+		synchronized( this.routingContext ) {
+			Set<MessagingContext> sub = this.routingContext.subscriptions.get( id );
+			if( sub != null ) {
+				sub.remove( ctx );
+				if( sub.isEmpty())
+					this.routingContext.subscriptions.remove( id );
+			}
+
+			removeSubscriber( ctx, id );
+		}
+	}
+
+
+	/**
+	 * Adds a client ID in the inverted index.
+	 * <p>
+	 * Must be invoked while holding the routing context's lock.
+	 * </p>
+	 *
+	 * @param ctx a messaging context
+	 * @param id a client ID
+	 */
+	private void addSubscriber( MessagingContext ctx, String id ) {
+
+		if( ctx == null )
+			return;
+
+		Set<String> ids = this.routingContext.subscribers.get( ctx );
+		if( ids == null ) {
+			ids = new CopyOnWriteArraySet<> ();
+			this.routingContext.subscribers.put( ctx, ids );
+		}
+
+		ids.add( id );
+	}
+
+
+	/**
+	 * Removes a client ID from the inverted index.
+	 * <p>
+	 * Must be invoked while holding the routing context's lock.
+	 * </p>
+	 *
+	 * @param ctx a messaging context
+	 * @param id a client ID
+	 */
+	private void removeSubscriber( MessagingContext ctx, String id ) {
+
+		Set<String> ids = ctx == null ? null : this.routingContext.subscribers.get( ctx );
+		if( ids != null ) {
+			ids.remove( id );
+			if( ids.isEmpty())
+				this.routingContext.subscribers.remove( ctx );
 		}
 	}
 
@@ -315,5 +391,13 @@ public abstract class AbstractRoutingClient<T> implements IMessagingClient {
 
 
 	protected abstract Map<String,T> getStaticContextToObject();
-	protected abstract void process( T obj, Message message ) throws IOException;
+
+	/**
+	 * Delivers a message to a subscriber.
+	 * @param obj the object associated with the subscriber
+	 * @param message the message to deliver
+	 * @return the number of bytes sent (0 if the message was not serialized or was dropped)
+	 * @throws IOException if something went wrong
+	 */
+	protected abstract int process( T obj, Message message ) throws IOException;
 }
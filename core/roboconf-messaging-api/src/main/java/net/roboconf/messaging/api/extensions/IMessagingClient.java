@@ -114,9 +114,11 @@ public interface IMessagingClient {
 	 * Publishes a message.
 	 * @param ctx a messaging context (not null)
 	 * @param msg the message to publish (not null)
+	 * @return the number of bytes actually sent, for all the recipients
+	 * (0 if the message was not serialized or if it was dropped)
 	 * @throws IOException if something went wrong
 	 */
-	void publish( MessagingContext ctx, Message msg ) throws IOException;
+	long publish( MessagingContext ctx, Message msg ) throws IOException;
 
 	/**
 	 * Clear artifacts on the messaging server.
@@ -95,8 +95,9 @@ public class DismissClient implements IMessagingClient {
 
 
 	@Override
-	public void publish( MessagingContext ctx, Message msg ) throws IOException {
+	public long publish( MessagingContext ctx, Message msg ) throws IOException {
 		this.logger.warning( DISMISSED_MESSAGE );
+		return 0;
 	}
 
 
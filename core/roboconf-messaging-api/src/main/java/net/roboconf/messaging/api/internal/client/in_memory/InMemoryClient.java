@@ -27,8 +27,8 @@ package net.roboconf.messaging.api.internal.client.in_memory;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
 
 import net.roboconf.messaging.api.MessagingConstants;
 import net.roboconf.messaging.api.extensions.AbstractRoutingClient;
@@ -45,17 +45,17 @@ import net.roboconf.messaging.api.messages.Message;
  *
  * @author Vincent Zurczak - Linagora
  */
-public class InMemoryClient extends AbstractRoutingClient<LinkedBlockingQueue<Message>> {
+public class InMemoryClient extends AbstractRoutingClient<BlockingQueue<Message>> {
 
 	/**
 	 * @author Vincent Zurczak - Linagora
 	 */
 	public static class InMemoryRoutingContext extends RoutingContext {
-		public final Map<String,LinkedBlockingQueue<Message>> ctxToQueue = new ConcurrentHashMap<> ();
+		public final Map<String,BlockingQueue<Message>> ctxToQueue = new ConcurrentHashMap<> ();
 	}
 
 	// Internal field (for a convenient access).
-	private final Map<String,LinkedBlockingQueue<Message>> ctxToQueue;
+	private final Map<String,BlockingQueue<Message>> ctxToQueue;
 
 
 	/**
@@ -76,7 +76,7 @@ public class InMemoryClient extends AbstractRoutingClient<LinkedBlockingQueue<Me
 
 
 	@Override
-	protected Map<String,LinkedBlockingQueue<Message>> getStaticContextToObject() {
+	protected Map<String,BlockingQueue<Message>> getStaticContextToObject() {
 		return this.ctxToQueue;
 	}
 
@@ -88,7 +88,8 @@ public class InMemoryClient extends AbstractRoutingClient<LinkedBlockingQueue<Me
 
 
 	@Override
-	protected void process( LinkedBlockingQueue<Message> queue, Message message ) throws IOException {
+	protected int process( BlockingQueue<Message> queue, Message message ) throws IOException {
 		queue.add( message );
+		return 0;
 	}
 }
@@ -126,7 +126,7 @@ public class TestClient implements IMessagingClient {
 
 
 	@Override
-	public void publish( MessagingContext ctx, Message msg ) throws IOException {
+	public long publish( MessagingContext ctx, Message msg ) throws IOException {
 
 		if( this.failMessageSending.get())
 			throw new IOException( "Sending a message was configured to fail." );
@@ -144,6 +144,8 @@ public class TestClient implements IMessagingClient {
 			this.messagesForTheDm.add( msg );
 		else
 			this.messagesForAgents.add( msg );
+
+		return 0;
 	}
 
 
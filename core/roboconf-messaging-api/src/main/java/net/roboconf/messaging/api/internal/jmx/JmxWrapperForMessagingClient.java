@@ -26,24 +26,31 @@
 package net.roboconf.messaging.api.internal.jmx;
 
 import java.io.IOException;
-import java.util.Date;
+import java.util.ArrayList;
 import java.util.Dictionary;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.TabularData;
+
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
 
 import net.roboconf.core.model.beans.Application;
 import net.roboconf.core.utils.Utils;
+import net.roboconf.messaging.api.extensions.IConfirmingMessagingClient;
 import net.roboconf.messaging.api.extensions.IMessagingClient;
 import net.roboconf.messaging.api.extensions.MessagingContext;
 import net.roboconf.messaging.api.extensions.MessagingContext.RecipientKind;
 import net.roboconf.messaging.api.internal.client.dismiss.DismissClient;
 import net.roboconf.messaging.api.jmx.MessagingApiMBean;
+import net.roboconf.messaging.api.jmx.PublicationConfirms;
 import net.roboconf.messaging.api.jmx.RoboconfMessageQueue;
+import net.roboconf.messaging.api.jmx.StripedCounter;
 import net.roboconf.messaging.api.messages.Message;
 import net.roboconf.messaging.api.utils.MessagingUtils;
 import net.roboconf.messaging.api.utils.OsgiHelper;
@@ -59,10 +66,11 @@ import net.roboconf.messaging.api.utils.OsgiHelper;
 public class JmxWrapperForMessagingClient implements IMessagingClient, MessagingApiMBean {
 
 	// Sent messages
-	private final AtomicLong sentMessagesCount = new AtomicLong();
-	private final AtomicLong failedSendingCount = new AtomicLong();
+	private final StripedCounter sentMessagesCount = new StripedCounter();
+	private final StripedCounter failedSendingCount = new StripedCounter();
 	private final AtomicLong timestampOfLastSendingFailure = new AtomicLong();
 	private final AtomicLong timestampOfLastSentMessage = new AtomicLong();
+	private final PublicationStatistics publicationStatistics = new PublicationStatistics();
 
 	// The wrapped elements
 	private final IMessagingClient messagingClient;
@@ -150,10 +158,15 @@ public class JmxWrapperForMessagingClient implements IMessagingClient, Messaging
 	@Override
 	public synchronized void reset() {
 
-		this.sentMessagesCount.set( 0 );
-		this.failedSendingCount.set( 0 );
+		this.sentMessagesCount.reset();
+		this.failedSendingCount.reset();
 		this.timestampOfLastSendingFailure.set( 0 );
 		this.timestampOfLastSentMessage.set( 0 );
+		this.publicationStatistics.reset();
+
+		PublicationConfirms confirms = findPublicationConfirms();
+		if( confirms != null )
+			confirms.reset();
 
 		if( this.messageQueue != null )
 			this.messageQueue.reset();
@@ -170,13 +183,13 @@ public class JmxWrapperForMessagingClient implements IMessagingClient, Messaging
 
 	@Override
 	public synchronized long getFailedSendingCount() {
-		return this.failedSendingCount.get();
+		return this.failedSendingCount.sum();
 	}
 
 
 	@Override
 	public synchronized long getSentMessagesCount() {
-		return this.sentMessagesCount.get();
+		return this.sentMessagesCount.sum();
 	}
 
 
@@ -192,6 +205,82 @@ public class JmxWrapperForMessagingClient implements IMessagingClient, Messaging
 	}
 
 
+	@Override
+	public TabularData getPublishedMessagesPerType() {
+
+		TabularData result = null;
+		try {
+			result = this.publicationStatistics.byTypeAsTabularData();
+
+		} catch( OpenDataException e ) {
+			this.logger.severe( "Statistics about published messages could not be converted for JMX." );
+			Utils.logException( this.logger, e );
+		}
+
+		return result;
+	}
+
+
+	@Override
+	public TabularData getPublishedMessagesPerRecipient() {
+
+		TabularData result = null;
+		try {
+			result = this.publicationStatistics.byRecipientAsTabularData();
+
+		} catch( OpenDataException e ) {
+			this.logger.severe( "Statistics about published messages could not be converted for JMX." );
+			Utils.logException( this.logger, e );
+		}
+
+		return result;
+	}
+
+
+	@Override
+	public long getConfirmedMessagesCount() {
+		PublicationConfirms confirms = findPublicationConfirms();
+		return confirms == null ? 0 : confirms.getConfirmedCount();
+	}
+
+
+	@Override
+	public long getRejectedMessagesCount() {
+		PublicationConfirms confirms = findPublicationConfirms();
+		return confirms == null ? 0 : confirms.getRejectedCount();
+	}
+
+
+	@Override
+	public long getUnconfirmedMessagesCount() {
+		PublicationConfirms confirms = findPublicationConfirms();
+		return confirms == null ? 0 : confirms.getPendingCount();
+	}
+
+
+	@Override
+	public String getMetricsAsText() {
+
+		StringBuilder sb = new StringBuilder();
+		appendCounter( sb, "sent_messages_total", "Number of messages sent successfully", getSentMessagesCount());
+		appendCounter( sb, "sending_failures_total", "Number of messages that failed to be sent", getFailedSendingCount());
+		appendCounter( sb, "received_messages_total", "Number of received messages", getReceivedMessagesCount());
+		appendCounter( sb, "reception_failures_total", "Number of messages that failed to be received", getFailedReceptionCount());
+		appendCounter( sb, "dropped_messages_total", "Number of received messages that were dropped", getDroppedMessagesCount());
+		appendCounter( sb, "collapsed_messages_total", "Number of received messages replaced by a more recent one", getCollapsedMessagesCount());
+
+		if( findPublicationConfirms() != null ) {
+			appendCounter( sb, "confirmed_messages_total", "Number of sent messages the messaging server confirmed", getConfirmedMessagesCount());
+			appendCounter( sb, "rejected_messages_total", "Number of sent messages the messaging server rejected", getRejectedMessagesCount());
+			appendMetric( sb, "unconfirmed_messages", "Number of sent messages whose confirmation is expected", "gauge", getUnconfirmedMessagesCount());
+		}
+
+		this.publicationStatistics.appendAsText( sb );
+
+		return sb.toString();
+	}
+
+
 	// Received messages
 
 	@Override
@@ -218,6 +307,37 @@ public class JmxWrapperForMessagingClient implements IMessagingClient, Messaging
 	}
 
 
+	@Override
+	public synchronized long getDroppedMessagesCount() {
+		return this.messageQueue == null ? 0 : this.messageQueue.getDroppedMessagesCount();
+	}
+
+
+	@Override
+	public synchronized long getCollapsedMessagesCount() {
+		return this.messageQueue == null ? 0 : this.messageQueue.getCollapsedMessagesCount();
+	}
+
+
+	@Override
+	public synchronized long getMessageQueueHighWaterMark() {
+		return this.messageQueue == null ? 0 : this.messageQueue.getHighWaterMark();
+	}
+
+
+	@Override
+	public synchronized String[] getMessageLatencies() {
+
+		List<String> result = new ArrayList<> ();
+		if( this.messageQueue != null ) {
+			for( Map.Entry<String,Map<String,Long>> entry : this.messageQueue.getLatencies().entrySet())
+				result.add( entry.getKey() + " " + entry.getValue());
+		}
+
+		return result.toArray( new String[ result.size()]);
+	}
+
+
 	// Simple wrapped methods
 
 	@Override
@@ -283,21 +403,67 @@ public class JmxWrapperForMessagingClient implements IMessagingClient, Messaging
 
 
 	@Override
-	public void publish( MessagingContext ctx, Message msg ) throws IOException {
+	public long publish( MessagingContext ctx, Message msg ) throws IOException {
 
+		long start = System.nanoTime();
 		try {
-			this.messagingClient.publish( ctx, msg );
-			this.sentMessagesCount.incrementAndGet();
-			this.timestampOfLastSentMessage.set( new Date().getTime());
+			long bytes = this.messagingClient.publish( ctx, msg );
+			this.publicationStatistics.recordSuccess( ctx, msg, bytes, System.nanoTime() - start );
+			this.sentMessagesCount.increment();
+			this.timestampOfLastSentMessage.lazySet( System.currentTimeMillis());
+			return bytes;
 
 		} catch( IOException e ) {
-			this.failedSendingCount.incrementAndGet();
-			this.timestampOfLastSendingFailure.set( new Date().getTime());
+			this.publicationStatistics.recordFailure( ctx, msg, System.nanoTime() - start );
+			this.failedSendingCount.increment();
+			this.timestampOfLastSendingFailure.lazySet( System.currentTimeMillis());
 			throw e;
 		}
 	}
 
 
+	/**
+	 * Writes a counter in the Prometheus text format.
+	 * @param sb the string builder to complete
+	 * @param shortName the counter's name, without the prefix
+	 * @param help the counter's description
+	 * @param value the counter's value
+	 */
+	private static void appendCounter( StringBuilder sb, String shortName, String help, long value ) {
+		appendMetric( sb, shortName, help, "counter", value );
+	}
+
+
+	/**
+	 * Writes a metric in the Prometheus text format.
+	 * @param sb the string builder to complete
+	 * @param shortName the metric's name, without the prefix
+	 * @param help the metric's description
+	 * @param type the metric's type (e.g. "counter" or "gauge")
+	 * @param value the metric's value
+	 */
+	private static void appendMetric( StringBuilder sb, String shortName, String help, String type, long value ) {
+
+		String name = PublicationStatistics.PREFIX + shortName;
+		sb.append( "# HELP " ).append( name ).append( " " ).append( help ).append( ".\n" );
+		sb.append( "# TYPE " ).append( name ).append( " " ).append( type ).append( "\n" );
+		sb.append( name ).append( " " ).append( value ).append( "\n" );
+	}
+
+
+	/**
+	 * @return the confirmations of the wrapped client's publications, or null if it does not support them
+	 */
+	private PublicationConfirms findPublicationConfirms() {
+
+		PublicationConfirms result = null;
+		if( this.messagingClient instanceof IConfirmingMessagingClient )
+			result = ((IConfirmingMessagingClient) this.messagingClient).getPublicationConfirms();
+
+		return result;
+	}
+
+
 	@Override
 	public void setOwnerProperties(
 			RecipientKind ownerKind,
@@ -0,0 +1,329 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.api.internal.jmx;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
+import net.roboconf.messaging.api.extensions.MessagingContext;
+import net.roboconf.messaging.api.extensions.MessagingContext.RecipientKind;
+import net.roboconf.messaging.api.jmx.LatencyHistogram;
+import net.roboconf.messaging.api.jmx.StripedCounter;
+import net.roboconf.messaging.api.messages.Message;
+
+/**
+ * Statistics about published messages, per message type and per recipient kind.
+ * <p>
+ * Recording a publication does not lock anything. It only allocates memory
+ * the first time a message type is published.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+class PublicationStatistics {
+
+	static final String PREFIX = "roboconf_messaging_";
+
+	private static final String[] ITEM_NAMES = {
+		"sent", "failed", "bytes",
+		"latencyMean", "latencyP50", "latencyP99", "latencyMax"
+	};
+
+	private static final String[] ITEM_DESCRIPTIONS = {
+		"Number of messages sent successfully",
+		"Number of messages that failed to be sent",
+		"Number of bytes sent (when messages are serialized)",
+		"Mean publish latency (in microseconds)",
+		"Median publish latency (in microseconds)",
+		"99th percentile of the publish latency (in microseconds)",
+		"Maximum publish latency (in microseconds)"
+	};
+
+	private final ConcurrentHashMap<Class<?>,Counters> byType = new ConcurrentHashMap<> ();
+	private final Counters[] byRecipient;
+
+
+	/**
+	 * Constructor.
+	 */
+	PublicationStatistics() {
+		this.byRecipient = new Counters[ RecipientKind.values().length ];
+		for( int i = 0; i < this.byRecipient.length; i ++ )
+			this.byRecipient[ i ] = new Counters();
+	}
+
+
+	/**
+	 * Records a successful publication.
+	 * @param ctx the messaging context (can be null)
+	 * @param message the published message
+	 * @param bytes the number of bytes the messaging client actually sent
+	 * @param duration the duration of the publication (in nanoseconds)
+	 */
+	void recordSuccess( MessagingContext ctx, Message message, long bytes, long duration ) {
+		record( ctx, message, true, bytes, duration );
+	}
+
+
+	/**
+	 * Records a failed publication.
+	 * @param ctx the messaging context (can be null)
+	 * @param message the message that could not be published
+	 * @param duration the duration of the publication (in nanoseconds)
+	 */
+	void recordFailure( MessagingContext ctx, Message message, long duration ) {
+		record( ctx, message, false, 0, duration );
+	}
+
+
+	private void record( MessagingContext ctx, Message message, boolean success, long bytes, long duration ) {
+
+		Counters counters = this.byType.get( message.getClass());
+		if( counters == null ) {
+			Counters newCounters = new Counters();
+			counters = this.byType.putIfAbsent( message.getClass(), newCounters );
+			if( counters == null )
+				counters = newCounters;
+		}
+
+		counters.record( success, bytes, duration );
+		if( ctx != null && ctx.getKind() != null )
+			this.byRecipient[ ctx.getKind().ordinal()].record( success, bytes, duration );
+	}
+
+
+	/**
+	 * Resets all the statistics.
+	 */
+	void reset() {
+
+		// Types are kept, they will most likely be published again
+		for( Counters counters : this.byType.values())
+			counters.reset();
+
+		for( Counters counters : this.byRecipient )
+			counters.reset();
+	}
+
+
+	/**
+	 * @return the statistics per message type (as open data, for JMX)
+	 * @throws OpenDataException
+	 */
+	TabularData byTypeAsTabularData() throws OpenDataException {
+		return toTabularData( "type", "Message type", sortedTypes());
+	}
+
+
+	/**
+	 * @return the statistics per recipient kind (as open data, for JMX)
+	 * @throws OpenDataException
+	 */
+	TabularData byRecipientAsTabularData() throws OpenDataException {
+		return toTabularData( "recipient", "Recipient kind", sortedRecipients());
+	}
+
+
+	/**
+	 * Writes the statistics in the Prometheus text format.
+	 * @param sb the string builder to complete
+	 */
+	void appendAsText( StringBuilder sb ) {
+
+		Map<String,Counters> types = sortedTypes();
+		Map<String,Counters> recipients = sortedRecipients();
+
+		appendCounter( sb, "published_messages_total", "Number of messages sent successfully", "type", types, 0 );
+		appendCounter( sb, "publication_failures_total", "Number of messages that failed to be sent", "type", types, 1 );
+		appendCounter( sb, "published_bytes_total", "Number of bytes sent (when messages are serialized)", "type", types, 2 );
+		appendLatencies( sb, "publish_latency_microseconds", "type", types );
+
+		appendCounter( sb, "published_messages_by_recipient_total", "Number of messages sent successfully", "recipient", recipients, 0 );
+		appendCounter( sb, "publication_failures_by_recipient_total", "Number of messages that failed to be sent", "recipient", recipients, 1 );
+		appendCounter( sb, "published_bytes_by_recipient_total", "Number of bytes sent (when messages are serialized)", "recipient", recipients, 2 );
+		appendLatencies( sb, "publish_latency_by_recipient_microseconds", "recipient", recipients );
+	}
+
+
+	private Map<String,Counters> sortedTypes() {
+
+		Map<String,Counters> result = new TreeMap<> ();
+		for( Map.Entry<Class<?>,Counters> entry : this.byType.entrySet())
+			result.put( entry.getKey().getSimpleName(), entry.getValue());
+
+		return result;
+	}
+
+
+	private Map<String,Counters> sortedRecipients() {
+
+		Map<String,Counters> result = new TreeMap<> ();
+		for( RecipientKind kind : RecipientKind.values())
+			result.put( kind.toString(), this.byRecipient[ kind.ordinal()]);
+
+		return result;
+	}
+
+
+	private static TabularData toTabularData( String keyName, String keyDescription, Map<String,Counters> rows )
+	throws OpenDataException {
+
+		String[] names = new String[ ITEM_NAMES.length + 1 ];
+		String[] descriptions = new String[ names.length ];
+		OpenType<?>[] types = new OpenType<?>[ names.length ];
+
+		names[ 0 ] = keyName;
+		descriptions[ 0 ] = keyDescription;
+		types[ 0 ] = SimpleType.STRING;
+		for( int i = 0; i < ITEM_NAMES.length; i ++ ) {
+			names[ i + 1 ] = ITEM_NAMES[ i ];
+			descriptions[ i + 1 ] = ITEM_DESCRIPTIONS[ i ];
+			types[ i + 1 ] = SimpleType.LONG;
+		}
+
+		CompositeType rowType = new CompositeType( keyName, "Publication statistics", names, descriptions, types );
+		TabularType tabularType = new TabularType( keyName + "s", "Publication statistics per " + keyName, rowType, new String[] { keyName });
+		TabularData result = new TabularDataSupport( tabularType );
+
+		for( Map.Entry<String,Counters> entry : rows.entrySet()) {
+			Counters counters = entry.getValue();
+			Object[] values = {
+				entry.getKey(),
+				counters.sent.sum(),
+				counters.failed.sum(),
+				counters.bytes.sum(),
+				counters.latency.getMean(),
+				counters.latency.getValueAtPercentile( 50 ),
+				counters.latency.getValueAtPercentile( 99 ),
+				counters.latency.getMax()
+			};
+
+			result.put( new CompositeDataSupport( rowType, names, values ));
+		}
+
+		return result;
+	}
+
+
+	private static void appendCounter(
+			StringBuilder sb,
+			String shortName,
+			String help,
+			String label,
+			Map<String,Counters> rows,
+			int counterIndex ) {
+
+		String name = PREFIX + shortName;
+		sb.append( "# HELP " ).append( name ).append( " " ).append( help ).append( ".\n" );
+		sb.append( "# TYPE " ).append( name ).append( " counter\n" );
+		for( Map.Entry<String,Counters> entry : rows.entrySet())
+			appendLine( sb, name, label, entry.getKey(), null, entry.getValue().get( counterIndex ));
+	}
+
+
+	private static void appendLatencies( StringBuilder sb, String shortName, String label, Map<String,Counters> rows ) {
+
+		String name = PREFIX + shortName;
+		sb.append( "# HELP " ).append( name ).append( " Time spent publishing messages.\n" );
+		sb.append( "# TYPE " ).append( name ).append( " summary\n" );
+		for( Map.Entry<String,Counters> entry : rows.entrySet()) {
+			LatencyHistogram latency = entry.getValue().latency;
+			appendLine( sb, name, label, entry.getKey(), "0.5", latency.getValueAtPercentile( 50 ));
+			appendLine( sb, name, label, entry.getKey(), "0.9", latency.getValueAtPercentile( 90 ));
+			appendLine( sb, name, label, entry.getKey(), "0.99", latency.getValueAtPercentile( 99 ));
+			appendLine( sb, name + "_sum", label, entry.getKey(), null, latency.getTotal());
+			appendLine( sb, name + "_count", label, entry.getKey(), null, latency.getCount());
+		}
+	}
+
+
+	private static void appendLine( StringBuilder sb, String name, String label, String labelValue, String quantile, long value ) {
+
+		sb.append( name ).append( "{" ).append( label ).append( "=\"" ).append( labelValue ).append( "\"" );
+		if( quantile != null )
+			sb.append( ",quantile=\"" ).append( quantile ).append( "\"" );
+
+		sb.append( "} " ).append( value ).append( "\n" );
+	}
+
+
+	/**
+	 * The counters associated with a message type or a recipient kind.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	static final class Counters {
+		final StripedCounter sent = new StripedCounter();
+		final StripedCounter failed = new StripedCounter();
+		final StripedCounter bytes = new StripedCounter();
+		final LatencyHistogram latency = new LatencyHistogram();
+
+
+		void record( boolean success, long bytes, long duration ) {
+
+			if( success ) {
+				this.sent.increment();
+				this.bytes.add( bytes );
+			} else {
+				this.failed.increment();
+			}
+
+			this.latency.record( duration, TimeUnit.NANOSECONDS );
+		}
+
+
+		long get( int counterIndex ) {
+
+			long result;
+			if( counterIndex == 0 )
+				result = this.sent.sum();
+			else if( counterIndex == 1 )
+				result = this.failed.sum();
+			else
+				result = this.bytes.sum();
+
+			return result;
+		}
+
+
+		void reset() {
+			this.sent.reset();
+			this.failed.reset();
+			this.bytes.reset();
+			this.latency.reset();
+		}
+	}
+}
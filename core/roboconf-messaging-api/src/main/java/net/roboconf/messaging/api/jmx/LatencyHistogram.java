@@ -0,0 +1,222 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.api.jmx;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations, used to compute percentiles.
+ * <p>
+ * Durations are stored in microseconds, in log-linear buckets (as in HDR histograms).
+ * Every power of two is split into {@value #SUB_BUCKETS} buckets, so that the relative error
+ * on a percentile is less than 1 / {@value #SUB_BUCKETS}. Durations above 2^36 microseconds
+ * (about 19 hours) all go into the last bucket.
+ * </p>
+ * <p>
+ * Recording a value does not allocate anything and never blocks.
+ * Reading percentiles while values are being recorded gives approximate results.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public class LatencyHistogram {
+
+	static final int SUB_BUCKET_BITS = 4;
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	static final int MAX_MAGNITUDE = 36;
+	static final int BUCKETS = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray( BUCKETS );
+	private final StripedCounter count = new StripedCounter();
+	private final StripedCounter total = new StripedCounter();
+	private final AtomicLong max = new AtomicLong();
+
+
+	/**
+	 * Records a duration.
+	 * @param duration a duration
+	 * @param unit the unit of the duration
+	 */
+	public void record( long duration, TimeUnit unit ) {
+
+		long value = Math.max( 0, unit.toMicros( duration ));
+		this.buckets.incrementAndGet( bucketIndex( value ));
+		this.count.increment();
+		this.total.add( value );
+		for( long currentMax = this.max.get(); value > currentMax; currentMax = this.max.get()) {
+			if( this.max.compareAndSet( currentMax, value ))
+				break;
+		}
+	}
+
+
+	/**
+	 * @return the number of recorded durations
+	 */
+	public long getCount() {
+		return this.count.sum();
+	}
+
+
+	/**
+	 * @return the sum of the recorded durations (in microseconds)
+	 */
+	public long getTotal() {
+		return this.total.sum();
+	}
+
+
+	/**
+	 * @return the greatest recorded duration (in microseconds)
+	 */
+	public long getMax() {
+		return this.max.get();
+	}
+
+
+	/**
+	 * @return the average duration (in microseconds), or 0 if nothing was recorded
+	 */
+	public long getMean() {
+		long currentCount = this.count.sum();
+		return currentCount == 0 ? 0 : this.total.sum() / currentCount;
+	}
+
+
+	/**
+	 * Finds the duration below which a given percentage of the recorded durations fall.
+	 * @param percentile a percentile, between 0 and 100
+	 * @return a duration in microseconds (0 if nothing was recorded)
+	 */
+	public long getValueAtPercentile( double percentile ) {
+
+		// Work on a copy, so that concurrent updates do not make us go too far
+		long[] snapshot = new long[ BUCKETS ];
+		long currentCount = 0;
+		for( int i = 0; i < BUCKETS; i ++ ) {
+			snapshot[ i ] = this.buckets.get( i );
+			currentCount += snapshot[ i ];
+		}
+
+		long result = 0;
+		double p = Math.min( 100d, Math.max( 0d, percentile ));
+		long target = Math.max( 1, (long) Math.ceil( currentCount * p / 100d ));
+		long accumulated = 0;
+		for( int i = 0; i < BUCKETS && currentCount > 0; i ++ ) {
+			accumulated += snapshot[ i ];
+			if( accumulated >= target ) {
+				result = Math.min( highestValue( i ), this.max.get());
+				break;
+			}
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * @return a summary of this histogram (count, mean, percentiles and maximum, in microseconds)
+	 */
+	public Map<String,Long> summarize() {
+
+		Map<String,Long> result = new LinkedHashMap<> ();
+		result.put( "count", getCount());
+		result.put( "mean", getMean());
+		result.put( "p50", getValueAtPercentile( 50 ));
+		result.put( "p90", getValueAtPercentile( 90 ));
+		result.put( "p99", getValueAtPercentile( 99 ));
+		result.put( "p999", getValueAtPercentile( 99.9 ));
+		result.put( "max", getMax());
+
+		return result;
+	}
+
+
+	/**
+	 * Resets this histogram.
+	 */
+	public void reset() {
+
+		for( int i = 0; i < BUCKETS; i ++ )
+			this.buckets.set( i, 0 );
+
+		this.count.reset();
+		this.total.reset();
+		this.max.set( 0 );
+	}
+
+
+	/**
+	 * Finds the bucket of a value.
+	 * @param value a positive value
+	 * @return the bucket index
+	 */
+	static int bucketIndex( long value ) {
+
+		int result;
+		if( value < SUB_BUCKETS ) {
+			result = (int) value;
+
+		} else {
+			int magnitude = 63 - Long.numberOfLeadingZeros( value );
+			if( magnitude >= MAX_MAGNITUDE ) {
+				result = BUCKETS - 1;
+
+			} else {
+				int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+				result = (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+			}
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Finds the highest value that goes into a bucket.
+	 * @param index a bucket index
+	 * @return the highest value of this bucket
+	 */
+	static long highestValue( int index ) {
+
+		long result;
+		if( index < SUB_BUCKETS ) {
+			result = index;
+
+		} else {
+			int magnitude = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+			int shift = magnitude - SUB_BUCKET_BITS;
+			long subBucket = index % SUB_BUCKETS;
+			result = ((SUB_BUCKETS + subBucket) << shift) + (1L << shift) - 1;
+		}
+
+		return result;
+	}
+}
@@ -25,6 +25,8 @@
 
 package net.roboconf.messaging.api.jmx;
 
+import javax.management.openmbean.TabularData;
+
 /**
  * The interface to monitor the activity related to the messaging.
  * @author Vincent Zurczak - Linagora
@@ -53,6 +55,42 @@ public interface MessagingApiMBean {
 	 */
 	long getTimestampOfLastSentMessage();
 
+	/**
+	 * Gets statistics about sent messages, per message type.
+	 * <p>
+	 * Every row contains the message type, the number of sent messages, the number
+	 * of failures, the number of sent bytes and the publish latencies (in microseconds).
+	 * </p>
+	 *
+	 * @return a table indexed by message type (null if it could not be built)
+	 */
+	TabularData getPublishedMessagesPerType();
+
+	/**
+	 * Gets statistics about sent messages, per recipient kind.
+	 * <p>
+	 * The columns are the same than for {@link #getPublishedMessagesPerType()}.
+	 * </p>
+	 *
+	 * @return a table indexed by recipient kind (null if it could not be built)
+	 */
+	TabularData getPublishedMessagesPerRecipient();
+
+	/**
+	 * @return the number of sent messages the messaging server confirmed (0 if it does not confirm publications)
+	 */
+	long getConfirmedMessagesCount();
+
+	/**
+	 * @return the number of sent messages the messaging server rejected, or whose confirmation was lost
+	 */
+	long getRejectedMessagesCount();
+
+	/**
+	 * @return the number of sent messages whose confirmation is still expected
+	 */
+	long getUnconfirmedMessagesCount();
+
 
 	// Received messages
 
@@ -76,6 +114,40 @@ public interface MessagingApiMBean {
 	 */
 	long getTimestampOfLastReceivedMessage();
 
+	/**
+	 * @return the number of received messages that were dropped because the queue was full
+	 */
+	long getDroppedMessagesCount();
+
+	/**
+	 * @return the number of received messages that were replaced by a more recent one
+	 */
+	long getCollapsedMessagesCount();
+
+	/**
+	 * @return the maximum number of messages that were waiting to be processed at the same time
+	 */
+	long getMessageQueueHighWaterMark();
+
+	/**
+	 * Gets the latencies of received messages, per message class.
+	 * <p>
+	 * Every line contains the name of a message class, followed by the count, the mean,
+	 * some percentiles and the maximum of the waiting and processing times (in microseconds).
+	 * </p>
+	 *
+	 * @return a non-null array
+	 */
+	String[] getMessageLatencies();
+
+
+	// Export
+
+	/**
+	 * @return all the metrics in the Prometheus text format (never null)
+	 */
+	String getMetricsAsText();
+
 
 	// Current state
 
@@ -0,0 +1,107 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.api.jmx;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the publications a messaging server confirmed or rejected.
+ * <p>
+ * Some messaging servers confirm publications asynchronously. Such confirmations cannot
+ * be reported to the publisher. Messaging clients record them here instead, so that they
+ * appear in the messaging statistics (see {@link net.roboconf.messaging.api.extensions.IConfirmingMessagingClient}).
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public final class PublicationConfirms {
+
+	private final AtomicLong pendingCount = new AtomicLong();
+	private final AtomicLong confirmedCount = new AtomicLong();
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+
+	/**
+	 * Records a publication whose confirmation is expected.
+	 */
+	public void published() {
+		this.pendingCount.incrementAndGet();
+	}
+
+
+	/**
+	 * Records a publication the messaging server confirmed.
+	 */
+	public void confirmed() {
+		this.pendingCount.decrementAndGet();
+		this.confirmedCount.incrementAndGet();
+	}
+
+
+	/**
+	 * Records a publication the messaging server rejected, or whose confirmation was lost.
+	 */
+	public void rejected() {
+		this.pendingCount.decrementAndGet();
+		this.rejectedCount.incrementAndGet();
+	}
+
+
+	/**
+	 * Resets the counters of confirmed and rejected publications.
+	 * <p>
+	 * Pending publications are kept, their confirmations are still expected.
+	 * </p>
+	 */
+	public void reset() {
+		this.confirmedCount.set( 0 );
+		this.rejectedCount.set( 0 );
+	}
+
+
+	/**
+	 * @return the number of publications that were not confirmed yet
+	 */
+	public long getPendingCount() {
+		return this.pendingCount.get();
+	}
+
+
+	/**
+	 * @return the number of publications the messaging server confirmed
+	 */
+	public long getConfirmedCount() {
+		return this.confirmedCount.get();
+	}
+
+
+	/**
+	 * @return the number of publications the messaging server rejected, or whose confirmation was lost
+	 */
+	public long getRejectedCount() {
+		return this.rejectedCount.get();
+	}
+}
@@ -25,32 +25,115 @@
 
 package net.roboconf.messaging.api.jmx;
 
-import java.util.Date;
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import net.roboconf.messaging.api.messages.Message;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifAutonomic;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifHeartbeat;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifInstanceChanged;
+import net.roboconf.messaging.api.messages.from_dm_to_dm.MsgEcho;
 
 /**
  * A blocking queue with additional attributes to measure activity.
+ * <p>
+ * A callback can be associated with a message when it is added into the queue.
+ * It is invoked once the message has been processed (see {@link #messageProcessed(Message)}).
+ * Messaging clients can use it to acknowledge messages to the messaging server.
+ * </p>
+ * <p>
+ * By default, this queue is not bounded. When a capacity is set (see {@link #setCapacity(int)}),
+ * an overflow policy is applied to every received message, depending on its type.
+ * </p>
+ * <ul>
+ * <li>{@link OverflowPolicy#COLLAPSE}: a message replaces the pending message with the same
+ * collapse key, if any (e.g. the last heart beat of an agent). The latest message is then
+ * delivered at the position of the first one.</li>
+ * <li>{@link OverflowPolicy#DROP}: the message is dropped when the queue is full.</li>
+ * <li>{@link OverflowPolicy#KEEP}: the message is never dropped, even when the queue is full.
+ * This is the policy of commands and of any message type without an explicit policy.</li>
+ * </ul>
+ * <p>
+ * Dropped and collapsed messages are considered as processed: their callbacks are invoked.
+ * </p>
+ * <p>
+ * Counters are striped, so that threads that receive messages do not contend on them.
+ * Every message is stored in an entry (see {@link QueuedMessage}) that remembers when it was received.
+ * Message processors take these entries (see {@link #takeEntry()}) to record latencies
+ * (see {@link #recordLatencies(QueuedMessage, long, long)}). Histograms of waiting and processing
+ * times are then kept for every message class.
+ * </p>
+ *
  * @author Vincent Zurczak - Linagora
  */
-public class RoboconfMessageQueue extends LinkedBlockingQueue<Message> {
+public class RoboconfMessageQueue extends AbstractQueue<Message> implements BlockingQueue<Message> {
 
-	private static final long serialVersionUID = 6728334259953445852L;
+	/**
+	 * The policies to apply to received messages when a capacity is set.
+	 */
+	public enum OverflowPolicy {
+
+		/**
+		 * The message is never dropped.
+		 */
+		KEEP,
+
+		/**
+		 * The message is dropped when the queue is full.
+		 */
+		DROP,
+
+		/**
+		 * The message replaces the pending message with the same collapse key.
+		 */
+		COLLAPSE;
+	}
 
-	private final AtomicLong receivedMessagesCount = new AtomicLong();
+	private final StripedCounter receivedMessagesCount = new StripedCounter();
 	private final AtomicLong timestampOfLastReceivedMessage = new AtomicLong();
 
-	private final AtomicLong failedReceptionCount = new AtomicLong();
+	private final StripedCounter failedReceptionCount = new StripedCounter();
 	private final AtomicLong timestampOfLastReceptionFailure = new AtomicLong();
 
+	private final StripedCounter droppedMessagesCount = new StripedCounter();
+	private final StripedCounter collapsedMessagesCount = new StripedCounter();
+	private final AtomicLong highWaterMark = new AtomicLong();
+
+	// Message class => waiting and processing times
+	private final ConcurrentHashMap<Class<?>,MessageLatencies> latencies = new ConcurrentHashMap<> ();
+
+	// Messages are compared by identity, not with equals().
+	private final Map<Message,Runnable> processingCallbacks = Collections.synchronizedMap( new IdentityHashMap<Message,Runnable> ());
+
+	// Reception times are kept in the entries, which are guarded by the lock of this queue
+	private final LinkedBlockingQueue<QueuedMessage> entries;
+
+	// Collapse key => pending entry in the queue
+	private final Map<String,QueuedMessage> collapsibleMessages = new HashMap<> ();
+	private final Map<Class<?>,OverflowPolicy> overflowPolicies = new ConcurrentHashMap<> ();
+	private volatile int capacity = 0;
+
 
 	/**
 	 * Constructor.
 	 */
 	public RoboconfMessageQueue() {
-		super();
+		this.entries = new LinkedBlockingQueue<> ();
+		registerDefaultOverflowPolicies();
 	}
 
 
@@ -59,7 +142,8 @@ public class RoboconfMessageQueue extends LinkedBlockingQueue<Message> {
 	 * @param capacity
 	 */
 	RoboconfMessageQueue( int capacity ) {
-		super( capacity );
+		this.entries = new LinkedBlockingQueue<> ( capacity );
+		registerDefaultOverflowPolicies();
 	}
 
 
@@ -76,16 +160,114 @@ public class RoboconfMessageQueue extends LinkedBlockingQueue<Message> {
 	@Override
 	public boolean offer( Message e ) {
 
-		boolean result = super.offer( e );
+		QueuedMessage entry = new QueuedMessage( e, System.nanoTime());
+		int currentCapacity = this.capacity;
+		boolean result = currentCapacity > 0 ? boundedOffer( entry, currentCapacity ) : this.entries.offer( entry );
 		if( result ) {
-			this.receivedMessagesCount.incrementAndGet();
-			this.timestampOfLastReceivedMessage.set( new Date().getTime());
+			this.receivedMessagesCount.increment();
+
+			// No need for a memory barrier, readers only need an approximate value
+			this.timestampOfLastReceivedMessage.lazySet( System.currentTimeMillis());
+
+			long size = size();
+			for( long max = this.highWaterMark.get(); size > max; max = this.highWaterMark.get()) {
+				if( this.highWaterMark.compareAndSet( max, size ))
+					break;
+			}
 		}
 
 		return result;
 	}
 
 
+	@Override
+	public boolean offer( Message e, long timeout, TimeUnit unit ) {
+		// This queue never waits for room
+		return offer( e );
+	}
+
+
+	@Override
+	public Message take() throws InterruptedException {
+		return takeEntry().getMessage();
+	}
+
+
+	@Override
+	public Message poll() {
+		return messageOf( release( this.entries.poll()));
+	}
+
+
+	@Override
+	public Message poll( long timeout, TimeUnit unit ) throws InterruptedException {
+		return messageOf( release( this.entries.poll( timeout, unit )));
+	}
+
+
+	@Override
+	public Message peek() {
+		return messageOf( this.entries.peek());
+	}
+
+
+	@Override
+	public int drainTo( Collection<? super Message> c ) {
+		return drainTo( c, Integer.MAX_VALUE );
+	}
+
+
+	@Override
+	public int drainTo( Collection<? super Message> c, int maxElements ) {
+
+		List<QueuedMessage> drainedEntries = new ArrayList<> ();
+		int result = drainEntriesTo( drainedEntries, maxElements );
+		for( QueuedMessage entry : drainedEntries )
+			c.add( entry.getMessage());
+
+		return result;
+	}
+
+
+	@Override
+	public int size() {
+		return this.entries.size();
+	}
+
+
+	@Override
+	public int remainingCapacity() {
+		return this.entries.remainingCapacity();
+	}
+
+
+	@Override
+	public Iterator<Message> iterator() {
+
+		final Iterator<QueuedMessage> it = this.entries.iterator();
+		return new Iterator<Message> () {
+			private QueuedMessage current;
+
+			@Override
+			public boolean hasNext() {
+				return it.hasNext();
+			}
+
+			@Override
+			public Message next() {
+				this.current = it.next();
+				return this.current.getMessage();
+			}
+
+			@Override
+			public void remove() {
+				it.remove();
+				release( this.current );
+			}
+		};
+	}
+
+
 	@Override
 	public void put( Message e ) throws InterruptedException {
 		// As we cannot get precise metrics when this method is used, we just forbid its use.
@@ -93,16 +275,358 @@ public class RoboconfMessageQueue extends LinkedBlockingQueue<Message> {
 	}
 
 
+	@Override
+	public void clear() {
+
+		// Messages removed from the queue will never be processed.
+		// Their callbacks must be invoked anyway, otherwise clients would wait forever.
+		List<Message> removedMessages = new ArrayList<> ();
+		drainTo( removedMessages );
+		for( Message message : removedMessages )
+			messageProcessed( message );
+	}
+
+
 	// Custom methods
 
+	/**
+	 * Adds a message and associates it with a callback.
+	 * @param message the message to add
+	 * @param processingCallback the callback to invoke once the message has been processed
+	 * @return true if the message was added, false otherwise (the callback is then ignored)
+	 */
+	public boolean add( Message message, Runnable processingCallback ) {
+
+		this.processingCallbacks.put( message, processingCallback );
+		boolean result = false;
+		try {
+			result = add( message );
+
+		} finally {
+			if( ! result )
+				this.processingCallbacks.remove( message );
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Removes the next entry, waiting for one if necessary.
+	 * @return a non-null entry
+	 * @throws InterruptedException
+	 */
+	public QueuedMessage takeEntry() throws InterruptedException {
+		return release( this.entries.take());
+	}
+
+
+	/**
+	 * Removes at most the given number of entries.
+	 * @param c the collection in which removed entries are added
+	 * @param maxElements the maximum number of entries to remove
+	 * @return the number of removed entries
+	 */
+	public int drainEntriesTo( Collection<? super QueuedMessage> c, int maxElements ) {
+
+		List<QueuedMessage> drainedEntries = new ArrayList<> ();
+		int result = this.entries.drainTo( drainedEntries, maxElements );
+		for( QueuedMessage entry : drainedEntries )
+			c.add( release( entry ));
+
+		return result;
+	}
+
+
+	/**
+	 * Indicates a message has been processed.
+	 * <p>
+	 * The callback associated with this message, if any, is invoked.
+	 * </p>
+	 *
+	 * @param message a message that was taken from this queue
+	 */
+	public void messageProcessed( Message message ) {
+
+		Runnable callback = this.processingCallbacks.remove( message );
+		if( callback != null )
+			callback.run();
+	}
+
+
+	/**
+	 * Indicates a message was dropped instead of being processed.
+	 * <p>
+	 * Message processors invoke it when they apply overflow policies themselves.
+	 * The message is considered as processed (see {@link #messageProcessed(Message)}).
+	 * </p>
+	 *
+	 * @param message a message that was taken from this queue
+	 */
+	public void messageDropped( Message message ) {
+		this.droppedMessagesCount.increment();
+		messageProcessed( message );
+	}
+
+
+	/**
+	 * Indicates a message was replaced by a more recent one instead of being processed.
+	 * <p>
+	 * Message processors invoke it when they apply overflow policies themselves.
+	 * The message is considered as processed (see {@link #messageProcessed(Message)}).
+	 * </p>
+	 *
+	 * @param replacedMessage a message that was taken from this queue
+	 */
+	public void messageCollapsed( Message replacedMessage ) {
+		this.collapsedMessagesCount.increment();
+		messageProcessed( replacedMessage );
+	}
+
+
+	/**
+	 * Records the time a message waited before being processed, and the time its processing took.
+	 * @param entry an entry that was taken from this queue
+	 * @param processingStart the time at which the processing started (see {@link System#nanoTime()})
+	 * @param processingEnd the time at which the processing ended (see {@link System#nanoTime()})
+	 */
+	public void recordLatencies( QueuedMessage entry, long processingStart, long processingEnd ) {
+
+		Class<?> messageClass = entry.getMessage().getClass();
+		MessageLatencies msgLatencies = this.latencies.get( messageClass );
+		if( msgLatencies == null ) {
+			MessageLatencies newLatencies = new MessageLatencies();
+			msgLatencies = this.latencies.putIfAbsent( messageClass, newLatencies );
+			if( msgLatencies == null )
+				msgLatencies = newLatencies;
+		}
+
+		msgLatencies.waitingTime.record( processingStart - entry.getReceptionTime(), TimeUnit.NANOSECONDS );
+		msgLatencies.processingTime.record( processingEnd - processingStart, TimeUnit.NANOSECONDS );
+	}
+
+
+	/**
+	 * Summarizes the recorded latencies.
+	 * <p>
+	 * Keys are simple names of message classes. Values contain the count, the mean,
+	 * some percentiles and the maximum of the waiting and processing times (in microseconds).
+	 * As an example, "wait.p99" is the 99th percentile of the time messages waited before being processed.
+	 * </p>
+	 *
+	 * @return a non-null map, sorted by message class names
+	 */
+	public Map<String,Map<String,Long>> getLatencies() {
+
+		Map<String,Map<String,Long>> result = new TreeMap<> ();
+		for( Map.Entry<Class<?>,MessageLatencies> entry : this.latencies.entrySet()) {
+
+			Map<String,Long> summary = new LinkedHashMap<> ();
+			for( Map.Entry<String,Long> value : entry.getValue().waitingTime.summarize().entrySet())
+				summary.put( "wait." + value.getKey(), value.getValue());
+
+			for( Map.Entry<String,Long> value : entry.getValue().processingTime.summarize().entrySet())
+				summary.put( "processing." + value.getKey(), value.getValue());
+
+			result.put( entry.getKey().getSimpleName(), summary );
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Removes the callback associated with a message, without invoking it.
+	 * @param message a message
+	 */
+	public void discardProcessingCallback( Message message ) {
+		this.processingCallbacks.remove( message );
+	}
+
+
+	/**
+	 * @return the number of callbacks that have not yet been invoked
+	 */
+	public int getPendingCallbacksCount() {
+		return this.processingCallbacks.size();
+	}
+
+
 	/**
 	 * Resets the count of messages.
 	 */
 	public void reset() {
-		this.receivedMessagesCount.set( 0 );
+		this.receivedMessagesCount.reset();
 		this.timestampOfLastReceivedMessage.set( 0 );
-		this.failedReceptionCount.set( 0 );
+		this.failedReceptionCount.reset();
 		this.timestampOfLastReceptionFailure.set( 0 );
+		this.droppedMessagesCount.reset();
+		this.collapsedMessagesCount.reset();
+		this.highWaterMark.set( size());
+		this.latencies.clear();
+	}
+
+
+	/**
+	 * Sets the capacity of this queue.
+	 * @param capacity the maximum number of pending messages (0 or less for an unbounded queue)
+	 */
+	public void setCapacity( int capacity ) {
+		this.capacity = Math.max( 0, capacity );
+	}
+
+
+	/**
+	 * @return the capacity of this queue (0 if it is not bounded)
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+
+	/**
+	 * Sets the overflow policy of a message type.
+	 * <p>
+	 * Messages are only collapsed if {@link #findCollapseKey(Message)} returns a key for them.
+	 * </p>
+	 *
+	 * @param messageClass a message class (sub-classes are not concerned)
+	 * @param policy the policy (null to restore {@link OverflowPolicy#KEEP})
+	 */
+	public void setOverflowPolicy( Class<? extends Message> messageClass, OverflowPolicy policy ) {
+
+		if( policy == null )
+			this.overflowPolicies.remove( messageClass );
+		else
+			this.overflowPolicies.put( messageClass, policy );
+	}
+
+
+	/**
+	 * Finds the overflow policy of a message.
+	 * @param message a message
+	 * @return a non-null policy
+	 */
+	public OverflowPolicy findOverflowPolicy( Message message ) {
+		OverflowPolicy policy = this.overflowPolicies.get( message.getClass());
+		return policy == null ? OverflowPolicy.KEEP : policy;
+	}
+
+
+	/**
+	 * Finds the key used to collapse a message with a pending one.
+	 * <p>
+	 * Heart beats are collapsed per agent, instance changes per instance.
+	 * </p>
+	 *
+	 * @param message a message
+	 * @return a key, or null if the message cannot be collapsed
+	 */
+	public String findCollapseKey( Message message ) {
+
+		String result = null;
+		if( message instanceof MsgNotifHeartbeat ) {
+			MsgNotifHeartbeat msg = (MsgNotifHeartbeat) message;
+			result = "heartbeat|" + msg.getApplicationName() + "|" + msg.getScopedInstancePath();
+
+		} else if( message instanceof MsgNotifInstanceChanged ) {
+			MsgNotifInstanceChanged msg = (MsgNotifInstanceChanged) message;
+			result = "instance|" + msg.getApplicationName() + "|" + msg.getInstancePath();
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Registers the default overflow policies.
+	 */
+	private void registerDefaultOverflowPolicies() {
+		this.overflowPolicies.put( MsgNotifHeartbeat.class, OverflowPolicy.COLLAPSE );
+		this.overflowPolicies.put( MsgNotifInstanceChanged.class, OverflowPolicy.COLLAPSE );
+		this.overflowPolicies.put( MsgNotifAutonomic.class, OverflowPolicy.DROP );
+		this.overflowPolicies.put( MsgEcho.class, OverflowPolicy.DROP );
+	}
+
+
+	/**
+	 * Adds a message into a bounded queue.
+	 * @param entry the entry of the message
+	 * @param currentCapacity the capacity
+	 * @return true if the message was added, collapsed or dropped
+	 */
+	private boolean boundedOffer( QueuedMessage entry, int currentCapacity ) {
+
+		Message message = entry.getMessage();
+		OverflowPolicy policy = findOverflowPolicy( message );
+		String collapseKey = policy == OverflowPolicy.COLLAPSE ? findCollapseKey( message ) : null;
+
+		boolean result;
+		if( collapseKey != null ) {
+			Message replacedMessage = null;
+			synchronized( this.collapsibleMessages ) {
+				QueuedMessage pendingEntry = this.collapsibleMessages.get( collapseKey );
+				if( pendingEntry != null ) {
+					// The latest message waits since the first one was received
+					replacedMessage = pendingEntry.replaceMessage( message );
+					result = true;
+
+				} else {
+					// Nothing pending for this key: add an entry in the queue
+					result = this.entries.offer( entry );
+					if( result )
+						this.collapsibleMessages.put( collapseKey, entry );
+				}
+			}
+
+			if( replacedMessage != null )
+				messageCollapsed( replacedMessage );
+
+		} else if( policy == OverflowPolicy.DROP && size() >= currentCapacity ) {
+			messageDropped( message );
+			result = true;
+
+		} else {
+			result = this.entries.offer( entry );
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Releases an entry that was removed from the queue.
+	 * <p>
+	 * Its message cannot be replaced by more recent ones anymore.
+	 * </p>
+	 *
+	 * @param entry an entry removed from the queue (can be null)
+	 * @return the same entry
+	 */
+	private QueuedMessage release( QueuedMessage entry ) {
+
+		if( entry != null
+				&& findOverflowPolicy( entry.getMessage()) == OverflowPolicy.COLLAPSE ) {
+
+			synchronized( this.collapsibleMessages ) {
+				String collapseKey = this.collapsibleMessages.isEmpty() ? null : findCollapseKey( entry.getMessage());
+
+				// Messages queued before a capacity was set have no pending entry
+				if( collapseKey != null && this.collapsibleMessages.get( collapseKey ) == entry )
+					this.collapsibleMessages.remove( collapseKey );
+			}
+		}
+
+		return entry;
+	}
+
+
+	/**
+	 * @param entry an entry (can be null)
+	 * @return its message, or null if the entry is null
+	 */
+	private static Message messageOf( QueuedMessage entry ) {
+		return entry == null ? null : entry.getMessage();
 	}
 
 
@@ -110,20 +634,20 @@ public class RoboconfMessageQueue extends LinkedBlockingQueue<Message> {
 	 * Method to notify a message was incorrectly received (e.g. error during deserialization).
 	 */
 	public void errorWhileReceivingMessage() {
-		this.failedReceptionCount.incrementAndGet();
-		this.timestampOfLastReceptionFailure.set( new Date().getTime());
+		this.failedReceptionCount.increment();
+		this.timestampOfLastReceptionFailure.lazySet( System.currentTimeMillis());
 	}
 
 
 	// Getters
 
 	public long getFailedReceptionCount() {
-		return this.failedReceptionCount.get();
+		return this.failedReceptionCount.sum();
 	}
 
 
 	public long getReceivedMessagesCount() {
-		return this.receivedMessagesCount.get();
+		return this.receivedMessagesCount.sum();
 	}
 
 
@@ -135,4 +659,92 @@ public class RoboconfMessageQueue extends LinkedBlockingQueue<Message> {
 	public long getTimestampOfLastReceivedMessage() {
 		return this.timestampOfLastReceivedMessage.get();
 	}
+
+
+	public long getDroppedMessagesCount() {
+		return this.droppedMessagesCount.sum();
+	}
+
+
+	public long getCollapsedMessagesCount() {
+		return this.collapsedMessagesCount.sum();
+	}
+
+
+	public long getHighWaterMark() {
+		return this.highWaterMark.get();
+	}
+
+
+	/**
+	 * The latencies of a message class.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	private static final class MessageLatencies {
+		final LatencyHistogram waitingTime = new LatencyHistogram();
+		final LatencyHistogram processingTime = new LatencyHistogram();
+	}
+
+
+	/**
+	 * A message that was added into a queue, with the time at which it was received.
+	 * <p>
+	 * When messages are collapsed, the entry of the first one is kept and delivers the latest one.
+	 * </p>
+	 *
+	 * @author Vincent Zurczak - Linagora
+	 */
+	public static final class QueuedMessage {
+		private final long receptionTime;
+		private volatile Message message;
+
+
+		/**
+		 * Constructor.
+		 * @param message the message
+		 * @param receptionTime the time at which it was received (see {@link System#nanoTime()})
+		 */
+		public QueuedMessage( Message message, long receptionTime ) {
+			this.message = message;
+			this.receptionTime = receptionTime;
+		}
+
+
+		/**
+		 * Replaces the message of this entry by a more recent one.
+		 * <p>
+		 * This method must be invoked by the queue that holds this entry, under its lock.
+		 * A request for the model, carried by a replaced heart beat, is kept.
+		 * </p>
+		 *
+		 * @param latest the latest message
+		 * @return the replaced message
+		 */
+		public Message replaceMessage( Message latest ) {
+
+			Message replacedMessage = this.message;
+			if( replacedMessage instanceof MsgNotifHeartbeat
+					&& ((MsgNotifHeartbeat) replacedMessage).isModelRequired())
+				((MsgNotifHeartbeat) latest).setModelRequired( true );
+
+			this.message = latest;
+			return replacedMessage;
+		}
+
+
+		/**
+		 * @return the message
+		 */
+		public Message getMessage() {
+			return this.message;
+		}
+
+
+		/**
+		 * @return the time at which the (first) message was received (see {@link System#nanoTime()})
+		 */
+		public long getReceptionTime() {
+			return this.receptionTime;
+		}
+	}
 }
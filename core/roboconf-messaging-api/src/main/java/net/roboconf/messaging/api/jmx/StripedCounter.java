@@ -0,0 +1,117 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.api.jmx;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that can be incremented by several threads without contention.
+ * <p>
+ * Every thread updates its own cell (selected from its ID). Cells are padded so that
+ * two cells never share a cache line. Reading the value sums all the cells.
+ * The result is exact once updates have stopped, and approximate while they occur.
+ * </p>
+ * <p>
+ * This is a (simplified) equivalent of Java 8's {@code LongAdder}.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public final class StripedCounter {
+
+	// 8 longs = 64 bytes, the size of a cache line on most processors
+	private static final int PADDING = 8;
+	private static final int MAX_STRIPES = 64;
+
+	private final AtomicLongArray cells;
+	private final int mask;
+
+
+	/**
+	 * Constructor.
+	 */
+	public StripedCounter() {
+
+		int stripes = 1;
+		int processors = Runtime.getRuntime().availableProcessors();
+		while( stripes < processors && stripes < MAX_STRIPES )
+			stripes <<= 1;
+
+		this.mask = stripes - 1;
+		this.cells = new AtomicLongArray( stripes * PADDING );
+	}
+
+
+	/**
+	 * Increments the counter.
+	 */
+	public void increment() {
+		add( 1 );
+	}
+
+
+	/**
+	 * Adds a value to the counter.
+	 * @param value the value to add
+	 */
+	public void add( long value ) {
+
+		// Thread IDs are sequential, so consecutive threads use different cells
+		int stripe = (int) Thread.currentThread().getId() & this.mask;
+		this.cells.addAndGet( stripe * PADDING, value );
+	}
+
+
+	/**
+	 * @return the sum of all the cells
+	 */
+	public long sum() {
+
+		long result = 0;
+		for( int i = 0; i < this.cells.length(); i += PADDING )
+			result += this.cells.get( i );
+
+		return result;
+	}
+
+
+	/**
+	 * Resets the counter.
+	 * <p>
+	 * Updates that occur concurrently may be lost.
+	 * </p>
+	 */
+	public void reset() {
+		for( int i = 0; i < this.cells.length(); i += PADDING )
+			this.cells.set( i, 0 );
+	}
+
+
+	@Override
+	public String toString() {
+		return String.valueOf( sum());
+	}
+}
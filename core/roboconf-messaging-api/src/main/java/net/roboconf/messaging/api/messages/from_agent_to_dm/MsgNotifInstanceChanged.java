@@ -53,10 +53,30 @@ public class MsgNotifInstanceChanged extends Message {
 	 * @param instance the changed instance
 	 */
 	public MsgNotifInstanceChanged( String applicationName, Instance instance ) {
+		this(
+				applicationName,
+				InstanceHelpers.computeInstancePath( instance ),
+				instance.getStatus(),
+				instance.getImports());
+	}
+
+	/**
+	 * Constructor.
+	 * @param applicationName the application name
+	 * @param instancePath the path of the changed instance
+	 * @param newStatus the new status
+	 * @param newImports the new imports
+	 */
+	public MsgNotifInstanceChanged(
+			String applicationName,
+			String instancePath,
+			InstanceStatus newStatus,
+			Map<String,Collection<Import>> newImports ) {
+
 		super();
-		this.instancePath = InstanceHelpers.computeInstancePath( instance );
-		this.newImports = instance.getImports();
-		this.newStatus = instance.getStatus();
+		this.instancePath = instancePath;
+		this.newImports = newImports;
+		this.newStatus = newStatus;
 		this.applicationName = applicationName;
 	}
 
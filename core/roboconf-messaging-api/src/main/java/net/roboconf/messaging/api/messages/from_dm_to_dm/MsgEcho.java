@@ -51,10 +51,25 @@ public class MsgEcho extends Message {
 	 * @throws java.lang.NullPointerException if {@code content} is {@code null}
 	 */
 	public MsgEcho( String content, UUID uuid ) {
+		this( content, uuid, System.currentTimeMillis());
+	}
+
+	/**
+	 * Constructs an Echo message with the given content and creation time.
+	 * <p>
+	 * This constructor is mainly used when a message is decoded.
+	 * </p>
+	 *
+	 * @param content the content of the Echo message.
+	 * @param uuid a UUID
+	 * @param creationTime the creation time of the message
+	 * @throws java.lang.NullPointerException if {@code content} is {@code null}
+	 */
+	public MsgEcho( String content, UUID uuid, long creationTime ) {
 		Objects.requireNonNull( content, "content is null" );
 		this.content = content;
 		this.uuid = uuid;
-		this.creationTime = System.currentTimeMillis();
+		this.creationTime = creationTime;
 	}
 
 	/**
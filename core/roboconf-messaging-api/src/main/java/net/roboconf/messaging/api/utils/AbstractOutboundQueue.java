@@ -0,0 +1,351 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.api.utils;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import net.roboconf.core.utils.Utils;
+
+/**
+ * A bounded queue of items to send asynchronously to a remote peer.
+ * <p>
+ * Items are sent one batch at a time (by default, a batch contains a single item).
+ * The next batch is sent once the previous one was acknowledged, either with
+ * {@link #sendSucceeded()} or with {@link #sendFailed(Throwable)}. Those methods may
+ * be invoked by the thread that sends a batch, or by any other thread.
+ * </p>
+ * <p>
+ * Callers are never blocked: when the queue is full, the overflow policy applies.
+ * Dropped items are counted, and a warning is logged when items start being dropped.
+ * </p>
+ *
+ * @param <T> the type of the items to send
+ * @author Vincent Zurczak - Linagora
+ */
+public abstract class AbstractOutboundQueue<T> {
+
+	/**
+	 * What to do when an item is added to a full queue.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	public enum OverflowPolicy {
+
+		/**
+		 * The new item is dropped.
+		 */
+		DROP_NEWEST,
+
+		/**
+		 * The oldest pending item is dropped to make room for the new one.
+		 */
+		DROP_OLDEST,
+
+		/**
+		 * The new item is dropped and the caller is told about it.
+		 */
+		FAIL;
+
+
+		/**
+		 * Finds a policy from a string.
+		 * @param s a string (e.g. "drop-oldest", can be null)
+		 * @return the associated policy, or {@link #DROP_NEWEST} if there is no match
+		 */
+		public static OverflowPolicy which( String s ) {
+
+			OverflowPolicy result = DROP_NEWEST;
+			for( OverflowPolicy policy : values()) {
+				if( policy.toString().equalsIgnoreCase( s )
+						|| policy.toString().replace( '_', '-' ).equalsIgnoreCase( s )) {
+					result = policy;
+					break;
+				}
+			}
+
+			return result;
+		}
+	}
+
+
+	protected final Logger logger = Logger.getLogger( getClass().getName());
+	private final int capacity;
+	private final OverflowPolicy overflowPolicy;
+
+	// Guarded by "this"
+	private final LinkedList<T> queue = new LinkedList<> ();
+	private int inFlight = 0;
+	private boolean draining = false;
+	private boolean closed = false;
+	private int consecutiveDrops = 0;
+	private long sentCount = 0;
+	private long droppedCount = 0;
+	private long failedCount = 0;
+
+
+	/**
+	 * Constructor.
+	 * @param capacity the maximum number of pending items
+	 * @param overflowPolicy the policy to apply when the queue is full
+	 */
+	protected AbstractOutboundQueue( int capacity, OverflowPolicy overflowPolicy ) {
+		this.capacity = Math.max( 1, capacity );
+		this.overflowPolicy = overflowPolicy;
+	}
+
+
+	/**
+	 * Enqueues an item and starts sending it if nothing else is being sent.
+	 * @param item a non-null item
+	 * @return true if the item was queued, false if it was dropped
+	 */
+	protected final boolean enqueue( T item ) {
+
+		synchronized( this ) {
+			if( this.closed ) {
+				this.droppedCount ++;
+				return false;
+			}
+
+			if( this.queue.size() >= this.capacity ) {
+				this.droppedCount ++;
+				if( this.consecutiveDrops ++ == 0 )
+					this.logger.warning( "Too many items are waiting to be sent to " + describeTarget() + ". Items are being dropped." );
+
+				if( this.overflowPolicy != OverflowPolicy.DROP_OLDEST )
+					return false;
+
+				this.queue.removeFirst();
+			}
+
+			this.queue.add( item );
+		}
+
+		drain();
+		return true;
+	}
+
+
+	/**
+	 * Sends a batch of items.
+	 * <p>
+	 * Once sent, {@link #sendSucceeded()} or {@link #sendFailed(Throwable)} must be invoked.
+	 * If this method throws an exception, the batch is considered as failed.
+	 * </p>
+	 *
+	 * @param items a non-empty list of items
+	 * @throws Exception if the items could not be sent
+	 */
+	protected abstract void send( List<T> items ) throws Exception;
+
+
+	/**
+	 * @return a description of the remote peer (for logging)
+	 */
+	protected abstract String describeTarget();
+
+
+	/**
+	 * Removes the next items to send from the pending ones.
+	 * <p>
+	 * This method is invoked while holding the lock on this queue.
+	 * By default, items are sent one by one.
+	 * </p>
+	 *
+	 * @param pending the pending items (never empty)
+	 * @return a non-empty list of items to send together
+	 */
+	protected List<T> pollNextItems( LinkedList<T> pending ) {
+		return Collections.singletonList( pending.removeFirst());
+	}
+
+
+	/**
+	 * Acknowledges the batch that was being sent.
+	 */
+	protected final void sendSucceeded() {
+
+		synchronized( this ) {
+			this.sentCount += this.inFlight;
+			this.inFlight = 0;
+			this.consecutiveDrops = 0;
+
+			// The sending loop, if any, will send the next items
+			if( this.draining )
+				return;
+		}
+
+		drain();
+	}
+
+
+	/**
+	 * Reports the failure of the batch that was being sent.
+	 * @param cause the cause of the failure (can be null)
+	 */
+	protected final void sendFailed( Throwable cause ) {
+
+		StringBuilder sb = new StringBuilder( "Items could not be sent to " );
+		sb.append( describeTarget());
+		sb.append( "." );
+		if( cause != null && ! Utils.isEmptyOrWhitespaces( cause.getMessage()))
+			sb.append( " " + cause.getMessage());
+
+		this.logger.warning( sb.toString());
+		if( cause instanceof Exception )
+			Utils.logException( this.logger, (Exception) cause );
+
+		synchronized( this ) {
+			this.failedCount += this.inFlight;
+			this.inFlight = 0;
+			if( this.draining )
+				return;
+		}
+
+		drain();
+	}
+
+
+	/**
+	 * Closes this queue.
+	 * <p>
+	 * Pending items are dropped.
+	 * </p>
+	 */
+	public synchronized void close() {
+		this.closed = true;
+		this.droppedCount += this.queue.size();
+		this.queue.clear();
+	}
+
+
+	/**
+	 * @return true if this queue was closed
+	 */
+	public synchronized boolean isClosed() {
+		return this.closed;
+	}
+
+
+	/**
+	 * @return the overflow policy
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return this.overflowPolicy;
+	}
+
+
+	/**
+	 * @return the number of pending items
+	 */
+	public synchronized int getPendingCount() {
+		return this.queue.size();
+	}
+
+
+	/**
+	 * @return the number of items that were sent successfully
+	 */
+	public synchronized long getSentCount() {
+		return this.sentCount;
+	}
+
+
+	/**
+	 * @return the number of items dropped because the queue was full or closed
+	 */
+	public synchronized long getDroppedCount() {
+		return this.droppedCount;
+	}
+
+
+	/**
+	 * @return the number of items dropped in a row because the queue was full
+	 */
+	public synchronized int getConsecutiveDropsCount() {
+		return this.consecutiveDrops;
+	}
+
+
+	/**
+	 * @return the number of items that could not be sent
+	 */
+	public synchronized long getFailedCount() {
+		return this.failedCount;
+	}
+
+
+	/**
+	 * @return a description of this queue
+	 */
+	public synchronized String describe() {
+		return describeTarget()
+				+ ": pending=" + this.queue.size()
+				+ ", sent=" + this.sentCount
+				+ ", dropped=" + this.droppedCount
+				+ ", failed=" + this.failedCount;
+	}
+
+
+	/**
+	 * Sends pending items, one batch at a time.
+	 * <p>
+	 * Acknowledgments may be received in the caller's thread. A loop is used
+	 * (rather than recursive calls) to send the next items in this case.
+	 * </p>
+	 */
+	private void drain() {
+
+		synchronized( this ) {
+			if( this.draining )
+				return;
+
+			this.draining = true;
+		}
+
+		for( ;; ) {
+			List<T> items;
+			synchronized( this ) {
+				if( this.inFlight > 0 || this.closed || this.queue.isEmpty()) {
+					this.draining = false;
+					return;
+				}
+
+				items = pollNextItems( this.queue );
+				this.inFlight = items.size();
+			}
+
+			try {
+				send( items );
+
+			} catch( Exception e ) {
+				sendFailed( e );
+			}
+		}
+	}
+}
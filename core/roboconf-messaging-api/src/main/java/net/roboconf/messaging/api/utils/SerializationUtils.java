@@ -32,6 +32,9 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
+import net.roboconf.messaging.api.codecs.BinaryMessageCodec;
+import net.roboconf.messaging.api.codecs.IMessageCodec;
+import net.roboconf.messaging.api.codecs.JavaMessageCodec;
 import net.roboconf.messaging.api.messages.Message;
 
 /**
@@ -39,6 +42,10 @@ import net.roboconf.messaging.api.messages.Message;
  */
 public final class SerializationUtils {
 
+	private static final IMessageCodec JAVA_CODEC = new JavaMessageCodec();
+	private static final IMessageCodec BINARY_CODEC = new BinaryMessageCodec();
+
+
 	/**
 	 * Empty private constructor.
 	 */
@@ -80,8 +87,24 @@ public final class SerializationUtils {
 	}
 
 
+	/**
+	 * Serializes a message with a given codec.
+	 * @param message a message
+	 * @param codec a codec (not null)
+	 * @return a non-null array of bytes
+	 * @throws IOException
+	 */
+	public static byte[] serializeObject( Message message, IMessageCodec codec ) throws IOException {
+		return codec.encode( message );
+	}
+
+
 	/**
 	 * Deserializes a message.
+	 * <p>
+	 * The codec that was used to serialize the message is detected automatically.
+	 * </p>
+	 *
 	 * @param bytes a non-null array of bytes
 	 * @return the deserialized message, or null if it failed
 	 * @throws ClassNotFoundException
@@ -89,6 +112,28 @@ public final class SerializationUtils {
 	 */
 	public static Message deserializeObject( byte[] bytes )
 	throws IOException, ClassNotFoundException {
-		return deserializeObject( bytes, Message.class );
+		return findDecoder( bytes, 0, bytes.length ).decode( bytes, 0, bytes.length );
+	}
+
+
+	/**
+	 * Finds a codec from its name.
+	 * @param codecName a codec name (can be null)
+	 * @return the associated codec, or the Java serialization codec if the name is null or unknown
+	 */
+	public static IMessageCodec findCodec( String codecName ) {
+		return BinaryMessageCodec.NAME.equalsIgnoreCase( codecName ) ? BINARY_CODEC : JAVA_CODEC;
+	}
+
+
+	/**
+	 * Finds the codec that can decode a given message.
+	 * @param bytes a non-null array of bytes
+	 * @param offset the offset of the message in the array
+	 * @param length the length of the message
+	 * @return a non-null codec
+	 */
+	public static IMessageCodec findDecoder( byte[] bytes, int offset, int length ) {
+		return BinaryMessageCodec.isBinaryMessage( bytes, offset, length ) ? BINARY_CODEC : JAVA_CODEC;
 	}
 }
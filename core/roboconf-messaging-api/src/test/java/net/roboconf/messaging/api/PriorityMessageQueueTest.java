@@ -0,0 +1,182 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.roboconf.messaging.api.AbstractMessageProcessor.MessagePriority;
+import net.roboconf.messaging.api.jmx.RoboconfMessageQueue;
+import net.roboconf.messaging.api.jmx.RoboconfMessageQueue.QueuedMessage;
+import net.roboconf.messaging.api.messages.Message;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifHeartbeat;
+import net.roboconf.messaging.api.messages.from_dm_to_dm.MsgEcho;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class PriorityMessageQueueTest {
+
+	@Test
+	public void testWeightedDraining() throws Exception {
+
+		PriorityMessageQueue queue = new PriorityMessageQueue( new int[] { 2, 1, 1 });
+		Assert.assertNull( queue.poll());
+
+		for( int i = 0; i < 4; i ++ ) {
+			queue.add( new QueuedMessage( new MsgEcho( "bulk" + i ), 0 ), MessagePriority.BULK );
+			queue.add( new QueuedMessage( new MsgEcho( "state" + i ), 0 ), MessagePriority.STATE );
+			queue.add( new QueuedMessage( new MsgEcho( "control" + i ), 0 ), MessagePriority.CONTROL );
+		}
+
+		Assert.assertEquals( 12, queue.size());
+		Assert.assertEquals( 4, queue.size( MessagePriority.CONTROL ));
+
+		List<String> contents = new ArrayList<> ();
+		for( QueuedMessage entry = queue.poll(); entry != null; entry = queue.poll())
+			contents.add(((MsgEcho) entry.getMessage()).getContent());
+
+		Assert.assertEquals( 0, queue.size());
+		Assert.assertEquals( "control0", contents.get( 0 ));
+		Assert.assertEquals( "control1", contents.get( 1 ));
+		Assert.assertEquals( "state0", contents.get( 2 ));
+		Assert.assertEquals( "bulk0", contents.get( 3 ));
+		Assert.assertEquals( "control2", contents.get( 4 ));
+		Assert.assertEquals( "control3", contents.get( 5 ));
+		Assert.assertEquals( "state1", contents.get( 6 ));
+		Assert.assertEquals( "bulk1", contents.get( 7 ));
+
+		// Empty priorities do not consume their credits
+		Assert.assertEquals( "state2", contents.get( 8 ));
+		Assert.assertEquals( "bulk2", contents.get( 9 ));
+		Assert.assertEquals( "state3", contents.get( 10 ));
+		Assert.assertEquals( "bulk3", contents.get( 11 ));
+	}
+
+
+	@Test
+	public void testTakeAndDrain() throws Exception {
+
+		final PriorityMessageQueue queue = new PriorityMessageQueue( new int[] { 1, 1, 1 });
+		final QueuedMessage msg = new QueuedMessage( new MsgEcho( "hi" ), 0 );
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep( 100 );
+					queue.add( msg, MessagePriority.STATE );
+
+				} catch( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+
+		thread.start();
+		Assert.assertSame( msg, queue.take());
+
+		queue.add( msg, MessagePriority.BULK );
+		queue.add( msg, MessagePriority.CONTROL );
+		List<QueuedMessage> drained = new ArrayList<> ();
+		queue.drainTo( drained );
+		Assert.assertEquals( 2, drained.size());
+		Assert.assertEquals( 0, queue.size());
+	}
+
+
+	@Test
+	public void testPutWaitsForRoom() throws Exception {
+
+		final PriorityMessageQueue queue = new PriorityMessageQueue( new int[] { 1, 1, 1 }, 2, null );
+		queue.put( new QueuedMessage( new MsgEcho( "1" ), 0 ), MessagePriority.STATE );
+		queue.put( new QueuedMessage( new MsgEcho( "2" ), 0 ), MessagePriority.STATE );
+
+		// Adding a message never waits
+		queue.add( new QueuedMessage( new MsgEcho( "3" ), 0 ), MessagePriority.CONTROL );
+		Assert.assertEquals( 3, queue.size());
+
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					queue.put( new QueuedMessage( new MsgEcho( "4" ), 0 ), MessagePriority.STATE );
+
+				} catch( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+
+		thread.start();
+		Thread.sleep( 100 );
+		Assert.assertTrue( thread.isAlive());
+		Assert.assertEquals( 3, queue.size());
+
+		// Room is made once the queue contains less messages than its capacity
+		queue.poll();
+		queue.poll();
+		thread.join( 1000 );
+		Assert.assertFalse( thread.isAlive());
+		Assert.assertEquals( 2, queue.size());
+	}
+
+
+	@Test
+	public void testOverflowPolicies() throws Exception {
+
+		PriorityMessageQueue queue = new PriorityMessageQueue( new int[] { 1, 1, 1 }, 2, new RoboconfMessageQueue());
+		MsgNotifHeartbeat hb1 = new MsgNotifHeartbeat( "app", "/vm1", "127.0.0.1" );
+		hb1.setModelRequired( true );
+		MsgNotifHeartbeat hb2 = new MsgNotifHeartbeat( "app", "/vm1", "127.0.0.1" );
+		MsgNotifHeartbeat hb3 = new MsgNotifHeartbeat( "app", "/vm1", "127.0.0.1" );
+		Message echo1 = new MsgEcho( "1" );
+		Message echo2 = new MsgEcho( "2" );
+
+		// Nothing is discarded while there is room
+		Assert.assertNull( queue.put( new QueuedMessage( hb1, 1 ), MessagePriority.CONTROL ));
+		Assert.assertNull( queue.put( new QueuedMessage( echo1, 2 ), MessagePriority.CONTROL ));
+
+		// The queue is full: messages are collapsed or dropped
+		Assert.assertSame( hb1, queue.put( new QueuedMessage( hb2, 3 ), MessagePriority.CONTROL ));
+		Assert.assertTrue( hb2.isModelRequired());
+		Assert.assertSame( echo2, queue.put( new QueuedMessage( echo2, 4 ), MessagePriority.CONTROL ));
+		Assert.assertEquals( 2, queue.size());
+
+		// The latest message keeps the position and the reception time of the first one
+		QueuedMessage entry = queue.poll();
+		Assert.assertSame( hb2, entry.getMessage());
+		Assert.assertEquals( 1, entry.getReceptionTime());
+
+		// Messages that were taken cannot be replaced anymore
+		Assert.assertNull( queue.put( new QueuedMessage( hb3, 5 ), MessagePriority.CONTROL ));
+		Assert.assertSame( echo1, queue.poll().getMessage());
+		Assert.assertSame( hb3, queue.poll().getMessage());
+		Assert.assertNull( queue.poll());
+	}
+}
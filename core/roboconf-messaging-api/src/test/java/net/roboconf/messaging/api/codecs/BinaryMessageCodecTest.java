@@ -0,0 +1,343 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.api.codecs;
+
+import static net.roboconf.messaging.api.utils.SerializationUtilsTest.checkBasics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.roboconf.core.model.beans.Component;
+import net.roboconf.core.model.beans.Import;
+import net.roboconf.core.model.beans.Instance;
+import net.roboconf.core.model.beans.Instance.InstanceStatus;
+import net.roboconf.core.model.helpers.ImportHelpers;
+import net.roboconf.messaging.api.codecs.BinaryMessageCodec.MessageSchema;
+import net.roboconf.messaging.api.extensions.MessagingContext;
+import net.roboconf.messaging.api.extensions.MessagingContext.RecipientKind;
+import net.roboconf.messaging.api.extensions.MessagingContext.ThoseThat;
+import net.roboconf.messaging.api.messages.Message;
+import net.roboconf.messaging.api.messages.from_agent_to_agent.MsgCmdAddImport;
+import net.roboconf.messaging.api.messages.from_agent_to_agent.MsgCmdRemoveImport;
+import net.roboconf.messaging.api.messages.from_agent_to_agent.MsgCmdRequestImport;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifAutonomic;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifHeartbeat;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifInstanceChanged;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifInstanceRemoved;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifLogs;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifMachineDown;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdAddInstance;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdChangeBinding;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdChangeInstanceState;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdChangeLogLevel;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdGatherLogs;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdRemoveInstance;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdResynchronize;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdSendInstances;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdSetScopedInstance;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdUpdateProbeConfiguration;
+import net.roboconf.messaging.api.messages.from_dm_to_dm.MsgEcho;
+import net.roboconf.messaging.api.utils.SerializationUtils;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class BinaryMessageCodecTest {
+
+	private final BinaryMessageCodec codec = new BinaryMessageCodec();
+
+
+	@Test
+	public void testMessagesFromAgents() throws Exception {
+
+		MsgNotifHeartbeat heartbeat = new MsgNotifHeartbeat( "app1", "/vm 1", "127.0.0.1" );
+		heartbeat.setModelRequired( true );
+		MsgNotifHeartbeat newHeartbeat = checkBasics( heartbeat, MsgNotifHeartbeat.class, this.codec );
+		Assert.assertTrue( newHeartbeat.isModelRequired());
+		checkBasics( new MsgNotifHeartbeat( "app1", "/vm 1", null ), MsgNotifHeartbeat.class, this.codec );
+
+		checkBasics( new MsgNotifMachineDown( "app1", "/vm" ), MsgNotifMachineDown.class, this.codec );
+		checkBasics( new MsgNotifAutonomic( "app1", "/vm", "too high", "oops" ), MsgNotifAutonomic.class, this.codec );
+		checkBasics( new MsgNotifInstanceRemoved( "app2", new Instance( "instance1" )), MsgNotifInstanceRemoved.class, this.codec );
+
+		Map<String,byte[]> logs = new HashMap<> ();
+		checkBasics( new MsgNotifLogs( "app", "/vm", null ), MsgNotifLogs.class, this.codec );
+		checkBasics( new MsgNotifLogs( "app", "/vm", logs ), MsgNotifLogs.class, this.codec );
+
+		logs.put( "file1", new byte[ 0 ]);
+		logs.put( "file2", "test - é".getBytes( "UTF-8" ));
+		MsgNotifLogs newLogs = checkBasics( new MsgNotifLogs( "app", "/vm", logs ), MsgNotifLogs.class, this.codec );
+		Assert.assertArrayEquals( logs.get( "file2" ), newLogs.getLogFiles().get( "file2" ));
+	}
+
+
+	@Test
+	public void testInstanceChanged() throws Exception {
+
+		Instance instance = new Instance( "inst" ).status( InstanceStatus.DEPLOYED_STARTED );
+		Map<String,String> exports = new HashMap<> ();
+		exports.put( "db.ip", "192.168.1.4" );
+		exports.put( "db.port", null );
+		ImportHelpers.addImport( instance, "db", new Import( "/vm/db", "db", exports ));
+		ImportHelpers.addImport( instance, "db", new Import( "/vm/db2", "db" ));
+
+		MsgNotifInstanceChanged msg = new MsgNotifInstanceChanged( "app", instance );
+		MsgNotifInstanceChanged newMsg = checkBasics( msg, MsgNotifInstanceChanged.class, this.codec );
+
+		Assert.assertEquals( InstanceStatus.DEPLOYED_STARTED, newMsg.getNewStatus());
+		Assert.assertEquals( 2, newMsg.getNewImports().get( "db" ).size());
+
+		Import imp = newMsg.getNewImports().get( "db" ).iterator().next();
+		Assert.assertEquals( "/vm/db", imp.getInstancePath());
+		Assert.assertEquals( "db", imp.getComponentName());
+		Assert.assertEquals( exports, imp.getExportedVars());
+	}
+
+
+	@Test
+	public void testMessagesBetweenAgents() throws Exception {
+
+		Map<String,String> map = new HashMap<> ();
+		map.put( "yeah", "value" );
+
+		checkBasics( new MsgCmdAddImport( "app", "comp", "/vm/inst", map ), MsgCmdAddImport.class, this.codec );
+		checkBasics( new MsgCmdAddImport( "app", "comp", "/vm/inst", null ), MsgCmdAddImport.class, this.codec );
+		checkBasics( new MsgCmdRemoveImport( "app", "comp", "/vm/inst" ), MsgCmdRemoveImport.class, this.codec );
+		checkBasics( new MsgCmdRequestImport( "app", "comp" ), MsgCmdRequestImport.class, this.codec );
+	}
+
+
+	@Test
+	public void testMessagesFromTheDm() throws Exception {
+
+		Map<String,byte[]> files = new HashMap<> ();
+		files.put( "readme.txt", new byte[ 90 ]);
+
+		checkBasics( new MsgCmdChangeInstanceState( "/vm", InstanceStatus.DEPLOYED_STOPPED, files ), MsgCmdChangeInstanceState.class, this.codec );
+		checkBasics( new MsgCmdChangeInstanceState((String) null, null ), MsgCmdChangeInstanceState.class, this.codec );
+		checkBasics( new MsgCmdRemoveInstance( "/vm/inst" ), MsgCmdRemoveInstance.class, this.codec );
+		checkBasics( new MsgCmdResynchronize(), MsgCmdResynchronize.class, this.codec );
+		checkBasics( new MsgCmdSendInstances(), MsgCmdSendInstances.class, this.codec );
+		checkBasics( new MsgCmdGatherLogs(), MsgCmdGatherLogs.class, this.codec );
+		checkBasics( new MsgCmdChangeLogLevel( Level.FINER ), MsgCmdChangeLogLevel.class, this.codec );
+		checkBasics( new MsgCmdChangeBinding( "tpl", new HashSet<>( Arrays.asList( "app1", "app2" ))), MsgCmdChangeBinding.class, this.codec );
+		checkBasics( new MsgCmdUpdateProbeConfiguration( "/inst", files ), MsgCmdUpdateProbeConfiguration.class, this.codec );
+		checkBasics( new MsgCmdUpdateProbeConfiguration( "/inst", null ), MsgCmdUpdateProbeConfiguration.class, this.codec );
+	}
+
+
+	@Test
+	public void testEcho() throws Exception {
+
+		MsgEcho msg = new MsgEcho( "hello", UUID.randomUUID(), 12L );
+		MsgEcho newMsg = checkBasics( msg, MsgEcho.class, this.codec );
+		Assert.assertEquals( 12L, newMsg.getCreationTime());
+
+		checkBasics( new MsgEcho( "hello", null ), MsgEcho.class, this.codec );
+	}
+
+
+	@Test
+	public void testFallbackToJavaSerialization() throws Exception {
+
+		Instance instance = new Instance( "inst" ).component( new Component( "comp" ).installerName( "whatever" ));
+		byte[] bytes = this.codec.encode( new MsgCmdSetScopedInstance( instance ));
+		Assert.assertTrue( BinaryMessageCodec.isBinaryMessage( bytes, 0, bytes.length ));
+		Assert.assertEquals( BinaryMessageCodec.TAG_FALLBACK, bytes[ 3 ]);
+		checkBasics( new MsgCmdSetScopedInstance( instance ), MsgCmdSetScopedInstance.class, this.codec );
+		checkBasics( new MsgCmdAddInstance( instance ), MsgCmdAddInstance.class, this.codec );
+	}
+
+
+	@Test
+	public void testBinaryMessagesAreSmaller() throws Exception {
+
+		Map<String,String> map = new HashMap<> ();
+		map.put( "MySQL.ip", "192.168.1.4" );
+		map.put( "MySQL.port", "3306" );
+
+		Message msg = new MsgCmdAddImport( "app", "MySQL", "/vm/mysql", map );
+		byte[] javaBytes = new JavaMessageCodec().encode( msg );
+		byte[] binaryBytes = this.codec.encode( msg );
+		Assert.assertTrue( binaryBytes.length * 3 < javaBytes.length );
+	}
+
+
+	@Test
+	public void testAutomaticDetection() throws Exception {
+
+		Message msg = new MsgCmdRemoveInstance( "/vm" );
+		byte[] javaBytes = new JavaMessageCodec().encode( msg );
+		byte[] binaryBytes = this.codec.encode( msg );
+
+		Assert.assertFalse( BinaryMessageCodec.isBinaryMessage( javaBytes, 0, javaBytes.length ));
+		Assert.assertTrue( BinaryMessageCodec.isBinaryMessage( binaryBytes, 0, binaryBytes.length ));
+
+		Assert.assertEquals( MsgCmdRemoveInstance.class, SerializationUtils.deserializeObject( javaBytes ).getClass());
+		Assert.assertEquals( MsgCmdRemoveInstance.class, SerializationUtils.deserializeObject( binaryBytes ).getClass());
+
+		// With an offset
+		byte[] moreBytes = new byte[ binaryBytes.length + 7 ];
+		System.arraycopy( binaryBytes, 0, moreBytes, 5, binaryBytes.length );
+		Message newMsg = this.codec.decode( moreBytes, 5, binaryBytes.length );
+		Assert.assertEquals( "/vm", ((MsgCmdRemoveInstance) newMsg).getInstancePath());
+	}
+
+
+	@Test
+	public void testDecode_reusedInput() throws Exception {
+
+		BinaryMessageCodec.registerSchema( new TestSchema( 120 ));
+		MessagingContext ctx = new MessagingContext( RecipientKind.AGENTS, "domain", "facet", ThoseThat.EXPORT, "app" );
+		TestMessage msg = new TestMessage( ctx, new TestMessage( ctx, new MsgCmdRemoveInstance( "/vm" )));
+
+		byte[] first = this.codec.encode( msg );
+		byte[] second = this.codec.encode( new MsgCmdRemoveImport( "app", "comp", "/vm/inst" ));
+		byte[] bytes = new byte[ first.length + second.length + 3 ];
+		System.arraycopy( first, 0, bytes, 1, first.length );
+		System.arraycopy( second, 0, bytes, 2 + first.length, second.length );
+
+		SliceInput input = new SliceInput();
+		TestMessage newMsg = (TestMessage) this.codec.decode( bytes, 1, first.length, input );
+		Assert.assertEquals( ctx, newMsg.ctx );
+		Assert.assertEquals( ctx, ((TestMessage) newMsg.nested).ctx );
+		Assert.assertEquals( "/vm", ((MsgCmdRemoveInstance) ((TestMessage) newMsg.nested).nested).getInstancePath());
+
+		// The input does not retain the array
+		Assert.assertEquals( 0, input.buffer().length );
+
+		MsgCmdRemoveImport newMsg2 = (MsgCmdRemoveImport) this.codec.decode( bytes, 2 + first.length, second.length, input );
+		Assert.assertEquals( "app", newMsg2.getApplicationOrContextName());
+		Assert.assertEquals( "comp", newMsg2.getComponentOrFacetName());
+		Assert.assertEquals( "/vm/inst", newMsg2.getRemovedInstancePath());
+	}
+
+
+	@Test
+	public void testFindCodec() {
+
+		Assert.assertEquals( JavaMessageCodec.NAME, SerializationUtils.findCodec( null ).getName());
+		Assert.assertEquals( JavaMessageCodec.NAME, SerializationUtils.findCodec( "whatever" ).getName());
+		Assert.assertEquals( JavaMessageCodec.NAME, SerializationUtils.findCodec( "java" ).getName());
+		Assert.assertEquals( BinaryMessageCodec.NAME, SerializationUtils.findCodec( "binary" ).getName());
+		Assert.assertEquals( BinaryMessageCodec.NAME, SerializationUtils.findCodec( "BINARY" ).getName());
+	}
+
+
+	@Test( expected = IOException.class )
+	public void testDecode_noHeader() throws Exception {
+		this.codec.decode( new byte[] { 1, 2, 3, 4, 5 }, 0, 5 );
+	}
+
+
+	@Test( expected = IOException.class )
+	public void testDecode_unknownTag() throws Exception {
+		this.codec.decode( new byte[] { 'R', 'B', 1, 98 }, 0, 4 );
+	}
+
+
+	@Test( expected = IOException.class )
+	public void testDecode_unsupportedVersion() throws Exception {
+		this.codec.decode( new byte[] { 'R', 'B', 9, 1 }, 0, 4 );
+	}
+
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testRegisterSchema_reservedTag() {
+		BinaryMessageCodec.registerSchema( new TestSchema( 0 ));
+	}
+
+
+	@Test( expected = IllegalArgumentException.class )
+	public void testRegisterSchema_tagUsedByAnotherClass() {
+		BinaryMessageCodec.registerSchema( new TestSchema( 1 ));
+	}
+
+
+	@Test
+	public void testRegisterSchema_withNestedMessage() throws Exception {
+
+		BinaryMessageCodec.registerSchema( new TestSchema( 120 ));
+		BinaryMessageCodec.registerSchema( new TestSchema( 120 ));
+		Assert.assertEquals( 120, BinaryMessageCodec.findTag( TestMessage.class ));
+
+		MessagingContext ctx = new MessagingContext( RecipientKind.AGENTS, "domain", "facet", ThoseThat.EXPORT, "app" );
+		TestMessage msg = new TestMessage( ctx, new MsgCmdRemoveInstance( "/vm" ));
+		TestMessage newMsg = (TestMessage) this.codec.decode( this.codec.encode( msg ), 0, this.codec.encode( msg ).length );
+
+		Assert.assertEquals( ctx, newMsg.ctx );
+		Assert.assertEquals( "domain", newMsg.ctx.getDomain());
+		Assert.assertEquals( "/vm", ((MsgCmdRemoveInstance) newMsg.nested).getInstancePath());
+	}
+
+
+	/**
+	 * @author Vincent Zurczak - Linagora
+	 */
+	static class TestMessage extends Message {
+		private static final long serialVersionUID = 1L;
+		final MessagingContext ctx;
+		final Message nested;
+
+		TestMessage( MessagingContext ctx, Message nested ) {
+			this.ctx = ctx;
+			this.nested = nested;
+		}
+	}
+
+
+	/**
+	 * @author Vincent Zurczak - Linagora
+	 */
+	static class TestSchema extends MessageSchema<TestMessage> {
+
+		TestSchema( int tag ) {
+			super( tag, TestMessage.class );
+		}
+
+		@Override
+		public void write( TestMessage message, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+			BinaryMessageCodec.writeContext( message.ctx, out );
+			codec.writeMessage( message.nested, out );
+		}
+
+		@Override
+		public TestMessage read( DataInput in, BinaryMessageCodec codec ) throws IOException, ClassNotFoundException {
+			MessagingContext ctx = BinaryMessageCodec.readContext( in );
+			return new TestMessage( ctx, codec.readMessage( in ));
+		}
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.api.codecs;
+
+import java.io.EOFException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class SliceInputTest {
+
+	@Test
+	public void testReadSlices() throws Exception {
+
+		byte[] bytes = { 9, 0, 0, 0, 5, 9, 'h', 'e', 'l', 'l', 'o', 9 };
+		SliceInput input = new SliceInput( bytes, 1, 4 );
+		Assert.assertEquals( 1, input.position());
+		Assert.assertEquals( 5, input.limit());
+		Assert.assertSame( bytes, input.buffer());
+		Assert.assertEquals( 5, input.readInt());
+		Assert.assertEquals( -1, input.read());
+
+		input.wrap( bytes, 6, 5 );
+		Assert.assertEquals( "hello", input.readUtf8( 5 ));
+		Assert.assertEquals( 11, input.position());
+
+		input.position( 6 );
+		input.limit( 8 );
+		Assert.assertEquals( "he", input.readUtf8( 2 ));
+
+		input.release();
+		Assert.assertEquals( 0, input.buffer().length );
+		Assert.assertEquals( 0, input.limit());
+	}
+
+
+	@Test
+	public void testReadUtf8_multiBytes() throws Exception {
+
+		byte[] bytes = "Universit\u00e9".getBytes( StandardCharsets.UTF_8 );
+		SliceInput input = new SliceInput( bytes, 0, bytes.length );
+		Assert.assertEquals( "Universit\u00e9", input.readUtf8( bytes.length ));
+	}
+
+
+	@Test( expected = EOFException.class )
+	public void testReadUtf8_tooLong() throws Exception {
+
+		SliceInput input = new SliceInput( new byte[ 10 ], 2, 3 );
+		input.readUtf8( 4 );
+	}
+
+
+	@Test
+	public void testLengthIsCappedByArray() throws Exception {
+
+		SliceInput input = new SliceInput( new byte[ 4 ], 2, 10 );
+		Assert.assertEquals( 4, input.limit());
+
+		input.limit( 20 );
+		Assert.assertEquals( 4, input.limit());
+	}
+}
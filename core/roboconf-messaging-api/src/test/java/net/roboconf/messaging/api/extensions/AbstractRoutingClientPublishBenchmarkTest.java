@@ -0,0 +1,112 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.api.extensions;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.roboconf.messaging.api.extensions.MessagingContext.RecipientKind;
+import net.roboconf.messaging.api.extensions.MessagingContext.ThoseThat;
+import net.roboconf.messaging.api.internal.client.in_memory.InMemoryClient;
+import net.roboconf.messaging.api.internal.client.in_memory.InMemoryClient.InMemoryRoutingContext;
+import net.roboconf.messaging.api.jmx.RoboconfMessageQueue;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdResynchronize;
+
+/**
+ * A light benchmark for {@link AbstractRoutingClient#publish(MessagingContext, net.roboconf.messaging.api.messages.Message)}.
+ * <p>
+ * Throughput is only logged, assertions are about deliveries.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public class AbstractRoutingClientPublishBenchmarkTest {
+
+	private static final int PUBLICATIONS = 2000;
+	private final Logger logger = Logger.getLogger( getClass().getName());
+
+
+	@Test
+	public void testPublishWith10Owners() throws Exception {
+		runBenchmark( 10 );
+	}
+
+
+	@Test
+	public void testPublishWith1000Owners() throws Exception {
+		runBenchmark( 1000 );
+	}
+
+
+	@Test
+	public void testPublishWith10000Owners() throws Exception {
+		runBenchmark( 10000 );
+	}
+
+
+	private void runBenchmark( int ownersCount ) throws Exception {
+
+		// Every owner subscribes to its own context, only one is targeted.
+		InMemoryRoutingContext routingContext = new InMemoryRoutingContext();
+		InMemoryClient publisher = null;
+		RoboconfMessageQueue targetQueue = null;
+		MessagingContext targetCtx = null;
+
+		for( int i = 0; i < ownersCount; i ++ ) {
+			InMemoryClient client = new InMemoryClient( routingContext, RecipientKind.AGENTS );
+			client.setOwnerProperties( RecipientKind.AGENTS, "domain", "app", "/vm" + i );
+			client.openConnection();
+
+			RoboconfMessageQueue queue = new RoboconfMessageQueue();
+			client.setMessageQueue( queue );
+
+			MessagingContext ctx = new MessagingContext( RecipientKind.AGENTS, "domain", "facet" + i, ThoseThat.IMPORT, "app" );
+			client.subscribe( ctx );
+
+			if( publisher == null ) {
+				publisher = client;
+				targetQueue = queue;
+				targetCtx = ctx;
+			}
+		}
+
+		Assert.assertNotNull( publisher );
+		Assert.assertEquals( ownersCount, routingContext.subscribers.size());
+
+		long start = System.nanoTime();
+		for( int i = 0; i < PUBLICATIONS; i ++ )
+			publisher.publish( targetCtx, new MsgCmdResynchronize());
+
+		long elapsed = Math.max( 1, System.nanoTime() - start );
+		long throughput = PUBLICATIONS * TimeUnit.SECONDS.toNanos( 1 ) / elapsed;
+		this.logger.info( ownersCount + " owners: " + throughput + " publications per second." );
+
+		Assert.assertEquals( PUBLICATIONS, targetQueue.size());
+	}
+}
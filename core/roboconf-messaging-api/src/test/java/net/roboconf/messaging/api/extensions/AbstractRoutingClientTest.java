@@ -32,8 +32,12 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import net.roboconf.messaging.api.extensions.MessagingContext.RecipientKind;
+import net.roboconf.messaging.api.extensions.MessagingContext.ThoseThat;
+import net.roboconf.messaging.api.internal.client.in_memory.InMemoryClient;
+import net.roboconf.messaging.api.internal.client.in_memory.InMemoryClient.InMemoryRoutingContext;
 import net.roboconf.messaging.api.jmx.RoboconfMessageQueue;
 import net.roboconf.messaging.api.messages.Message;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdResynchronize;
 
 /**
  * @author Vincent Zurczak - Linagora
@@ -61,6 +65,63 @@ public class AbstractRoutingClientTest {
 	}
 
 
+	@Test
+	public void testInvertedIndex() throws Exception {
+
+		InMemoryRoutingContext routingContext = new InMemoryRoutingContext();
+		InMemoryClient client1 = new InMemoryClient( routingContext, RecipientKind.AGENTS );
+		client1.setOwnerProperties( RecipientKind.AGENTS, "domain", "app", "/vm1" );
+		client1.openConnection();
+
+		InMemoryClient client2 = new InMemoryClient( routingContext, RecipientKind.AGENTS );
+		client2.setOwnerProperties( RecipientKind.AGENTS, "domain", "app", "/vm2" );
+		client2.openConnection();
+
+		MessagingContext ctx1 = new MessagingContext( RecipientKind.AGENTS, "domain", "facet1", ThoseThat.IMPORT, "app" );
+		MessagingContext ctx2 = new MessagingContext( RecipientKind.AGENTS, "domain", "facet2", ThoseThat.IMPORT, "app" );
+		Assert.assertEquals( 0, routingContext.subscribers.size());
+
+		client1.subscribe( ctx1 );
+		client2.subscribe( ctx1 );
+		client2.subscribe( ctx2 );
+		Assert.assertEquals( 2, routingContext.subscribers.size());
+		Assert.assertEquals( 2, routingContext.subscribers.get( ctx1 ).size());
+		Assert.assertEquals( 1, routingContext.subscribers.get( ctx2 ).size());
+
+		// Publish
+		RoboconfMessageQueue queue1 = new RoboconfMessageQueue();
+		client1.setMessageQueue( queue1 );
+		RoboconfMessageQueue queue2 = new RoboconfMessageQueue();
+		client2.setMessageQueue( queue2 );
+
+		client1.publish( ctx2, new MsgCmdResynchronize());
+		Assert.assertEquals( 0, queue1.size());
+		Assert.assertEquals( 1, queue2.size());
+
+		client1.publish( ctx1, new MsgCmdResynchronize());
+		Assert.assertEquals( 1, queue1.size());
+		Assert.assertEquals( 2, queue2.size());
+
+		// Unsubscribe
+		client2.unsubscribe( ctx2 );
+		Assert.assertEquals( 1, routingContext.subscribers.size());
+		Assert.assertNull( routingContext.subscribers.get( ctx2 ));
+
+		// Change the owner
+		client2.setOwnerProperties( RecipientKind.AGENTS, "domain", "app", "/vm3" );
+		Assert.assertEquals( 2, routingContext.subscribers.get( ctx1 ).size());
+		Assert.assertTrue( routingContext.subscribers.get( ctx1 ).contains( client2.getOwnerId()));
+		Assert.assertFalse( routingContext.subscribers.get( ctx1 ).contains( "/vm2 @ app" ));
+
+		// Delete artifacts
+		client1.deleteMessagingServerArtifacts( null );
+		Assert.assertEquals( 1, routingContext.subscribers.get( ctx1 ).size());
+		client2.deleteMessagingServerArtifacts( null );
+		Assert.assertEquals( 0, routingContext.subscribers.size());
+		Assert.assertEquals( 0, routingContext.subscriptions.size());
+	}
+
+
 	/**
 	 * @author Vincent Zurczak - Linagora
 	 */
@@ -86,8 +147,8 @@ public class AbstractRoutingClientTest {
 		}
 
 		@Override
-		protected void process( String obj, Message message ) throws IOException {
-			// nothing
+		protected int process( String obj, Message message ) throws IOException {
+			return 0;
 		}
 
 		@Override
@@ -28,7 +28,7 @@ package net.roboconf.messaging.api.internal.client.in_memory;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -173,7 +173,7 @@ public class InMemoryClientTest {
 
 		// Verify associations
 		Map<String,Set<MessagingContext>> sub = client.getRoutingContext().subscriptions;
-		Map<String,LinkedBlockingQueue<Message>> ctxToQueue = ((InMemoryRoutingContext) client.getRoutingContext()).ctxToQueue;
+		Map<String,BlockingQueue<Message>> ctxToQueue = ((InMemoryRoutingContext) client.getRoutingContext()).ctxToQueue;
 		Assert.assertEquals( queue, ctxToQueue.get( ownerId_1 ));
 
 		Set<MessagingContext> subscribedContexts = sub.get( ownerId_1 );
@@ -196,6 +196,12 @@ public class InMemoryClientTest {
 		Assert.assertNotNull( subscribedContexts );
 		Assert.assertEquals( 1, subscribedContexts.size());
 		Assert.assertTrue( subscribedContexts.contains( ctx ));
+
+		// The inverted index was updated too
+		Set<String> subscribers = client.getRoutingContext().subscribers.get( ctx );
+		Assert.assertNotNull( subscribers );
+		Assert.assertEquals( 1, subscribers.size());
+		Assert.assertTrue( subscribers.contains( ownerId_2 ));
 	}
 
 
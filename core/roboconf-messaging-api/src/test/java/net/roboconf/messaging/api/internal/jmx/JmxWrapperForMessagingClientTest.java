@@ -35,12 +35,17 @@ import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
 
 import net.roboconf.core.model.beans.Application;
+import net.roboconf.messaging.api.extensions.IConfirmingMessagingClient;
 import net.roboconf.messaging.api.extensions.IMessagingClient;
 import net.roboconf.messaging.api.extensions.MessagingContext;
 import net.roboconf.messaging.api.extensions.MessagingContext.RecipientKind;
 import net.roboconf.messaging.api.jmx.MessagingApiMBean;
+import net.roboconf.messaging.api.jmx.PublicationConfirms;
 import net.roboconf.messaging.api.jmx.RoboconfMessageQueue;
+import net.roboconf.messaging.api.jmx.RoboconfMessageQueue.QueuedMessage;
 import net.roboconf.messaging.api.messages.Message;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifHeartbeat;
+import net.roboconf.messaging.api.messages.from_dm_to_dm.MsgEcho;
 import net.roboconf.messaging.api.utils.MessagingUtils;
 import net.roboconf.messaging.api.utils.OsgiHelper;
 
@@ -125,6 +130,129 @@ public class JmxWrapperForMessagingClientTest {
 	}
 
 
+	@Test
+	public void testMessageQueueMetrics() throws Exception {
+
+		JmxWrapperForMessagingClient client = new JmxWrapperForMessagingClient( Mockito.mock( IMessagingClient.class ));
+		Assert.assertEquals( 0, client.getDroppedMessagesCount());
+		Assert.assertEquals( 0, client.getCollapsedMessagesCount());
+		Assert.assertEquals( 0, client.getMessageQueueHighWaterMark());
+
+		RoboconfMessageQueue queue = new RoboconfMessageQueue();
+		queue.setCapacity( 1 );
+		client.setMessageQueue( queue );
+
+		queue.add( new MsgNotifHeartbeat( "app", "/vm", "127.0.0.1" ));
+		queue.add( new MsgNotifHeartbeat( "app", "/vm", "127.0.0.1" ));
+		queue.add( new MsgEcho( "dropped" ));
+
+		Assert.assertEquals( 3, client.getReceivedMessagesCount());
+		Assert.assertEquals( 1, client.getDroppedMessagesCount());
+		Assert.assertEquals( 1, client.getCollapsedMessagesCount());
+		Assert.assertEquals( 1, client.getMessageQueueHighWaterMark());
+
+		client.reset();
+		Assert.assertEquals( 0, client.getDroppedMessagesCount());
+		Assert.assertEquals( 0, client.getCollapsedMessagesCount());
+		Assert.assertEquals( 1, client.getMessageQueueHighWaterMark());
+	}
+
+
+	@Test
+	public void testMessageLatencies() throws Exception {
+
+		JmxWrapperForMessagingClient client = new JmxWrapperForMessagingClient( Mockito.mock( IMessagingClient.class ));
+		Assert.assertEquals( 0, client.getMessageLatencies().length );
+
+		RoboconfMessageQueue queue = new RoboconfMessageQueue();
+		client.setMessageQueue( queue );
+		queue.add( new MsgEcho( "hello" ));
+
+		QueuedMessage entry = queue.takeEntry();
+		long now = System.nanoTime();
+		queue.recordLatencies( entry, now, now + 1000 );
+
+		String[] latencies = client.getMessageLatencies();
+		Assert.assertEquals( 1, latencies.length );
+		Assert.assertTrue( latencies[ 0 ], latencies[ 0 ].startsWith( "MsgEcho {wait.count=1," ));
+		Assert.assertTrue( latencies[ 0 ], latencies[ 0 ].contains( "processing.max=1" ));
+
+		client.reset();
+		Assert.assertEquals( 0, client.getMessageLatencies().length );
+	}
+
+
+	@Test
+	public void testPublicationStatistics() throws Exception {
+
+		IMessagingClient messagingClient = Mockito.mock( IMessagingClient.class );
+		JmxWrapperForMessagingClient client = new JmxWrapperForMessagingClient( messagingClient );
+		Assert.assertEquals( 0, client.getPublishedMessagesPerType().size());
+
+		// The wrapper counts the bytes reported by the client
+		Mockito.when( messagingClient.publish(
+				Mockito.any( MessagingContext.class ),
+				Mockito.any( Message.class ))).thenReturn( 30L );
+
+		Message msg = new MsgEcho( "hello" );
+		Assert.assertEquals( 30L, client.publish( new MessagingContext( RecipientKind.DM, null, "app" ), msg ));
+
+		Assert.assertEquals( 1, client.getSentMessagesCount());
+		Assert.assertEquals( 1L, client.getPublishedMessagesPerType().get( new Object[] { "MsgEcho" }).get( "sent" ));
+		Assert.assertEquals( 30L, client.getPublishedMessagesPerType().get( new Object[] { "MsgEcho" }).get( "bytes" ));
+		Assert.assertEquals( 1L, client.getPublishedMessagesPerRecipient().get( new Object[] { "DM" }).get( "sent" ));
+
+		String text = client.getMetricsAsText();
+		Assert.assertTrue( text, text.contains( "roboconf_messaging_sent_messages_total 1\n" ));
+		Assert.assertTrue( text, text.contains( "roboconf_messaging_published_bytes_total{type=\"MsgEcho\"} 30\n" ));
+
+		client.reset();
+		Assert.assertEquals( 0L, client.getPublishedMessagesPerType().get( new Object[] { "MsgEcho" }).get( "sent" ));
+		Assert.assertTrue( client.getMetricsAsText().contains( "roboconf_messaging_sent_messages_total 0\n" ));
+	}
+
+
+	@Test
+	public void testPublicationConfirms() throws Exception {
+
+		// Clients that do not confirm publications
+		JmxWrapperForMessagingClient client = new JmxWrapperForMessagingClient( Mockito.mock( IMessagingClient.class ));
+		Assert.assertEquals( 0, client.getConfirmedMessagesCount());
+		Assert.assertEquals( 0, client.getRejectedMessagesCount());
+		Assert.assertEquals( 0, client.getUnconfirmedMessagesCount());
+		Assert.assertFalse( client.getMetricsAsText().contains( "confirmed_messages" ));
+
+		// Clients that do
+		PublicationConfirms confirms = new PublicationConfirms();
+		IConfirmingMessagingClient messagingClient = Mockito.mock( IConfirmingMessagingClient.class );
+		Mockito.when( messagingClient.getPublicationConfirms()).thenReturn( confirms );
+		client = new JmxWrapperForMessagingClient( messagingClient );
+
+		for( int i=0; i<4; i++ )
+			confirms.published();
+
+		confirms.confirmed();
+		confirms.confirmed();
+		confirms.rejected();
+
+		Assert.assertEquals( 2, client.getConfirmedMessagesCount());
+		Assert.assertEquals( 1, client.getRejectedMessagesCount());
+		Assert.assertEquals( 1, client.getUnconfirmedMessagesCount());
+
+		String text = client.getMetricsAsText();
+		Assert.assertTrue( text, text.contains( "roboconf_messaging_confirmed_messages_total 2\n" ));
+		Assert.assertTrue( text, text.contains( "roboconf_messaging_rejected_messages_total 1\n" ));
+		Assert.assertTrue( text, text.contains( "# TYPE roboconf_messaging_unconfirmed_messages gauge\n" ));
+		Assert.assertTrue( text, text.contains( "roboconf_messaging_unconfirmed_messages 1\n" ));
+
+		// Pending confirmations are not reset
+		client.reset();
+		Assert.assertEquals( 0, client.getConfirmedMessagesCount());
+		Assert.assertEquals( 0, client.getRejectedMessagesCount());
+		Assert.assertEquals( 1, client.getUnconfirmedMessagesCount());
+	}
+
+
 	@Test
 	public void testPublish_sendingError() throws Exception {
 
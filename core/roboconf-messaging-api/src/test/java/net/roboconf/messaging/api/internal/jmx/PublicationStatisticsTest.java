@@ -0,0 +1,103 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.api.internal.jmx;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.roboconf.messaging.api.extensions.MessagingContext;
+import net.roboconf.messaging.api.extensions.MessagingContext.RecipientKind;
+import net.roboconf.messaging.api.messages.Message;
+import net.roboconf.messaging.api.messages.from_agent_to_agent.MsgCmdAddImport;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifHeartbeat;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class PublicationStatisticsTest {
+
+	@Test
+	public void testRecordAndExport() throws Exception {
+
+		PublicationStatistics stats = new PublicationStatistics();
+		MessagingContext dmCtx = new MessagingContext( RecipientKind.DM, null, "app" );
+		MessagingContext agentsCtx = new MessagingContext( RecipientKind.AGENTS, null, "topic", "app" );
+
+		Message hb = new MsgNotifHeartbeat( "app", "/vm", "127.0.0.1" );
+		stats.recordSuccess( dmCtx, hb, 40, TimeUnit.MILLISECONDS.toNanos( 2 ));
+		stats.recordSuccess( dmCtx, hb, 40, TimeUnit.MILLISECONDS.toNanos( 2 ));
+
+		Message imp = new MsgCmdAddImport( "app", "MySQL", "/vm/mysql", null );
+		stats.recordFailure( agentsCtx, imp, TimeUnit.MILLISECONDS.toNanos( 10 ));
+		stats.recordSuccess( null, imp, 100, TimeUnit.MILLISECONDS.toNanos( 1 ));
+
+		// Per type
+		TabularData data = stats.byTypeAsTabularData();
+		Assert.assertEquals( 2, data.size());
+
+		CompositeData row = data.get( new Object[] { "MsgNotifHeartbeat" });
+		Assert.assertEquals( 2L, row.get( "sent" ));
+		Assert.assertEquals( 0L, row.get( "failed" ));
+		Assert.assertEquals( 80L, row.get( "bytes" ));
+		Assert.assertEquals( 2000L, row.get( "latencyMax" ));
+
+		row = data.get( new Object[] { "MsgCmdAddImport" });
+		Assert.assertEquals( 1L, row.get( "sent" ));
+		Assert.assertEquals( 1L, row.get( "failed" ));
+		Assert.assertEquals( 100L, row.get( "bytes" ));
+		Assert.assertEquals( 10000L, row.get( "latencyMax" ));
+
+		// Per recipient (the publication without context is not counted)
+		data = stats.byRecipientAsTabularData();
+		Assert.assertEquals( RecipientKind.values().length, data.size());
+		Assert.assertEquals( 2L, data.get( new Object[] { "DM" }).get( "sent" ));
+		Assert.assertEquals( 0L, data.get( new Object[] { "AGENTS" }).get( "sent" ));
+		Assert.assertEquals( 1L, data.get( new Object[] { "AGENTS" }).get( "failed" ));
+		Assert.assertEquals( 0L, data.get( new Object[] { "INTER_APP" }).get( "sent" ));
+
+		// Text
+		StringBuilder sb = new StringBuilder();
+		stats.appendAsText( sb );
+		String text = sb.toString();
+		Assert.assertTrue( text, text.contains( "# TYPE roboconf_messaging_published_messages_total counter\n" ));
+		Assert.assertTrue( text, text.contains( "roboconf_messaging_published_messages_total{type=\"MsgNotifHeartbeat\"} 2\n" ));
+		Assert.assertTrue( text, text.contains( "roboconf_messaging_published_bytes_total{type=\"MsgCmdAddImport\"} 100\n" ));
+		Assert.assertTrue( text, text.contains( "roboconf_messaging_publication_failures_by_recipient_total{recipient=\"AGENTS\"} 1\n" ));
+		Assert.assertTrue( text, text.contains( "roboconf_messaging_publish_latency_microseconds{type=\"MsgNotifHeartbeat\",quantile=\"0.99\"} 2000\n" ));
+		Assert.assertTrue( text, text.contains( "roboconf_messaging_publish_latency_microseconds_count{type=\"MsgCmdAddImport\"} 2\n" ));
+
+		// Reset
+		stats.reset();
+		data = stats.byTypeAsTabularData();
+		Assert.assertEquals( 0L, data.get( new Object[] { "MsgNotifHeartbeat" }).get( "sent" ));
+		Assert.assertEquals( 0L, data.get( new Object[] { "MsgCmdAddImport" }).get( "bytes" ));
+	}
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.api.jmx;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class LatencyHistogramTest {
+
+	@Test
+	public void testBuckets() {
+
+		// Small values have their own bucket
+		for( int i = 0; i < LatencyHistogram.SUB_BUCKETS; i ++ ) {
+			Assert.assertEquals( i, LatencyHistogram.bucketIndex( i ));
+			Assert.assertEquals( i, LatencyHistogram.highestValue( i ));
+		}
+
+		// Every value must be lower or equal to the highest value of its bucket,
+		// and greater than the highest value of the previous bucket.
+		for( long value = 1; value < 1L << 35; value = value * 3 / 2 + 1 ) {
+			int index = LatencyHistogram.bucketIndex( value );
+			Assert.assertTrue( value + " / " + index, value <= LatencyHistogram.highestValue( index ));
+			Assert.assertTrue( value + " / " + index, value > LatencyHistogram.highestValue( index - 1 ));
+		}
+
+		// The last bucket collects very long durations
+		Assert.assertEquals( LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketIndex( Long.MAX_VALUE ));
+		Assert.assertEquals( LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketIndex( 1L << 36 ));
+		Assert.assertEquals( (1L << 36) - 1, LatencyHistogram.highestValue( LatencyHistogram.BUCKETS - 1 ));
+	}
+
+
+	@Test
+	public void testPercentiles() {
+
+		LatencyHistogram histogram = new LatencyHistogram();
+		Assert.assertEquals( 0, histogram.getCount());
+		Assert.assertEquals( 0, histogram.getMean());
+		Assert.assertEquals( 0, histogram.getValueAtPercentile( 99 ));
+
+		// 1, 2, ..., 1000 ms
+		for( int i = 1; i <= 1000; i ++ )
+			histogram.record( i, TimeUnit.MILLISECONDS );
+
+		Assert.assertEquals( 1000, histogram.getCount());
+		Assert.assertEquals( 1000000, histogram.getMax());
+		Assert.assertEquals( 500500, histogram.getMean());
+
+		// The relative error is less than 1 / 16
+		assertApproximately( 500000, histogram.getValueAtPercentile( 50 ));
+		assertApproximately( 990000, histogram.getValueAtPercentile( 99 ));
+		Assert.assertEquals( 1000000, histogram.getValueAtPercentile( 100 ));
+		assertApproximately( 1000, histogram.getValueAtPercentile( 0 ));
+
+		Map<String,Long> summary = histogram.summarize();
+		Assert.assertEquals( 1000, summary.get( "count" ).longValue());
+		Assert.assertEquals( 1000000, summary.get( "max" ).longValue());
+		Assert.assertTrue( summary.containsKey( "p999" ));
+
+		histogram.reset();
+		Assert.assertEquals( 0, histogram.getCount());
+		Assert.assertEquals( 0, histogram.getMax());
+		Assert.assertEquals( 0, histogram.getValueAtPercentile( 50 ));
+	}
+
+
+	@Test
+	public void testNegativeDuration() {
+
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record( -5, TimeUnit.NANOSECONDS );
+		Assert.assertEquals( 1, histogram.getCount());
+		Assert.assertEquals( 0, histogram.getMax());
+	}
+
+
+	private static void assertApproximately( long expected, long value ) {
+		Assert.assertTrue( expected + " / " + value, Math.abs( expected - value ) <= expected / LatencyHistogram.SUB_BUCKETS );
+	}
+}
@@ -25,13 +25,24 @@
 
 package net.roboconf.messaging.api.jmx;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import net.roboconf.core.model.beans.Instance.InstanceStatus;
+import net.roboconf.messaging.api.jmx.RoboconfMessageQueue.OverflowPolicy;
+import net.roboconf.messaging.api.jmx.RoboconfMessageQueue.QueuedMessage;
 import net.roboconf.messaging.api.messages.Message;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifHeartbeat;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifInstanceChanged;
+import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdResynchronize;
+import net.roboconf.messaging.api.messages.from_dm_to_dm.MsgEcho;
 
 /**
  * @author Vincent Zurczak - Linagora
@@ -115,6 +126,292 @@ public class RoboconfMessageQueueTest {
 	}
 
 
+	@Test
+	public void testProcessingCallbacks() {
+
+		RoboconfMessageQueue queue = new RoboconfMessageQueue();
+		Message msg1 = Mockito.mock( Message.class );
+		Message msg2 = Mockito.mock( Message.class );
+		Message msg3 = Mockito.mock( Message.class );
+		Runnable callback1 = Mockito.mock( Runnable.class );
+		Runnable callback2 = Mockito.mock( Runnable.class );
+		Runnable callback3 = Mockito.mock( Runnable.class );
+
+		Assert.assertTrue( queue.add( msg1, callback1 ));
+		Assert.assertTrue( queue.add( msg2, callback2 ));
+		Assert.assertTrue( queue.add( msg3, callback3 ));
+		Assert.assertEquals( 3, queue.getReceivedMessagesCount());
+		Assert.assertEquals( 3, queue.getPendingCallbacksCount());
+
+		// Taking a message does not invoke the callback
+		Assert.assertSame( msg1, queue.poll());
+		Mockito.verifyZeroInteractions( callback1 );
+
+		// Processing it does (only once)
+		queue.messageProcessed( msg1 );
+		queue.messageProcessed( msg1 );
+		Mockito.verify( callback1, Mockito.times( 1 )).run();
+		Assert.assertEquals( 2, queue.getPendingCallbacksCount());
+
+		// Discarded callbacks are not invoked
+		queue.discardProcessingCallback( msg2 );
+		Assert.assertEquals( 1, queue.getPendingCallbacksCount());
+
+		// Clearing the queue invokes the remaining callbacks
+		queue.clear();
+		Assert.assertEquals( 0, queue.size());
+		Assert.assertEquals( 0, queue.getPendingCallbacksCount());
+		Mockito.verifyZeroInteractions( callback2 );
+		Mockito.verify( callback3, Mockito.times( 1 )).run();
+	}
+
+
+	@Test
+	public void testProcessingCallbacks_whenCapacityIsExceeded() {
+
+		RoboconfMessageQueue queue = new RoboconfMessageQueue( 1 );
+		Assert.assertTrue( queue.add( Mockito.mock( Message.class ), Mockito.mock( Runnable.class )));
+
+		Runnable callback = Mockito.mock( Runnable.class );
+		try {
+			queue.add( Mockito.mock( Message.class ), callback );
+			Assert.fail( "An exception was expected, the queue is full." );
+
+		} catch( IllegalStateException e ) {
+			// nothing
+		}
+
+		Assert.assertEquals( 1, queue.getPendingCallbacksCount());
+		Mockito.verifyZeroInteractions( callback );
+	}
+
+
+	@Test
+	public void testBoundedQueue_collapse() throws Exception {
+
+		RoboconfMessageQueue queue = new RoboconfMessageQueue();
+		queue.setCapacity( 10 );
+		Assert.assertEquals( 10, queue.getCapacity());
+
+		MsgNotifHeartbeat hb1 = new MsgNotifHeartbeat( "app", "/vm1", "127.0.0.1" );
+		hb1.setModelRequired( true );
+		MsgNotifHeartbeat hb2 = new MsgNotifHeartbeat( "app", "/vm1", "127.0.0.1" );
+		MsgNotifHeartbeat hb3 = new MsgNotifHeartbeat( "app", "/vm2", "127.0.0.2" );
+		MsgNotifInstanceChanged ic1 = new MsgNotifInstanceChanged( "app", "/vm1/server", InstanceStatus.DEPLOYING, null );
+		MsgNotifInstanceChanged ic2 = new MsgNotifInstanceChanged( "app", "/vm1/server", InstanceStatus.DEPLOYED_STOPPED, null );
+		Message cmd1 = new MsgCmdResynchronize();
+		Message cmd2 = new MsgCmdResynchronize();
+
+		Runnable callback = Mockito.mock( Runnable.class );
+		queue.add( hb1, callback );
+		queue.add( ic1 );
+		queue.add( cmd1 );
+		queue.add( hb2 );
+		queue.add( hb3 );
+		queue.add( ic2 );
+		queue.add( cmd2 );
+
+		// The callback of a replaced message is invoked immediately
+		Mockito.verify( callback, Mockito.times( 1 )).run();
+		Assert.assertEquals( 5, queue.size());
+		Assert.assertEquals( 7, queue.getReceivedMessagesCount());
+		Assert.assertEquals( 2, queue.getCollapsedMessagesCount());
+		Assert.assertEquals( 0, queue.getDroppedMessagesCount());
+		Assert.assertEquals( 5, queue.getHighWaterMark());
+
+		// The latest messages are delivered at the position of the first ones
+		Assert.assertSame( hb2, queue.take());
+		Assert.assertTrue( hb2.isModelRequired());
+		Assert.assertSame( ic2, queue.poll());
+		Assert.assertSame( cmd1, queue.take());
+		Assert.assertSame( hb3, queue.take());
+		Assert.assertSame( cmd2, queue.poll( 1, TimeUnit.SECONDS ));
+		Assert.assertNull( queue.poll());
+
+		// Nothing is pending anymore
+		queue.add( hb1 );
+		Assert.assertEquals( 1, queue.size());
+		Assert.assertSame( hb1, queue.take());
+	}
+
+
+	@Test
+	public void testBoundedQueue_drop() throws Exception {
+
+		RoboconfMessageQueue queue = new RoboconfMessageQueue();
+		queue.setCapacity( 2 );
+
+		Runnable callback = Mockito.mock( Runnable.class );
+		queue.add( new MsgCmdResynchronize());
+		queue.add( new MsgEcho( "1" ));
+		Assert.assertTrue( queue.add( new MsgEcho( "2" ), callback ));
+
+		// Dropped messages are considered as processed
+		Mockito.verify( callback, Mockito.times( 1 )).run();
+		Assert.assertEquals( 0, queue.getPendingCallbacksCount());
+		Assert.assertEquals( 2, queue.size());
+		Assert.assertEquals( 1, queue.getDroppedMessagesCount());
+
+		// Commands are never dropped
+		queue.add( new MsgCmdResynchronize());
+		Assert.assertEquals( 3, queue.size());
+		Assert.assertEquals( 1, queue.getDroppedMessagesCount());
+		Assert.assertEquals( 3, queue.getHighWaterMark());
+
+		// Custom policies
+		queue.setOverflowPolicy( MsgCmdResynchronize.class, OverflowPolicy.DROP );
+		Assert.assertEquals( OverflowPolicy.DROP, queue.findOverflowPolicy( new MsgCmdResynchronize()));
+		queue.add( new MsgCmdResynchronize());
+		Assert.assertEquals( 3, queue.size());
+		Assert.assertEquals( 2, queue.getDroppedMessagesCount());
+
+		queue.setOverflowPolicy( MsgCmdResynchronize.class, null );
+		Assert.assertEquals( OverflowPolicy.KEEP, queue.findOverflowPolicy( new MsgCmdResynchronize()));
+
+		// Reset
+		queue.take();
+		queue.reset();
+		Assert.assertEquals( 0, queue.getDroppedMessagesCount());
+		Assert.assertEquals( 0, queue.getCollapsedMessagesCount());
+		Assert.assertEquals( 2, queue.getHighWaterMark());
+	}
+
+
+	@Test
+	public void testBoundedQueue_clear() throws Exception {
+
+		RoboconfMessageQueue queue = new RoboconfMessageQueue();
+		queue.setCapacity( 5 );
+
+		Runnable callback1 = Mockito.mock( Runnable.class );
+		Runnable callback2 = Mockito.mock( Runnable.class );
+		queue.add( new MsgNotifHeartbeat( "app", "/vm1", "127.0.0.1" ), callback1 );
+		queue.add( new MsgNotifHeartbeat( "app", "/vm1", "127.0.0.1" ), callback2 );
+
+		queue.clear();
+		Assert.assertEquals( 0, queue.size());
+		Assert.assertEquals( 0, queue.getPendingCallbacksCount());
+		Mockito.verify( callback1, Mockito.times( 1 )).run();
+		Mockito.verify( callback2, Mockito.times( 1 )).run();
+	}
+
+
+	@Test
+	public void testUnboundedQueue_noCollapse() throws Exception {
+
+		RoboconfMessageQueue queue = new RoboconfMessageQueue();
+		Assert.assertEquals( 0, queue.getCapacity());
+
+		MsgNotifHeartbeat hb1 = new MsgNotifHeartbeat( "app", "/vm1", "127.0.0.1" );
+		MsgNotifHeartbeat hb2 = new MsgNotifHeartbeat( "app", "/vm1", "127.0.0.1" );
+		queue.add( hb1 );
+		queue.add( new MsgEcho( "1" ));
+		Assert.assertEquals( 2, queue.size());
+
+		// A capacity set later only applies to new messages
+		queue.setCapacity( 5 );
+		queue.add( hb2 );
+		Assert.assertEquals( 3, queue.size());
+		Assert.assertEquals( 0, queue.getCollapsedMessagesCount());
+
+		Assert.assertSame( hb1, queue.take());
+		Assert.assertEquals( MsgEcho.class, queue.take().getClass());
+		Assert.assertSame( hb2, queue.take());
+	}
+
+
+	@Test
+	public void testLatencies() throws Exception {
+
+		RoboconfMessageQueue queue = new RoboconfMessageQueue();
+		Assert.assertEquals( 0, queue.getLatencies().size());
+
+		MsgNotifHeartbeat hb = new MsgNotifHeartbeat( "app", "/vm1", "127.0.0.1" );
+		long before = System.nanoTime();
+		queue.add( hb );
+
+		// Waited 2 ms, processed in 5 ms
+		QueuedMessage entry = queue.takeEntry();
+		Assert.assertSame( hb, entry.getMessage());
+		Assert.assertTrue( entry.getReceptionTime() >= before );
+
+		long start = entry.getReceptionTime() + TimeUnit.MILLISECONDS.toNanos( 2 );
+		queue.recordLatencies( entry, start, start + TimeUnit.MILLISECONDS.toNanos( 5 ));
+
+		// Waited 0 ms, processed in 1 ms
+		MsgEcho echo = new MsgEcho( "echo" );
+		queue.recordLatencies( new QueuedMessage( echo, 0 ), 0, TimeUnit.MILLISECONDS.toNanos( 1 ));
+
+		Map<String,Map<String,Long>> latencies = queue.getLatencies();
+		Assert.assertEquals( Arrays.asList( "MsgEcho", "MsgNotifHeartbeat" ), new ArrayList<>( latencies.keySet()));
+
+		Map<String,Long> hbLatencies = latencies.get( "MsgNotifHeartbeat" );
+		Assert.assertEquals( 1, hbLatencies.get( "wait.count" ).longValue());
+		Assert.assertEquals( 2000, hbLatencies.get( "wait.max" ).longValue());
+		Assert.assertEquals( 2000, hbLatencies.get( "wait.p99" ).longValue());
+		Assert.assertEquals( 1, hbLatencies.get( "processing.count" ).longValue());
+		Assert.assertEquals( 5000, hbLatencies.get( "processing.max" ).longValue());
+
+		Map<String,Long> echoLatencies = latencies.get( "MsgEcho" );
+		Assert.assertEquals( 1, echoLatencies.get( "wait.count" ).longValue());
+		Assert.assertEquals( 0, echoLatencies.get( "wait.max" ).longValue());
+		Assert.assertEquals( 1, echoLatencies.get( "processing.count" ).longValue());
+
+		queue.reset();
+		Assert.assertEquals( 0, queue.getLatencies().size());
+	}
+
+
+	@Test
+	public void testLatencies_collapsedMessagesKeepTheFirstReceptionTime() throws Exception {
+
+		RoboconfMessageQueue queue = new RoboconfMessageQueue();
+		queue.setCapacity( 5 );
+
+		MsgNotifHeartbeat hb1 = new MsgNotifHeartbeat( "app", "/vm1", "127.0.0.1" );
+		MsgNotifHeartbeat hb2 = new MsgNotifHeartbeat( "app", "/vm1", "127.0.0.1" );
+		long before = System.nanoTime();
+		queue.add( hb1 );
+		Thread.sleep( 5 );
+
+		long afterFirstReception = System.nanoTime();
+		queue.add( hb2 );
+		Assert.assertEquals( 1, queue.getCollapsedMessagesCount());
+
+		// The latest message waits since the first reception
+		QueuedMessage entry = queue.takeEntry();
+		Assert.assertSame( hb2, entry.getMessage());
+		Assert.assertTrue( entry.getReceptionTime() >= before );
+		Assert.assertTrue( entry.getReceptionTime() <= afterFirstReception );
+	}
+
+
+	@Test
+	public void testBoundedQueue_readersSeeTheLatestMessages() throws Exception {
+
+		RoboconfMessageQueue queue = new RoboconfMessageQueue();
+		queue.setCapacity( 5 );
+
+		MsgNotifHeartbeat hb1 = new MsgNotifHeartbeat( "app", "/vm1", "127.0.0.1" );
+		MsgNotifHeartbeat hb2 = new MsgNotifHeartbeat( "app", "/vm1", "127.0.0.1" );
+		MsgNotifHeartbeat hb3 = new MsgNotifHeartbeat( "app", "/vm1", "127.0.0.1" );
+		queue.add( hb1 );
+		queue.add( hb2 );
+		Assert.assertSame( hb2, queue.peek());
+		Assert.assertSame( hb2, queue.iterator().next());
+
+		// Once removed, a pending message cannot be replaced anymore
+		Iterator<Message> it = queue.iterator();
+		it.next();
+		it.remove();
+		Assert.assertEquals( 0, queue.size());
+
+		queue.add( hb3 );
+		Assert.assertEquals( 1, queue.size());
+		Assert.assertSame( hb3, queue.poll());
+	}
+
+
 	@Test( expected = RuntimeException.class )
 	public void testPutIsForbidden() throws Exception {
 
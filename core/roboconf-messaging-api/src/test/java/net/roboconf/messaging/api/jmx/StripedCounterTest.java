@@ -0,0 +1,78 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.api.jmx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class StripedCounterTest {
+
+	@Test
+	public void testSingleThread() {
+
+		StripedCounter counter = new StripedCounter();
+		Assert.assertEquals( 0, counter.sum());
+
+		counter.increment();
+		counter.add( 4 );
+		Assert.assertEquals( 5, counter.sum());
+		Assert.assertEquals( "5", counter.toString());
+
+		counter.reset();
+		Assert.assertEquals( 0, counter.sum());
+	}
+
+
+	@Test
+	public void testSeveralThreads() throws Exception {
+
+		final StripedCounter counter = new StripedCounter();
+		List<Thread> threads = new ArrayList<> ();
+		for( int i = 0; i < 8; i ++ ) {
+			threads.add( new Thread() {
+				@Override
+				public void run() {
+					for( int j = 0; j < 10000; j ++ )
+						counter.increment();
+				}
+			});
+		}
+
+		for( Thread thread : threads )
+			thread.start();
+
+		for( Thread thread : threads )
+			thread.join();
+
+		Assert.assertEquals( 80000, counter.sum());
+	}
+}
@@ -25,12 +25,27 @@
 
 package net.roboconf.messaging.api.processors;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Assert;
 import net.roboconf.messaging.api.AbstractMessageProcessor;
 import net.roboconf.messaging.api.MessagingConstants;
 import net.roboconf.messaging.api.business.IDmClient;
+import net.roboconf.messaging.api.jmx.RoboconfMessageQueue.OverflowPolicy;
 import net.roboconf.messaging.api.messages.Message;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifHeartbeat;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifLogs;
+import net.roboconf.messaging.api.messages.from_agent_to_dm.MsgNotifMachineDown;
 import net.roboconf.messaging.api.messages.from_dm_to_agent.MsgCmdResynchronize;
+import net.roboconf.messaging.api.messages.from_dm_to_dm.MsgEcho;
 
 import org.junit.After;
 import org.junit.Before;
@@ -52,8 +67,10 @@ public class AbstractMessageProcessorTest {
 
 	@After
 	public void terminateProcessor() {
-		if( this.processor != null )
+		if( this.processor != null ) {
 			this.processor.stopProcessor();
+			this.processor.interrupt();
+		}
 	}
 
 
@@ -100,6 +117,276 @@ public class AbstractMessageProcessorTest {
 	}
 
 
+	@Test
+	public void testLanesMetrics_singleLane() throws Exception {
+
+		Assert.assertEquals( 1, this.processor.getLanesCount());
+		this.processor.start();
+		this.processor.storeMessage( new MsgCmdResynchronize());
+		waitForProcessedMessages( this.processor, 1 );
+
+		Assert.assertEquals( 1, this.processor.getLanesProcessedMessagesCount()[ 0 ]);
+		Assert.assertEquals( 0, this.processor.getLanesQueueDepth()[ 0 ]);
+		Assert.assertTrue( this.processor.getLanesMaxProcessingTime()[ 0 ] >= this.processor.getLanesAverageProcessingTime()[ 0 ]);
+
+		// Lanes cannot be changed once started
+		this.processor.setLanesCount( 4 );
+		Assert.assertEquals( 1, this.processor.getLanesCount());
+
+		this.processor.reset();
+		Assert.assertEquals( 0, this.processor.getLanesProcessedMessagesCount()[ 0 ]);
+	}
+
+
+	@Test
+	public void testPartitionedProcessing_orderIsKept() throws Exception {
+
+		RecordingDmMessageProcessor recordingProcessor = new RecordingDmMessageProcessor( null );
+		this.processor = recordingProcessor;
+		this.processor.setLanesCount( 4 );
+		Assert.assertEquals( 4, this.processor.getLanesCount());
+
+		// Heart beats must not be collapsed if a lane is full
+		this.processor.getMessageQueue().setOverflowPolicy( MsgNotifHeartbeat.class, OverflowPolicy.KEEP );
+		this.processor.start();
+
+		final int agents = 10, messagesPerAgent = 50;
+		for( int i = 0; i < messagesPerAgent; i ++ ) {
+			for( int j = 0; j < agents; j ++ )
+				this.processor.storeMessage( new MsgNotifHeartbeat( "app", "/vm" + j, String.valueOf( i )));
+		}
+
+		waitForProcessedMessages( this.processor, agents * messagesPerAgent );
+		Assert.assertEquals( agents, recordingProcessor.pathToIndexes.size());
+		for( List<Integer> indexes : recordingProcessor.pathToIndexes.values()) {
+			Assert.assertEquals( messagesPerAgent, indexes.size());
+			for( int i = 0; i < messagesPerAgent; i ++ )
+				Assert.assertEquals( i, indexes.get( i ).intValue());
+		}
+	}
+
+
+	@Test
+	public void testPartitionedProcessing_agentsDoNotBlockEachOther() throws Exception {
+
+		CountDownLatch latch = new CountDownLatch( 1 );
+		this.processor = new RecordingDmMessageProcessor( latch );
+		this.processor.setLanesCount( 4 );
+		this.processor.start();
+
+		// The slow agent blocks its lane, other lanes keep on processing
+		this.processor.storeMessage( new MsgNotifHeartbeat( "app", RecordingDmMessageProcessor.SLOW_AGENT, "0" ));
+		for( int j = 0; j < 20; j ++ )
+			this.processor.storeMessage( new MsgNotifHeartbeat( "app", "/vm" + j, "0" ));
+
+		Thread.sleep( 500 );
+		long processed = 0;
+		for( long count : this.processor.getLanesProcessedMessagesCount())
+			processed += count;
+
+		Assert.assertTrue( processed > 0 );
+		Assert.assertTrue( processed < 21 );
+
+		latch.countDown();
+		waitForProcessedMessages( this.processor, 21 );
+	}
+
+
+	@Test
+	public void testPartitionedProcessing_onlyParallelizableMessagesAreSpread() throws Exception {
+
+		ThreadRecordingProcessor recordingProcessor = new ThreadRecordingProcessor();
+		this.processor = recordingProcessor;
+		this.processor.setLanesCount( 4 );
+		this.processor.start();
+
+		for( int j = 0; j < 20; j ++ )
+			this.processor.storeMessage( new MsgNotifHeartbeat( "app", "/vm" + j, "0" ));
+
+		waitForProcessedMessages( this.processor, 20 );
+		Assert.assertEquals( 1, recordingProcessor.threadNames.size());
+		Assert.assertEquals( 20, this.processor.getLanesProcessedMessagesCount()[ 0 ]);
+	}
+
+
+	@Test
+	public void testPartitionedProcessing_lanesAreDrainedOnStop() throws Exception {
+
+		CountDownLatch latch = new CountDownLatch( 1 );
+		RecordingDmMessageProcessor recordingProcessor = new RecordingDmMessageProcessor( latch );
+		this.processor = recordingProcessor;
+		this.processor.setLanesCount( 4 );
+		this.processor.start();
+
+		// All the messages go into the same lane, which is blocked by the first one
+		for( int i = 0; i < 10; i ++ )
+			this.processor.storeMessage( new MsgNotifHeartbeat( "app", RecordingDmMessageProcessor.SLOW_AGENT, String.valueOf( i )));
+
+		Thread.sleep( 200 );
+		this.processor.interrupt();
+		Thread.sleep( 200 );
+		Assert.assertFalse( this.processor.isRunning());
+
+		// Messages that were already in the lane are processed anyway
+		latch.countDown();
+		waitForProcessedMessages( this.processor, 10 );
+		Assert.assertEquals( 10, recordingProcessor.pathToIndexes.get( RecordingDmMessageProcessor.SLOW_AGENT ).size());
+	}
+
+
+	@Test
+	public void testPartitionedProcessing_lanesAreBounded() throws Exception {
+
+		CountDownLatch latch = new CountDownLatch( 1 );
+		this.processor = new RecordingDmMessageProcessor( latch );
+		this.processor.setLanesCount( 4 );
+		this.processor.getMessageQueue().setOverflowPolicy( MsgNotifHeartbeat.class, OverflowPolicy.KEEP );
+		this.processor.start();
+
+		// The lane of the slow agent is full: other messages wait in the message queue
+		int total = AbstractMessageProcessor.LANE_CAPACITY + 50;
+		for( int i = 0; i < total; i ++ )
+			this.processor.storeMessage( new MsgNotifHeartbeat( "app", RecordingDmMessageProcessor.SLOW_AGENT, String.valueOf( i )));
+
+		Thread.sleep( 300 );
+		long lanesDepth = 0;
+		for( long depth : this.processor.getLanesQueueDepth())
+			lanesDepth += depth;
+
+		Assert.assertEquals( AbstractMessageProcessor.LANE_CAPACITY, lanesDepth );
+		Assert.assertEquals( total - AbstractMessageProcessor.LANE_CAPACITY - 2, this.processor.getMessageQueue().size());
+
+		latch.countDown();
+		waitForProcessedMessages( this.processor, total );
+	}
+
+
+	@Test
+	public void testPartitionedProcessing_overflowPoliciesApplyToLanes() throws Exception {
+
+		CountDownLatch latch = new CountDownLatch( 1 );
+		RecordingDmMessageProcessor recordingProcessor = new RecordingDmMessageProcessor( latch );
+		this.processor = recordingProcessor;
+		this.processor.setLanesCount( 4 );
+		this.processor.start();
+
+		// Once the lane of the slow agent is full, its heart beats are collapsed
+		int total = AbstractMessageProcessor.LANE_CAPACITY + 50;
+		for( int i = 0; i < total; i ++ )
+			this.processor.storeMessage( new MsgNotifHeartbeat( "app", RecordingDmMessageProcessor.SLOW_AGENT, String.valueOf( i )));
+
+		Thread.sleep( 300 );
+		Assert.assertEquals( 0, this.processor.getMessageQueue().size());
+		long collapsed = this.processor.getMessageQueue().getCollapsedMessagesCount();
+		Assert.assertTrue( collapsed >= 49 );
+
+		// The latest heart beat is processed last
+		latch.countDown();
+		waitForProcessedMessages( this.processor, total - collapsed );
+		List<Integer> indexes = recordingProcessor.pathToIndexes.get( RecordingDmMessageProcessor.SLOW_AGENT );
+		Assert.assertEquals( total - 1, indexes.get( indexes.size() - 1 ).intValue());
+	}
+
+
+	@Test
+	public void testPartitionedProcessing_stopWaitsForTheLanes() throws Exception {
+
+		final CountDownLatch latch = new CountDownLatch( 1 );
+		RecordingDmMessageProcessor recordingProcessor = new RecordingDmMessageProcessor( latch );
+		this.processor = recordingProcessor;
+		this.processor.setLanesCount( 4 );
+		this.processor.start();
+
+		for( int i = 0; i < 10; i ++ )
+			this.processor.storeMessage( new MsgNotifHeartbeat( "app", RecordingDmMessageProcessor.SLOW_AGENT, String.valueOf( i )));
+
+		Thread.sleep( 200 );
+		Thread releasingThread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep( 300 );
+					latch.countDown();
+
+				} catch( InterruptedException e ) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+
+		// Messages that were already in the lane have been processed when the processor is stopped
+		releasingThread.start();
+		this.processor.stopProcessor();
+		Assert.assertFalse( this.processor.isRunning());
+		Assert.assertEquals( 10, recordingProcessor.pathToIndexes.get( RecordingDmMessageProcessor.SLOW_AGENT ).size());
+	}
+
+
+	@Test
+	public void testPriorities() throws Exception {
+
+		CountDownLatch latch = new CountDownLatch( 1 );
+		OrderRecordingProcessor recordingProcessor = new OrderRecordingProcessor( latch );
+		this.processor = recordingProcessor;
+		Assert.assertFalse( this.processor.isPrioritiesEnabled());
+		this.processor.setPrioritiesEnabled( true );
+		Assert.assertTrue( this.processor.isPrioritiesEnabled());
+		this.processor.start();
+
+		// The first message blocks the processor while others arrive
+		this.processor.storeMessage( new MsgCmdResynchronize());
+		Thread.sleep( 200 );
+
+		for( int i = 0; i < 3; i ++ )
+			this.processor.storeMessage( new MsgNotifLogs( "app", "/vm" + i, null ));
+
+		for( int i = 0; i < 3; i ++ )
+			this.processor.storeMessage( new MsgNotifMachineDown( "app", "/vm" + i ));
+
+		for( int i = 0; i < 3; i ++ )
+			this.processor.storeMessage( new MsgEcho( "echo" + i ));
+
+		Thread.sleep( 100 );
+		Assert.assertEquals( 9, this.processor.getLanesQueueDepth()[ 0 ]);
+		latch.countDown();
+		waitForProcessedMessages( this.processor, 10 );
+
+		List<Message> messages = recordingProcessor.messages;
+		Assert.assertEquals( MsgCmdResynchronize.class, messages.get( 0 ).getClass());
+		for( int i = 0; i < 3; i ++ ) {
+			Assert.assertEquals( "echo" + i, ((MsgEcho) messages.get( 1 + i )).getContent());
+			Assert.assertEquals( "/vm" + i, ((MsgNotifMachineDown) messages.get( 4 + i )).getScopedInstancePath());
+			Assert.assertEquals( "/vm" + i, ((MsgNotifLogs) messages.get( 7 + i )).getScopedInstancePath());
+		}
+	}
+
+
+	@Test
+	public void testPriorities_cannotBeChangedOnceStarted() throws Exception {
+
+		this.processor.start();
+		Thread.sleep( 100 );
+
+		this.processor.setPrioritiesEnabled( true );
+		Assert.assertFalse( this.processor.isPrioritiesEnabled());
+	}
+
+
+	private static void waitForProcessedMessages( AbstractMessageProcessor<?> processor, long expected )
+	throws InterruptedException {
+
+		long processed = 0;
+		for( int i = 0; i < 100 && processed < expected; i ++ ) {
+			Thread.sleep( 50 );
+			processed = 0;
+			for( long count : processor.getLanesProcessedMessagesCount())
+				processed += count;
+		}
+
+		Assert.assertEquals( expected, processed );
+	}
+
+
 	/**
 	 * @author Vincent Zurczak - Linagora
 	 */
@@ -117,4 +404,111 @@ public class AbstractMessageProcessorTest {
 			// nothing
 		}
 	}
+
+
+	/**
+	 * A processor that records the order of heart beats for every agent.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	public static class RecordingDmMessageProcessor extends AbstractMessageProcessor<IDmClient> {
+
+		static final String SLOW_AGENT = "/slow";
+		final Map<String,List<Integer>> pathToIndexes = new ConcurrentHashMap<> ();
+		private final CountDownLatch latch;
+
+
+		/**
+		 * Constructor.
+		 * @param latch a latch that blocks messages from the slow agent (can be null)
+		 */
+		public RecordingDmMessageProcessor( CountDownLatch latch ) {
+			super( MessagingConstants.FACTORY_TEST );
+			this.latch = latch;
+		}
+
+		@Override
+		protected boolean canProcessInParallel( Message message ) {
+			return true;
+		}
+
+		@Override
+		protected void processMessage( Message message ) {
+
+			MsgNotifHeartbeat msg = (MsgNotifHeartbeat) message;
+			try {
+				if( this.latch != null && SLOW_AGENT.equals( msg.getScopedInstancePath()))
+					this.latch.await( 10, TimeUnit.SECONDS );
+
+			} catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+
+			// Lists are only modified by a single lane
+			List<Integer> indexes = this.pathToIndexes.get( msg.getScopedInstancePath());
+			if( indexes == null ) {
+				indexes = new ArrayList<> ();
+				this.pathToIndexes.put( msg.getScopedInstancePath(), indexes );
+			}
+
+			indexes.add( Integer.valueOf( msg.getIpAddress()));
+		}
+	}
+
+
+	/**
+	 * A processor that records the threads in which messages are processed.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	public static class ThreadRecordingProcessor extends AbstractMessageProcessor<IDmClient> {
+
+		final Set<String> threadNames = Collections.newSetFromMap( new ConcurrentHashMap<String,Boolean> ());
+
+
+		/**
+		 * Constructor.
+		 */
+		public ThreadRecordingProcessor() {
+			super( MessagingConstants.FACTORY_TEST );
+		}
+
+		@Override
+		protected void processMessage( Message message ) {
+			this.threadNames.add( Thread.currentThread().getName());
+		}
+	}
+
+
+	/**
+	 * A processor that records the order in which messages are processed.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	public static class OrderRecordingProcessor extends AbstractMessageProcessor<IDmClient> {
+
+		final List<Message> messages = new CopyOnWriteArrayList<> ();
+		private final CountDownLatch latch;
+
+
+		/**
+		 * Constructor.
+		 * @param latch a latch that blocks the processing of the first message
+		 */
+		public OrderRecordingProcessor( CountDownLatch latch ) {
+			super( MessagingConstants.FACTORY_TEST );
+			this.latch = latch;
+		}
+
+		@Override
+		protected void processMessage( Message message ) {
+
+			try {
+				if( this.messages.isEmpty())
+					this.latch.await( 10, TimeUnit.SECONDS );
+
+			} catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+
+			this.messages.add( message );
+		}
+	}
 }
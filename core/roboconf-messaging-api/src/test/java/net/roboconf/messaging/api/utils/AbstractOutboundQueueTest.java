@@ -0,0 +1,293 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.api.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.roboconf.messaging.api.utils.AbstractOutboundQueue.OverflowPolicy;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class AbstractOutboundQueueTest {
+
+	@Test
+	public void testOverflowPolicy() {
+
+		Assert.assertEquals( OverflowPolicy.DROP_NEWEST, OverflowPolicy.which( null ));
+		Assert.assertEquals( OverflowPolicy.DROP_NEWEST, OverflowPolicy.which( "whatever" ));
+		Assert.assertEquals( OverflowPolicy.DROP_NEWEST, OverflowPolicy.which( "drop-newest" ));
+		Assert.assertEquals( OverflowPolicy.DROP_OLDEST, OverflowPolicy.which( "drop-oldest" ));
+		Assert.assertEquals( OverflowPolicy.DROP_OLDEST, OverflowPolicy.which( "DROP_OLDEST" ));
+		Assert.assertEquals( OverflowPolicy.FAIL, OverflowPolicy.which( "fail" ));
+	}
+
+
+	@Test
+	public void testOneBatchInFlight() {
+
+		RecordingQueue queue = new RecordingQueue( 5, OverflowPolicy.DROP_NEWEST );
+		Assert.assertTrue( queue.enqueue( "i1" ));
+		Assert.assertTrue( queue.enqueue( "i2" ));
+		Assert.assertTrue( queue.enqueue( "i3" ));
+
+		// Only the first item was sent, the others wait for its acknowledgment
+		Assert.assertEquals( "[[i1]]", queue.sent.toString());
+		Assert.assertEquals( 2, queue.getPendingCount());
+
+		queue.sendSucceeded();
+		Assert.assertEquals( "[[i1], [i2]]", queue.sent.toString());
+		Assert.assertEquals( 1, queue.getPendingCount());
+		Assert.assertEquals( 1, queue.getSentCount());
+
+		// A failure does not prevent the next items from being sent
+		queue.sendFailed( new Exception( "for test" ));
+		Assert.assertEquals( "[[i1], [i2], [i3]]", queue.sent.toString());
+		Assert.assertEquals( 0, queue.getPendingCount());
+		Assert.assertEquals( 1, queue.getFailedCount());
+
+		queue.sendSucceeded();
+		Assert.assertEquals( 2, queue.getSentCount());
+		Assert.assertEquals( 0, queue.getDroppedCount());
+	}
+
+
+	@Test
+	public void testInlineAcknowledgments() {
+
+		// Acknowledgments may be received in the thread that sends the items
+		RecordingQueue queue = new RecordingQueue( 1, OverflowPolicy.DROP_NEWEST );
+		queue.acknowledgeInline = true;
+		for( int i=0; i<100; i++ )
+			Assert.assertTrue( queue.enqueue( "i" + i ));
+
+		Assert.assertEquals( 100, queue.sent.size());
+		Assert.assertEquals( "[i99]", queue.sent.get( 99 ).toString());
+		Assert.assertEquals( 0, queue.getPendingCount());
+		Assert.assertEquals( 100, queue.getSentCount());
+		Assert.assertEquals( 0, queue.getDroppedCount());
+	}
+
+
+	@Test
+	public void testSendingError() {
+
+		// An exception thrown while sending is a failure
+		RecordingQueue queue = new RecordingQueue( 5, OverflowPolicy.DROP_NEWEST );
+		queue.failingItem = "i1";
+		Assert.assertTrue( queue.enqueue( "i1" ));
+		Assert.assertTrue( queue.enqueue( "i2" ));
+
+		Assert.assertEquals( "[[i1], [i2]]", queue.sent.toString());
+		Assert.assertEquals( 1, queue.getFailedCount());
+		Assert.assertEquals( 0, queue.getPendingCount());
+	}
+
+
+	@Test
+	public void testOverflow_dropNewest() {
+
+		RecordingQueue queue = new RecordingQueue( 2, OverflowPolicy.DROP_NEWEST );
+
+		// The first one is in flight, two are pending, the last one is dropped
+		for( int i = 1; i <= 3; i ++ )
+			Assert.assertTrue( queue.enqueue( "i" + i ));
+
+		Assert.assertFalse( queue.enqueue( "i4" ));
+		Assert.assertEquals( 2, queue.getPendingCount());
+		Assert.assertEquals( 1, queue.getDroppedCount());
+
+		queue.sendSucceeded();
+		queue.sendSucceeded();
+		Assert.assertEquals( "[[i1], [i2], [i3]]", queue.sent.toString());
+	}
+
+
+	@Test
+	public void testOverflow_dropOldest() {
+
+		RecordingQueue queue = new RecordingQueue( 2, OverflowPolicy.DROP_OLDEST );
+
+		// The new item takes the place of the oldest pending one
+		for( int i = 1; i <= 4; i ++ )
+			Assert.assertTrue( queue.enqueue( "i" + i ));
+
+		Assert.assertEquals( 2, queue.getPendingCount());
+		Assert.assertEquals( 1, queue.getDroppedCount());
+
+		queue.sendSucceeded();
+		queue.sendSucceeded();
+		Assert.assertEquals( "[[i1], [i3], [i4]]", queue.sent.toString());
+	}
+
+
+	@Test
+	public void testOverflow_fail() {
+
+		// The new item is dropped: subclasses tell the caller
+		RecordingQueue queue = new RecordingQueue( 1, OverflowPolicy.FAIL );
+		Assert.assertEquals( OverflowPolicy.FAIL, queue.getOverflowPolicy());
+		Assert.assertTrue( queue.enqueue( "i1" ));
+		Assert.assertTrue( queue.enqueue( "i2" ));
+		Assert.assertFalse( queue.enqueue( "i3" ));
+
+		Assert.assertEquals( 1, queue.getPendingCount());
+		Assert.assertEquals( 1, queue.getDroppedCount());
+	}
+
+
+	@Test
+	public void testConsecutiveDrops() {
+
+		RecordingQueue queue = new RecordingQueue( 1, OverflowPolicy.DROP_NEWEST );
+		Assert.assertTrue( queue.enqueue( "i1" ));
+		Assert.assertTrue( queue.enqueue( "i2" ));
+		Assert.assertEquals( "[[i1]]", queue.sent.toString());
+
+		// The queue is full
+		Assert.assertFalse( queue.enqueue( "i3" ));
+		Assert.assertFalse( queue.enqueue( "i4" ));
+		Assert.assertEquals( 2, queue.getDroppedCount());
+		Assert.assertEquals( 2, queue.getConsecutiveDropsCount());
+
+		// A successful sending resets the counter of consecutive drops
+		queue.sendSucceeded();
+		Assert.assertEquals( "[[i1], [i2]]", queue.sent.toString());
+		Assert.assertEquals( 0, queue.getConsecutiveDropsCount());
+		Assert.assertEquals( 2, queue.getDroppedCount());
+		Assert.assertEquals( 1, queue.getSentCount());
+
+		// A failure does not
+		Assert.assertTrue( queue.enqueue( "i5" ));
+		Assert.assertFalse( queue.enqueue( "i6" ));
+		queue.sendFailed( new Exception( "for test" ));
+		Assert.assertEquals( 1, queue.getConsecutiveDropsCount());
+		Assert.assertEquals( 1, queue.getFailedCount());
+		Assert.assertEquals( "[[i1], [i2], [i5]]", queue.sent.toString());
+
+		String desc = queue.describe();
+		Assert.assertTrue( desc, desc.startsWith( "test: pending=0, sent=1, dropped=3, failed=1" ));
+	}
+
+
+	@Test
+	public void testClose() {
+
+		RecordingQueue queue = new RecordingQueue( 5, OverflowPolicy.DROP_NEWEST );
+		Assert.assertTrue( queue.enqueue( "i1" ));
+		Assert.assertTrue( queue.enqueue( "i2" ));
+
+		// Pending items are dropped
+		queue.close();
+		Assert.assertTrue( queue.isClosed());
+		Assert.assertEquals( 0, queue.getPendingCount());
+		Assert.assertEquals( 1, queue.getDroppedCount());
+
+		// Closed queues drop everything
+		Assert.assertFalse( queue.enqueue( "i3" ));
+		queue.sendSucceeded();
+		Assert.assertEquals( 2, queue.getDroppedCount());
+		Assert.assertEquals( "[[i1]]", queue.sent.toString());
+	}
+
+
+	@Test
+	public void testBatches() {
+
+		RecordingQueue queue = new RecordingQueue( 10, OverflowPolicy.DROP_NEWEST ) {
+			@Override
+			protected List<String> pollNextItems( LinkedList<String> pending ) {
+				List<String> result = new ArrayList<>( pending );
+				pending.clear();
+				return result;
+			}
+		};
+
+		// The items that accumulated while a batch was being sent are sent together
+		for( int i = 1; i <= 4; i ++ )
+			Assert.assertTrue( queue.enqueue( "i" + i ));
+
+		Assert.assertEquals( "[[i1]]", queue.sent.toString());
+		queue.sendSucceeded();
+		Assert.assertEquals( "[[i1], [i2, i3, i4]]", queue.sent.toString());
+		Assert.assertEquals( 1, queue.getSentCount());
+
+		// All the items of a batch are counted
+		queue.sendSucceeded();
+		Assert.assertEquals( 4, queue.getSentCount());
+
+		queue.enqueue( "i5" );
+		queue.enqueue( "i6" );
+		queue.sendFailed( null );
+		Assert.assertEquals( 1, queue.getFailedCount());
+		queue.sendFailed( null );
+		Assert.assertEquals( 2, queue.getFailedCount());
+	}
+
+
+	/**
+	 * A queue that records what it sends.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	private static class RecordingQueue extends AbstractOutboundQueue<String> {
+		final List<List<String>> sent = new ArrayList<> ();
+		boolean acknowledgeInline = false;
+		String failingItem;
+
+
+		/**
+		 * Constructor.
+		 * @param capacity
+		 * @param overflowPolicy
+		 */
+		RecordingQueue( int capacity, OverflowPolicy overflowPolicy ) {
+			super( capacity, overflowPolicy );
+		}
+
+
+		@Override
+		protected void send( List<String> items ) throws Exception {
+
+			this.sent.add( new ArrayList<>( items ));
+			if( items.contains( this.failingItem ))
+				throw new Exception( "for test" );
+
+			if( this.acknowledgeInline )
+				sendSucceeded();
+		}
+
+
+		@Override
+		protected String describeTarget() {
+			return "test";
+		}
+	}
+}
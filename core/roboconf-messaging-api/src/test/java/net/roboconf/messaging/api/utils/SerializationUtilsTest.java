@@ -42,6 +42,7 @@ import net.roboconf.core.model.beans.Component;
 import net.roboconf.core.model.beans.Instance;
 import net.roboconf.core.model.beans.Instance.InstanceStatus;
 import net.roboconf.core.model.helpers.InstanceHelpers;
+import net.roboconf.messaging.api.codecs.IMessageCodec;
 import net.roboconf.messaging.api.messages.Message;
 import net.roboconf.messaging.api.messages.from_agent_to_agent.MsgCmdAddImport;
 import net.roboconf.messaging.api.messages.from_agent_to_agent.MsgCmdRemoveImport;
@@ -313,6 +314,19 @@ public class SerializationUtilsTest {
 	 * @throws Exception
 	 */
 	public static <T extends Message> T checkBasics( Message msg, Class<T> clazz ) throws Exception {
+		return checkBasics( msg, clazz, null );
+	}
+
+
+	/**
+	 * Serializes, deserializes and compares messages.
+	 * @param msg
+	 * @param clazz
+	 * @param codec the codec to use (null to use Java serialization directly)
+	 * @return
+	 * @throws Exception
+	 */
+	public static <T extends Message> T checkBasics( Message msg, Class<T> clazz, IMessageCodec codec ) throws Exception {
 
 		String prefix = "Class " + clazz.getSimpleName();
 		Assert.assertTrue(
@@ -320,7 +334,10 @@ public class SerializationUtilsTest {
 				clazz.isAssignableFrom( msg.getClass()));
 
 		// Write and read
-		byte[] bytes = SerializationUtils.serializeObject( msg );
+		byte[] bytes = codec == null
+				? SerializationUtils.serializeObject( msg )
+				: SerializationUtils.serializeObject( msg, codec );
+
 		Message newMsg = SerializationUtils.deserializeObject( bytes );
 
 		// Compare classes
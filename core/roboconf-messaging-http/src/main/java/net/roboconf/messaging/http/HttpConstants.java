@@ -53,6 +53,49 @@ public interface HttpConstants {
 	 */
 	String HTTP_SERVER_IP = HTTP_PROPERTY_PREFIX + ".server.ip";
 
+	/**
+	 * The codec used to serialize messages ("java" or "binary").
+	 * <p>
+	 * Java serialization is used by default. Whatever the codec is, received
+	 * messages are always decoded, whatever the codec of the sender.
+	 * </p>
+	 */
+	String HTTP_CODEC = HTTP_PROPERTY_PREFIX + ".codec";
+
+	/**
+	 * The maximum number of messages waiting to be sent through a web socket session.
+	 * <p>
+	 * Default value is {@value #DEFAULT_OUTBOUND_QUEUE_CAPACITY}.
+	 * </p>
+	 */
+	String HTTP_OUTBOUND_QUEUE_CAPACITY = HTTP_PROPERTY_PREFIX + ".outbound.queue.capacity";
+
+	/**
+	 * What to do when a message is sent to a session whose queue is full.
+	 * <p>
+	 * Supported values are "drop-newest" (default), "drop-oldest" and "fail".
+	 * </p>
+	 */
+	String HTTP_OUTBOUND_OVERFLOW_POLICY = HTTP_PROPERTY_PREFIX + ".outbound.overflow.policy";
+
+	/**
+	 * Whether several messages can be packed into a single web socket frame.
+	 * <p>
+	 * Default value is "true". Batching is negotiated when an agent connects
+	 * to the DM. It is only used if both support and enable it.
+	 * </p>
+	 */
+	String HTTP_BATCHING = HTTP_PROPERTY_PREFIX + ".batching";
+
+	/**
+	 * Whether web socket frames should be compressed (per-message deflate).
+	 * <p>
+	 * Default value is "false". Compression is negotiated when an agent connects
+	 * to the DM. It is only used if both support and enable it.
+	 * </p>
+	 */
+	String HTTP_COMPRESSION = HTTP_PROPERTY_PREFIX + ".compression";
+
 
 	/**
 	 * The default IP address.
@@ -64,8 +107,28 @@ public interface HttpConstants {
 	 */
 	int DEFAULT_PORT = 8181;
 
+	/**
+	 * The default capacity of outbound queues.
+	 */
+	int DEFAULT_OUTBOUND_QUEUE_CAPACITY = 1000;
+
 	/**
 	 * The path of the socket registered by the DM.
 	 */
 	String DM_SOCKET_PATH = "/roboconf-messaging-http";
+
+	/**
+	 * The HTTP header used to negotiate batching during the web socket handshake.
+	 */
+	String FRAMING_HEADER = "X-Roboconf-Framing";
+
+	/**
+	 * The value of {@link #FRAMING_HEADER} when batching is supported.
+	 */
+	String FRAMING_BATCH = "batch";
+
+	/**
+	 * The name of the web socket extension for compression.
+	 */
+	String COMPRESSION_EXTENSION = "permessage-deflate";
 }
@@ -46,10 +46,12 @@ import net.roboconf.messaging.api.extensions.IMessagingClient;
 import net.roboconf.messaging.api.extensions.MessagingContext.RecipientKind;
 import net.roboconf.messaging.api.factory.IMessagingClientFactory;
 import net.roboconf.messaging.api.reconfigurables.ReconfigurableClient;
+import net.roboconf.messaging.api.utils.AbstractOutboundQueue.OverflowPolicy;
 import net.roboconf.messaging.http.HttpConstants;
 import net.roboconf.messaging.http.internal.clients.HttpAgentClient;
 import net.roboconf.messaging.http.internal.clients.HttpDmClient;
 import net.roboconf.messaging.http.internal.sockets.DmWebSocketServlet;
+import net.roboconf.messaging.http.internal.sockets.SessionOutboundQueue;
 
 import org.eclipse.jetty.websocket.api.Session;
 import org.osgi.framework.Bundle;
@@ -75,6 +77,11 @@ public class HttpClientFactory implements IMessagingClientFactory {
 	 */
 	public static class HttpRoutingContext extends RoutingContext {
 		public final Map<String,Session> ctxToSession = new ConcurrentHashMap<> ();
+		public final Map<Session,SessionOutboundQueue> sessionToQueue = new ConcurrentHashMap<> ();
+		public volatile int outboundQueueCapacity = HttpConstants.DEFAULT_OUTBOUND_QUEUE_CAPACITY;
+		public volatile OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+		public volatile boolean batching = true;
+		public volatile boolean compression = false;
 	}
 
 	// The created CLIENTS.
@@ -89,7 +96,7 @@ public class HttpClientFactory implements IMessagingClientFactory {
 	BundleContext bundleContext;
 	HttpService httpService;
 
-	String httpServerIp;
+	String httpServerIp, codec;
 	int httpPort;
 
 
@@ -131,6 +138,45 @@ public class HttpClientFactory implements IMessagingClientFactory {
 	}
 
 
+	public synchronized void setCodec( final String codec ) {
+		this.codec = codec;
+		this.dmClient.setCodec( codec );
+		this.logger.finer( "Codec set to " + this.codec );
+	}
+
+
+	public synchronized void setOutboundQueueCapacity( final int outboundQueueCapacity ) {
+		this.routingContext.outboundQueueCapacity = outboundQueueCapacity;
+		this.logger.finer( "Outbound queue capacity set to " + outboundQueueCapacity );
+	}
+
+
+	public synchronized void setOutboundOverflowPolicy( final String overflowPolicy ) {
+		this.routingContext.overflowPolicy = OverflowPolicy.which( overflowPolicy );
+		this.logger.finer( "Outbound overflow policy set to " + this.routingContext.overflowPolicy );
+	}
+
+
+	public synchronized void setBatching( final boolean batching ) {
+		this.routingContext.batching = batching;
+		this.logger.finer( "Batching set to " + batching );
+	}
+
+
+	public synchronized void setCompression( final boolean compression ) {
+		this.routingContext.compression = compression;
+		this.logger.finer( "Compression set to " + compression );
+	}
+
+
+	/**
+	 * @return the routing context (shared by the DM client and the web sockets)
+	 */
+	public HttpRoutingContext getRoutingContext() {
+		return this.routingContext;
+	}
+
+
 	public HttpDmClient getDmClient() {
 		return this.dmClient;
 	}
@@ -217,7 +263,10 @@ public class HttpClientFactory implements IMessagingClientFactory {
 
 		} else {
 			synchronized( this ) {
-				client = new HttpAgentClient( parent, this.httpServerIp, this.httpPort );
+				HttpAgentClient agentClient = new HttpAgentClient( parent, this.httpServerIp, this.httpPort, this.codec );
+				agentClient.setOutboundQueueSettings( this.routingContext.outboundQueueCapacity, this.routingContext.overflowPolicy );
+				agentClient.setFramingSettings( this.routingContext.batching, this.routingContext.compression );
+				client = agentClient;
 			}
 
 			this.agentClients.add((HttpAgentClient) client);
@@ -244,6 +293,7 @@ public class HttpClientFactory implements IMessagingClientFactory {
 			String ip = Utils.getValue( configuration, HTTP_SERVER_IP, DEFAULT_IP );
 			String portAS = configuration.get( HttpConstants.HTTP_SERVER_PORT );
 			int port = portAS == null ? HttpConstants.DEFAULT_PORT : Integer.parseInt( portAS );
+			String codec = configuration.get( HttpConstants.HTTP_CODEC );
 
 			// Avoid unnecessary (and potentially problematic) reconfiguration if nothing has changed.
 			// First we detect for changes, and set the parameters accordingly.
@@ -258,6 +308,11 @@ public class HttpClientFactory implements IMessagingClientFactory {
 					this.httpPort = port;
 					hasChanged = true;
 				}
+
+				if( ! Objects.equals( this.codec, codec )) {
+					this.codec = codec;
+					hasChanged = true;
+				}
 			}
 
 			// Then, if changes has occurred, we reconfigure the factory. This will invalidate every created client.
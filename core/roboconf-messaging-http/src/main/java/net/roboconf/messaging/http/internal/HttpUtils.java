@@ -29,24 +29,45 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.logging.Logger;
 
 import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 
+import net.roboconf.core.utils.Utils;
 import net.roboconf.messaging.api.MessagingConstants;
+import net.roboconf.messaging.api.codecs.IMessageCodec;
 import net.roboconf.messaging.api.messages.Message;
-import net.roboconf.messaging.api.utils.SerializationUtils;
 import net.roboconf.messaging.http.HttpConstants;
+import net.roboconf.messaging.http.internal.messages.HttpSerializationUtils;
+import net.roboconf.messaging.http.internal.sockets.SessionOutboundQueue;
 
 /**
  * @author Vincent Zurczak - Linagora
  */
 public final class HttpUtils {
 
+	/**
+	 * A callback that only logs failures.
+	 */
+	private static final WriteCallback LOGGING_CALLBACK = new WriteCallback() {
+
+		@Override
+		public void writeSuccess() {
+			// nothing
+		}
+
+		@Override
+		public void writeFailed( Throwable cause ) {
+
+			Logger logger = Logger.getLogger( HttpUtils.class.getName());
+			logger.warning( "A message could not be sent to a remote end-point (HTTP messaging)." );
+			if( cause instanceof Exception )
+				Utils.logException( logger, (Exception) cause );
+		}
+	};
+
+
 	/**
 	 * Private empty constructor.
 	 */
@@ -61,11 +82,24 @@ public final class HttpUtils {
 	 * @return the messaging configuration for the given parameters.
 	 */
 	public static Map<String,String> httpMessagingConfiguration( String ip, int port ) {
+		return httpMessagingConfiguration( ip, port, null );
+	}
+
+
+	/**
+	 * Return a HTTP messaging configuration for the given parameters.
+	 * @param agentPort the HTTP server port of the agent.. May be {@code null}.
+	 * @param codecName the name of the codec to use to serialize messages (may be {@code null})
+	 * @return the messaging configuration for the given parameters.
+	 */
+	public static Map<String,String> httpMessagingConfiguration( String ip, int port, String codecName ) {
 
 		final Map<String,String> result = new LinkedHashMap<>();
 		result.put( MessagingConstants.MESSAGING_TYPE_PROPERTY, HttpConstants.FACTORY_HTTP );
 		result.put( HttpConstants.HTTP_SERVER_IP, ip == null ? HttpConstants.DEFAULT_IP : ip );
 		result.put( HttpConstants.HTTP_SERVER_PORT, "" + (port <= 0 ? HttpConstants.DEFAULT_PORT : port));
+		if( codecName != null )
+			result.put( HttpConstants.HTTP_CODEC, codecName );
 
 		return result;
 	}
@@ -76,7 +110,11 @@ public final class HttpUtils {
 	 * <p>
 	 * Asynchronous sending is necessary since we may have several threads that
 	 * use the same messaging client. Blocking sending may result in issues such
-	 * as #598.
+	 * as #598. This method does not wait for the message to be sent. Failures are logged.
+	 * </p>
+	 * <p>
+	 * Prefer {@link #sendAsynchronously(Message, SessionOutboundQueue, IMessageCodec)},
+	 * which bounds the number of pending messages.
 	 * </p>
 	 *
 	 * @param message the message to send
@@ -85,32 +123,43 @@ public final class HttpUtils {
 	 */
 	public static void sendAsynchronously( Message message, RemoteEndpoint remoteEndpoint )
 			throws IOException {
+		sendAsynchronously( message, remoteEndpoint, HttpSerializationUtils.findCodec( null ));
+	}
 
-		Future<Void> fut = null;
-		Exception exception = null;
-		try {
-			byte[] rawData = SerializationUtils.serializeObject( message );
-			ByteBuffer data = ByteBuffer.wrap( rawData );
-			fut = remoteEndpoint.sendBytesByFuture( data );
 
-			// Wait for completion (timeout)
-			fut.get( 8, TimeUnit.SECONDS );
+	/**
+	 * Sends a message asynchronously to a remote end point.
+	 * @param message the message to send
+	 * @param remoteEndpoint the remote end-point
+	 * @param codec the codec to use to serialize the message
+	 * @throws IOException if the message could not be serialized
+	 * @see #sendAsynchronously(Message, RemoteEndpoint)
+	 */
+	public static void sendAsynchronously( Message message, RemoteEndpoint remoteEndpoint, IMessageCodec codec )
+			throws IOException {
 
-		} catch( ExecutionException | InterruptedException e ) {
-			exception = e;
+		byte[] rawData = codec.encode( message );
+		remoteEndpoint.sendBytes( ByteBuffer.wrap( rawData ), LOGGING_CALLBACK );
+	}
 
-		} catch( TimeoutException e ) {
-			exception = e;
-			final Logger logger = Logger.getLogger( HttpUtils.class.getName());
-			logger.warning( "A message could not be sent to a remote end-point (HTTP messaging). Sending timed out." );
 
-			// FIXME: should we send the message once again?
-			if( fut != null )
-				fut.cancel(true);
+	/**
+	 * Sends a message asynchronously through a session's outbound queue.
+	 * <p>
+	 * This method never blocks. The message is sent once the previous ones have been.
+	 * </p>
+	 *
+	 * @param message the message to send
+	 * @param queue the outbound queue of the session
+	 * @param codec the codec to use to serialize the message
+	 * @return the number of bytes that will be sent (0 if the message was dropped)
+	 * @throws IOException if the message could not be serialized, or if the queue is full
+	 * and its overflow policy says so
+	 */
+	public static int sendAsynchronously( Message message, SessionOutboundQueue queue, IMessageCodec codec )
+			throws IOException {
 
-		} finally {
-			if( exception != null )
-				throw new IOException( exception );
-		}
+		byte[] rawData = codec.encode( message );
+		return queue.offer( rawData ) ? rawData.length : 0;
 	}
 }
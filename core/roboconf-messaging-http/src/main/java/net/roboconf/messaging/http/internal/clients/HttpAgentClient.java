@@ -37,6 +37,7 @@ import org.eclipse.jetty.websocket.client.ClientUpgradeRequest;
 import org.eclipse.jetty.websocket.client.WebSocketClient;
 
 import net.roboconf.core.model.beans.Application;
+import net.roboconf.messaging.api.codecs.IMessageCodec;
 import net.roboconf.messaging.api.extensions.AbstractRoutingClient;
 import net.roboconf.messaging.api.extensions.IMessagingClient;
 import net.roboconf.messaging.api.extensions.MessagingContext;
@@ -44,11 +45,14 @@ import net.roboconf.messaging.api.extensions.MessagingContext.RecipientKind;
 import net.roboconf.messaging.api.jmx.RoboconfMessageQueue;
 import net.roboconf.messaging.api.messages.Message;
 import net.roboconf.messaging.api.reconfigurables.ReconfigurableClient;
+import net.roboconf.messaging.api.utils.AbstractOutboundQueue.OverflowPolicy;
 import net.roboconf.messaging.http.HttpConstants;
 import net.roboconf.messaging.http.internal.HttpUtils;
 import net.roboconf.messaging.http.internal.messages.HttpMessage;
+import net.roboconf.messaging.http.internal.messages.HttpSerializationUtils;
 import net.roboconf.messaging.http.internal.messages.SubscriptionMessage;
 import net.roboconf.messaging.http.internal.sockets.AgentWebSocket;
+import net.roboconf.messaging.http.internal.sockets.SessionOutboundQueue;
 
 /**
  * @author Vincent Zurczak - Linagora
@@ -59,14 +63,21 @@ public class HttpAgentClient implements IMessagingClient {
 	private final WeakReference<ReconfigurableClient<?>> reconfigurable;
 	private final String dmIp;
 	private final int dmPort;
+	private final String codecName;
+	private final IMessageCodec codec;
 
 	private RoboconfMessageQueue messageQueue;
 	private String applicationName, scopedInstancePath;
 
 	private AgentWebSocket socket;
 	private Session clientSession;
+	private SessionOutboundQueue outboundQueue;
 	private WebSocketClient client;
 
+	private int outboundQueueCapacity = HttpConstants.DEFAULT_OUTBOUND_QUEUE_CAPACITY;
+	private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+	private boolean batching = true, compression = false;
+
 
 
 	/**
@@ -76,9 +87,23 @@ public class HttpAgentClient implements IMessagingClient {
 	 * @param dmPort
 	 */
 	public HttpAgentClient( ReconfigurableClient<?> reconfigurable, String dmIp, int dmPort ) {
+		this( reconfigurable, dmIp, dmPort, null );
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param reconfigurable
+	 * @param dmIp
+	 * @param dmPort
+	 * @param codecName the name of the codec to serialize messages (null for the default one)
+	 */
+	public HttpAgentClient( ReconfigurableClient<?> reconfigurable, String dmIp, int dmPort, String codecName ) {
 		this.reconfigurable = new WeakReference<ReconfigurableClient<?>>( reconfigurable );
 		this.dmIp = dmIp;
 		this.dmPort = dmPort;
+		this.codecName = codecName;
+		this.codec = HttpSerializationUtils.findCodec( codecName );
 	}
 
 
@@ -90,6 +115,45 @@ public class HttpAgentClient implements IMessagingClient {
 	}
 
 
+	/**
+	 * Sets the settings of the outbound queue.
+	 * <p>
+	 * This method must be invoked before {@link #openConnection()}.
+	 * </p>
+	 *
+	 * @param outboundQueueCapacity the maximum number of messages waiting to be sent
+	 * @param overflowPolicy the policy to apply when the outbound queue is full
+	 */
+	public void setOutboundQueueSettings( int outboundQueueCapacity, OverflowPolicy overflowPolicy ) {
+		this.outboundQueueCapacity = outboundQueueCapacity;
+		this.overflowPolicy = overflowPolicy;
+	}
+
+
+	/**
+	 * Sets the framing settings.
+	 * <p>
+	 * This method must be invoked before {@link #openConnection()}.
+	 * Both settings are negotiated with the DM when the connection is opened.
+	 * </p>
+	 *
+	 * @param batching true to pack several messages into a single frame
+	 * @param compression true to compress frames
+	 */
+	public void setFramingSettings( boolean batching, boolean compression ) {
+		this.batching = batching;
+		this.compression = compression;
+	}
+
+
+	/**
+	 * @return the outbound queue (null if the connection was not opened)
+	 */
+	public SessionOutboundQueue getOutboundQueue() {
+		return this.outboundQueue;
+	}
+
+
 	@Override
 	public void setMessageQueue( RoboconfMessageQueue messageQueue ) {
 		this.messageQueue = messageQueue;
@@ -124,10 +188,26 @@ public class HttpAgentClient implements IMessagingClient {
 			URI dmUri = new URI( "ws://" + this.dmIp + ":" + this.dmPort + HttpConstants.DM_SOCKET_PATH );
 			this.logger.fine( "Connecting to " + dmUri );
 			ClientUpgradeRequest request = new ClientUpgradeRequest();
+			if( this.batching )
+				request.setHeader( HttpConstants.FRAMING_HEADER, HttpConstants.FRAMING_BATCH );
+
+			if( this.compression )
+				request.addExtensions( HttpConstants.COMPRESSION_EXTENSION );
 
 			Future<Session> fut = this.client.connect( this.socket, dmUri, request );
 			this.clientSession = fut.get();
 
+			// Only pack messages if the DM accepted it (older DMs do not support it)
+			boolean batchingAccepted = this.batching
+					&& HttpConstants.FRAMING_BATCH.equals( this.clientSession.getUpgradeResponse().getHeader( HttpConstants.FRAMING_HEADER ));
+
+			this.logger.fine( getId() + ": batching = " + batchingAccepted );
+			this.outboundQueue = new SessionOutboundQueue(
+					this.clientSession,
+					this.outboundQueueCapacity,
+					this.overflowPolicy,
+					batchingAccepted );
+
 		} catch( Exception e ) {
 			throw new IOException( e );
 		}
@@ -138,6 +218,9 @@ public class HttpAgentClient implements IMessagingClient {
 	public void closeConnection() throws IOException {
 
 		this.logger.info( getId() + " is closing its connection to the DM." );
+		if( this.outboundQueue != null )
+			this.outboundQueue.close();
+
 		try {
 			if( this.client != null )
 				this.client.stop();
@@ -156,7 +239,7 @@ public class HttpAgentClient implements IMessagingClient {
 
 	@Override
 	public Map<String,String> getConfiguration() {
-		return HttpUtils.httpMessagingConfiguration( this.dmIp, this.dmPort );
+		return HttpUtils.httpMessagingConfiguration( this.dmIp, this.dmPort, this.codecName );
 	}
 
 
@@ -167,7 +250,8 @@ public class HttpAgentClient implements IMessagingClient {
 		this.logger.fine( getId() + " is about to subscribe to " + ownerId );
 		HttpUtils.sendAsynchronously(
 				new SubscriptionMessage( ownerId, ctx, true ),
-				this.clientSession.getRemote());
+				this.outboundQueue,
+				this.codec );
 	}
 
 
@@ -178,18 +262,22 @@ public class HttpAgentClient implements IMessagingClient {
 		this.logger.fine( getId() + " is about to unsubscribe to " + ownerId );
 		HttpUtils.sendAsynchronously(
 				new SubscriptionMessage( ownerId, ctx, false ),
-				this.clientSession.getRemote());
+				this.outboundQueue,
+				this.codec );
 	}
 
 
 	@Override
-	public void publish( MessagingContext ctx, Message msg ) throws IOException {
+	public long publish( MessagingContext ctx, Message msg ) throws IOException {
 
 		String ownerId = AbstractRoutingClient.buildOwnerId( RecipientKind.AGENTS, this.applicationName, this.scopedInstancePath );
 		this.logger.fine( getId() + " is about to publish a message (" + msg + ") to " + ownerId );
-		HttpUtils.sendAsynchronously(
+
+		// What is sent is the wrapper, not the message itself
+		return HttpUtils.sendAsynchronously(
 				new HttpMessage( ownerId, msg, ctx ),
-				this.clientSession.getRemote());
+				this.outboundQueue,
+				this.codec );
 	}
 
 
@@ -26,12 +26,15 @@
 package net.roboconf.messaging.http.internal.clients;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.jetty.websocket.api.Session;
 
+import net.roboconf.messaging.api.codecs.IMessageCodec;
 import net.roboconf.messaging.api.extensions.AbstractRoutingClient;
 import net.roboconf.messaging.api.extensions.MessagingContext;
 import net.roboconf.messaging.api.extensions.MessagingContext.RecipientKind;
@@ -41,7 +44,9 @@ import net.roboconf.messaging.http.HttpConstants;
 import net.roboconf.messaging.http.internal.HttpClientFactory.HttpRoutingContext;
 import net.roboconf.messaging.http.internal.HttpUtils;
 import net.roboconf.messaging.http.internal.messages.HttpMessage;
+import net.roboconf.messaging.http.internal.messages.HttpSerializationUtils;
 import net.roboconf.messaging.http.internal.messages.SubscriptionMessage;
+import net.roboconf.messaging.http.internal.sockets.SessionOutboundQueue;
 
 /**
  * @author Vincent Zurczak - Linagora
@@ -52,11 +57,13 @@ public class HttpDmClient extends AbstractRoutingClient<Session> {
 	private static final String DM_OWNER_ID = AbstractRoutingClient.buildOwnerId( RecipientKind.DM, null, null );
 
 	private final Map<String,Session> ctxToSession;
+	private final HttpRoutingContext httpRoutingContext;
 	private RoboconfMessageQueue messageQueue;
 	private final AtomicInteger openConnections = new AtomicInteger( 0 );
 
-	private String httpServerIp;
+	private String httpServerIp, codecName;
 	private int httpPort;
+	private IMessageCodec codec = HttpSerializationUtils.findCodec( null );
 
 
 	/**
@@ -66,6 +73,7 @@ public class HttpDmClient extends AbstractRoutingClient<Session> {
 		super( routingContext, RecipientKind.DM );
 		this.connectionIsRequired = false;
 		this.ctxToSession = routingContext.ctxToSession;
+		this.httpRoutingContext = routingContext;
 	}
 
 
@@ -109,26 +117,100 @@ public class HttpDmClient extends AbstractRoutingClient<Session> {
 
 	@Override
 	public Map<String,String> getConfiguration() {
-		return HttpUtils.httpMessagingConfiguration( this.httpServerIp, this.httpPort );
+		return HttpUtils.httpMessagingConfiguration( this.httpServerIp, this.httpPort, this.codecName );
 	}
 
 
 	@Override
-	protected void process( Session session, Message message ) throws IOException {
+	protected int process( Session session, Message message ) throws IOException {
 
+		int result = 0;
 		if( session.isOpen()) {
-			HttpUtils.sendAsynchronously( message, session.getRemote());
+			result = HttpUtils.sendAsynchronously( message, findOutboundQueue( session ), this.codec );
 
 		} else {
 			this.logger.finer( "Session is not available anymore. No message can be published." );
+			unregisterSession( session );
 		}
+
+		return result;
+	}
+
+
+	/**
+	 * Forgets the outbound queue of a session.
+	 * <p>
+	 * Pending messages for this session are dropped.
+	 * </p>
+	 *
+	 * @param session a session that was closed
+	 */
+	public void unregisterSession( Session session ) {
+
+		SessionOutboundQueue queue = this.httpRoutingContext.sessionToQueue.remove( session );
+		if( queue != null )
+			queue.close();
+	}
+
+
+	/**
+	 * @return the outbound queues, one per session
+	 */
+	public Collection<SessionOutboundQueue> getOutboundQueues() {
+		return Collections.unmodifiableCollection( this.httpRoutingContext.sessionToQueue.values());
+	}
+
+
+	/**
+	 * Creates the outbound queue of a new session.
+	 * @param session a session that was just opened
+	 * @param batching true if several messages can be packed into a single frame for this session
+	 */
+	public void createOutboundQueue( Session session, boolean batching ) {
+
+		SessionOutboundQueue queue = new SessionOutboundQueue(
+				session,
+				this.httpRoutingContext.outboundQueueCapacity,
+				this.httpRoutingContext.overflowPolicy,
+				batching );
+
+		this.httpRoutingContext.sessionToQueue.put( session, queue );
+	}
+
+
+	/**
+	 * Finds or creates the outbound queue of a session.
+	 * <p>
+	 * Queues created by this method do not pack messages.
+	 * </p>
+	 *
+	 * @param session a session
+	 * @return a non-null queue
+	 */
+	SessionOutboundQueue findOutboundQueue( Session session ) {
+
+		SessionOutboundQueue result = this.httpRoutingContext.sessionToQueue.get( session );
+		if( result == null ) {
+			SessionOutboundQueue queue = new SessionOutboundQueue(
+					session,
+					this.httpRoutingContext.outboundQueueCapacity,
+					this.httpRoutingContext.overflowPolicy );
+
+			result = this.httpRoutingContext.sessionToQueue.putIfAbsent( session, queue );
+			if( result == null )
+				result = queue;
+		}
+
+		return result;
 	}
 
 
 	@Override
-	public void publish( MessagingContext ctx, Message msg ) throws IOException {
+	public long publish( MessagingContext ctx, Message msg ) throws IOException {
 		this.logger.fine( "The DM's HTTP client is about to publish a message (" + msg + ") to " + ctx );
 
+		long result = 0;
+
 		// The DM has no session.
 		// So, we intercept messages for the DM and determine whether the
 		// message should be enqueued or ignored. This decision is based on subscriptions and the connection.
@@ -142,8 +224,10 @@ public class HttpDmClient extends AbstractRoutingClient<Session> {
 
 		// Agents => use the standard publish action.
 		else {
-			super.publish( ctx, msg );
+			result = super.publish( ctx, msg );
 		}
+
+		return result;
 	}
 
 
@@ -210,6 +294,17 @@ public class HttpDmClient extends AbstractRoutingClient<Session> {
 	}
 
 
+	/**
+	 * Sets the codec used to serialize messages.
+	 * @param codecName the codec name (null to use the default one)
+	 */
+	public void setCodec( String codecName ) {
+		this.codecName = codecName;
+		this.codec = HttpSerializationUtils.findCodec( codecName );
+		this.logger.info( "The DM's HTTP client now serializes messages with the codec " + this.codec.getName());
+	}
+
+
 	private void registerSession( String ownerId, Session session ) {
 
 		if( session != null )
@@ -25,10 +25,16 @@
 
 package net.roboconf.messaging.http.internal.messages;
 
-import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
-import java.io.ObjectInputStream;
 
+import net.roboconf.messaging.api.codecs.BinaryMessageCodec;
+import net.roboconf.messaging.api.codecs.BinaryMessageCodec.MessageSchema;
+import net.roboconf.messaging.api.codecs.IMessageCodec;
+import net.roboconf.messaging.api.codecs.JavaMessageCodec;
+import net.roboconf.messaging.api.codecs.SliceInput;
+import net.roboconf.messaging.api.extensions.MessagingContext;
 import net.roboconf.messaging.api.messages.Message;
 
 /**
@@ -43,13 +49,59 @@ import net.roboconf.messaging.api.messages.Message;
  * http://stackoverflow.com/questions/13861342/how-do-you-deserialize-an-object-from-bytes-in-osgi
  * </p>
  * <p>
- * However, it is not more simple. So, this bundle provides its own deserializing method.
+ * However, it is not more simple. So, this bundle provides its own codecs, that
+ * resolve classes with this bundle's class loader. This class also registers the
+ * binary schemas of the HTTP messages.
  * </p>
  *
  * @author Noël - LIG
  */
 public final class HttpSerializationUtils {
 
+	static final int TAG_HTTP_MESSAGE = 100;
+	static final int TAG_SUBSCRIPTION_MESSAGE = 101;
+
+	private static final IMessageCodec JAVA_CODEC = new JavaMessageCodec( HttpSerializationUtils.class.getClassLoader());
+	private static final BinaryMessageCodec BINARY_CODEC = new BinaryMessageCodec( HttpSerializationUtils.class.getClassLoader());
+
+	static {
+		BinaryMessageCodec.registerSchema( new MessageSchema<HttpMessage>( TAG_HTTP_MESSAGE, HttpMessage.class ) {
+			@Override
+			public void write( HttpMessage msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				BinaryMessageCodec.writeString( msg.getOwnerId(), out );
+				BinaryMessageCodec.writeContext( msg.getCtx(), out );
+				codec.writeMessage( msg.getMessage(), out );
+			}
+
+			@Override
+			public HttpMessage read( DataInput in, BinaryMessageCodec codec )
+			throws IOException, ClassNotFoundException {
+
+				String ownerId = BinaryMessageCodec.readString( in );
+				MessagingContext ctx = BinaryMessageCodec.readContext( in );
+				return new HttpMessage( ownerId, codec.readMessage( in ), ctx );
+			}
+		});
+
+		BinaryMessageCodec.registerSchema( new MessageSchema<SubscriptionMessage>( TAG_SUBSCRIPTION_MESSAGE, SubscriptionMessage.class ) {
+			@Override
+			public void write( SubscriptionMessage msg, DataOutput out, BinaryMessageCodec codec ) throws IOException {
+				BinaryMessageCodec.writeString( msg.getOwnerId(), out );
+				BinaryMessageCodec.writeContext( msg.getCtx(), out );
+				out.writeBoolean( msg.isSubscribe());
+			}
+
+			@Override
+			public SubscriptionMessage read( DataInput in, BinaryMessageCodec codec ) throws IOException {
+				return new SubscriptionMessage(
+						BinaryMessageCodec.readString( in ),
+						BinaryMessageCodec.readContext( in ),
+						in.readBoolean());
+			}
+		});
+	}
+
+
 	/**
 	 * Empty private constructor.
 	 */
@@ -60,16 +112,78 @@ public final class HttpSerializationUtils {
 
 	/**
 	 * Deserializes a message.
+	 * <p>
+	 * The codec that was used to serialize the message is detected automatically.
+	 * </p>
+	 *
 	 * @param bytes a non-null array of bytes
 	 * @return the deserialized message, or null if it failed
 	 * @throws ClassNotFoundException
 	 * @throws IOException
 	 */
 	public static Message deserializeObject( byte[] bytes )
+	throws IOException, ClassNotFoundException {
+		return deserializeObject( bytes, 0, bytes.length );
+	}
+
+
+	/**
+	 * Deserializes a message.
+	 * <p>
+	 * The codec that was used to serialize the message is detected automatically.
+	 * </p>
+	 *
+	 * @param bytes a non-null array of bytes
+	 * @param offset the offset of the message in the array
+	 * @param length the length of the message
+	 * @return the deserialized message, or null if it failed
+	 * @throws ClassNotFoundException
+	 * @throws IOException
+	 */
+	public static Message deserializeObject( byte[] bytes, int offset, int length )
+	throws IOException, ClassNotFoundException {
+		return deserializeObject( bytes, offset, length, new SliceInput());
+	}
+
+
+	/**
+	 * Deserializes a message with a reusable input.
+	 * <p>
+	 * The message is read directly from the array, without copying it.
+	 * Receivers should keep one input per connection.
+	 * </p>
+	 *
+	 * @param bytes a non-null array of bytes
+	 * @param offset the offset of the message in the array
+	 * @param length the length of the message
+	 * @param input an input to reuse (not null, not used by another thread)
+	 * @return the deserialized message, or null if it failed
+	 * @throws ClassNotFoundException
+	 * @throws IOException
+	 */
+	public static Message deserializeObject( byte[] bytes, int offset, int length, SliceInput input )
 	throws IOException, ClassNotFoundException {
 
-		ByteArrayInputStream is = new ByteArrayInputStream( bytes );
-		ObjectInputStream deserializer = new ObjectInputStream( is );
-		return (Message) deserializer.readObject();
+		Message result;
+		if( BinaryMessageCodec.isBinaryMessage( bytes, offset, length ))
+			result = BINARY_CODEC.decode( bytes, offset, length, input );
+		else
+			result = JAVA_CODEC.decode( bytes, offset, length );
+
+		return result;
+	}
+
+
+	/**
+	 * Finds a codec from its name.
+	 * <p>
+	 * Returned codecs resolve classes with this bundle's class loader.
+	 * </p>
+	 *
+	 * @param codecName a codec name (can be null)
+	 * @return the associated codec, or the Java serialization codec if the name is null or unknown
+	 */
+	public static IMessageCodec findCodec( String codecName ) {
+		return BinaryMessageCodec.NAME.equalsIgnoreCase( codecName ) ? BINARY_CODEC : JAVA_CODEC;
 	}
 }
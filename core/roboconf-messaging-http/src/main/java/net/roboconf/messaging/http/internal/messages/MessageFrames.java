@@ -0,0 +1,141 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.http.internal.messages;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Utilities to pack several serialized messages into a single web socket frame.
+ * <p>
+ * A frame starts with a 3-byte header: 'R', 'F' and a version number. It is followed
+ * by the number of messages (4 bytes) and, for each message, its length (4 bytes) and
+ * its content. Integers are big-endian. This header cannot be confused with the one of
+ * a serialized message (Java serialization or binary codec), so that a receiver can
+ * handle both frames and single messages.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public final class MessageFrames {
+
+	static final byte MAGIC_1 = 'R';
+	static final byte MAGIC_2 = 'F';
+	static final byte VERSION = 1;
+	static final int HEADER_LENGTH = 7;
+
+
+	/**
+	 * Empty private constructor.
+	 */
+	private MessageFrames() {
+		// nothing
+	}
+
+
+	/**
+	 * Packs several serialized messages into a frame.
+	 * @param messages a non-null list of serialized messages
+	 * @return a non-null array of bytes
+	 */
+	public static byte[] pack( List<byte[]> messages ) {
+
+		int size = HEADER_LENGTH;
+		for( byte[] message : messages )
+			size += 4 + message.length;
+
+		ByteBuffer buffer = ByteBuffer.allocate( size );
+		buffer.put( MAGIC_1 ).put( MAGIC_2 ).put( VERSION );
+		buffer.putInt( messages.size());
+		for( byte[] message : messages ) {
+			buffer.putInt( message.length );
+			buffer.put( message );
+		}
+
+		return buffer.array();
+	}
+
+
+	/**
+	 * Determines whether an array of bytes contains a frame.
+	 * @param bytes a non-null array of bytes
+	 * @param offset the offset of the data in the array
+	 * @param length the length of the data
+	 * @return true if it is a frame, false otherwise (e.g. a single serialized message)
+	 */
+	public static boolean isFrame( byte[] bytes, int offset, int length ) {
+		return length >= HEADER_LENGTH
+				&& bytes[ offset ] == MAGIC_1
+				&& bytes[ offset + 1 ] == MAGIC_2;
+	}
+
+
+	/**
+	 * Finds the messages contained in received data.
+	 * <p>
+	 * Nothing is copied. The result indicates where every serialized message is located
+	 * in the array. If the data is not a frame, it is considered as a single message.
+	 * </p>
+	 *
+	 * @param bytes a non-null array of bytes
+	 * @param offset the offset of the data in the array
+	 * @param length the length of the data
+	 * @return a non-null list of {offset, length} pairs
+	 * @throws IOException if the frame is invalid
+	 */
+	public static List<int[]> split( byte[] bytes, int offset, int length ) throws IOException {
+
+		if( ! isFrame( bytes, offset, length ))
+			return Collections.singletonList( new int[] { offset, length });
+
+		int version = bytes[ offset + 2 ];
+		if( version > VERSION )
+			throw new IOException( "Unsupported message frame version: " + version + " (supported: " + VERSION + ")." );
+
+		ByteBuffer buffer = ByteBuffer.wrap( bytes, offset + 3, length - 3 );
+		int count = buffer.getInt();
+		if( count < 0 || count > length )
+			throw new IOException( "Invalid message frame: bad message count (" + count + ")." );
+
+		List<int[]> result = new ArrayList<>( count );
+		for( int i = 0; i < count; i ++ ) {
+			if( buffer.remaining() < 4 )
+				throw new IOException( "Invalid message frame: it is truncated." );
+
+			int messageLength = buffer.getInt();
+			if( messageLength < 0 || messageLength > buffer.remaining())
+				throw new IOException( "Invalid message frame: it is truncated." );
+
+			result.add( new int[] { buffer.position(), messageLength });
+			buffer.position( buffer.position() + messageLength );
+		}
+
+		return result;
+	}
+}
@@ -26,15 +26,19 @@
 package net.roboconf.messaging.http.internal.sockets;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WebSocketListener;
 
 import net.roboconf.core.utils.Utils;
+import net.roboconf.messaging.api.codecs.SliceInput;
 import net.roboconf.messaging.api.jmx.RoboconfMessageQueue;
 import net.roboconf.messaging.api.messages.Message;
 import net.roboconf.messaging.http.internal.messages.HttpSerializationUtils;
+import net.roboconf.messaging.http.internal.messages.MessageFrames;
 
 /**
  * @author Vincent Zurczak - Linagora
@@ -45,6 +49,9 @@ public class AgentWebSocket implements WebSocketListener {
 	private final RoboconfMessageQueue messageQueue;
 	private Session session;
 
+	// Jetty notifies a listener sequentially, so the input can be reused for every message
+	private final SliceInput input = new SliceInput();
+
 
 	/**
 	 * Constructor.
@@ -59,9 +66,40 @@ public class AgentWebSocket implements WebSocketListener {
 	public void onWebSocketBinary( byte[] payload, int offset, int len ) {
 
 		this.logger.finest( "A binary message was received." );
+		if( ! MessageFrames.isFrame( payload, offset, len )) {
+			deserializeAndProcess( payload, offset, len );
+			return;
+		}
+
+		List<int[]> slices;
+		try {
+			slices = MessageFrames.split( payload, offset, len );
+
+		} catch( IOException e ) {
+			this.logger.severe( "A message frame could not be read. => " + e.getClass().getSimpleName());
+			Utils.logException( this.logger, e );
+			this.messageQueue.errorWhileReceivingMessage();
+			return;
+		}
+
+		for( int[] slice : slices )
+			deserializeAndProcess( payload, slice[ 0 ], slice[ 1 ]);
+	}
+
+
+	/**
+	 * Deserializes a message directly from the received payload and processes it.
+	 * @param payload the payload
+	 * @param offset the offset of the message in the payload
+	 * @param len the length of the message
+	 */
+	private void deserializeAndProcess( byte[] payload, int offset, int len ) {
+
 		try {
-			Message msg = HttpSerializationUtils.deserializeObject( payload );
-			this.logger.finest( "The received message was deserialized as an instance of " + msg.getClass().getSimpleName());
+			Message msg = HttpSerializationUtils.deserializeObject( payload, offset, len, this.input );
+			if( this.logger.isLoggable( Level.FINEST ))
+				this.logger.finest( "The received message was deserialized as an instance of " + msg.getClass().getSimpleName());
+
 			this.messageQueue.add( msg );
 
 		} catch( ClassNotFoundException | IOException e ) {
@@ -26,15 +26,19 @@
 package net.roboconf.messaging.http.internal.sockets;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.WebSocketListener;
 
 import net.roboconf.core.utils.Utils;
+import net.roboconf.messaging.api.codecs.SliceInput;
 import net.roboconf.messaging.api.messages.Message;
 import net.roboconf.messaging.http.internal.HttpClientFactory;
 import net.roboconf.messaging.http.internal.messages.HttpSerializationUtils;
+import net.roboconf.messaging.http.internal.messages.MessageFrames;
 
 /**
  * @author Vincent Zurczak - Linagora
@@ -44,6 +48,10 @@ public class DmWebSocket implements WebSocketListener {
 	private final Logger logger = Logger.getLogger( getClass().getName());
 	private Session session;
 	private final HttpClientFactory httpClientFactory;
+	private final boolean batching;
+
+	// Jetty notifies a listener sequentially, so the input can be reused for every message
+	private final SliceInput input = new SliceInput();
 
 
 	/**
@@ -51,7 +59,18 @@ public class DmWebSocket implements WebSocketListener {
 	 * @param httpClientFactory
 	 */
 	public DmWebSocket( HttpClientFactory httpClientFactory ) {
+		this( httpClientFactory, false );
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param httpClientFactory
+	 * @param batching true if several messages can be packed into a single frame when sending
+	 */
+	public DmWebSocket( HttpClientFactory httpClientFactory, boolean batching ) {
 		this.httpClientFactory = httpClientFactory;
+		this.batching = batching;
 	}
 
 
@@ -59,9 +78,39 @@ public class DmWebSocket implements WebSocketListener {
 	public void onWebSocketBinary( byte[] payload, int offset, int len ) {
 
 		this.logger.finest( "A binary message was received." );
+		if( ! MessageFrames.isFrame( payload, offset, len )) {
+			deserializeAndProcess( payload, offset, len );
+			return;
+		}
+
+		List<int[]> slices;
+		try {
+			slices = MessageFrames.split( payload, offset, len );
+
+		} catch( IOException e ) {
+			this.logger.severe( "A message frame could not be read. => " + e.getClass().getSimpleName());
+			Utils.logException( this.logger, e );
+			this.httpClientFactory.getDmClient().errorWhileReceivingMessage();
+			return;
+		}
+
+		for( int[] slice : slices )
+			deserializeAndProcess( payload, slice[ 0 ], slice[ 1 ]);
+	}
+
+
+	/**
+	 * Deserializes a message directly from the received payload and processes it.
+	 * @param payload the payload
+	 * @param offset the offset of the message in the payload
+	 * @param len the length of the message
+	 */
+	private void deserializeAndProcess( byte[] payload, int offset, int len ) {
+
 		try {
-			Message msg = HttpSerializationUtils.deserializeObject( payload );
-			this.logger.finest( "The received message was deserialized as an instance of " + msg.getClass().getSimpleName());
+			Message msg = HttpSerializationUtils.deserializeObject( payload, offset, len, this.input );
+			if( this.logger.isLoggable( Level.FINEST ))
+				this.logger.finest( "The received message was deserialized as an instance of " + msg.getClass().getSimpleName());
 
 			this.httpClientFactory.getDmClient().processReceivedMessage( msg, this.session );
 
@@ -76,7 +125,7 @@ public class DmWebSocket implements WebSocketListener {
 	@Override
 	public void onWebSocketClose( int statusCode, String reason ) {
 		this.logger.finest( "Websocket closed: " + reason );
-		this.session = null;
+		forgetSession();
 	}
 
 
@@ -84,13 +133,14 @@ public class DmWebSocket implements WebSocketListener {
 	public void onWebSocketConnect( Session session ) {
 		this.logger.finest( "Socket Connected: " + session );
 		this.session = session;
+		this.httpClientFactory.getDmClient().createOutboundQueue( session, this.batching );
 	}
 
 
 	@Override
 	public void onWebSocketError( Throwable cause ) {
 		this.logger.finest( "Websocket error: " + cause );
-		this.session = null;
+		forgetSession();
 	}
 
 
@@ -98,4 +148,14 @@ public class DmWebSocket implements WebSocketListener {
 	public void onWebSocketText( String message ) {
 		this.logger.finest( "A text message was received but will be ignored: " + message );
 	}
+
+
+	private void forgetSession() {
+
+		// Drop the messages that were waiting to be sent to this session
+		if( this.session != null )
+			this.httpClientFactory.getDmClient().unregisterSession( this.session );
+
+		this.session = null;
+	}
 }
@@ -25,6 +25,7 @@
 
 package net.roboconf.messaging.http.internal.sockets;
 
+import net.roboconf.messaging.http.HttpConstants;
 import net.roboconf.messaging.http.internal.HttpClientFactory;
 
 import org.eclipse.jetty.websocket.servlet.ServletUpgradeRequest;
@@ -53,6 +54,11 @@ public class DmWebSocketServlet extends WebSocketServlet {
 
 	@Override
 	public void configure( WebSocketServletFactory factory ) {
+
+		// Compression is negotiated by Jetty, when agents ask for it
+		if( ! this.httpClientFactory.getRoutingContext().compression )
+			factory.getExtensionFactory().unregister( HttpConstants.COMPRESSION_EXTENSION );
+
 		factory.setCreator( new DmWebSocketCreator( this.httpClientFactory ));
 	}
 
@@ -74,7 +80,15 @@ public class DmWebSocketServlet extends WebSocketServlet {
 
 		@Override
 		public Object createWebSocket( ServletUpgradeRequest req, ServletUpgradeResponse resp ) {
-			return new DmWebSocket( this.httpClientFactory );
+
+			// Batching is used only if the agent asked for it (older agents do not)
+			boolean batching = this.httpClientFactory.getRoutingContext().batching
+					&& HttpConstants.FRAMING_BATCH.equals( req.getHeader( HttpConstants.FRAMING_HEADER ));
+
+			if( batching )
+				resp.setHeader( HttpConstants.FRAMING_HEADER, HttpConstants.FRAMING_BATCH );
+
+			return new DmWebSocket( this.httpClientFactory, batching );
 		}
 	}
 }
@@ -0,0 +1,172 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.http.internal.sockets;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import net.roboconf.messaging.api.utils.AbstractOutboundQueue;
+import net.roboconf.messaging.http.internal.messages.MessageFrames;
+
+/**
+ * A bounded queue of messages to send through a web socket session.
+ * <p>
+ * Messages are sent with Jetty's non-blocking API, one at a time. Publishers
+ * are never blocked: when the queue is full, the overflow policy applies.
+ * </p>
+ * <p>
+ * When batching is enabled (both peers must support it), the messages that accumulated
+ * while a frame was being sent are packed together into the next frame (see {@link MessageFrames}).
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public class SessionOutboundQueue extends AbstractOutboundQueue<byte[]> implements WriteCallback {
+
+	/**
+	 * The maximum number of messages packed in a frame.
+	 */
+	public static final int MAX_MESSAGES_PER_FRAME = 100;
+
+	/**
+	 * The size (in bytes) above which no more messages are added to a frame.
+	 */
+	public static final int MAX_FRAME_SIZE = 64 * 1024;
+
+	private final Session session;
+	private final boolean batching;
+
+
+	/**
+	 * Constructor.
+	 * @param session the session
+	 * @param capacity the maximum number of pending messages
+	 * @param overflowPolicy the policy to apply when the queue is full
+	 */
+	public SessionOutboundQueue( Session session, int capacity, OverflowPolicy overflowPolicy ) {
+		this( session, capacity, overflowPolicy, false );
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param session the session
+	 * @param capacity the maximum number of pending messages
+	 * @param overflowPolicy the policy to apply when the queue is full
+	 * @param batching true to pack several messages into a single frame
+	 */
+	public SessionOutboundQueue( Session session, int capacity, OverflowPolicy overflowPolicy, boolean batching ) {
+		super( capacity, overflowPolicy );
+		this.session = session;
+		this.batching = batching;
+	}
+
+
+	/**
+	 * Enqueues a message and starts sending it if nothing else is being sent.
+	 * @param data the serialized message
+	 * @return true if the message was enqueued, false if it was dropped
+	 * @throws IOException if the queue is full and the overflow policy is {@link OverflowPolicy#FAIL}
+	 */
+	public boolean offer( byte[] data ) throws IOException {
+
+		boolean enqueued = enqueue( data );
+		if( ! enqueued
+				&& getOverflowPolicy() == OverflowPolicy.FAIL
+				&& ! isClosed())
+			throw new IOException( "Too many messages are waiting to be sent to " + this.session.getRemoteAddress() + "." );
+
+		return enqueued;
+	}
+
+
+	/**
+	 * @return the session
+	 */
+	public Session getSession() {
+		return this.session;
+	}
+
+
+	/**
+	 * @return true if several messages can be packed into a single frame
+	 */
+	public boolean isBatching() {
+		return this.batching;
+	}
+
+
+	@Override
+	public void writeSuccess() {
+		sendSucceeded();
+	}
+
+
+	@Override
+	public void writeFailed( Throwable cause ) {
+		sendFailed( cause );
+	}
+
+
+	@Override
+	protected List<byte[]> pollNextItems( LinkedList<byte[]> pending ) {
+
+		if( ! this.batching )
+			return super.pollNextItems( pending );
+
+		List<byte[]> result = new ArrayList<> ();
+		int size = 0;
+		while( ! pending.isEmpty()
+				&& result.size() < MAX_MESSAGES_PER_FRAME
+				&& size < MAX_FRAME_SIZE ) {
+
+			byte[] message = pending.removeFirst();
+			size += message.length;
+			result.add( message );
+		}
+
+		return result;
+	}
+
+
+	@Override
+	protected void send( List<byte[]> messages ) throws Exception {
+		byte[] data = messages.size() == 1 ? messages.get( 0 ) : MessageFrames.pack( messages );
+		this.session.getRemote().sendBytes( ByteBuffer.wrap( data ), this );
+	}
+
+
+	@Override
+	protected String describeTarget() {
+		return "remote end-point " + this.session.getRemoteAddress() + " (HTTP messaging)";
+	}
+}
@@ -26,14 +26,17 @@
 package net.roboconf.messaging.http.internal.clients;
 
 import java.nio.ByteBuffer;
-import java.util.concurrent.Future;
 
 import net.roboconf.messaging.api.messages.Message;
 import net.roboconf.messaging.http.internal.HttpClientFactory.HttpRoutingContext;
+import net.roboconf.messaging.http.internal.sockets.SessionOutboundQueue;
 
 import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.Assert;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 /**
@@ -52,24 +55,36 @@ public class HttpDmClientTest {
 		Session session = Mockito.mock( Session.class );
 		Mockito.when( session.isOpen()).thenReturn( false );
 
-		httpDmClient.process( session, message );
+		Assert.assertEquals( 0, httpDmClient.process( session, message ));
 		Mockito.verifyZeroInteractions( message );
 		Mockito.verify( session, Mockito.only()).isOpen();
 
 		// Connected => processing...
 		Mockito.reset( session );
-		Future<Void> future = Mockito.mock( Future.class );
 		RemoteEndpoint remote = Mockito.mock( RemoteEndpoint.class );
-		Mockito.when( remote.sendBytesByFuture( Mockito.any( ByteBuffer.class ) )).thenReturn( future );
 
 		Mockito.when( session.getRemote()).thenReturn( remote );
 		Mockito.when( session.isOpen()).thenReturn( true );
 
-		httpDmClient.process( session, message );
+		int size = httpDmClient.process( session, message );
 
 		Mockito.verifyZeroInteractions( message );
 		Mockito.verify( session, Mockito.times( 1 )).isOpen();
 		Mockito.verify( session, Mockito.times( 1 )).getRemote();
 		Mockito.verifyNoMoreInteractions( session );
+
+		// The message was sent through the session's outbound queue
+		ArgumentCaptor<ByteBuffer> captor = ArgumentCaptor.forClass( ByteBuffer.class );
+		Mockito.verify( remote, Mockito.times( 1 )).sendBytes( captor.capture(), Mockito.any( WriteCallback.class ));
+		Assert.assertEquals( 1, httpDmClient.getOutboundQueues().size());
+
+		// The reported size is the one of what was actually sent
+		Assert.assertEquals( captor.getValue().remaining(), size );
+
+		// Closed sessions are forgotten
+		SessionOutboundQueue queue = httpDmClient.findOutboundQueue( session );
+		httpDmClient.unregisterSession( session );
+		Assert.assertEquals( 0, httpDmClient.getOutboundQueues().size());
+		Assert.assertNotSame( queue, httpDmClient.findOutboundQueue( session ));
 	}
 }
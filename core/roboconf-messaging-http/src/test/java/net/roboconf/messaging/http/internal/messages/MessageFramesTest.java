@@ -0,0 +1,111 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.http.internal.messages;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.roboconf.messaging.api.extensions.MessagingContext;
+import net.roboconf.messaging.api.extensions.MessagingContext.RecipientKind;
+import net.roboconf.messaging.api.messages.Message;
+import net.roboconf.messaging.api.messages.from_dm_to_dm.MsgEcho;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class MessageFramesTest {
+
+	@Test
+	public void testPackAndSplit() throws Exception {
+
+		MessagingContext ctx = new MessagingContext( RecipientKind.DM, "domain", "app" );
+		List<Message> messages = new ArrayList<> ();
+		messages.add( new SubscriptionMessage( "owner", ctx, true ));
+		messages.add( new HttpMessage( "owner", new MsgEcho( "hi" ), ctx ));
+		messages.add( new SubscriptionMessage( "owner", ctx, false ));
+
+		List<byte[]> serialized = new ArrayList<> ();
+		serialized.add( HttpSerializationUtils.findCodec( "java" ).encode( messages.get( 0 )));
+		serialized.add( HttpSerializationUtils.findCodec( "binary" ).encode( messages.get( 1 )));
+		serialized.add( HttpSerializationUtils.findCodec( "binary" ).encode( messages.get( 2 )));
+
+		// Put the frame in a larger array, as Jetty may do
+		byte[] frame = MessageFrames.pack( serialized );
+		byte[] payload = new byte[ frame.length + 10 ];
+		System.arraycopy( frame, 0, payload, 5, frame.length );
+		Assert.assertTrue( MessageFrames.isFrame( payload, 5, frame.length ));
+
+		List<int[]> slices = MessageFrames.split( payload, 5, frame.length );
+		Assert.assertEquals( 3, slices.size());
+		for( int i = 0; i < 3; i ++ ) {
+			int[] slice = slices.get( i );
+			Assert.assertEquals( serialized.get( i ).length, slice[ 1 ]);
+			Assert.assertArrayEquals(
+					serialized.get( i ),
+					Arrays.copyOfRange( payload, slice[ 0 ], slice[ 0 ] + slice[ 1 ]));
+
+			Message msg = HttpSerializationUtils.deserializeObject( payload, slice[ 0 ], slice[ 1 ]);
+			Assert.assertEquals( messages.get( i ).getClass(), msg.getClass());
+		}
+	}
+
+
+	@Test
+	public void testSplit_singleMessage() throws Exception {
+
+		for( String codecName : Arrays.asList( "java", "binary" )) {
+			byte[] bytes = HttpSerializationUtils.findCodec( codecName ).encode( new MsgEcho( "hi" ));
+			Assert.assertFalse( codecName, MessageFrames.isFrame( bytes, 0, bytes.length ));
+
+			List<int[]> slices = MessageFrames.split( bytes, 0, bytes.length );
+			Assert.assertEquals( codecName, 1, slices.size());
+			Assert.assertEquals( codecName, 0, slices.get( 0 )[ 0 ]);
+			Assert.assertEquals( codecName, bytes.length, slices.get( 0 )[ 1 ]);
+		}
+	}
+
+
+	@Test( expected = IOException.class )
+	public void testSplit_truncatedFrame() throws Exception {
+
+		byte[] frame = MessageFrames.pack( Arrays.asList( new byte[ 10 ], new byte[ 20 ]));
+		MessageFrames.split( frame, 0, frame.length - 5 );
+	}
+
+
+	@Test( expected = IOException.class )
+	public void testSplit_unsupportedVersion() throws Exception {
+
+		byte[] frame = MessageFrames.pack( Arrays.asList( new byte[ 10 ]));
+		frame[ 2 ] = MessageFrames.VERSION + 1;
+		MessageFrames.split( frame, 0, frame.length );
+	}
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.http.internal.sockets;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import net.roboconf.messaging.api.extensions.MessagingContext;
+import net.roboconf.messaging.api.extensions.MessagingContext.RecipientKind;
+import net.roboconf.messaging.api.extensions.MessagingContext.ThoseThat;
+import net.roboconf.messaging.api.jmx.RoboconfMessageQueue;
+import net.roboconf.messaging.api.messages.from_agent_to_agent.MsgCmdAddImport;
+import net.roboconf.messaging.http.internal.messages.HttpMessage;
+import net.roboconf.messaging.http.internal.messages.HttpSerializationUtils;
+
+/**
+ * A light benchmark for the bytes allocated by {@link AgentWebSocket#onWebSocketBinary(byte[], int, int)}.
+ * <p>
+ * Allocations are only logged, assertions are about deliveries.
+ * The comparison is made with the previous behavior (copy the slice, then decode it with new streams).
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public class AgentWebSocketAllocationBenchmarkTest {
+
+	private static final int WARM_UP = 5000;
+	private static final int MESSAGES = 20000;
+	private final Logger logger = Logger.getLogger( getClass().getName());
+
+
+	@Test
+	public void testBinaryCodec() throws Exception {
+		runBenchmark( "binary" );
+	}
+
+
+	@Test
+	public void testJavaCodec() throws Exception {
+		runBenchmark( "java" );
+	}
+
+
+	private void runBenchmark( String codecName ) throws Exception {
+
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue( threadBean instanceof com.sun.management.ThreadMXBean );
+		com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+		Assume.assumeTrue( allocationBean.isThreadAllocatedMemorySupported());
+		allocationBean.setThreadAllocatedMemoryEnabled( true );
+
+		// Jetty gives a slice of a larger buffer
+		Map<String,String> exports = new HashMap<> ();
+		exports.put( "MySQL.ip", "192.168.1.4" );
+		exports.put( "MySQL.port", "3306" );
+
+		MessagingContext ctx = new MessagingContext( RecipientKind.AGENTS, "domain", "MySQL", ThoseThat.IMPORT, "app" );
+		HttpMessage msg = new HttpMessage( "/vm", new MsgCmdAddImport( "app", "MySQL", "/vm/mysql", exports ), ctx );
+		byte[] bytes = HttpSerializationUtils.findCodec( codecName ).encode( msg );
+		byte[] payload = new byte[ bytes.length + 64 ];
+		System.arraycopy( bytes, 0, payload, 32, bytes.length );
+
+		// Current behavior
+		RoboconfMessageQueue messageQueue = new RoboconfMessageQueue();
+		AgentWebSocket socket = new AgentWebSocket( messageQueue );
+		for( int i = 0; i < WARM_UP; i ++ ) {
+			socket.onWebSocketBinary( payload, 32, bytes.length );
+			messageQueue.poll();
+		}
+
+		long threadId = Thread.currentThread().getId();
+		long before = allocationBean.getThreadAllocatedBytes( threadId );
+		for( int i = 0; i < MESSAGES; i ++ ) {
+			socket.onWebSocketBinary( payload, 32, bytes.length );
+			messageQueue.poll();
+		}
+
+		long current = ( allocationBean.getThreadAllocatedBytes( threadId ) - before ) / MESSAGES;
+		Assert.assertEquals( MESSAGES + WARM_UP, messageQueue.getReceivedMessagesCount());
+		Assert.assertEquals( 0, messageQueue.getFailedReceptionCount());
+
+		// Previous behavior
+		for( int i = 0; i < WARM_UP; i ++ )
+			HttpSerializationUtils.deserializeObject( Arrays.copyOfRange( payload, 32, 32 + bytes.length ));
+
+		before = allocationBean.getThreadAllocatedBytes( threadId );
+		for( int i = 0; i < MESSAGES; i ++ )
+			HttpSerializationUtils.deserializeObject( Arrays.copyOfRange( payload, 32, 32 + bytes.length ));
+
+		long previous = ( allocationBean.getThreadAllocatedBytes( threadId ) - before ) / MESSAGES;
+		this.logger.info(
+				codecName + " codec (" + bytes.length + " bytes per message): " + current
+				+ " bytes allocated per received message (" + previous + " with copies and new streams)." );
+	}
+}
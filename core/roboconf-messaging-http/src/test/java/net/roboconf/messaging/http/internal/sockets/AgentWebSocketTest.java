@@ -25,10 +25,20 @@
 
 package net.roboconf.messaging.http.internal.sockets;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.junit.Assert;
 import org.junit.Test;
 
+import net.roboconf.messaging.api.extensions.MessagingContext;
+import net.roboconf.messaging.api.extensions.MessagingContext.RecipientKind;
+import net.roboconf.messaging.api.extensions.MessagingContext.ThoseThat;
 import net.roboconf.messaging.api.jmx.RoboconfMessageQueue;
+import net.roboconf.messaging.api.messages.Message;
+import net.roboconf.messaging.api.messages.from_agent_to_agent.MsgCmdAddImport;
+import net.roboconf.messaging.http.internal.messages.HttpMessage;
+import net.roboconf.messaging.http.internal.messages.HttpSerializationUtils;
 
 /**
  * @author Vincent Zurczak - Linagora
@@ -56,4 +66,42 @@ public class AgentWebSocketTest {
 
 		Assert.assertEquals( 0, messageQueue.size());
 	}
+
+
+	@Test
+	public void testBinaryMessageInSlice() throws Exception {
+
+		Map<String,String> exports = new HashMap<> ();
+		exports.put( "MySQL.ip", "192.168.1.4" );
+		exports.put( "MySQL.port", "3306" );
+
+		MessagingContext ctx = new MessagingContext( RecipientKind.AGENTS, "domain", "MySQL", ThoseThat.IMPORT, "app" );
+		HttpMessage msg = new HttpMessage( "/vm", new MsgCmdAddImport( "app", "MySQL", "/vm/mysql", exports ), ctx );
+
+		RoboconfMessageQueue messageQueue = new RoboconfMessageQueue();
+		AgentWebSocket socket = new AgentWebSocket( messageQueue );
+		for( String codecName : new String[] { "binary", "java" }) {
+
+			// Jetty gives a slice of a larger buffer
+			byte[] bytes = HttpSerializationUtils.findCodec( codecName ).encode( msg );
+			byte[] payload = new byte[ bytes.length + 64 ];
+			System.arraycopy( bytes, 0, payload, 32, bytes.length );
+
+			// Decode it twice, to make sure the socket's input is reused correctly
+			for( int i = 0; i < 2; i ++ ) {
+				socket.onWebSocketBinary( payload, 32, bytes.length );
+
+				Message received = messageQueue.poll();
+				Assert.assertEquals( codecName, HttpMessage.class, received.getClass());
+				Assert.assertEquals( codecName, "/vm", ((HttpMessage) received).getOwnerId());
+
+				MsgCmdAddImport addImport = (MsgCmdAddImport) ((HttpMessage) received).getMessage();
+				Assert.assertEquals( codecName, "/vm/mysql", addImport.getAddedInstancePath());
+				Assert.assertEquals( codecName, exports, addImport.getExportedVariables());
+			}
+		}
+
+		Assert.assertEquals( 4, messageQueue.getReceivedMessagesCount());
+		Assert.assertEquals( 0, messageQueue.getFailedReceptionCount());
+	}
 }
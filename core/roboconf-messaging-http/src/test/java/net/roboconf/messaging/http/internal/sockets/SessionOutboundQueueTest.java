@@ -0,0 +1,150 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.http.internal.sockets;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import net.roboconf.messaging.api.utils.AbstractOutboundQueue.OverflowPolicy;
+import net.roboconf.messaging.http.internal.messages.MessageFrames;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class SessionOutboundQueueTest {
+
+	@Test
+	public void testOneMessageInFlight() throws Exception {
+
+		RemoteEndpoint remote = Mockito.mock( RemoteEndpoint.class );
+		SessionOutboundQueue queue = new SessionOutboundQueue( newSession( remote ), 5, OverflowPolicy.DROP_NEWEST );
+
+		queue.offer( new byte[ 1 ]);
+		queue.offer( new byte[ 2 ]);
+		queue.offer( new byte[ 3 ]);
+
+		// Only the first message was sent, the others wait for its completion
+		ArgumentCaptor<ByteBuffer> captor = ArgumentCaptor.forClass( ByteBuffer.class );
+		Mockito.verify( remote, Mockito.times( 1 )).sendBytes( captor.capture(), Mockito.eq( queue ));
+		Assert.assertEquals( 1, captor.getValue().remaining());
+		Assert.assertEquals( 2, queue.getPendingCount());
+
+		queue.writeSuccess();
+		Mockito.verify( remote, Mockito.times( 2 )).sendBytes( captor.capture(), Mockito.eq( queue ));
+		Assert.assertEquals( 2, captor.getValue().remaining());
+		Assert.assertEquals( 1, queue.getPendingCount());
+		Assert.assertEquals( 1, queue.getSentCount());
+
+		queue.writeFailed( new IOException( "for test" ));
+		Mockito.verify( remote, Mockito.times( 3 )).sendBytes( captor.capture(), Mockito.eq( queue ));
+		Assert.assertEquals( 3, captor.getValue().remaining());
+		Assert.assertEquals( 0, queue.getPendingCount());
+		Assert.assertEquals( 1, queue.getFailedCount());
+	}
+
+
+	@Test
+	public void testOverflow_fail() throws Exception {
+
+		RemoteEndpoint remote = Mockito.mock( RemoteEndpoint.class );
+		SessionOutboundQueue queue = new SessionOutboundQueue( newSession( remote ), 1, OverflowPolicy.FAIL );
+
+		queue.offer( new byte[ 1 ]);
+		queue.offer( new byte[ 2 ]);
+		try {
+			queue.offer( new byte[ 3 ]);
+			Assert.fail( "An exception was expected, the queue is full." );
+
+		} catch( IOException e ) {
+			// nothing
+		}
+
+		Assert.assertEquals( 1, queue.getPendingCount());
+		Assert.assertEquals( 1, queue.getDroppedCount());
+
+		// Closed queues drop messages without complaining
+		queue.close();
+		Assert.assertFalse( queue.offer( new byte[ 4 ]));
+	}
+
+
+	@Test
+	public void testBatching() throws Exception {
+
+		RemoteEndpoint remote = Mockito.mock( RemoteEndpoint.class );
+		SessionOutboundQueue queue = new SessionOutboundQueue( newSession( remote ), 10, OverflowPolicy.DROP_NEWEST, true );
+		Assert.assertTrue( queue.isBatching());
+
+		// The first message is sent alone, the next ones wait
+		queue.offer( new byte[ 1 ]);
+		queue.offer( new byte[ 2 ]);
+		queue.offer( new byte[ 3 ]);
+		queue.offer( new byte[ 4 ]);
+
+		ArgumentCaptor<ByteBuffer> captor = ArgumentCaptor.forClass( ByteBuffer.class );
+		Mockito.verify( remote, Mockito.times( 1 )).sendBytes( captor.capture(), Mockito.eq( queue ));
+		Assert.assertEquals( 1, captor.getValue().remaining());
+		Assert.assertEquals( 3, queue.getPendingCount());
+
+		// Pending messages are packed into a single frame
+		queue.writeSuccess();
+		Mockito.verify( remote, Mockito.times( 2 )).sendBytes( captor.capture(), Mockito.eq( queue ));
+		Assert.assertEquals( 0, queue.getPendingCount());
+		Assert.assertEquals( 1, queue.getSentCount());
+
+		ByteBuffer buffer = captor.getValue();
+		byte[] frame = new byte[ buffer.remaining()];
+		buffer.get( frame );
+		Assert.assertTrue( MessageFrames.isFrame( frame, 0, frame.length ));
+
+		List<int[]> slices = MessageFrames.split( frame, 0, frame.length );
+		Assert.assertEquals( 3, slices.size());
+		Assert.assertEquals( 2, slices.get( 0 )[ 1 ]);
+		Assert.assertEquals( 3, slices.get( 1 )[ 1 ]);
+		Assert.assertEquals( 4, slices.get( 2 )[ 1 ]);
+
+		// All the messages of the frame are counted
+		queue.writeSuccess();
+		Assert.assertEquals( 4, queue.getSentCount());
+		Mockito.verifyNoMoreInteractions( remote );
+	}
+
+
+	private Session newSession( RemoteEndpoint remote ) {
+
+		Session session = Mockito.mock( Session.class );
+		Mockito.when( session.getRemote()).thenReturn( remote );
+		return session;
+	}
+}
@@ -132,6 +132,44 @@ public interface RabbitMqConstants {
 	 */
 	String RABBITMQ_SSL_TRUST_MNGR_FACTORY = RABBITMQ_PROPERTY_PREFIX + ".ssl.trust.manager.factory";
 
+	/**
+	 * Messaging property indicating the codec used to serialize messages.
+	 * <p>
+	 * Supported values are "java" (default) and "binary". Received messages are
+	 * always decoded, whatever the codec used by the sender.
+	 * </p>
+	 */
+	String RABBITMQ_CODEC = RABBITMQ_PROPERTY_PREFIX + ".codec";
+
+	/**
+	 * Messaging property indicating the maximum number of messages that can be
+	 * received and not yet processed by a client.
+	 * <p>
+	 * When it is a positive integer, messages are acknowledged once they have been processed
+	 * and RabbitMQ stops delivering new messages when this limit is reached. Otherwise
+	 * (default), messages are acknowledged as soon as they are delivered.
+	 * </p>
+	 */
+	String RABBITMQ_PREFETCH_COUNT = RABBITMQ_PROPERTY_PREFIX + ".prefetch.count";
+
+	/**
+	 * Messaging property indicating whether RabbitMQ must confirm published messages.
+	 * <p>
+	 * Default value is "false". When enabled, confirmations are tracked asynchronously
+	 * and messages that were not handled by RabbitMQ are logged.
+	 * </p>
+	 */
+	String RABBITMQ_PUBLISHER_CONFIRMS = RABBITMQ_PROPERTY_PREFIX + ".publisher.confirms";
+
+	/**
+	 * Messaging property indicating the time window (in milliseconds) during which
+	 * published messages are grouped before being sent.
+	 * <p>
+	 * Default value is 0, meaning messages are sent immediately.
+	 * </p>
+	 */
+	String RABBITMQ_PUBLISH_BATCH_DELAY = RABBITMQ_PROPERTY_PREFIX + ".publish.batch.delay";
+
 
 	String EXCHANGE_INTER_APP = "roboconf.inter-app";
 	String EXCHANGE_DM = "roboconf.dm";
@@ -50,24 +50,26 @@ import java.util.logging.Logger;
 
 import com.rabbitmq.client.AMQP.BasicProperties;
 import com.rabbitmq.client.Channel;
-import com.rabbitmq.client.ConnectionFactory;
-import com.rabbitmq.client.Recoverable;
 
 import net.roboconf.core.model.beans.Application;
 import net.roboconf.core.userdata.UserDataHelpers;
+import net.roboconf.core.utils.Utils;
 import net.roboconf.messaging.api.MessagingConstants;
-import net.roboconf.messaging.api.extensions.IMessagingClient;
+import net.roboconf.messaging.api.codecs.IMessageCodec;
+import net.roboconf.messaging.api.extensions.IConfirmingMessagingClient;
 import net.roboconf.messaging.api.extensions.MessagingContext;
 import net.roboconf.messaging.api.extensions.MessagingContext.RecipientKind;
+import net.roboconf.messaging.api.jmx.PublicationConfirms;
 import net.roboconf.messaging.api.jmx.RoboconfMessageQueue;
 import net.roboconf.messaging.api.messages.Message;
 import net.roboconf.messaging.api.reconfigurables.ReconfigurableClient;
 import net.roboconf.messaging.api.utils.MessagingUtils;
 import net.roboconf.messaging.api.utils.SerializationUtils;
 import net.roboconf.messaging.rabbitmq.RabbitMqConstants;
+import net.roboconf.messaging.rabbitmq.internal.impl.RabbitMqConnectionPool;
+import net.roboconf.messaging.rabbitmq.internal.impl.RabbitMqPublisher;
+import net.roboconf.messaging.rabbitmq.internal.impl.RabbitMqSharedConnection;
 import net.roboconf.messaging.rabbitmq.internal.impl.RoboconfConsumer;
-import net.roboconf.messaging.rabbitmq.internal.impl.RoboconfRecoveryListener;
-import net.roboconf.messaging.rabbitmq.internal.impl.RoboconfReturnListener;
 import net.roboconf.messaging.rabbitmq.internal.utils.RabbitMqUtils;
 
 /**
@@ -75,11 +77,14 @@ import net.roboconf.messaging.rabbitmq.internal.utils.RabbitMqUtils;
  * @author Pierre Bourret - Université Joseph Fourier
  * @author Vincent Zurczak - Linagora
  */
-public class RabbitMqClient implements IMessagingClient {
+public class RabbitMqClient implements IConfirmingMessagingClient {
 
 	private final Logger logger = Logger.getLogger( getClass().getName());
 	private final Map<String,String> configuration;
 	private final WeakReference<ReconfigurableClient<?>> reconfigurable;
+	private final IMessageCodec codec;
+	private final RabbitMqConnectionPool connectionPool;
+	private final PublicationConfirms confirms = new PublicationConfirms();
 
 	private RoboconfMessageQueue messageQueue;
 	private RecipientKind ownerKind;
@@ -87,6 +92,8 @@ public class RabbitMqClient implements IMessagingClient {
 
 	String consumerTag;
 	Channel channel;
+	RabbitMqSharedConnection sharedConnection;
+	RabbitMqPublisher publisher;
 
 
 	/**
@@ -106,12 +113,31 @@ public class RabbitMqClient implements IMessagingClient {
 	 * @param ownerKind
 	 */
 	protected RabbitMqClient( ReconfigurableClient<?> reconfigurable, Map<String,String> messagingProperties, RecipientKind ownerKind ) {
+		this( reconfigurable, messagingProperties, ownerKind, new RabbitMqConnectionPool());
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param reconfigurable
+	 * @param messagingProperties
+	 * @param ownerKind
+	 * @param connectionPool the pool from which connections are obtained (not null)
+	 */
+	protected RabbitMqClient(
+			ReconfigurableClient<?> reconfigurable,
+			Map<String,String> messagingProperties,
+			RecipientKind ownerKind,
+			RabbitMqConnectionPool connectionPool ) {
+
+		this.connectionPool = connectionPool;
 		this.reconfigurable = new WeakReference<ReconfigurableClient<?>>( reconfigurable );
 		this.ownerKind = ownerKind;
 
 		Map<String,String> copy = new LinkedHashMap<>( messagingProperties );
 		copy.put( MessagingConstants.MESSAGING_TYPE_PROPERTY, RabbitMqConstants.FACTORY_RABBITMQ );
 		this.configuration = Collections.unmodifiableMap( copy );
+		this.codec = SerializationUtils.findCodec( copy.get( RabbitMqConstants.RABBITMQ_CODEC ));
 	}
 
 
@@ -141,6 +167,14 @@ public class RabbitMqClient implements IMessagingClient {
 	}
 
 
+	@Override
+	public PublicationConfirms getPublicationConfirms() {
+
+		boolean publisherConfirms = Boolean.parseBoolean( this.configuration.get( RabbitMqConstants.RABBITMQ_PUBLISHER_CONFIRMS ));
+		return publisherConfirms ? this.confirms : null;
+	}
+
+
 	@Override
 	public final Map<String,String> getConfiguration() {
 
@@ -211,18 +245,21 @@ public class RabbitMqClient implements IMessagingClient {
 			return;
 		}
 
-		// Initialize the connection
-		ConnectionFactory factory = new ConnectionFactory();
-		RabbitMqUtils.configureFactory( factory, this.configuration );
-		this.channel = factory.newConnection().createChannel();
-		this.logger.info( getId() + " established a new connection with RabbitMQ. Channel # " + this.channel.getChannelNumber());
+		// Get a (shared) connection and create our own channel to consume messages.
+		// Publishing is done through other channels (see #publish).
+		this.sharedConnection = this.connectionPool.acquire( this.configuration );
+		try {
+			this.channel = this.sharedConnection.createConsumingChannel();
 
-		// Be notified when a message does not arrive in a queue (i.e. nobody is listening)
-		this.channel.addReturnListener( new RoboconfReturnListener());
+		} catch( IOException e ) {
+			this.connectionPool.release( this.sharedConnection );
+			this.sharedConnection = null;
+			throw e;
+		}
 
-		// Add a recoverable listener (when broken connections are recovered).
-		// Given the way the RabbitMQ factory is configured, the channel should be "recoverable".
-		((Recoverable) this.channel).addRecoveryListener( new RoboconfRecoveryListener());
+		this.logger.info( getId() + " established a new connection with RabbitMQ. Channel # " + this.channel.getChannelNumber());
+		this.publisher = new RabbitMqPublisher( this.sharedConnection, getIntegerProperty( RabbitMqConstants.RABBITMQ_PUBLISH_BATCH_DELAY ),
+				this.confirms );
 
 		// Declare the exchanges.
 		RabbitMqUtils.declareGlobalExchanges( this.domain, this.channel );
@@ -232,10 +269,19 @@ public class RabbitMqClient implements IMessagingClient {
 		String queueName = getQueueName();
 		this.channel.queueDeclare( queueName, true, false, true, null );
 
+		// Flow control: limit the number of messages that are delivered and not yet processed.
+		// Messages are then acknowledged by the consumer, once they have been processed.
+		int prefetchCount = getIntegerProperty( RabbitMqConstants.RABBITMQ_PREFETCH_COUNT );
+		boolean manualAck = prefetchCount > 0;
+		if( manualAck ) {
+			this.channel.basicQos( prefetchCount );
+			this.logger.fine( getId() + " will acknowledge messages once processed. Prefetch count: " + prefetchCount );
+		}
+
 		// Start listening to messages.
-		RoboconfConsumer consumer = new RoboconfConsumer( getId(), this.channel, this.messageQueue );
+		RoboconfConsumer consumer = new RoboconfConsumer( getId(), this.channel, this.messageQueue, manualAck );
 		consumer.handleConsumeOk( queueName );
-		this.consumerTag = this.channel.basicConsume( queueName, true, consumer );
+		this.consumerTag = this.channel.basicConsume( queueName, ! manualAck, consumer );
 		this.logger.finer( "A new consumer tag was created: " + this.consumerTag );
 	}
 
@@ -258,14 +304,26 @@ public class RabbitMqClient implements IMessagingClient {
 			this.logger.finer( "A consumer tag was cancelled: " + this.consumerTag );
 		}
 
-		// Close the connection
+		// Send the messages that are still pending
+		if( this.publisher != null )
+			this.publisher.flush();
+
+		// Close the channel and release the connection (it may be used by other clients)
 		this.consumerTag = null;
-		if( isConnected()) {
-			this.logger.finer( "Closing the connection and the channel # " + this.channel.getChannelNumber());
-			RabbitMqUtils.closeConnection( this.channel );
+		try {
+			if( isConnected() && this.channel.isOpen()) {
+				this.logger.finer( "Closing the channel # " + this.channel.getChannelNumber());
+				this.channel.close();
+			}
+
+		} finally {
+			if( this.sharedConnection != null )
+				this.connectionPool.release( this.sharedConnection );
+
+			this.sharedConnection = null;
+			this.publisher = null;
+			this.channel = null;
 		}
-
-		this.channel = null;
 	}
 
 
@@ -282,7 +340,7 @@ public class RabbitMqClient implements IMessagingClient {
 
 
 	@Override
-	public void publish( MessagingContext ctx, Message msg ) throws IOException {
+	public long publish( MessagingContext ctx, Message msg ) throws IOException {
 
 		// To which exchange?
 		String exchangeName = RabbitMqUtils.buildExchangeName( ctx );
@@ -311,14 +369,15 @@ public class RabbitMqClient implements IMessagingClient {
 				|| this.ownerKind == RecipientKind.AGENTS && ctx.getKind() == RecipientKind.DM )
 			mandatory = true;
 
-		// Send the message.
-		this.channel.basicPublish(
-				exchangeName,		// The exchange name
-				routingKey, 		// The routing key
-				mandatory, 			// Mandatory => we want it to be delivered
-				false,				// Useless, RabbitMQ does not support it for now.
-				props,				// The publish properties
-				SerializationUtils.serializeObject( msg ));
+		// Send the message (immediately or in a batch, depending on the configuration).
+		RabbitMqPublisher currentPublisher = this.publisher;
+		if( currentPublisher == null )
+			throw new IOException( getId() + " is not connected to RabbitMQ." );
+
+		byte[] content = SerializationUtils.serializeObject( msg, this.codec );
+		currentPublisher.publish( exchangeName, routingKey, mandatory, props, content );
+
+		return content.length;
 	}
 
 
@@ -363,6 +422,26 @@ public class RabbitMqClient implements IMessagingClient {
 	}
 
 
+	/**
+	 * @param propertyName the name of a property in the configuration
+	 * @return the property's value as a positive integer, or 0 if there is none or if it is invalid
+	 */
+	int getIntegerProperty( String propertyName ) {
+
+		int result = 0;
+		String value = this.configuration.get( propertyName );
+		try {
+			if( ! Utils.isEmptyOrWhitespaces( value ))
+				result = Math.max( 0, Integer.parseInt( value.trim()));
+
+		} catch( NumberFormatException e ) {
+			this.logger.warning( "Invalid value for " + propertyName + ": " + value + ". It will be ignored." );
+		}
+
+		return result;
+	}
+
+
 	String getId() {
 		return MessagingUtils.buildId( this.ownerKind, this.domain, this.applicationName, this.scopedInstancePath );
 	}
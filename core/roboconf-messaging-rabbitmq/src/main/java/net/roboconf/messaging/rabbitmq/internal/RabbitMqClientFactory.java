@@ -52,6 +52,7 @@ import net.roboconf.messaging.api.extensions.IMessagingClient;
 import net.roboconf.messaging.api.factory.IMessagingClientFactory;
 import net.roboconf.messaging.api.reconfigurables.ReconfigurableClient;
 import net.roboconf.messaging.rabbitmq.RabbitMqConstants;
+import net.roboconf.messaging.rabbitmq.internal.impl.RabbitMqConnectionPool;
 
 /**
  * Messaging client factory for Rabbit MQ.
@@ -66,6 +67,10 @@ public class RabbitMqClientFactory implements IMessagingClientFactory {
 	// References to the clients are *weak*, so we never prevent their garbage collection.
 	final Set<RabbitMqClient> clients = Collections.newSetFromMap( new WeakHashMap<RabbitMqClient,Boolean> ());
 
+	// The connections shared by the created clients.
+	// Clients that use the same server and credentials share a same connection.
+	final RabbitMqConnectionPool connectionPool = new RabbitMqConnectionPool();
+
 	// The logger
 	private final Logger logger = Logger.getLogger( this.getClass().getName());
 
@@ -87,6 +92,10 @@ public class RabbitMqClientFactory implements IMessagingClientFactory {
 	 */
 	public void stop() {
 		resetClients(true);
+
+		// Clients should have released their connection.
+		// But we do not want to let any socket open.
+		this.connectionPool.closeAll();
 	}
 
 
@@ -136,7 +145,7 @@ public class RabbitMqClientFactory implements IMessagingClientFactory {
 
 		// The parent cannot be null. A NPE MUST be thrown otherwise.
 		// That's what the RabbitMqClient constructor does. There is unit test for this.
-		final RabbitMqClient client = new RabbitMqClient( parent, this.configuration );
+		final RabbitMqClient client = new RabbitMqClient( parent, this.configuration, parent.getOwnerKind(), this.connectionPool );
 		synchronized( this ) {
 			this.clients.add( client );
 		}
@@ -0,0 +1,154 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.rabbitmq.internal.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.ConnectionFactory;
+
+import net.roboconf.messaging.rabbitmq.RabbitMqConstants;
+import net.roboconf.messaging.rabbitmq.internal.utils.RabbitMqUtils;
+
+/**
+ * A pool of shared RabbitMQ connections.
+ * <p>
+ * Clients whose configuration designates the same server with the same credentials
+ * (and the same SSL settings) share a single connection. A connection is closed when
+ * its last user releases it.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public class RabbitMqConnectionPool {
+
+	private final Logger logger = Logger.getLogger( getClass().getName());
+
+	// Guarded by "this"
+	private final Map<String,RabbitMqSharedConnection> connections = new HashMap<> ();
+
+
+	/**
+	 * Gets a connection for a given configuration, and creates it if necessary.
+	 * <p>
+	 * Every call must be followed by a call to {@link #release(RabbitMqSharedConnection)}.
+	 * </p>
+	 *
+	 * @param configuration the messaging configuration
+	 * @return a shared connection (not null)
+	 * @throws IOException if a new connection could not be established
+	 */
+	public synchronized RabbitMqSharedConnection acquire( Map<String,String> configuration ) throws IOException {
+
+		String key = buildKey( configuration );
+		RabbitMqSharedConnection result = this.connections.get( key );
+		// Connections are auto-recovering: one that is temporarily broken can still be reused.
+		if( result != null && result.acquire()) {
+			this.logger.fine( "A shared connection to RabbitMQ is reused. Users: " + result.getUsersCount());
+
+		} else {
+			ConnectionFactory factory = new ConnectionFactory();
+			RabbitMqUtils.configureFactory( factory, configuration );
+			Connection connection = factory.newConnection();
+
+			boolean publisherConfirms = Boolean.parseBoolean( configuration.get( RabbitMqConstants.RABBITMQ_PUBLISHER_CONFIRMS ));
+			result = new RabbitMqSharedConnection( connection, key, publisherConfirms );
+			result.acquire();
+			this.connections.put( key, result );
+			this.logger.fine( "A new shared connection to RabbitMQ was established." );
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * Releases a connection.
+	 * <p>
+	 * The connection is closed if nobody uses it anymore.
+	 * </p>
+	 *
+	 * @param connection a connection obtained with {@link #acquire(Map)}
+	 */
+	public synchronized void release( RabbitMqSharedConnection connection ) {
+
+		if( connection.release()) {
+			if( this.connections.get( connection.getKey()) == connection )
+				this.connections.remove( connection.getKey());
+
+			this.logger.fine( "A shared connection to RabbitMQ was closed, it was not used anymore." );
+		}
+	}
+
+
+	/**
+	 * Closes all the connections, whether they are used or not.
+	 */
+	public void closeAll() {
+
+		List<RabbitMqSharedConnection> toClose;
+		synchronized( this ) {
+			toClose = new ArrayList<>( this.connections.values());
+			this.connections.clear();
+		}
+
+		for( RabbitMqSharedConnection connection : toClose )
+			connection.close();
+	}
+
+
+	/**
+	 * @return the number of connections in this pool
+	 */
+	public synchronized int getConnectionsCount() {
+		return this.connections.size();
+	}
+
+
+	/**
+	 * Builds the key associated with a configuration.
+	 * <p>
+	 * The codec, the prefetch count and the batch delay are ignored, they have no impact on the connection.
+	 * </p>
+	 *
+	 * @param configuration the messaging configuration
+	 * @return a non-null string
+	 */
+	static String buildKey( Map<String,String> configuration ) {
+
+		Map<String,String> sorted = new TreeMap<>( configuration );
+		sorted.remove( RabbitMqConstants.RABBITMQ_CODEC );
+		sorted.remove( RabbitMqConstants.RABBITMQ_PREFETCH_COUNT );
+		sorted.remove( RabbitMqConstants.RABBITMQ_PUBLISH_BATCH_DELAY );
+		return sorted.toString();
+	}
+}
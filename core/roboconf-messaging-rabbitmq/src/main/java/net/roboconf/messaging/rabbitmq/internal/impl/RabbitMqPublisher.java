@@ -0,0 +1,243 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.rabbitmq.internal.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Channel;
+
+import net.roboconf.core.utils.Utils;
+import net.roboconf.messaging.api.jmx.PublicationConfirms;
+
+/**
+ * Publishes messages through the channels of a shared connection.
+ * <p>
+ * By default, messages are sent immediately. When a batch delay is set, messages
+ * are kept during this time window and then sent together. A publisher always uses the same channel.
+ * Messages are sent in the order they were published, even when they go to different exchanges.
+ * A batch is also sent as soon as it contains {@value #MAX_BATCH_SIZE} messages.
+ * </p>
+ * <p>
+ * When messages are batched, publication errors cannot be reported to the caller.
+ * They are logged instead.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public class RabbitMqPublisher {
+
+	/**
+	 * The maximum number of messages in a batch.
+	 */
+	public static final int MAX_BATCH_SIZE = 500;
+
+	private final Logger logger = Logger.getLogger( getClass().getName());
+	private final RabbitMqSharedConnection connection;
+	private final long batchDelay;
+	private final PublicationConfirms confirms;
+
+	// Batches are sent one after the other, to preserve the order of messages
+	private final Object flushLock = new Object();
+
+	// Guarded by "pendingMessages"
+	private final List<PendingMessage> pendingMessages = new ArrayList<> ();
+	private boolean flushScheduled = false;
+
+	private final Runnable flushTask = new Runnable() {
+		@Override
+		public void run() {
+			flush();
+		}
+	};
+
+
+	/**
+	 * Constructor.
+	 * @param connection the connection to use
+	 * @param batchDelay the time window during which messages are grouped (in milliseconds, 0 to disable batching)
+	 * @param confirms the statistics in which confirmations are recorded (when publisher confirms are enabled)
+	 */
+	public RabbitMqPublisher( RabbitMqSharedConnection connection, long batchDelay, PublicationConfirms confirms ) {
+		this.connection = connection;
+		this.batchDelay = Math.max( 0, batchDelay );
+		this.confirms = confirms;
+	}
+
+
+	/**
+	 * Publishes a message.
+	 * @param exchangeName the exchange name
+	 * @param routingKey the routing key
+	 * @param mandatory true if RabbitMQ must return the message when it cannot be routed
+	 * @param props the message properties (can be null)
+	 * @param content the message's content
+	 * @throws IOException if the message could not be sent (only when there is no batching)
+	 */
+	public void publish( String exchangeName, String routingKey, boolean mandatory, BasicProperties props, byte[] content )
+	throws IOException {
+
+		PendingMessage msg = new PendingMessage( exchangeName, routingKey, mandatory, props, content );
+		if( this.batchDelay == 0 ) {
+			send( Collections.singletonList( msg ));
+			return;
+		}
+
+		ScheduledExecutorService scheduler = this.connection.getScheduler();
+		boolean flushNow = scheduler == null;
+		synchronized( this.pendingMessages ) {
+			this.pendingMessages.add( msg );
+			try {
+				if( scheduler != null && this.pendingMessages.size() == MAX_BATCH_SIZE ) {
+					scheduler.execute( this.flushTask );
+
+				} else if( scheduler != null && ! this.flushScheduled ) {
+					scheduler.schedule( this.flushTask, this.batchDelay, TimeUnit.MILLISECONDS );
+					this.flushScheduled = true;
+				}
+
+			} catch( RejectedExecutionException e ) {
+				// The connection was closed in the meantime
+				flushNow = true;
+			}
+		}
+
+		if( flushNow )
+			flush();
+	}
+
+
+	/**
+	 * Sends all the pending messages.
+	 */
+	public void flush() {
+		synchronized( this.flushLock ) {
+			flushPendingMessages();
+		}
+	}
+
+
+	/**
+	 * @return the number of messages waiting to be sent
+	 */
+	public int getPendingMessagesCount() {
+		synchronized( this.pendingMessages ) {
+			return this.pendingMessages.size();
+		}
+	}
+
+
+	private void flushPendingMessages() {
+
+		List<PendingMessage> messages;
+		synchronized( this.pendingMessages ) {
+			messages = new ArrayList<>( this.pendingMessages );
+			this.pendingMessages.clear();
+			this.flushScheduled = false;
+		}
+
+		if( messages.isEmpty())
+			return;
+
+		// Messages are not reordered, even when they go to different exchanges.
+		// Receivers expect them in the order they were published.
+		try {
+			send( messages );
+			this.logger.finer( "A batch of " + messages.size() + " messages was published." );
+
+		} catch( IOException e ) {
+			this.logger.severe( "A batch of messages could not be published entirely. Batch size: " + messages.size());
+			Utils.logException( this.logger, e );
+		}
+	}
+
+
+	/**
+	 * Sends messages through a single channel.
+	 * @param messages the messages to send
+	 * @throws IOException if a message could not be sent
+	 */
+	private void send( List<PendingMessage> messages ) throws IOException {
+
+		// This publisher always uses the same channel, so that RabbitMQ keeps the order of its messages.
+		// Channels must not be shared among threads for publishing, so we borrow it from the connection.
+		Channel channel = this.connection.borrowPublishingChannel( this );
+		try {
+			RoboconfConfirmListener confirmListener = this.connection.findConfirmListener( channel );
+			for( PendingMessage msg : messages ) {
+				if( confirmListener != null )
+					confirmListener.willPublish( channel.getNextPublishSeqNo(), msg.exchangeName + " / " + msg.routingKey, this.confirms );
+
+				channel.basicPublish(
+						msg.exchangeName,	// The exchange name
+						msg.routingKey, 	// The routing key
+						msg.mandatory, 		// Mandatory => we want it to be delivered
+						false,				// Useless, RabbitMQ does not support it for now.
+						msg.props,			// The publish properties
+						msg.content );
+			}
+
+		} finally {
+			this.connection.releasePublishingChannel( this );
+		}
+	}
+
+
+	/**
+	 * A message to publish.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	private static class PendingMessage {
+		final String exchangeName, routingKey;
+		final boolean mandatory;
+		final BasicProperties props;
+		final byte[] content;
+
+
+		/**
+		 * Constructor.
+		 * @param exchangeName
+		 * @param routingKey
+		 * @param mandatory
+		 * @param props
+		 * @param content
+		 */
+		PendingMessage( String exchangeName, String routingKey, boolean mandatory, BasicProperties props, byte[] content ) {
+			this.exchangeName = exchangeName;
+			this.routingKey = routingKey;
+			this.mandatory = mandatory;
+			this.props = props;
+			this.content = content;
+		}
+	}
+}
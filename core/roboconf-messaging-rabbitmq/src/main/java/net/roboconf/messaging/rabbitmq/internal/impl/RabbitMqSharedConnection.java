@@ -0,0 +1,428 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.rabbitmq.internal.impl;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import com.rabbitmq.client.Recoverable;
+
+import net.roboconf.core.utils.Utils;
+
+/**
+ * A RabbitMQ connection shared by several messaging clients.
+ * <p>
+ * The connection is auto-recovering (see the way the connection factory is configured).
+ * Every client gets its own channel to consume messages. Publishing is done through
+ * a fixed set of channels, so that clients that publish at the same time do not contend
+ * on a single channel. A client always publishes through the same channel: RabbitMQ only
+ * keeps the order of messages that were published on a same channel. RabbitMQ channels
+ * must not be shared among threads for publishing, so a channel is used by one thread at a time.
+ * </p>
+ * <p>
+ * When publisher confirms are enabled, publishing channels are put in confirm mode
+ * and confirmations are tracked asynchronously (see {@link RoboconfConfirmListener}).
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public class RabbitMqSharedConnection {
+
+	/**
+	 * The number of channels used to publish messages.
+	 */
+	public static final int PUBLISHING_CHANNELS = 8;
+
+	/**
+	 * The maximum time to wait for pending confirmations before closing a publishing channel (in milliseconds).
+	 */
+	public static final long CONFIRMS_TIMEOUT = 5000;
+
+	private final Logger logger = Logger.getLogger( getClass().getName());
+	private final Connection connection;
+	private final String key;
+	private final boolean publisherConfirms;
+	private final Map<Channel,RoboconfConfirmListener> confirmListeners = new ConcurrentHashMap<> ();
+	private final PublishingSlot[] publishingSlots = new PublishingSlot[ PUBLISHING_CHANNELS ];
+
+	// Guarded by "this"
+	private ScheduledExecutorService scheduler;
+	private int users = 0;
+	private boolean closed = false;
+
+
+	/**
+	 * Constructor.
+	 * @param connection the RabbitMQ connection
+	 * @param key the key associated with this connection in the pool
+	 */
+	RabbitMqSharedConnection( Connection connection, String key ) {
+		this( connection, key, false );
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param connection the RabbitMQ connection
+	 * @param key the key associated with this connection in the pool
+	 * @param publisherConfirms true to put publishing channels in confirm mode
+	 */
+	RabbitMqSharedConnection( Connection connection, String key, boolean publisherConfirms ) {
+		this.connection = connection;
+		this.key = key;
+		this.publisherConfirms = publisherConfirms;
+		for( int i = 0; i < this.publishingSlots.length; i ++ )
+			this.publishingSlots[ i ] = new PublishingSlot();
+	}
+
+
+	/**
+	 * Creates a channel to consume messages.
+	 * <p>
+	 * This channel belongs to the caller, which is in charge of closing it.
+	 * </p>
+	 *
+	 * @return a new channel
+	 * @throws IOException if the channel could not be created
+	 */
+	public Channel createConsumingChannel() throws IOException {
+		return createChannel();
+	}
+
+
+	/**
+	 * Gets the channel through which a client publishes messages.
+	 * <p>
+	 * A client always gets the same channel, unless it was closed in the meantime.
+	 * The channel is reserved for the calling thread until {@link #releasePublishingChannel(Object)}
+	 * is invoked. Clients may share a channel, but they never publish on it at the same time.
+	 * </p>
+	 *
+	 * @param client the client that publishes messages
+	 * @return a channel (not null)
+	 * @throws IOException if a new channel had to be created and the creation failed
+	 */
+	public Channel borrowPublishingChannel( Object client ) throws IOException {
+
+		PublishingSlot slot = findPublishingSlot( client );
+		slot.lock.lock();
+		boolean borrowed = false;
+		try {
+			if( slot.channel == null || ! slot.channel.isOpen()) {
+				if( slot.channel != null )
+					this.confirmListeners.remove( slot.channel );
+
+				slot.channel = createPublishingChannel();
+			}
+
+			borrowed = true;
+			return slot.channel;
+
+		} finally {
+			if( ! borrowed )
+				slot.lock.unlock();
+		}
+	}
+
+
+	/**
+	 * Gives back the channel of a client, once it has published messages.
+	 * @param client the client that invoked {@link #borrowPublishingChannel(Object)}
+	 */
+	public void releasePublishingChannel( Object client ) {
+		findPublishingSlot( client ).lock.unlock();
+	}
+
+
+	/**
+	 * Finds the listener that tracks the confirmations of a publishing channel.
+	 * @param channel a channel obtained with {@link #borrowPublishingChannel(Object)}
+	 * @return a listener, or null if publisher confirms are not enabled
+	 */
+	public RoboconfConfirmListener findConfirmListener( Channel channel ) {
+		return this.confirmListeners.get( channel );
+	}
+
+
+	/**
+	 * @return true if publishing channels are in confirm mode
+	 */
+	public boolean isPublisherConfirms() {
+		return this.publisherConfirms;
+	}
+
+
+	/**
+	 * Gets the scheduler shared by the users of this connection.
+	 * <p>
+	 * It is created on the first call. It uses a single daemon thread and
+	 * it is shut down when the connection is closed.
+	 * </p>
+	 *
+	 * @return a scheduler, or null if the connection was closed
+	 */
+	public synchronized ScheduledExecutorService getScheduler() {
+
+		if( this.scheduler == null && ! this.closed ) {
+			this.scheduler = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+				@Override
+				public Thread newThread( Runnable r ) {
+					Thread thread = new Thread( r, "Roboconf - RabbitMQ publisher" );
+					thread.setDaemon( true );
+					return thread;
+				}
+			});
+		}
+
+		return this.scheduler;
+	}
+
+
+	/**
+	 * @return the RabbitMQ connection
+	 */
+	public Connection getConnection() {
+		return this.connection;
+	}
+
+
+	/**
+	 * @return true if the underlying connection is open, false otherwise
+	 */
+	public boolean isOpen() {
+		return this.connection.isOpen();
+	}
+
+
+	/**
+	 * @return the number of clients that use this connection
+	 */
+	public synchronized int getUsersCount() {
+		return this.users;
+	}
+
+
+	/**
+	 * @return the number of open publishing channels
+	 */
+	public int getPublishingChannelsCount() {
+
+		int result = 0;
+		for( PublishingSlot slot : this.publishingSlots ) {
+			slot.lock.lock();
+			try {
+				if( slot.channel != null && slot.channel.isOpen())
+					result ++;
+
+			} finally {
+				slot.lock.unlock();
+			}
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * @return the key associated with this connection in the pool
+	 */
+	String getKey() {
+		return this.key;
+	}
+
+
+	/**
+	 * Registers a new user.
+	 * @return true if the connection can be used, false if it was closed
+	 */
+	synchronized boolean acquire() {
+
+		if( ! this.closed )
+			this.users ++;
+
+		return ! this.closed;
+	}
+
+
+	/**
+	 * Unregisters a user.
+	 * @return true if there is no user anymore and the connection was closed
+	 */
+	boolean release() {
+
+		synchronized( this ) {
+			this.users = Math.max( 0, this.users - 1 );
+			if( this.users > 0 || this.closed )
+				return false;
+
+			this.closed = true;
+		}
+
+		close();
+		return true;
+	}
+
+
+	/**
+	 * Closes the publishing channels and the connection.
+	 */
+	void close() {
+
+		ScheduledExecutorService toShutdown;
+		synchronized( this ) {
+			this.closed = true;
+			toShutdown = this.scheduler;
+			this.scheduler = null;
+		}
+
+		if( toShutdown != null )
+			toShutdown.shutdownNow();
+
+		// Wait for the messages being published
+		for( PublishingSlot slot : this.publishingSlots ) {
+			slot.lock.lock();
+			try {
+				if( slot.channel != null )
+					closeQuietly( slot.channel );
+
+				slot.channel = null;
+
+			} finally {
+				slot.lock.unlock();
+			}
+		}
+
+		try {
+			if( this.connection.isOpen())
+				this.connection.close();
+
+		} catch( Exception e ) {
+			this.logger.warning( "A RabbitMQ connection could not be closed properly. " + e.getMessage());
+			Utils.logException( this.logger, e );
+		}
+	}
+
+
+	/**
+	 * Finds the publishing slot of a client.
+	 * @param client a client
+	 * @return a non-null slot
+	 */
+	private PublishingSlot findPublishingSlot( Object client ) {
+		int hash = System.identityHashCode( client );
+		return this.publishingSlots[(hash & Integer.MAX_VALUE) % this.publishingSlots.length ];
+	}
+
+
+	/**
+	 * Creates a channel to publish messages.
+	 * @return a new channel
+	 * @throws IOException if the channel could not be created
+	 */
+	private Channel createPublishingChannel() throws IOException {
+
+		Channel result = createChannel();
+
+		// Be notified when a message does not arrive in a queue (i.e. nobody is listening)
+		result.addReturnListener( new RoboconfReturnListener());
+
+		// Be notified when a message was (or was not) handled by RabbitMQ
+		if( this.publisherConfirms ) {
+			RoboconfConfirmListener confirmListener = new RoboconfConfirmListener();
+			result.confirmSelect();
+			result.addConfirmListener( confirmListener );
+			result.addShutdownListener( confirmListener );
+			this.confirmListeners.put( result, confirmListener );
+		}
+
+		this.logger.finer( "A new publishing channel was created. Channel # " + result.getChannelNumber());
+		return result;
+	}
+
+
+	private Channel createChannel() throws IOException {
+
+		Channel channel = this.connection.createChannel();
+
+		// Add a recoverable listener (when broken connections are recovered).
+		// Given the way the RabbitMQ factory is configured, the channel should be "recoverable".
+		if( channel instanceof Recoverable )
+			((Recoverable) channel).addRecoveryListener( new RoboconfRecoveryListener());
+
+		return channel;
+	}
+
+
+	private void closeQuietly( Channel channel ) {
+
+		// Messages that are not confirmed when the channel is closed are reported as failures.
+		// So, we wait for their confirmation first.
+		RoboconfConfirmListener confirmListener = this.confirmListeners.remove( channel );
+		if( confirmListener != null
+				&& confirmListener.getUnconfirmedCount() > 0
+				&& channel.isOpen()) {
+
+			try {
+				channel.waitForConfirms( CONFIRMS_TIMEOUT );
+
+			} catch( TimeoutException e ) {
+				this.logger.warning( "Confirmations were still expected when a publishing channel was closed. Channel # " + channel.getChannelNumber());
+
+			} catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		try {
+			if( channel.isOpen())
+				channel.close();
+
+		} catch( Exception e ) {
+			this.logger.finest( "A RabbitMQ channel could not be closed properly. " + e.getMessage());
+		}
+	}
+
+
+	/**
+	 * A publishing channel and the lock that reserves it for a thread.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	private static final class PublishingSlot {
+		final ReentrantLock lock = new ReentrantLock();
+
+		// Guarded by "lock"
+		Channel channel;
+	}
+}
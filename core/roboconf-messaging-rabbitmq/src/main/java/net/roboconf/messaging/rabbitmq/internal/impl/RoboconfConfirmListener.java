@@ -0,0 +1,147 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.rabbitmq.internal.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.logging.Logger;
+
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.ShutdownListener;
+import com.rabbitmq.client.ShutdownSignalException;
+
+import net.roboconf.messaging.api.jmx.PublicationConfirms;
+
+/**
+ * A listener that tracks publisher confirms for a channel.
+ * <p>
+ * Before a message is published, its sequence number must be registered
+ * with {@link #willPublish(long, String, PublicationConfirms)}. Confirmations are then received
+ * asynchronously. Messages that are rejected by RabbitMQ, or that are still
+ * unconfirmed when the channel is shut down, are logged. Confirmations and failures
+ * are recorded in the statistics of the client that published the message.
+ * </p>
+ *
+ * @author Vincent Zurczak - Linagora
+ */
+public class RoboconfConfirmListener implements ConfirmListener, ShutdownListener {
+
+	private final Logger logger = Logger.getLogger( getClass().getName());
+	private final ConcurrentNavigableMap<Long,PendingConfirm> unconfirmed = new ConcurrentSkipListMap<> ();
+
+
+	/**
+	 * Registers a message that is about to be published.
+	 * @param sequenceNumber the sequence number of the message (see {@link com.rabbitmq.client.Channel#getNextPublishSeqNo()})
+	 * @param description a description of the message (for logging)
+	 * @param confirms the statistics of the client that publishes the message
+	 */
+	public void willPublish( long sequenceNumber, String description, PublicationConfirms confirms ) {
+		confirms.published();
+		this.unconfirmed.put( sequenceNumber, new PendingConfirm( description, confirms ));
+	}
+
+
+	@Override
+	public void handleAck( long deliveryTag, boolean multiple ) {
+		for( PendingConfirm pending : remove( deliveryTag, multiple ))
+			pending.confirms.confirmed();
+	}
+
+
+	@Override
+	public void handleNack( long deliveryTag, boolean multiple ) {
+
+		for( PendingConfirm pending : remove( deliveryTag, multiple )) {
+			pending.confirms.rejected();
+			this.logger.warning( "RabbitMQ could not handle a published message: " + pending.description );
+		}
+	}
+
+
+	@Override
+	public void shutdownCompleted( ShutdownSignalException cause ) {
+
+		// Confirmations will not arrive anymore for this channel
+		for( PendingConfirm pending : remove( Long.MAX_VALUE, true )) {
+			pending.confirms.rejected();
+			this.logger.warning( "A published message was not confirmed before the channel was shut down: " + pending.description );
+		}
+	}
+
+
+	/**
+	 * @return the number of messages that were published but not confirmed yet
+	 */
+	public int getUnconfirmedCount() {
+		return this.unconfirmed.size();
+	}
+
+
+	private List<PendingConfirm> remove( long deliveryTag, boolean multiple ) {
+
+		List<PendingConfirm> result = new ArrayList<> ();
+		if( multiple ) {
+			Map<Long,PendingConfirm> head = this.unconfirmed.headMap( deliveryTag, true );
+			for( Long key : new ArrayList<>( head.keySet())) {
+				PendingConfirm pending = this.unconfirmed.remove( key );
+				if( pending != null )
+					result.add( pending );
+			}
+
+		} else {
+			PendingConfirm pending = this.unconfirmed.remove( deliveryTag );
+			if( pending != null )
+				result.add( pending );
+		}
+
+		return result;
+	}
+
+
+	/**
+	 * A message whose confirmation is expected.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	private static class PendingConfirm {
+		final String description;
+		final PublicationConfirms confirms;
+
+
+		/**
+		 * Constructor.
+		 * @param description
+		 * @param confirms
+		 */
+		PendingConfirm( String description, PublicationConfirms confirms ) {
+			this.description = description;
+			this.confirms = confirms;
+		}
+	}
+}
@@ -26,6 +26,11 @@
 package net.roboconf.messaging.rabbitmq.internal.impl;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
 import java.util.logging.Logger;
 
 import com.rabbitmq.client.AMQP.BasicProperties;
@@ -49,6 +54,12 @@ public class RoboconfConsumer extends DefaultConsumer implements Consumer {
 	private final Logger logger = Logger.getLogger( getClass().getName());
 	private final RoboconfMessageQueue messageQueue;
 	private final String sourceName;
+	private final boolean manualAck;
+
+	// Messages that were not acknowledged yet (only when acknowledgements are manual).
+	// Messages are compared by identity, not with equals().
+	private final Set<Message> pendingMessages = Collections.synchronizedSet(
+			Collections.newSetFromMap( new IdentityHashMap<Message,Boolean> ()));
 
 
 	/**
@@ -58,9 +69,22 @@ public class RoboconfConsumer extends DefaultConsumer implements Consumer {
 	 * @param messageQueue
 	 */
 	public RoboconfConsumer( String sourceName, Channel channel, RoboconfMessageQueue messageQueue ) {
+		this( sourceName, channel, messageQueue, false );
+	}
+
+
+	/**
+	 * Constructor.
+	 * @param channel
+	 * @param sourceName
+	 * @param messageQueue
+	 * @param manualAck true to acknowledge messages only once they have been processed
+	 */
+	public RoboconfConsumer( String sourceName, Channel channel, RoboconfMessageQueue messageQueue, boolean manualAck ) {
 		super( channel );
 		this.messageQueue = messageQueue;
 		this.sourceName = sourceName;
+		this.manualAck = manualAck;
 	}
 
 
@@ -73,12 +97,22 @@ public class RoboconfConsumer extends DefaultConsumer implements Consumer {
 			this.logger.finer( this.sourceName + " received a message " + message.getClass().getSimpleName()
 					+ " on routing key '" + envelope.getRoutingKey() + "'.");
 
-			this.messageQueue.add( message );
+			if( this.manualAck ) {
+				this.pendingMessages.add( message );
+				this.messageQueue.add( message, new AckCallback( message, envelope.getDeliveryTag()));
+
+			} else {
+				this.messageQueue.add( message );
+			}
 
 		} catch( ClassNotFoundException | IOException e ) {
 			this.logger.severe( this.sourceName + ": a message could not be deserialized. => " + e.getClass().getSimpleName());
 			Utils.logException( this.logger, e );
 			this.messageQueue.errorWhileReceivingMessage();
+
+			// This message will never be processed, do not let RabbitMQ deliver it again
+			if( this.manualAck )
+				getChannel().basicReject( envelope.getDeliveryTag(), false );
 		}
 	}
 
@@ -86,6 +120,17 @@ public class RoboconfConsumer extends DefaultConsumer implements Consumer {
 	@Override
 	public void handleShutdownSignal( String consumerTag, ShutdownSignalException sig ) {
 
+		// Messages that were not acknowledged will be delivered again by RabbitMQ.
+		// Their delivery tags are not valid anymore.
+		List<Message> messages;
+		synchronized( this.pendingMessages ) {
+			messages = new ArrayList<>( this.pendingMessages );
+			this.pendingMessages.clear();
+		}
+
+		for( Message message : messages )
+			this.messageQueue.discardProcessingCallback( message );
+
 		if( sig.isInitiatedByApplication()) {
 			this.logger.fine( this.sourceName + ": the connection to the messaging server was shut down." + id( consumerTag ));
 
@@ -111,6 +156,14 @@ public class RoboconfConsumer extends DefaultConsumer implements Consumer {
 	}
 
 
+	/**
+	 * @return the number of messages that were received but not acknowledged yet
+	 */
+	public int getPendingMessagesCount() {
+		return this.pendingMessages.size();
+	}
+
+
 	/**
 	 * @param consumerTag a consumer tag
 	 * @return a readable ID of this consumer
@@ -126,4 +179,39 @@ public class RoboconfConsumer extends DefaultConsumer implements Consumer {
 
 		return sb.toString();
 	}
+
+
+	/**
+	 * Acknowledges a message once it has been processed.
+	 * @author Vincent Zurczak - Linagora
+	 */
+	private class AckCallback implements Runnable {
+		private final Message message;
+		private final long deliveryTag;
+
+
+		/**
+		 * Constructor.
+		 * @param message the message to acknowledge
+		 * @param deliveryTag the delivery tag
+		 */
+		AckCallback( Message message, long deliveryTag ) {
+			this.message = message;
+			this.deliveryTag = deliveryTag;
+		}
+
+
+		@Override
+		public void run() {
+
+			RoboconfConsumer.this.pendingMessages.remove( this.message );
+			try {
+				getChannel().basicAck( this.deliveryTag, false );
+
+			} catch( IOException | RuntimeException e ) {
+				// The channel may have been closed in the meantime. The message will be delivered again.
+				RoboconfConsumer.this.logger.fine( RoboconfConsumer.this.sourceName + ": a message could not be acknowledged. " + e.getMessage());
+			}
+		}
+	}
 }
@@ -154,23 +154,6 @@ public final class RabbitMqUtils {
 	}
 
 
-	/**
-	 * Closes the connection to a channel.
-	 * @param channel the channel to close (can be null)
-	 * @throws IOException if something went wrong
-	 */
-	public static void closeConnection( Channel channel ) throws IOException {
-
-		if( channel != null ) {
-			if( channel.isOpen())
-				channel.close();
-
-			if( channel.getConnection().isOpen())
-				channel.getConnection().close();
-		}
-	}
-
-
 	/**
 	 * Declares the required exchanges for an application (only for agents).
 	 * @param domain the domain name
@@ -26,6 +26,7 @@
 package net.roboconf.messaging.rabbitmq.internal;
 
 import static net.roboconf.messaging.rabbitmq.RabbitMqConstants.FACTORY_RABBITMQ;
+import static net.roboconf.messaging.rabbitmq.RabbitMqConstants.RABBITMQ_PUBLISHER_CONFIRMS;
 import static net.roboconf.messaging.rabbitmq.RabbitMqConstants.RABBITMQ_SERVER_IP;
 import static net.roboconf.messaging.rabbitmq.RabbitMqConstants.RABBITMQ_SERVER_PASSWORD;
 import static net.roboconf.messaging.rabbitmq.RabbitMqConstants.RABBITMQ_SERVER_USERNAME;
@@ -134,6 +135,22 @@ public class RabbitMqClientTest {
 	}
 
 
+	@Test
+	public void testGetPublicationConfirms() throws Exception {
+
+		Map<String,String> configuration = new HashMap<> ();
+		configuration.put( RABBITMQ_SERVER_IP, "localhost" );
+
+		RabbitMqClient client = new RabbitMqClient( null, configuration, RecipientKind.DM );
+		Assert.assertNull( client.getPublicationConfirms());
+
+		configuration.put( RABBITMQ_PUBLISHER_CONFIRMS, "true" );
+		client = new RabbitMqClient( null, configuration, RecipientKind.DM );
+		Assert.assertNotNull( client.getPublicationConfirms());
+		Assert.assertSame( client.getPublicationConfirms(), client.getPublicationConfirms());
+	}
+
+
 	@Test
 	public void testFilteringOfSslProperties() throws Exception {
 
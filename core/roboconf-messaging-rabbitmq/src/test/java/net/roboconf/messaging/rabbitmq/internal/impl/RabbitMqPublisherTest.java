@@ -0,0 +1,190 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.rabbitmq.internal.impl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import com.rabbitmq.client.AMQP.BasicProperties;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.ConfirmListener;
+import com.rabbitmq.client.Connection;
+
+import net.roboconf.messaging.api.jmx.PublicationConfirms;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class RabbitMqPublisherTest {
+
+	@Test
+	public void testPublish_noBatch() throws Exception {
+
+		Channel channel = Mockito.mock( Channel.class );
+		RabbitMqSharedConnection connection = newConnection( channel, false );
+		RabbitMqPublisher publisher = new RabbitMqPublisher( connection, 0, new PublicationConfirms());
+
+		byte[] content = new byte[ 1 ];
+		publisher.publish( "ex", "key", true, null, content );
+		Mockito.verify( channel, Mockito.times( 1 )).basicPublish( "ex", "key", true, false, null, content );
+		Assert.assertEquals( 0, publisher.getPendingMessagesCount());
+		Assert.assertEquals( 1, connection.getPublishingChannelsCount());
+	}
+
+
+	@Test
+	public void testPublish_noBatch_concurrentThreadsUseTheSameChannel() throws Exception {
+
+		Channel channel = Mockito.mock( Channel.class );
+		RabbitMqSharedConnection connection = newConnection( channel, false );
+		final RabbitMqPublisher publisher = new RabbitMqPublisher( connection, 0, new PublicationConfirms());
+
+		List<Thread> threads = new ArrayList<> ();
+		for( int i = 0; i < 4; i ++ ) {
+			threads.add( new Thread() {
+				@Override
+				public void run() {
+					try {
+						for( int j = 0; j < 50; j ++ )
+							publisher.publish( "ex", "key", false, null, new byte[ 0 ]);
+
+					} catch( IOException e ) {
+						// nothing
+					}
+				}
+			});
+		}
+
+		for( Thread thread : threads )
+			thread.start();
+
+		for( Thread thread : threads )
+			thread.join( 5000 );
+
+		// RabbitMQ only keeps the order of messages published on a same channel
+		Mockito.verify( connection.getConnection(), Mockito.times( 1 )).createChannel();
+		Mockito.verify( channel, Mockito.times( 200 )).basicPublish(
+				Mockito.eq( "ex" ), Mockito.eq( "key" ), Mockito.eq( false ), Mockito.eq( false ),
+				Mockito.any( BasicProperties.class ), Mockito.any( byte[].class ));
+	}
+
+
+	@Test
+	public void testPublish_withBatches() throws Exception {
+
+		Channel channel = Mockito.mock( Channel.class );
+		RabbitMqSharedConnection connection = newConnection( channel, false );
+		RabbitMqPublisher publisher = new RabbitMqPublisher( connection, 60000, new PublicationConfirms());
+
+		byte[] content1 = new byte[ 1 ], content2 = new byte[ 2 ], content3 = new byte[ 3 ];
+		publisher.publish( "ex1", "key1", false, null, content1 );
+		publisher.publish( "ex2", "key2", false, null, content2 );
+		publisher.publish( "ex1", "key3", false, null, content3 );
+
+		Assert.assertEquals( 3, publisher.getPendingMessagesCount());
+		Mockito.verify( channel, Mockito.never()).basicPublish(
+				Mockito.anyString(), Mockito.anyString(), Mockito.anyBoolean(), Mockito.anyBoolean(),
+				Mockito.any( BasicProperties.class ), Mockito.any( byte[].class ));
+
+		// Messages are sent in order, through a single channel
+		publisher.flush();
+		Assert.assertEquals( 0, publisher.getPendingMessagesCount());
+
+		InOrder inOrder = Mockito.inOrder( channel );
+		inOrder.verify( channel ).basicPublish( "ex1", "key1", false, false, null, content1 );
+		inOrder.verify( channel ).basicPublish( "ex2", "key2", false, false, null, content2 );
+		inOrder.verify( channel ).basicPublish( "ex1", "key3", false, false, null, content3 );
+		Mockito.verify( connection.getConnection(), Mockito.times( 1 )).createChannel();
+	}
+
+
+	@Test
+	public void testPublish_withBatches_maxSize() throws Exception {
+
+		Channel channel = Mockito.mock( Channel.class );
+		RabbitMqSharedConnection connection = newConnection( channel, false );
+		RabbitMqPublisher publisher = new RabbitMqPublisher( connection, 60000, new PublicationConfirms());
+
+		for( int i = 0; i < RabbitMqPublisher.MAX_BATCH_SIZE; i ++ )
+			publisher.publish( "ex", "key", false, null, new byte[ 0 ]);
+
+		// The batch is full, it is sent without waiting for the end of the time window
+		for( int i = 0; i < 20 && publisher.getPendingMessagesCount() > 0; i ++ )
+			Thread.sleep( 100 );
+
+		Assert.assertEquals( 0, publisher.getPendingMessagesCount());
+		Mockito.verify( channel, Mockito.times( RabbitMqPublisher.MAX_BATCH_SIZE )).basicPublish(
+				Mockito.eq( "ex" ), Mockito.eq( "key" ), Mockito.eq( false ), Mockito.eq( false ),
+				Mockito.any( BasicProperties.class ), Mockito.any( byte[].class ));
+
+		connection.close();
+	}
+
+
+	@Test
+	public void testPublish_withConfirms() throws Exception {
+
+		Channel channel = Mockito.mock( Channel.class );
+		Mockito.when( channel.getNextPublishSeqNo()).thenReturn( 1L, 2L );
+		RabbitMqSharedConnection connection = newConnection( channel, true );
+		PublicationConfirms confirms = new PublicationConfirms();
+		RabbitMqPublisher publisher = new RabbitMqPublisher( connection, 0, confirms );
+
+		publisher.publish( "ex", "key", false, null, new byte[ 0 ]);
+		publisher.publish( "ex", "key", false, null, new byte[ 0 ]);
+		Mockito.verify( channel, Mockito.times( 1 )).confirmSelect();
+		Mockito.verify( channel, Mockito.times( 1 )).addConfirmListener( Mockito.any( ConfirmListener.class ));
+
+		RoboconfConfirmListener listener = connection.findConfirmListener( channel );
+		Assert.assertNotNull( listener );
+		Assert.assertEquals( 2, listener.getUnconfirmedCount());
+		Assert.assertEquals( 2, confirms.getPendingCount());
+
+		// Confirmations are recorded in the publisher's statistics
+		listener.handleAck( 1, false );
+		listener.handleNack( 2, false );
+		Assert.assertEquals( 0, listener.getUnconfirmedCount());
+		Assert.assertEquals( 0, confirms.getPendingCount());
+		Assert.assertEquals( 1, confirms.getConfirmedCount());
+		Assert.assertEquals( 1, confirms.getRejectedCount());
+	}
+
+
+	private RabbitMqSharedConnection newConnection( Channel channel, boolean publisherConfirms ) throws Exception {
+
+		Connection connection = Mockito.mock( Connection.class );
+		Mockito.when( connection.createChannel()).thenReturn( channel );
+		Mockito.when( channel.isOpen()).thenReturn( true );
+
+		return new RabbitMqSharedConnection( connection, "key", publisherConfirms );
+	}
+}
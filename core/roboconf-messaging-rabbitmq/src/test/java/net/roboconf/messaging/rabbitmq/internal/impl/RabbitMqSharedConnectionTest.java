@@ -0,0 +1,203 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.rabbitmq.internal.impl;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+
+import net.roboconf.messaging.api.jmx.PublicationConfirms;
+import net.roboconf.messaging.rabbitmq.RabbitMqConstants;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class RabbitMqSharedConnectionTest {
+
+	@Test
+	public void testClientsAlwaysPublishThroughTheSameChannel() throws Exception {
+
+		Connection connection = Mockito.mock( Connection.class );
+		Channel channel1 = Mockito.mock( Channel.class );
+		Channel channel2 = Mockito.mock( Channel.class );
+		Mockito.when( connection.createChannel()).thenReturn( channel1, channel2 );
+		Mockito.when( channel1.isOpen()).thenReturn( true );
+		Mockito.when( channel2.isOpen()).thenReturn( true );
+
+		RabbitMqSharedConnection shared = new RabbitMqSharedConnection( connection, "key" );
+		Assert.assertEquals( 0, shared.getPublishingChannelsCount());
+
+		Object client = new Object();
+		Assert.assertSame( channel1, shared.borrowPublishingChannel( client ));
+		shared.releasePublishingChannel( client );
+		Assert.assertSame( channel1, shared.borrowPublishingChannel( client ));
+		shared.releasePublishingChannel( client );
+		Assert.assertEquals( 1, shared.getPublishingChannelsCount());
+		Mockito.verify( connection, Mockito.times( 1 )).createChannel();
+
+		// Closed channels are replaced
+		Mockito.when( channel1.isOpen()).thenReturn( false );
+		Assert.assertSame( channel2, shared.borrowPublishingChannel( client ));
+		shared.releasePublishingChannel( client );
+		Assert.assertEquals( 1, shared.getPublishingChannelsCount());
+		Mockito.verify( connection, Mockito.times( 2 )).createChannel();
+	}
+
+
+	@Test
+	public void testPublishingChannelsAreUsedByOneThreadAtATime() throws Exception {
+
+		Connection connection = Mockito.mock( Connection.class );
+		Channel channel = Mockito.mock( Channel.class );
+		Mockito.when( connection.createChannel()).thenReturn( channel );
+		Mockito.when( channel.isOpen()).thenReturn( true );
+
+		final RabbitMqSharedConnection shared = new RabbitMqSharedConnection( connection, "key" );
+		final Object client = new Object();
+		final AtomicBoolean borrowed = new AtomicBoolean( false );
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					shared.borrowPublishingChannel( client );
+					borrowed.set( true );
+					shared.releasePublishingChannel( client );
+
+				} catch( IOException e ) {
+					// nothing
+				}
+			}
+		};
+
+		// The other thread waits until the channel is released
+		shared.borrowPublishingChannel( client );
+		thread.start();
+		Thread.sleep( 100 );
+		Assert.assertFalse( borrowed.get());
+
+		shared.releasePublishingChannel( client );
+		thread.join( 1000 );
+		Assert.assertTrue( borrowed.get());
+	}
+
+
+	@Test
+	public void testUsersAndClosing() throws Exception {
+
+		Connection connection = Mockito.mock( Connection.class );
+		Channel channel = Mockito.mock( Channel.class );
+		Mockito.when( connection.createChannel()).thenReturn( channel );
+		Mockito.when( connection.isOpen()).thenReturn( true );
+		Mockito.when( channel.isOpen()).thenReturn( true );
+
+		RabbitMqSharedConnection shared = new RabbitMqSharedConnection( connection, "key" );
+		Assert.assertTrue( shared.acquire());
+		Assert.assertTrue( shared.acquire());
+		Assert.assertEquals( 2, shared.getUsersCount());
+
+		Object client = new Object();
+		shared.borrowPublishingChannel( client );
+		shared.releasePublishingChannel( client );
+		Assert.assertEquals( 1, shared.getPublishingChannelsCount());
+
+		Assert.assertFalse( shared.release());
+		Mockito.verify( connection, Mockito.never()).close();
+
+		Assert.assertTrue( shared.release());
+		Mockito.verify( connection, Mockito.times( 1 )).close();
+		Mockito.verify( channel, Mockito.times( 1 )).close();
+		Assert.assertEquals( 0, shared.getPublishingChannelsCount());
+
+		// A closed connection cannot be acquired anymore
+		Assert.assertFalse( shared.acquire());
+		Assert.assertEquals( 0, shared.getUsersCount());
+	}
+
+
+	@Test
+	public void testClosingWaitsForConfirms() throws Exception {
+
+		Connection connection = Mockito.mock( Connection.class );
+		Channel channel = Mockito.mock( Channel.class );
+		Mockito.when( connection.createChannel()).thenReturn( channel );
+		Mockito.when( channel.isOpen()).thenReturn( true );
+
+		RabbitMqSharedConnection shared = new RabbitMqSharedConnection( connection, "key", true );
+		Object client = new Object();
+		Channel borrowed = shared.borrowPublishingChannel( client );
+		RoboconfConfirmListener confirmListener = shared.findConfirmListener( borrowed );
+		confirmListener.willPublish( 1, "ex / key", new PublicationConfirms());
+		shared.releasePublishingChannel( client );
+
+		// Pending confirmations are waited for before the channel is closed
+		shared.close();
+		InOrder inOrder = Mockito.inOrder( channel );
+		inOrder.verify( channel ).waitForConfirms( RabbitMqSharedConnection.CONFIRMS_TIMEOUT );
+		inOrder.verify( channel ).close();
+
+		// Without pending confirmations, there is no need to wait
+		Mockito.reset( channel );
+		Mockito.when( channel.isOpen()).thenReturn( true );
+		shared = new RabbitMqSharedConnection( connection, "key", true );
+		shared.borrowPublishingChannel( client );
+		shared.releasePublishingChannel( client );
+		shared.close();
+		Mockito.verify( channel, Mockito.never()).waitForConfirms( Mockito.anyLong());
+		Mockito.verify( channel, Mockito.times( 1 )).close();
+	}
+
+
+	@Test
+	public void testBuildKey() {
+
+		Map<String,String> configuration1 = new HashMap<> ();
+		configuration1.put( RabbitMqConstants.RABBITMQ_SERVER_IP, "localhost" );
+		configuration1.put( RabbitMqConstants.RABBITMQ_SERVER_USERNAME, "guest" );
+		configuration1.put( RabbitMqConstants.RABBITMQ_CODEC, "java" );
+
+		Map<String,String> configuration2 = new HashMap<> ();
+		configuration2.put( RabbitMqConstants.RABBITMQ_SERVER_USERNAME, "guest" );
+		configuration2.put( RabbitMqConstants.RABBITMQ_SERVER_IP, "localhost" );
+
+		Assert.assertEquals(
+				RabbitMqConnectionPool.buildKey( configuration1 ),
+				RabbitMqConnectionPool.buildKey( configuration2 ));
+
+		configuration2.put( RabbitMqConstants.RABBITMQ_SERVER_USERNAME, "admin" );
+		Assert.assertNotEquals(
+				RabbitMqConnectionPool.buildKey( configuration1 ),
+				RabbitMqConnectionPool.buildKey( configuration2 ));
+	}
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2017 Linagora, Université Joseph Fourier, Floralis
+ *
+ * The present code is developed in the scope of the joint LINAGORA -
+ * Université Joseph Fourier - Floralis research program and is designated
+ * as a "Result" pursuant to the terms and conditions of the LINAGORA
+ * - Université Joseph Fourier - Floralis research program. Each copyright
+ * holder of Results enumerated here above fully & independently holds complete
+ * ownership of the complete Intellectual Property rights applicable to the whole
+ * of said Results, and may freely exploit it in any manner which does not infringe
+ * the moral rights of the other copyright holders.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.roboconf.messaging.rabbitmq.internal.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.rabbitmq.client.ShutdownSignalException;
+
+import net.roboconf.messaging.api.jmx.PublicationConfirms;
+
+/**
+ * @author Vincent Zurczak - Linagora
+ */
+public class RoboconfConfirmListenerTest {
+
+	@Test
+	public void testConfirmations() {
+
+		PublicationConfirms confirms = new PublicationConfirms();
+		RoboconfConfirmListener listener = new RoboconfConfirmListener();
+		for( long i = 1; i <= 6; i ++ )
+			listener.willPublish( i, "msg " + i, confirms );
+
+		Assert.assertEquals( 6, listener.getUnconfirmedCount());
+		Assert.assertEquals( 6, confirms.getPendingCount());
+
+		// Single ack
+		listener.handleAck( 2, false );
+		Assert.assertEquals( 5, listener.getUnconfirmedCount());
+		Assert.assertEquals( 1, confirms.getConfirmedCount());
+
+		// Multiple ack
+		listener.handleAck( 3, true );
+		Assert.assertEquals( 3, listener.getUnconfirmedCount());
+		Assert.assertEquals( 3, confirms.getConfirmedCount());
+		Assert.assertEquals( 0, confirms.getRejectedCount());
+
+		// Nack
+		listener.handleNack( 4, false );
+		Assert.assertEquals( 2, listener.getUnconfirmedCount());
+		Assert.assertEquals( 3, confirms.getConfirmedCount());
+		Assert.assertEquals( 1, confirms.getRejectedCount());
+
+		// Unknown tags are ignored
+		listener.handleAck( 4, false );
+		Assert.assertEquals( 3, confirms.getConfirmedCount());
+
+		// Shutdown
+		listener.shutdownCompleted( Mockito.mock( ShutdownSignalException.class ));
+		Assert.assertEquals( 0, listener.getUnconfirmedCount());
+		Assert.assertEquals( 0, confirms.getPendingCount());
+		Assert.assertEquals( 3, confirms.getConfirmedCount());
+		Assert.assertEquals( 3, confirms.getRejectedCount());
+	}
+}
@@ -40,6 +40,9 @@ import net.roboconf.core.internal.tests.TestUtils;
 import net.roboconf.core.internal.tests.TestUtils.StringHandler;
 import net.roboconf.core.utils.Utils;
 import net.roboconf.messaging.api.jmx.RoboconfMessageQueue;
+import net.roboconf.messaging.api.messages.Message;
+import net.roboconf.messaging.api.messages.from_dm_to_dm.MsgEcho;
+import net.roboconf.messaging.api.utils.SerializationUtils;
 
 /**
  * @author Vincent Zurczak - Linagora
@@ -120,4 +123,72 @@ public class RoboconfConsumerTest {
 		rc.handleDelivery( "tag", Mockito.mock( Envelope.class ), null, new byte[ 1 ]);
 		Assert.assertTrue( logHandler.getLogs().startsWith( "DM: a message could not be deserialized." ));
 	}
+
+
+	@Test
+	public void testHandleDelivery_manualAck() throws Exception {
+
+		RoboconfMessageQueue messageQueue = new RoboconfMessageQueue();
+		Channel channel = Mockito.mock( Channel.class );
+		RoboconfConsumer rc = new RoboconfConsumer( "DM", channel, messageQueue, true );
+
+		Envelope envelope = Mockito.mock( Envelope.class );
+		Mockito.when( envelope.getDeliveryTag()).thenReturn( 5L );
+		byte[] bytes = SerializationUtils.serializeObject( new MsgEcho( "hi" ));
+
+		rc.handleDelivery( "tag", envelope, null, bytes );
+		Assert.assertEquals( 1, messageQueue.size());
+		Assert.assertEquals( 1, rc.getPendingMessagesCount());
+		Mockito.verifyZeroInteractions( channel );
+
+		// The message is acknowledged once processed
+		Message msg = messageQueue.take();
+		Assert.assertEquals( MsgEcho.class, msg.getClass());
+		Mockito.verifyZeroInteractions( channel );
+
+		messageQueue.messageProcessed( msg );
+		Mockito.verify( channel, Mockito.only()).basicAck( 5L, false );
+		Assert.assertEquals( 0, rc.getPendingMessagesCount());
+		Assert.assertEquals( 0, messageQueue.getPendingCallbacksCount());
+	}
+
+
+	@Test
+	public void testHandleDelivery_manualAck_shutdown() throws Exception {
+
+		RoboconfMessageQueue messageQueue = new RoboconfMessageQueue();
+		Channel channel = Mockito.mock( Channel.class );
+		RoboconfConsumer rc = new RoboconfConsumer( "DM", channel, messageQueue, true );
+
+		byte[] bytes = SerializationUtils.serializeObject( new MsgEcho( "hi" ));
+		rc.handleDelivery( "tag", Mockito.mock( Envelope.class ), null, bytes );
+		Assert.assertEquals( 1, rc.getPendingMessagesCount());
+		Assert.assertEquals( 1, messageQueue.getPendingCallbacksCount());
+
+		// Pending messages will be delivered again, they must not be acknowledged
+		ShutdownSignalException sig = Mockito.mock( ShutdownSignalException.class );
+		rc.handleShutdownSignal( "tag", sig );
+		Assert.assertEquals( 0, rc.getPendingMessagesCount());
+		Assert.assertEquals( 0, messageQueue.getPendingCallbacksCount());
+
+		messageQueue.messageProcessed( messageQueue.take());
+		Mockito.verifyZeroInteractions( channel );
+	}
+
+
+	@Test
+	public void testHandleDelivery_manualAck_deserializationError() throws Exception {
+
+		RoboconfMessageQueue messageQueue = new RoboconfMessageQueue();
+		Channel channel = Mockito.mock( Channel.class );
+		RoboconfConsumer rc = new RoboconfConsumer( "DM", channel, messageQueue, true );
+
+		Envelope envelope = Mockito.mock( Envelope.class );
+		Mockito.when( envelope.getDeliveryTag()).thenReturn( 7L );
+
+		rc.handleDelivery( "tag", envelope, null, new byte[ 1 ]);
+		Assert.assertEquals( 0, messageQueue.size());
+		Assert.assertEquals( 1, messageQueue.getFailedReceptionCount());
+		Mockito.verify( channel, Mockito.only()).basicReject( 7L, false );
+	}
 }
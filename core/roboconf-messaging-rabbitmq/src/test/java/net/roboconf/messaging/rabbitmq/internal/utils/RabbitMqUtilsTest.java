@@ -48,8 +48,6 @@ import java.util.Map;
 import javax.net.ssl.SSLContext;
 
 import org.junit.Assert;
-import org.junit.Assume;
-import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
@@ -69,15 +67,6 @@ import net.roboconf.messaging.rabbitmq.RabbitMqConstants;
  */
 public class RabbitMqUtilsTest {
 
-	private static boolean rabbitMqIsRunning = false;
-
-	@BeforeClass
-	public static void checkRabbitMqIsRunning() throws Exception {
-		rabbitMqIsRunning = RabbitMqTestUtils.checkRabbitMqIsRunning();
-	}
-
-
-
 	@Rule
 	public TemporaryFolder folder = new TemporaryFolder();
 
@@ -275,32 +264,6 @@ public class RabbitMqUtilsTest {
 	}
 
 
-	@Test
-	public void testCloseConnection_withNull() throws Exception {
-		RabbitMqUtils.closeConnection( null );
-	}
-
-
-	@Test
-	public void testCloseConnection() throws Exception {
-		Assume.assumeTrue( rabbitMqIsRunning );
-
-		Channel channel = RabbitMqTestUtils.createTestChannel();
-		Assert.assertTrue( channel.isOpen());
-		Assert.assertTrue( channel.getConnection().isOpen());
-
-		// Close it
-		RabbitMqUtils.closeConnection( channel );
-		Assert.assertFalse( channel.isOpen());
-		Assert.assertFalse( channel.getConnection().isOpen());
-
-		// Make sure closing an already closed channel does not throw an exception
-		RabbitMqUtils.closeConnection( channel );
-		Assert.assertFalse( channel.isOpen());
-		Assert.assertFalse( channel.getConnection().isOpen());
-	}
-
-
 	/**
 	 * Generates an empty key store.
 	 * @param passPhrase the pass phrase (not null)